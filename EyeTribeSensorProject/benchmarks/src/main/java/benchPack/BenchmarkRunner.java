@@ -0,0 +1,25 @@
+package benchPack;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Starting point of the benchmark jar.<br><p>
+ * Takes the usual JMH command line options, and always adds the {@link org.openjdk.jmh.profile.GCProfiler}
+ * so that every run reports the allocation rate next to the time of each benchmark.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build() ;
+		new Runner(options).run() ;
+	}
+}
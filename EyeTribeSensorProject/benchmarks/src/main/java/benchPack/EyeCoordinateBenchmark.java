@@ -0,0 +1,42 @@
+package benchPack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dataPack.EyeCoordinate;
+
+/**
+ * Benchmark of {@link dataPack.EyeCoordinate#getDistanceBetweenEyeCoordinated(EyeCoordinate)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EyeCoordinateBenchmark {
+
+	private EyeCoordinate first ;
+	private EyeCoordinate second ;
+
+	@Setup
+	public void setUp() {
+		first = new EyeCoordinate(412.5, 318.25) ;
+		second = new EyeCoordinate(1210.75, 642.0) ;
+	}
+
+	@Benchmark
+	public double distance() {
+		return first.getDistanceBetweenEyeCoordinated(second) ;
+	}
+}
@@ -0,0 +1,89 @@
+package benchPack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dataPack.FixationSet;
+import dataPack.SmoothedEye;
+
+/**
+ * Benchmark of filling a {@link dataPack.FixationSet} with setSize samples.<br><p>
+ * 1. addEyeCoordinatesSet adds pre-built {@link dataPack.SmoothedEye}s to a new fixation set.<br>
+ * 2. addEyeCoordinate adds the same samples from primitives to a new fixation set.<br>
+ * 3. addEyeCoordinateRecycled adds them to one fixation set which is reset before each fill, as the pool does.<br>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixationSetBenchmark {
+
+	@Param({"8", "64", "512"})
+	public int setSize ;
+
+	private SmoothedEye[] samples ;
+	private double[] x ;
+	private double[] y ;
+	private long[] ts ;
+	private FixationSet recycledFixationSet ;
+
+	@Setup
+	public void setUp() {
+		samples = new SmoothedEye[setSize] ;
+		x = new double[setSize] ;
+		y = new double[setSize] ;
+		ts = new long[setSize] ;
+		for (int i = 0 ; i < setSize ; i++)
+		{
+			x[i] = 600 + (i % 13) * 1.5 ;
+			y[i] = 400 + (i % 7) * 2.5 ;
+			ts[i] = 1000L + i * 16L ;
+			samples[i] = new SmoothedEye(x[i], y[i], true, 7, ts[i]) ;
+		}
+		recycledFixationSet = new FixationSet(0, setSize) ;
+	}
+
+	@Benchmark
+	public FixationSet addEyeCoordinatesSet() {
+		FixationSet fixationSet = new FixationSet(ts[0]) ;
+		for (int i = 0 ; i < setSize ; i++)
+		{
+			fixationSet.addEyeCoordinatesSet(samples[i]) ;
+		}
+		return fixationSet ;
+	}
+
+	@Benchmark
+	public FixationSet addEyeCoordinate() {
+		FixationSet fixationSet = new FixationSet(ts[0]) ;
+		for (int i = 0 ; i < setSize ; i++)
+		{
+			fixationSet.addEyeCoordinate(x[i], y[i], 7, ts[i]) ;
+		}
+		return fixationSet ;
+	}
+
+	@Benchmark
+	public FixationSet addEyeCoordinateRecycled() {
+		FixationSet fixationSet = recycledFixationSet ;
+		fixationSet.reset(ts[0]) ;
+		for (int i = 0 ; i < setSize ; i++)
+		{
+			fixationSet.addEyeCoordinate(x[i], y[i], 7, ts[i]) ;
+		}
+		return fixationSet ;
+	}
+}
@@ -0,0 +1,100 @@
+package benchPack;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import filterPack.GazeFilter;
+import filterPack.KalmanGazeFilter;
+import filterPack.MovingMedianGazeFilter;
+import filterPack.OneEuroGazeFilter;
+
+/**
+ * Benchmark of the {@link filterPack.GazeFilter}s, streaming one sample at a time and in batch over a whole column of
+ * {@link benchPack.GazeFilterBenchmark#SAMPLE_COUNT} samples.<br><p>
+ * The samples jitter around fixations which jump every 20 samples, 16 milliseconds apart. The batch time is for the
+ * whole column, so divide it by {@link benchPack.GazeFilterBenchmark#SAMPLE_COUNT} to compare with the streaming time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GazeFilterBenchmark {
+
+	/**
+	 * Number of samples built. A power of two, so the index wraps with a mask.
+	 */
+	private static final int SAMPLE_COUNT = 4096 ;
+
+	@Param({"oneEuro", "kalman1d", "kalman2d", "median5"})
+	public String filterKind ;
+
+	private double[] x ;
+	private double[] y ;
+	private long[] timeStamps ;
+	private double[] filteredX ;
+	private double[] filteredY ;
+	private GazeFilter gazeFilter ;
+	private int sampleIndex ;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42) ;
+		x = new double[SAMPLE_COUNT] ;
+		y = new double[SAMPLE_COUNT] ;
+		timeStamps = new long[SAMPLE_COUNT] ;
+		filteredX = new double[SAMPLE_COUNT] ;
+		filteredY = new double[SAMPLE_COUNT] ;
+		for (int i = 0 ; i < SAMPLE_COUNT ; i++)
+		{
+			int fixation = i / 20 ;
+			x[i] = 200 + (fixation * 97) % 1400 + random.nextGaussian() * 5 ;
+			y[i] = 150 + (fixation * 61) % 800 + random.nextGaussian() * 5 ;
+			timeStamps[i] = 1000L + i * 16L ;
+		}
+		if (filterKind.equals("oneEuro"))
+		{
+			gazeFilter = new OneEuroGazeFilter() ;
+		}
+		else if (filterKind.equals("kalman1d"))
+		{
+			gazeFilter = new KalmanGazeFilter(KalmanGazeFilter.POSITION) ;
+		}
+		else if (filterKind.equals("kalman2d"))
+		{
+			gazeFilter = new KalmanGazeFilter(KalmanGazeFilter.POSITION_AND_VELOCITY) ;
+		}
+		else
+		{
+			gazeFilter = new MovingMedianGazeFilter(5) ;
+		}
+		sampleIndex = 0 ;
+	}
+
+	@Benchmark
+	public double update() {
+		int index = sampleIndex ;
+		sampleIndex = (index + 1) & (SAMPLE_COUNT - 1) ;
+		gazeFilter.update(x[index], y[index], timeStamps[index]) ;
+		return gazeFilter.getX() + gazeFilter.getY() ;
+	}
+
+	@Benchmark
+	public double filterColumn() {
+		gazeFilter.filter(x, y, timeStamps, SAMPLE_COUNT, filteredX, filteredY) ;
+		return filteredX[SAMPLE_COUNT - 1] + filteredY[SAMPLE_COUNT - 1] ;
+	}
+}
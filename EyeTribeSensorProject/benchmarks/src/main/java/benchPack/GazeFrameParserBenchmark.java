@@ -0,0 +1,123 @@
+package benchPack;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+import basePack.GazeFrame;
+import basePack.GazeFrameParser;
+
+/**
+ * Benchmark of reading one frame line of the tracker server, with the streaming {@link basePack.GazeFrameParser}
+ * into a reused {@link basePack.GazeFrame}, and with a Gson tree mapped to a new
+ * {@link com.theeyetribe.client.data.GazeData} as the bundled client does.<br><p>
+ * The lines are built like those of {@link simPack.StandInTrackerServer}, with both eyes, from
+ * {@link benchPack.GazeFrameParserBenchmark#LINE_COUNT} random gaze positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GazeFrameParserBenchmark {
+
+	/**
+	 * Number of lines built. A power of two, so the index wraps with a mask.
+	 */
+	private static final int LINE_COUNT = 256 ;
+
+	private String[] lines ;
+	private byte[][] lineBytes ;
+	private GazeFrameParser gazeFrameParser ;
+	private JsonParser jsonParser ;
+	private int lineIndex ;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42) ;
+		lines = new String[LINE_COUNT] ;
+		lineBytes = new byte[LINE_COUNT][] ;
+		for (int i = 0 ; i < LINE_COUNT ; i++)
+		{
+			double x = random.nextDouble() * 1920 ;
+			double y = random.nextDouble() * 1080 ;
+			StringBuilder line = new StringBuilder() ;
+			line.append("{\"category\":\"tracker\",\"request\":\"get\",\"statuscode\":200,\"values\":{\"frame\":{") ;
+			line.append("\"time\":").append(1400000000000L + i * 16L) ;
+			line.append(",\"timestamp\":\"2015-03-24 10:15:02.123\",\"fix\":").append(i % 4 != 0) ;
+			line.append(",\"state\":7") ;
+			appendPoint(line, "raw", x, y) ;
+			appendPoint(line, "avg", x, y) ;
+			for (String eye : new String[] {"lefteye", "righteye"})
+			{
+				line.append(",\"").append(eye).append("\":{\"psize\":20.0") ;
+				appendPoint(line, "raw", x, y) ;
+				appendPoint(line, "avg", x, y) ;
+				appendPoint(line, "pcenter", 0.5, 0.5) ;
+				line.append('}') ;
+			}
+			line.append("}}}") ;
+			lines[i] = line.toString() ;
+			lineBytes[i] = lines[i].getBytes(StandardCharsets.ISO_8859_1) ;
+		}
+		gazeFrameParser = new GazeFrameParser() ;
+		jsonParser = new JsonParser() ;
+	}
+
+	@Benchmark
+	public GazeFrame streaming() {
+		byte[] line = lineBytes[lineIndex++ & (LINE_COUNT - 1)] ;
+		gazeFrameParser.parse(line, 0, line.length) ;
+		return gazeFrameParser.getGazeFrame() ;
+	}
+
+	@Benchmark
+	public GazeData gsonTree() {
+		String line = lines[lineIndex++ & (LINE_COUNT - 1)] ;
+		JsonObject frame = jsonParser.parse(line).getAsJsonObject().getAsJsonObject("values").getAsJsonObject("frame") ;
+		GazeData gazeData = new GazeData() ;
+		gazeData.timeStamp = frame.get("time").getAsLong() ;
+		gazeData.timeStampString = frame.get("timestamp").getAsString() ;
+		gazeData.isFixated = frame.get("fix").getAsBoolean() ;
+		gazeData.state = frame.get("state").getAsInt() ;
+		gazeData.rawCoordinates = point(frame.getAsJsonObject("raw")) ;
+		gazeData.smoothedCoordinates = point(frame.getAsJsonObject("avg")) ;
+		gazeData.leftEye = eye(gazeData, frame.getAsJsonObject("lefteye")) ;
+		gazeData.rightEye = eye(gazeData, frame.getAsJsonObject("righteye")) ;
+		return gazeData ;
+	}
+
+	private static GazeData.Eye eye(GazeData gazeData, JsonObject values) {
+		GazeData.Eye eye = gazeData.new Eye() ;
+		eye.pupilSize = values.get("psize").getAsDouble() ;
+		eye.rawCoordinates = point(values.getAsJsonObject("raw")) ;
+		eye.smoothedCoordinates = point(values.getAsJsonObject("avg")) ;
+		eye.pupilCenterCoordinates = point(values.getAsJsonObject("pcenter")) ;
+		return eye ;
+	}
+
+	private static Point2D point(JsonObject values) {
+		return new Point2D(values.get("x").getAsDouble(), values.get("y").getAsDouble()) ;
+	}
+
+	private static void appendPoint(StringBuilder line, String name, double x, double y) {
+		line.append(",\"").append(name).append("\":{\"x\":").append(x).append(",\"y\":").append(y).append('}') ;
+	}
+}
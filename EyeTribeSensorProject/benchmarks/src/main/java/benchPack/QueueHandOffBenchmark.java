@@ -0,0 +1,130 @@
+package benchPack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dataPack.FixationSet;
+import dataPack.QueueOfFixationSets;
+
+/**
+ * Benchmark of handing fixation sets from the producer to the consumer through a {@link dataPack.QueueOfFixationSets}.<br><p>
+ * 1. throughput: the benchmark thread produces fixation sets as fast as it can, while a background consumer 
+ * takes and releases them, as {@link basePack.SensorDataConsumer} does.<br>
+ * 2. roundTrip: the benchmark thread sends one fixation set to a background thread, which sends it straight back 
+ * through a second queue. The sampled times give the latency distribution of two hand-offs.<br>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueHandOffBenchmark {
+
+	/**
+	 * Queue drained by a background consumer thread.
+	 */
+	@State(Scope.Benchmark)
+	public static class Drained {
+
+		@Param({QueueKind.BLOCKING, QueueKind.RING_PARK, QueueKind.RING_YIELD})
+		public String queueKind ;
+
+		QueueOfFixationSets queueOfFixationSets ;
+		private Thread consumerThread ;
+		long timeStamp ;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			queueOfFixationSets = QueueKind.create(queueKind, 25) ;
+			consumerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (true)
+						{
+							queueOfFixationSets.releaseFixationSet(queueOfFixationSets.getFIFOFixationSet()) ;
+						}
+					} catch (InterruptedException e) {
+						// Stopped by tearDown.
+					}
+				}
+			}, "benchmark-consumer") ;
+			consumerThread.setDaemon(true) ;
+			consumerThread.start() ;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			QueueKind.stop(consumerThread) ;
+		}
+	}
+
+	/**
+	 * Pair of queues with a background thread echoing every fixation set back.
+	 */
+	@State(Scope.Benchmark)
+	public static class Echoed {
+
+		@Param({QueueKind.BLOCKING, QueueKind.RING_PARK, QueueKind.RING_YIELD})
+		public String queueKind ;
+
+		QueueOfFixationSets requests ;
+		QueueOfFixationSets replies ;
+		FixationSet fixationSet ;
+		private Thread echoThread ;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			requests = QueueKind.create(queueKind, 25) ;
+			replies = QueueKind.create(queueKind, 25) ;
+			fixationSet = new FixationSet(0) ;
+			echoThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (true)
+						{
+							replies.addFIFOFixationSet(requests.getFIFOFixationSet()) ;
+						}
+					} catch (InterruptedException e) {
+						// Stopped by tearDown.
+					}
+				}
+			}, "benchmark-echo") ;
+			echoThread.setDaemon(true) ;
+			echoThread.start() ;
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			QueueKind.stop(echoThread) ;
+		}
+	}
+
+	@Benchmark
+	public void throughput(Drained drained) throws InterruptedException {
+		QueueOfFixationSets queueOfFixationSets = drained.queueOfFixationSets ;
+		queueOfFixationSets.addFIFOFixationSet(queueOfFixationSets.acquireFixationSet(drained.timeStamp++)) ;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public FixationSet roundTrip(Echoed echoed) throws InterruptedException {
+		echoed.requests.addFIFOFixationSet(echoed.fixationSet) ;
+		return echoed.replies.getFIFOFixationSet() ;
+	}
+}
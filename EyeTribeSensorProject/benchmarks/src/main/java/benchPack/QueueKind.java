@@ -0,0 +1,55 @@
+package benchPack;
+
+import dataPack.QueueOfFixationSets;
+import dataPack.RingOfFixationSets;
+import dataPack.WaitStrategy;
+
+/**
+ * Queues of fixation sets compared by the benchmarks, selected by name through a JMH parameter.
+ */
+final class QueueKind {
+
+	/**
+	 * Names accepted by {@link benchPack.QueueKind#create(String, int)}.
+	 */
+	static final String BLOCKING = "blocking", RING_PARK = "ring-park", RING_YIELD = "ring-yield", RING_SPIN = "ring-spin" ;
+
+	private QueueKind() {
+	}
+
+	/**
+	 * Method to build a queue of fixation sets from its name.
+	 * @param kind one of the names above.
+	 * @param sizeOfQueue size of the queue.
+	 * @return new {@link dataPack.QueueOfFixationSets}.
+	 */
+	static QueueOfFixationSets create(String kind, int sizeOfQueue) {
+		if (BLOCKING.equals(kind))
+		{
+			return new QueueOfFixationSets(sizeOfQueue) ;
+		}
+		if (RING_PARK.equals(kind))
+		{
+			return new RingOfFixationSets(sizeOfQueue, WaitStrategy.PARK, WaitStrategy.PARK) ;
+		}
+		if (RING_YIELD.equals(kind))
+		{
+			return new RingOfFixationSets(sizeOfQueue, WaitStrategy.YIELD, WaitStrategy.YIELD) ;
+		}
+		if (RING_SPIN.equals(kind))
+		{
+			return new RingOfFixationSets(sizeOfQueue, WaitStrategy.BUSY_SPIN, WaitStrategy.BUSY_SPIN) ;
+		}
+		throw new IllegalArgumentException("Unknown queue: " + kind) ;
+	}
+
+	/**
+	 * Method to stop a background thread blocked on a queue and wait for it to end.
+	 * @param thread thread to stop.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 */
+	static void stop(Thread thread) throws InterruptedException {
+		thread.interrupt() ;
+		thread.join() ;
+	}
+}
@@ -0,0 +1,94 @@
+package benchPack;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+import basePack.SensorDataProducer;
+import dataPack.QueueOfFixationSets;
+
+/**
+ * Benchmark of {@link basePack.SensorDataProducer#onGazeUpdate(GazeData)} driven by synthetic 
+ * {@link com.theeyetribe.client.data.GazeData}.<br><p>
+ * The frames repeat a pattern of fixationLength fixated samples around a point followed by 
+ * {@link benchPack.SensorDataProducerBenchmark#SACCADE_LENGTH} non fixated ones. Whenever a frame closes a fixation, 
+ * the benchmark thread takes the fixation set out of the queue and releases it, so that one thread plays both sides 
+ * and the numbers only contain the producer path and the hand-off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorDataProducerBenchmark {
+
+	/**
+	 * Number of frames built. A power of two, so the index wraps with a mask.
+	 */
+	private static final int FRAME_COUNT = 4096 ;
+	/**
+	 * Number of non fixated frames between two fixations.
+	 */
+	private static final int SACCADE_LENGTH = 6 ;
+
+	@Param({QueueKind.BLOCKING, QueueKind.RING_PARK})
+	public String queueKind ;
+
+	@Param({"20", "120"})
+	public int fixationLength ;
+
+	private GazeData[] frames ;
+	private boolean[] closesFixation ;
+	private QueueOfFixationSets queueOfFixationSets ;
+	private SensorDataProducer sensorDataProducer ;
+	private int frameIndex ;
+
+	@Setup
+	public void setUp() {
+		frames = new GazeData[FRAME_COUNT] ;
+		closesFixation = new boolean[FRAME_COUNT] ;
+		int period = fixationLength + SACCADE_LENGTH ;
+		for (int i = 0 ; i < FRAME_COUNT ; i++)
+		{
+			int fixation = i / period ;
+			int position = i % period ;
+			GazeData gazeData = new GazeData() ;
+			gazeData.isFixated = position < fixationLength ;
+			gazeData.state = GazeData.STATE_TRACKING_GAZE | GazeData.STATE_TRACKING_EYES | GazeData.STATE_TRACKING_PRESENCE ;
+			gazeData.timeStamp = 1000L + i * 16L ;
+			gazeData.smoothedCoordinates = new Point2D(200 + (fixation * 97) % 1400 + (position % 5),
+					150 + (fixation * 61) % 800 + (position % 3)) ;
+			gazeData.rawCoordinates = new Point2D(gazeData.smoothedCoordinates) ;
+			frames[i] = gazeData ;
+			closesFixation[i] = position == fixationLength ;
+		}
+		queueOfFixationSets = QueueKind.create(queueKind, 25) ;
+		sensorDataProducer = new SensorDataProducer(queueOfFixationSets) ;
+		frameIndex = 0 ;
+	}
+
+	@Benchmark
+	public void onGazeUpdate() throws InterruptedException {
+		int index = frameIndex ;
+		frameIndex = (index + 1) & (FRAME_COUNT - 1) ;
+		sensorDataProducer.onGazeUpdate(frames[index]) ;
+		if (closesFixation[index])
+		{
+			queueOfFixationSets.releaseFixationSet(queueOfFixationSets.getFIFOFixationSet()) ;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package benchPack;
+
+import java.lang.management.ManagementFactory;
+
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+import basePack.SensorDataProducer;
+import dataPack.BroadcastRingOfFixationSets;
+import dataPack.DispersionThresholdDetector;
+import dataPack.FixationSet;
+import dataPack.FixationSetReader;
+import dataPack.MergingQueueOfFixationSets;
+import dataPack.OverflowPolicy;
+import dataPack.RingOfFixationSets;
+import dataPack.WaitStrategy;
+
+/**
+ * Check that {@link basePack.SensorDataProducer#onGazeUpdate(GazeData)} allocates nothing per sample once warmed up.
+ * <br><p>
+ * For each producer set-up, the check does the following:<br>
+ * 1. Builds all the synthetic {@link com.theeyetribe.client.data.GazeData} frames up front: fixations around a point,
+ * joined by saccades moving in a straight line to the next point.<br>
+ * 2. Plays the warm-up rounds, so the pooled fixation sets and the detector's buffers reach their working size and the
+ * code is compiled.<br>
+ * 3. Plays the measured rounds, reading the bytes allocated by the thread from the
+ * {@link com.sun.management.ThreadMXBean} before and after each one, less what an empty round reports.<br>
+ * The same thread takes every fixation set out of the queue and releases it, so both sides of the pool are covered.
+ * The check prints one line per set-up and exits with status 1 if any measured round allocated a byte:
+ * <pre>
+ *   java -cp target/benchmarks.jar benchPack.ZeroAllocationCheck
+ * </pre>
+ */
+public class ZeroAllocationCheck {
+
+	/**
+	 * Number of samples per round.
+	 */
+	private static final int ROUND_LENGTH = 1000 ;
+	private static final int WARM_UP_ROUNDS = 200 ;
+	private static final int MEASURED_ROUNDS = 10 ;
+	private static final int FIXATION_LENGTH = 30 ;
+	private static final int SACCADE_LENGTH = 3 ;
+
+	public static void main(String[] args) throws InterruptedException {
+		com.sun.management.ThreadMXBean threadMXBean =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean() ;
+		if (!threadMXBean.isThreadAllocatedMemorySupported())
+		{
+			System.out.println("Could Not measure allocation, not supported by this JVM!") ;
+			System.exit(2) ;
+		}
+		threadMXBean.setThreadAllocatedMemoryEnabled(true) ;
+		GazeData[] frames = makeFrames((WARM_UP_ROUNDS + MEASURED_ROUNDS) * ROUND_LENGTH) ;
+
+		boolean passed = true ;
+		RingOfFixationSets ring = new RingOfFixationSets(25, WaitStrategy.PARK, WaitStrategy.PARK) ;
+		passed &= check("tracker flag, ring", threadMXBean, frames, ring, new SensorDataProducer(ring)) ;
+		ring = new RingOfFixationSets(25, WaitStrategy.PARK, WaitStrategy.PARK) ;
+		passed &= check("dispersion detector, ring", threadMXBean, frames, ring,
+				new SensorDataProducer(ring, new DispersionThresholdDetector())) ;
+		ring = new RingOfFixationSets(25, WaitStrategy.PARK, WaitStrategy.PARK) ;
+		passed &= check("dispersion detector, merging ring", threadMXBean, frames, ring,
+				new SensorDataProducer(new MergingQueueOfFixationSets(ring), new DispersionThresholdDetector())) ;
+		BroadcastRingOfFixationSets broadcastRing = new BroadcastRingOfFixationSets(25, FixationSet.INITIAL_CAPACITY,
+				WaitStrategy.PARK, OverflowPolicy.COALESCE) ;
+		BroadcastRingOfFixationSets.Subscriber subscriber = broadcastRing.newSubscriber("check", WaitStrategy.PARK) ;
+		passed &= check("dispersion detector, merging broadcast ring", threadMXBean, frames, subscriber,
+				new SensorDataProducer(new MergingQueueOfFixationSets(broadcastRing), new DispersionThresholdDetector())) ;
+		System.exit(passed ? 0 : 1) ;
+	}
+
+	/**
+	 * Method to play the rounds through one producer and report its allocation.
+	 * @return true if no measured round allocated.
+	 */
+	private static boolean check(String name, com.sun.management.ThreadMXBean threadMXBean, GazeData[] frames,
+			FixationSetReader fixationSetReader, SensorDataProducer sensorDataProducer) throws InterruptedException {
+		long threadId = Thread.currentThread().getId() ;
+		for (int round = 0 ; round < WARM_UP_ROUNDS ; round++)
+		{
+			playRound(frames, round, fixationSetReader, sensorDataProducer) ;
+		}
+		long emptyRoundBytes = Long.MAX_VALUE ;
+		for (int i = 0 ; i < 3 ; i++)
+		{
+			long before = threadMXBean.getThreadAllocatedBytes(threadId) ;
+			emptyRoundBytes = Math.min(emptyRoundBytes, threadMXBean.getThreadAllocatedBytes(threadId) - before) ;
+		}
+		long worstRoundBytes = 0 ;
+		for (int round = WARM_UP_ROUNDS ; round < WARM_UP_ROUNDS + MEASURED_ROUNDS ; round++)
+		{
+			long before = threadMXBean.getThreadAllocatedBytes(threadId) ;
+			playRound(frames, round, fixationSetReader, sensorDataProducer) ;
+			long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before - emptyRoundBytes ;
+			worstRoundBytes = Math.max(worstRoundBytes, allocated) ;
+		}
+		boolean passed = worstRoundBytes <= 0 ;
+		System.out.println(String.format("%s %s: at most %d bytes per round of %d samples", passed ? "PASS" : "FAIL",
+				name, Math.max(0, worstRoundBytes), ROUND_LENGTH)) ;
+		return passed ;
+	}
+
+	/**
+	 * Method to hand one round of frames to the producer, releasing every fixation set it hands off.
+	 */
+	private static void playRound(GazeData[] frames, int round, FixationSetReader fixationSetReader,
+			SensorDataProducer sensorDataProducer) throws InterruptedException {
+		for (int i = round * ROUND_LENGTH ; i < (round + 1) * ROUND_LENGTH ; i++)
+		{
+			sensorDataProducer.onGazeUpdate(frames[i]) ;
+			while (fixationSetReader.size() > 0)
+			{
+				FixationSet fixationSet = fixationSetReader.getFIFOFixationSet() ;
+				fixationSetReader.releaseFixationSet(fixationSet) ;
+			}
+		}
+	}
+
+	/**
+	 * Method to build the frames at 60 Hz, with their boxed values made up front.
+	 */
+	private static GazeData[] makeFrames(int count) {
+		GazeData[] frames = new GazeData[count] ;
+		int period = FIXATION_LENGTH + SACCADE_LENGTH ;
+		for (int i = 0 ; i < count ; i++)
+		{
+			int fixation = i / period ;
+			int position = i % period ;
+			double x = targetX(fixation) + (position % 5) ;
+			double y = targetY(fixation) + (position % 3) ;
+			if (position >= FIXATION_LENGTH)
+			{
+				double fraction = (position - FIXATION_LENGTH + 1.0) / (SACCADE_LENGTH + 1) ;
+				x = targetX(fixation) + fraction * (targetX(fixation + 1) - targetX(fixation)) ;
+				y = targetY(fixation) + fraction * (targetY(fixation + 1) - targetY(fixation)) ;
+			}
+			GazeData gazeData = new GazeData() ;
+			gazeData.isFixated = position < FIXATION_LENGTH ;
+			gazeData.state = GazeData.STATE_TRACKING_GAZE | GazeData.STATE_TRACKING_EYES | GazeData.STATE_TRACKING_PRESENCE ;
+			gazeData.timeStamp = 1000L + i * 1000L / 60 ;
+			gazeData.smoothedCoordinates = new Point2D(x, y) ;
+			gazeData.rawCoordinates = new Point2D(x, y) ;
+			frames[i] = gazeData ;
+		}
+		return frames ;
+	}
+
+	private static double targetX(int fixation) {
+		return 200 + (fixation * 397) % 1400 ;
+	}
+
+	private static double targetY(int fixation) {
+		return 150 + (fixation * 261) % 800 ;
+	}
+}
@@ -0,0 +1,321 @@
+package basePack;
+
+import java.nio.charset.StandardCharsets;
+
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+/**
+ * One frame of the tracker held in primitive fields, filled in place by {@link basePack.GazeFrameParser}.<br><p>
+ * The frame carries the same values as a {@link com.theeyetribe.client.data.GazeData}: time stamp, state, fixated
+ * flag, smoothed and raw gaze, and for each eye its smoothed and raw gaze, pupil centre and pupil size. It is reused
+ * for every frame, so a {@link basePack.GazeFrameListener} must copy what it keeps. The frame can be copied into a
+ * {@link com.theeyetribe.client.data.GazeData} for the listeners of the bundled client.
+ */
+public class GazeFrame {
+
+	/**
+	 * Longest time stamp text kept, in bytes.
+	 */
+	static final int MAXIMUM_TIME_STAMP_LENGTH = 32 ;
+
+	long timeStamp ;
+	int state ;
+	boolean fixated ;
+	boolean hasSmoothedCoordinates ;
+	double smoothedX , smoothedY ;
+	boolean hasRawCoordinates ;
+	double rawX , rawY ;
+	/**
+	 * Bytes of the time stamp text, such as "2015-03-24 10:15:02.123".
+	 */
+	final byte[] timeStampText = new byte[MAXIMUM_TIME_STAMP_LENGTH] ;
+	int timeStampTextLength ;
+	final Eye leftEye = new Eye() ;
+	final Eye rightEye = new Eye() ;
+
+	/**
+	 * Method to clear the frame before it is parsed again.
+	 */
+	void clear() {
+		timeStamp = 0 ;
+		state = 0 ;
+		fixated = false ;
+		hasSmoothedCoordinates = false ;
+		hasRawCoordinates = false ;
+		timeStampTextLength = 0 ;
+		leftEye.present = false ;
+		rightEye.present = false ;
+	}
+
+	/**
+	 * Method to get the time stamp.
+	 * @return time stamp in milliseconds.
+	 */
+	public long getTimeStamp() {
+		return timeStamp ;
+	}
+
+	/**
+	 * Method to get the tracker state.
+	 * @return tracker state, made of the GazeData.STATE_ flags.
+	 */
+	public int getState() {
+		return state ;
+	}
+
+	/**
+	 * Method to know whether the tracker flagged the frame as fixated.
+	 * @return the tracker's fixated flag.
+	 */
+	public boolean isFixated() {
+		return fixated ;
+	}
+
+	/**
+	 * Method to know whether the frame has smoothed gaze coordinates.
+	 * @return true if the smoothed gaze was sent.
+	 */
+	public boolean hasSmoothedCoordinates() {
+		return hasSmoothedCoordinates ;
+	}
+
+	/**
+	 * Method to get the smoothed x coordinate of the gaze.
+	 * @return x coordinate in pixels.
+	 */
+	public double getSmoothedX() {
+		return smoothedX ;
+	}
+
+	/**
+	 * Method to get the smoothed y coordinate of the gaze.
+	 * @return y coordinate in pixels.
+	 */
+	public double getSmoothedY() {
+		return smoothedY ;
+	}
+
+	/**
+	 * Method to know whether the frame has raw gaze coordinates.
+	 * @return true if the raw gaze was sent.
+	 */
+	public boolean hasRawCoordinates() {
+		return hasRawCoordinates ;
+	}
+
+	/**
+	 * Method to get the raw x coordinate of the gaze.
+	 * @return x coordinate in pixels.
+	 */
+	public double getRawX() {
+		return rawX ;
+	}
+
+	/**
+	 * Method to get the raw y coordinate of the gaze.
+	 * @return y coordinate in pixels.
+	 */
+	public double getRawY() {
+		return rawY ;
+	}
+
+	/**
+	 * Method to get the {@link basePack.GazeFrame#leftEye}.
+	 * @return {@link basePack.GazeFrame#leftEye}
+	 */
+	public Eye getLeftEye() {
+		return leftEye ;
+	}
+
+	/**
+	 * Method to get the {@link basePack.GazeFrame#rightEye}.
+	 * @return {@link basePack.GazeFrame#rightEye}
+	 */
+	public Eye getRightEye() {
+		return rightEye ;
+	}
+
+	/**
+	 * Method to make the time stamp text. Unlike the other getters, it allocates a new String.
+	 * @return time stamp text, empty if none was sent.
+	 */
+	public String getTimeStampString() {
+		return new String(timeStampText, 0, timeStampTextLength, StandardCharsets.ISO_8859_1) ;
+	}
+
+	/**
+	 * Method to copy the frame into a {@link com.theeyetribe.client.data.GazeData}, reusing its coordinate and eye
+	 * objects. Only the boxed time stamp, the time stamp text and the pupil sizes are allocated.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be filled.
+	 */
+	public void copyTo(GazeData gazeData) {
+		gazeData.timeStamp = timeStamp ;
+		gazeData.timeStampString = getTimeStampString() ;
+		gazeData.state = state ;
+		gazeData.isFixated = fixated ;
+		gazeData.smoothedCoordinates = hasSmoothedCoordinates ? point(gazeData.smoothedCoordinates, smoothedX, smoothedY)
+				: Point2D.ZERO ;
+		gazeData.rawCoordinates = hasRawCoordinates ? point(gazeData.rawCoordinates, rawX, rawY) : Point2D.ZERO ;
+		gazeData.leftEye = leftEye.copyTo(gazeData, gazeData.leftEye) ;
+		gazeData.rightEye = rightEye.copyTo(gazeData, gazeData.rightEye) ;
+	}
+
+	/**
+	 * Method to copy the frame into another {@link basePack.GazeFrame}, for a stage passing on a changed frame while
+	 * leaving this one untouched. Nothing is allocated.
+	 * @param gazeFrame {@link basePack.GazeFrame} to be filled.
+	 */
+	public void copyTo(GazeFrame gazeFrame) {
+		gazeFrame.timeStamp = timeStamp ;
+		gazeFrame.state = state ;
+		gazeFrame.fixated = fixated ;
+		gazeFrame.hasSmoothedCoordinates = hasSmoothedCoordinates ;
+		gazeFrame.smoothedX = smoothedX ;
+		gazeFrame.smoothedY = smoothedY ;
+		gazeFrame.hasRawCoordinates = hasRawCoordinates ;
+		gazeFrame.rawX = rawX ;
+		gazeFrame.rawY = rawY ;
+		System.arraycopy(timeStampText, 0, gazeFrame.timeStampText, 0, timeStampTextLength) ;
+		gazeFrame.timeStampTextLength = timeStampTextLength ;
+		leftEye.copyTo(gazeFrame.leftEye) ;
+		rightEye.copyTo(gazeFrame.rightEye) ;
+	}
+
+	/**
+	 * Method to replace the smoothed gaze coordinates.
+	 * @param x x coordinate in pixels.
+	 * @param y y coordinate in pixels.
+	 */
+	public void setSmoothedCoordinates(double x, double y) {
+		hasSmoothedCoordinates = true ;
+		smoothedX = x ;
+		smoothedY = y ;
+	}
+
+	/**
+	 * Method to set a point, reusing the given {@link com.theeyetribe.client.data.Point2D} when there is one.
+	 */
+	private static Point2D point(Point2D point, double x, double y) {
+		if (point == null || point == Point2D.ZERO)
+		{
+			point = new Point2D() ;
+		}
+		point.x = x ;
+		point.y = y ;
+		return point ;
+	}
+
+	/**
+	 * Values of one eye within a {@link basePack.GazeFrame}.
+	 */
+	public static class Eye {
+
+		boolean present ;
+		double smoothedX , smoothedY ;
+		double rawX , rawY ;
+		double pupilCenterX , pupilCenterY ;
+		double pupilSize ;
+
+		/**
+		 * Method to know whether the eye was sent with the frame.
+		 * @return true if the eye was sent.
+		 */
+		public boolean isPresent() {
+			return present ;
+		}
+
+		/**
+		 * Method to get the smoothed x coordinate of the eye's gaze.
+		 * @return x coordinate in pixels.
+		 */
+		public double getSmoothedX() {
+			return smoothedX ;
+		}
+
+		/**
+		 * Method to get the smoothed y coordinate of the eye's gaze.
+		 * @return y coordinate in pixels.
+		 */
+		public double getSmoothedY() {
+			return smoothedY ;
+		}
+
+		/**
+		 * Method to get the raw x coordinate of the eye's gaze.
+		 * @return x coordinate in pixels.
+		 */
+		public double getRawX() {
+			return rawX ;
+		}
+
+		/**
+		 * Method to get the raw y coordinate of the eye's gaze.
+		 * @return y coordinate in pixels.
+		 */
+		public double getRawY() {
+			return rawY ;
+		}
+
+		/**
+		 * Method to get the x coordinate of the pupil centre in the camera image.
+		 * @return x coordinate, from 0 to 1.
+		 */
+		public double getPupilCenterX() {
+			return pupilCenterX ;
+		}
+
+		/**
+		 * Method to get the y coordinate of the pupil centre in the camera image.
+		 * @return y coordinate, from 0 to 1.
+		 */
+		public double getPupilCenterY() {
+			return pupilCenterY ;
+		}
+
+		/**
+		 * Method to get the pupil size.
+		 * @return pupil size as sent by the tracker.
+		 */
+		public double getPupilSize() {
+			return pupilSize ;
+		}
+
+		/**
+		 * Method to copy the eye into an eye of another {@link basePack.GazeFrame}.
+		 * @param eye eye to be filled.
+		 */
+		void copyTo(Eye eye) {
+			eye.present = present ;
+			eye.smoothedX = smoothedX ;
+			eye.smoothedY = smoothedY ;
+			eye.rawX = rawX ;
+			eye.rawY = rawY ;
+			eye.pupilCenterX = pupilCenterX ;
+			eye.pupilCenterY = pupilCenterY ;
+			eye.pupilSize = pupilSize ;
+		}
+
+		/**
+		 * Method to copy the eye into an eye of a {@link com.theeyetribe.client.data.GazeData}.
+		 * @param gazeData {@link com.theeyetribe.client.data.GazeData} owning the eye.
+		 * @param eye eye to be reused, or null.
+		 * @return the filled eye, or null if the eye was not sent.
+		 */
+		GazeData.Eye copyTo(GazeData gazeData, GazeData.Eye eye) {
+			if (!present)
+			{
+				return null ;
+			}
+			if (eye == null)
+			{
+				eye = gazeData.new Eye() ;
+			}
+			eye.smoothedCoordinates = point(eye.smoothedCoordinates, smoothedX, smoothedY) ;
+			eye.rawCoordinates = point(eye.rawCoordinates, rawX, rawY) ;
+			eye.pupilCenterCoordinates = point(eye.pupilCenterCoordinates, pupilCenterX, pupilCenterY) ;
+			eye.pupilSize = pupilSize ;
+			return eye ;
+		}
+	}
+}
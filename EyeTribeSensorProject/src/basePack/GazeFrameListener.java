@@ -0,0 +1,16 @@
+package basePack;
+
+/**
+ * Listener of the frames of a {@link basePack.NioTrackerClient} in primitive form.<br><p>
+ * Unlike {@link com.theeyetribe.client.IGazeListener}, the listener is handed the reused
+ * {@link basePack.GazeFrame} the frame was parsed into, so no object is made between the socket and the listener. It
+ * is called from the thread of the client only, and must copy what it keeps.
+ */
+public interface GazeFrameListener {
+
+	/**
+	 * Method called for every frame.
+	 * @param gazeFrame {@link basePack.GazeFrame} holding the frame, valid until the method returns.
+	 */
+	public void onGazeFrame(GazeFrame gazeFrame) ;
+}
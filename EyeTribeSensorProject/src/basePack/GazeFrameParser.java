@@ -0,0 +1,811 @@
+package basePack;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser of the JSON messages of the EyeTribe tracker server, writing straight into primitive fields.<br><p>
+ * Every message of the server is one line of JSON. The parser reads a line from a byte array in a single pass, and
+ * works as follows:<br>
+ * 1. Keys are compared byte for byte with the few names it knows, depending on the object they are in, so no String is
+ * made for them.<br>
+ * 2. The values of a frame are written into a reused {@link basePack.GazeFrame}, the values of a tracker "get" reply
+ * into the parser's own fields, and anything else is skipped.<br>
+ * 3. Numbers are read digit by digit into a long mantissa and a power of ten, and made with one multiplication or
+ * division when there are at most 18 significant digits and the power is up to 22. With a mantissa up to 2^53 the
+ * result is exact; with a longer one, such as the 17 digits of a double printed by Java, it is rounded twice and may
+ * be one unit in the last place off, far below the precision of the tracker. Any other number goes through
+ * Double.parseDouble, which allocates.<br>
+ * After {@link basePack.GazeFrameParser#parse(byte[], int, int)}, the kind of message, its category, request and
+ * status code, and the values it carried can be read from the parser. One parser belongs to one thread.
+ */
+public class GazeFrameParser {
+
+	/**
+	 * Kind of a message which is not valid JSON.
+	 */
+	public static final int MESSAGE_MALFORMED = 0 ;
+	/**
+	 * Kind of a message carrying a frame.
+	 */
+	public static final int MESSAGE_FRAME = 1 ;
+	/**
+	 * Kind of a tracker "get" reply carrying values other than a frame.
+	 */
+	public static final int MESSAGE_TRACKER_VALUES = 2 ;
+	/**
+	 * Kind of any other message, such as the acknowledgement of a request or of a heartbeat.
+	 */
+	public static final int MESSAGE_REPLY = 3 ;
+
+	/**
+	 * Category of a message whose category is missing or unknown.
+	 */
+	public static final int CATEGORY_OTHER = 0 ;
+	public static final int CATEGORY_TRACKER = 1 ;
+	public static final int CATEGORY_HEARTBEAT = 2 ;
+	public static final int CATEGORY_CALIBRATION = 3 ;
+
+	/**
+	 * Request of a message whose request is missing or unknown.
+	 */
+	public static final int REQUEST_OTHER = 0 ;
+	public static final int REQUEST_GET = 1 ;
+	public static final int REQUEST_SET = 2 ;
+
+	/**
+	 * Objects the parser can be in, which decide the meaning of a key.
+	 */
+	private static final int IN_SKIPPED = -1 , IN_MESSAGE = 0 , IN_VALUES = 1 , IN_FRAME = 2 , IN_FRAME_RAW = 3 ,
+			IN_FRAME_AVG = 4 , IN_EYE = 5 , IN_EYE_RAW = 6 , IN_EYE_AVG = 7 , IN_EYE_PCENTER = 8 ;
+
+	private static final byte[] KEY_CATEGORY = bytes("category") ;
+	private static final byte[] KEY_REQUEST = bytes("request") ;
+	private static final byte[] KEY_STATUSCODE = bytes("statuscode") ;
+	private static final byte[] KEY_VALUES = bytes("values") ;
+	private static final byte[] KEY_FRAME = bytes("frame") ;
+	private static final byte[] KEY_PUSH = bytes("push") ;
+	private static final byte[] KEY_HEARTBEATINTERVAL = bytes("heartbeatinterval") ;
+	private static final byte[] KEY_FRAMERATE = bytes("framerate") ;
+	private static final byte[] KEY_SCREENRESW = bytes("screenresw") ;
+	private static final byte[] KEY_SCREENRESH = bytes("screenresh") ;
+	private static final byte[] KEY_ISCALIBRATED = bytes("iscalibrated") ;
+	private static final byte[] KEY_TIME = bytes("time") ;
+	private static final byte[] KEY_TIMESTAMP = bytes("timestamp") ;
+	private static final byte[] KEY_FIX = bytes("fix") ;
+	private static final byte[] KEY_STATE = bytes("state") ;
+	private static final byte[] KEY_RAW = bytes("raw") ;
+	private static final byte[] KEY_AVG = bytes("avg") ;
+	private static final byte[] KEY_LEFTEYE = bytes("lefteye") ;
+	private static final byte[] KEY_RIGHTEYE = bytes("righteye") ;
+	private static final byte[] KEY_PSIZE = bytes("psize") ;
+	private static final byte[] KEY_PCENTER = bytes("pcenter") ;
+	private static final byte[] KEY_X = bytes("x") ;
+	private static final byte[] KEY_Y = bytes("y") ;
+	private static final byte[] VALUE_TRACKER = bytes("tracker") ;
+	private static final byte[] VALUE_HEARTBEAT = bytes("heartbeat") ;
+	private static final byte[] VALUE_CALIBRATION = bytes("calibration") ;
+	private static final byte[] VALUE_GET = bytes("get") ;
+	private static final byte[] VALUE_SET = bytes("set") ;
+
+	/**
+	 * Powers of ten which are exact as doubles.
+	 */
+	private static final double[] POWERS_OF_TEN = new double[23] ;
+	static
+	{
+		POWERS_OF_TEN[0] = 1 ;
+		for (int i = 1 ; i < POWERS_OF_TEN.length ; i++)
+		{
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10 ;
+		}
+	}
+
+	/**
+	 * {@link basePack.GazeFrame} the frames are parsed into.
+	 */
+	private final GazeFrame gazeFrame ;
+	/**
+	 * Eye of {@link basePack.GazeFrameParser#gazeFrame} being parsed.
+	 */
+	private GazeFrame.Eye eye ;
+
+	private byte[] data ;
+	private int position ;
+	private int end ;
+	/**
+	 * Bounds of the last string read, without its quotes.
+	 */
+	private int stringStart , stringEnd ;
+
+	private int category ;
+	private int request ;
+	private int statusCode ;
+	private boolean frameSeen ;
+	private boolean valuesSeen ;
+	private boolean push ;
+	private int heartbeatIntervalMillis ;
+	private int frameRate ;
+	private int screenWidth ;
+	private int screenHeight ;
+	private boolean calibrated ;
+
+	/**
+	 * Constructor to initialize the parser with a frame of its own.
+	 */
+	public GazeFrameParser() {
+		this(new GazeFrame()) ;
+	}
+
+	/**
+	 * Constructor to initialize the parser.
+	 * @param gazeFrame {@link basePack.GazeFrame} the frames are parsed into.
+	 */
+	public GazeFrameParser(GazeFrame gazeFrame) {
+		super();
+		this.gazeFrame = gazeFrame ;
+	}
+
+	/**
+	 * Method to parse one message.<br>
+	 * The values of a tracker "get" reply which the message does not carry keep their previous values.
+	 * @param data bytes holding the message.
+	 * @param start position of the first byte of the message.
+	 * @param end position after the last byte of the message.
+	 * @return kind of the message, one of the MESSAGE_ constants.
+	 */
+	public int parse(byte[] data, int start, int end) {
+		this.data = data ;
+		this.position = start ;
+		this.end = end ;
+		category = CATEGORY_OTHER ;
+		request = REQUEST_OTHER ;
+		statusCode = -1 ;
+		frameSeen = false ;
+		valuesSeen = false ;
+		gazeFrame.clear() ;
+		try {
+			skipWhiteSpace() ;
+			parseObject(IN_MESSAGE) ;
+			skipWhiteSpace() ;
+			if (position != end)
+			{
+				return MESSAGE_MALFORMED ;
+			}
+		} catch (IllegalArgumentException e) {
+			return MESSAGE_MALFORMED ;
+		} finally {
+			this.data = null ;
+		}
+		if (frameSeen)
+		{
+			return MESSAGE_FRAME ;
+		}
+		return valuesSeen && category == CATEGORY_TRACKER && request == REQUEST_GET ? MESSAGE_TRACKER_VALUES
+				: MESSAGE_REPLY ;
+	}
+
+	/**
+	 * Method to get the {@link basePack.GazeFrameParser#gazeFrame}.
+	 * @return {@link basePack.GazeFrameParser#gazeFrame}
+	 */
+	public GazeFrame getGazeFrame() {
+		return gazeFrame ;
+	}
+
+	/**
+	 * Method to get the category of the last message.
+	 * @return one of the CATEGORY_ constants.
+	 */
+	public int getCategory() {
+		return category ;
+	}
+
+	/**
+	 * Method to get the request of the last message.
+	 * @return one of the REQUEST_ constants.
+	 */
+	public int getRequest() {
+		return request ;
+	}
+
+	/**
+	 * Method to get the status code of the last message.
+	 * @return status code, -1 if none was sent.
+	 */
+	public int getStatusCode() {
+		return statusCode ;
+	}
+
+	/**
+	 * Method to know whether the tracker pushes frames, as last reported.
+	 * @return the tracker's push value.
+	 */
+	public boolean isPush() {
+		return push ;
+	}
+
+	/**
+	 * Method to get the heartbeat interval, as last reported.
+	 * @return interval in milliseconds, 0 if never reported.
+	 */
+	public int getHeartbeatIntervalMillis() {
+		return heartbeatIntervalMillis ;
+	}
+
+	/**
+	 * Method to get the frame rate, as last reported.
+	 * @return frames per second, 0 if never reported.
+	 */
+	public int getFrameRate() {
+		return frameRate ;
+	}
+
+	/**
+	 * Method to get the screen width, as last reported.
+	 * @return width in pixels, 0 if never reported.
+	 */
+	public int getScreenWidth() {
+		return screenWidth ;
+	}
+
+	/**
+	 * Method to get the screen height, as last reported.
+	 * @return height in pixels, 0 if never reported.
+	 */
+	public int getScreenHeight() {
+		return screenHeight ;
+	}
+
+	/**
+	 * Method to know whether the tracker is calibrated, as last reported.
+	 * @return the tracker's calibrated value.
+	 */
+	public boolean isCalibrated() {
+		return calibrated ;
+	}
+
+	/**
+	 * Method to parse an object, handling each of its values according to the object it is.
+	 * @param in object being parsed, one of the IN_ constants.
+	 */
+	private void parseObject(int in) {
+		expect('{') ;
+		skipWhiteSpace() ;
+		if (peek() == '}')
+		{
+			position++ ;
+			return ;
+		}
+		while (true)
+		{
+			parseString() ;
+			int keyStart = stringStart ;
+			int keyEnd = stringEnd ;
+			skipWhiteSpace() ;
+			expect(':') ;
+			skipWhiteSpace() ;
+			parseValue(in, keyStart, keyEnd) ;
+			skipWhiteSpace() ;
+			byte next = next() ;
+			if (next == '}')
+			{
+				return ;
+			}
+			if (next != ',')
+			{
+				throw malformed() ;
+			}
+			skipWhiteSpace() ;
+		}
+	}
+
+	/**
+	 * Method to parse the value of a key.
+	 * @param in object holding the key, one of the IN_ constants.
+	 * @param keyStart position of the first byte of the key.
+	 * @param keyEnd position after the last byte of the key.
+	 */
+	private void parseValue(int in, int keyStart, int keyEnd) {
+		switch (in)
+		{
+		case IN_MESSAGE:
+			if (keyIs(keyStart, keyEnd, KEY_CATEGORY) && peek() == '"')
+			{
+				parseString() ;
+				category = valueIs(VALUE_TRACKER) ? CATEGORY_TRACKER : valueIs(VALUE_HEARTBEAT) ? CATEGORY_HEARTBEAT
+						: valueIs(VALUE_CALIBRATION) ? CATEGORY_CALIBRATION : CATEGORY_OTHER ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_REQUEST) && peek() == '"')
+			{
+				parseString() ;
+				request = valueIs(VALUE_GET) ? REQUEST_GET : valueIs(VALUE_SET) ? REQUEST_SET : REQUEST_OTHER ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_STATUSCODE))
+			{
+				statusCode = (int) parseLong() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_VALUES) && peek() == '{')
+			{
+				valuesSeen = true ;
+				parseObject(IN_VALUES) ;
+				return ;
+			}
+			break ;
+		case IN_VALUES:
+			if (keyIs(keyStart, keyEnd, KEY_FRAME) && peek() == '{')
+			{
+				frameSeen = true ;
+				parseObject(IN_FRAME) ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_PUSH))
+			{
+				push = parseBoolean() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_HEARTBEATINTERVAL))
+			{
+				heartbeatIntervalMillis = (int) parseLong() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_FRAMERATE))
+			{
+				frameRate = (int) parseLong() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_SCREENRESW))
+			{
+				screenWidth = (int) parseLong() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_SCREENRESH))
+			{
+				screenHeight = (int) parseLong() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_ISCALIBRATED))
+			{
+				calibrated = parseBoolean() ;
+				return ;
+			}
+			break ;
+		case IN_FRAME:
+			if (keyIs(keyStart, keyEnd, KEY_TIME))
+			{
+				gazeFrame.timeStamp = parseLong() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_TIMESTAMP) && peek() == '"')
+			{
+				parseString() ;
+				int length = Math.min(stringEnd - stringStart, GazeFrame.MAXIMUM_TIME_STAMP_LENGTH) ;
+				System.arraycopy(data, stringStart, gazeFrame.timeStampText, 0, length) ;
+				gazeFrame.timeStampTextLength = length ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_FIX))
+			{
+				gazeFrame.fixated = parseBoolean() ;
+				return ;
+			}
+			if (keyIs(keyStart, keyEnd, KEY_STATE))
+			{
+				gazeFrame.state = (int) parseLong() ;
+				return ;
+			}
+			if (peek() == '{')
+			{
+				if (keyIs(keyStart, keyEnd, KEY_AVG))
+				{
+					gazeFrame.hasSmoothedCoordinates = true ;
+					parseObject(IN_FRAME_AVG) ;
+					return ;
+				}
+				if (keyIs(keyStart, keyEnd, KEY_RAW))
+				{
+					gazeFrame.hasRawCoordinates = true ;
+					parseObject(IN_FRAME_RAW) ;
+					return ;
+				}
+				if (keyIs(keyStart, keyEnd, KEY_LEFTEYE))
+				{
+					eye = gazeFrame.leftEye ;
+					eye.present = true ;
+					parseObject(IN_EYE) ;
+					return ;
+				}
+				if (keyIs(keyStart, keyEnd, KEY_RIGHTEYE))
+				{
+					eye = gazeFrame.rightEye ;
+					eye.present = true ;
+					parseObject(IN_EYE) ;
+					return ;
+				}
+			}
+			break ;
+		case IN_EYE:
+			if (keyIs(keyStart, keyEnd, KEY_PSIZE))
+			{
+				eye.pupilSize = parseDouble() ;
+				return ;
+			}
+			if (peek() == '{')
+			{
+				if (keyIs(keyStart, keyEnd, KEY_AVG))
+				{
+					parseObject(IN_EYE_AVG) ;
+					return ;
+				}
+				if (keyIs(keyStart, keyEnd, KEY_RAW))
+				{
+					parseObject(IN_EYE_RAW) ;
+					return ;
+				}
+				if (keyIs(keyStart, keyEnd, KEY_PCENTER))
+				{
+					parseObject(IN_EYE_PCENTER) ;
+					return ;
+				}
+			}
+			break ;
+		case IN_FRAME_AVG:
+		case IN_FRAME_RAW:
+		case IN_EYE_AVG:
+		case IN_EYE_RAW:
+		case IN_EYE_PCENTER:
+			boolean x = keyIs(keyStart, keyEnd, KEY_X) ;
+			if (x || keyIs(keyStart, keyEnd, KEY_Y))
+			{
+				setCoordinate(in, x, parseDouble()) ;
+				return ;
+			}
+			break ;
+		default:
+			break ;
+		}
+		skipValue() ;
+	}
+
+	/**
+	 * Method to set a coordinate of a point of the frame.
+	 * @param in point being parsed, one of the IN_ constants.
+	 * @param x true for the x coordinate, false for the y coordinate.
+	 * @param value value of the coordinate.
+	 */
+	private void setCoordinate(int in, boolean x, double value) {
+		switch (in)
+		{
+		case IN_FRAME_AVG:
+			if (x)
+			{
+				gazeFrame.smoothedX = value ;
+			}
+			else
+			{
+				gazeFrame.smoothedY = value ;
+			}
+			break ;
+		case IN_FRAME_RAW:
+			if (x)
+			{
+				gazeFrame.rawX = value ;
+			}
+			else
+			{
+				gazeFrame.rawY = value ;
+			}
+			break ;
+		case IN_EYE_AVG:
+			if (x)
+			{
+				eye.smoothedX = value ;
+			}
+			else
+			{
+				eye.smoothedY = value ;
+			}
+			break ;
+		case IN_EYE_RAW:
+			if (x)
+			{
+				eye.rawX = value ;
+			}
+			else
+			{
+				eye.rawY = value ;
+			}
+			break ;
+		default:
+			if (x)
+			{
+				eye.pupilCenterX = value ;
+			}
+			else
+			{
+				eye.pupilCenterY = value ;
+			}
+			break ;
+		}
+	}
+
+	/**
+	 * Method to skip any value.
+	 */
+	private void skipValue() {
+		byte first = peek() ;
+		if (first == '{')
+		{
+			parseObject(IN_SKIPPED) ;
+		}
+		else if (first == '[')
+		{
+			position++ ;
+			skipWhiteSpace() ;
+			if (peek() == ']')
+			{
+				position++ ;
+				return ;
+			}
+			while (true)
+			{
+				skipValue() ;
+				skipWhiteSpace() ;
+				byte next = next() ;
+				if (next == ']')
+				{
+					return ;
+				}
+				if (next != ',')
+				{
+					throw malformed() ;
+				}
+				skipWhiteSpace() ;
+			}
+		}
+		else if (first == '"')
+		{
+			parseString() ;
+		}
+		else if (first == 't' || first == 'f')
+		{
+			parseBoolean() ;
+		}
+		else if (first == 'n')
+		{
+			expectWord("null") ;
+		}
+		else
+		{
+			parseDouble() ;
+		}
+	}
+
+	/**
+	 * Method to read a string, leaving its bounds in {@link basePack.GazeFrameParser#stringStart} and
+	 * {@link basePack.GazeFrameParser#stringEnd}. Escapes are skipped, not decoded.
+	 */
+	private void parseString() {
+		expect('"') ;
+		stringStart = position ;
+		while (position < end)
+		{
+			byte b = data[position++] ;
+			if (b == '"')
+			{
+				stringEnd = position - 1 ;
+				return ;
+			}
+			if (b == '\\')
+			{
+				position++ ;
+			}
+		}
+		throw malformed() ;
+	}
+
+	/**
+	 * Method to read true or false.
+	 * @return the value read.
+	 */
+	private boolean parseBoolean() {
+		if (peek() == 't')
+		{
+			expectWord("true") ;
+			return true ;
+		}
+		expectWord("false") ;
+		return false ;
+	}
+
+	/**
+	 * Method to read an integer. A decimal part is dropped.
+	 * @return the value read.
+	 */
+	private long parseLong() {
+		boolean negative = peek() == '-' ;
+		if (negative)
+		{
+			position++ ;
+		}
+		int digitsStart = position ;
+		long value = 0 ;
+		while (position < end && data[position] >= '0' && data[position] <= '9')
+		{
+			value = value * 10 + (data[position++] - '0') ;
+		}
+		if (position == digitsStart)
+		{
+			throw malformed() ;
+		}
+		if (position < end && (data[position] == '.' || data[position] == 'e' || data[position] == 'E'))
+		{
+			position = digitsStart - (negative ? 1 : 0) ;
+			return (long) parseDouble() ;
+		}
+		return negative ? -value : value ;
+	}
+
+	/**
+	 * Method to read a number.
+	 * @return the value read.
+	 */
+	private double parseDouble() {
+		int start = position ;
+		boolean negative = peek() == '-' ;
+		if (negative)
+		{
+			position++ ;
+		}
+		long mantissa = 0 ;
+		int digits = 0 ;
+		int exponent = 0 ;
+		boolean exact = true ;
+		int integerStart = position ;
+		while (position < end && data[position] >= '0' && data[position] <= '9')
+		{
+			if (digits < 18)
+			{
+				mantissa = mantissa * 10 + (data[position] - '0') ;
+				if (mantissa != 0)
+				{
+					digits++ ;
+				}
+			}
+			else
+			{
+				exact = false ;
+			}
+			position++ ;
+		}
+		if (position == integerStart)
+		{
+			throw malformed() ;
+		}
+		if (position < end && data[position] == '.')
+		{
+			position++ ;
+			int fractionStart = position ;
+			while (position < end && data[position] >= '0' && data[position] <= '9')
+			{
+				if (digits < 18)
+				{
+					mantissa = mantissa * 10 + (data[position] - '0') ;
+					if (mantissa != 0)
+					{
+						digits++ ;
+					}
+					exponent-- ;
+				}
+				else
+				{
+					exact = false ;
+				}
+				position++ ;
+			}
+			if (position == fractionStart)
+			{
+				throw malformed() ;
+			}
+		}
+		if (position < end && (data[position] == 'e' || data[position] == 'E'))
+		{
+			position++ ;
+			boolean negativeExponent = false ;
+			if (position < end && (data[position] == '+' || data[position] == '-'))
+			{
+				negativeExponent = data[position++] == '-' ;
+			}
+			int exponentStart = position ;
+			int explicitExponent = 0 ;
+			while (position < end && data[position] >= '0' && data[position] <= '9')
+			{
+				explicitExponent = Math.min(explicitExponent * 10 + (data[position++] - '0'), 100000) ;
+			}
+			if (position == exponentStart)
+			{
+				throw malformed() ;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent ;
+		}
+		if (exact && exponent >= -22 && exponent <= 22)
+		{
+			double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent] ;
+			return negative ? -value : value ;
+		}
+		return Double.parseDouble(new String(data, start, position - start, StandardCharsets.ISO_8859_1)) ;
+	}
+
+	/**
+	 * Method to know whether a key is a given name.
+	 */
+	private boolean keyIs(int keyStart, int keyEnd, byte[] name) {
+		if (keyEnd - keyStart != name.length)
+		{
+			return false ;
+		}
+		for (int i = 0 ; i < name.length ; i++)
+		{
+			if (data[keyStart + i] != name[i])
+			{
+				return false ;
+			}
+		}
+		return true ;
+	}
+
+	/**
+	 * Method to know whether the last string read is a given value.
+	 */
+	private boolean valueIs(byte[] value) {
+		return keyIs(stringStart, stringEnd, value) ;
+	}
+
+	private void skipWhiteSpace() {
+		while (position < end && (data[position] == ' ' || data[position] == '\t' || data[position] == '\r'
+				|| data[position] == '\n'))
+		{
+			position++ ;
+		}
+	}
+
+	private byte peek() {
+		if (position >= end)
+		{
+			throw malformed() ;
+		}
+		return data[position] ;
+	}
+
+	private byte next() {
+		if (position >= end)
+		{
+			throw malformed() ;
+		}
+		return data[position++] ;
+	}
+
+	private void expect(char c) {
+		if (next() != c)
+		{
+			throw malformed() ;
+		}
+	}
+
+	private void expectWord(String word) {
+		for (int i = 0 ; i < word.length() ; i++)
+		{
+			expect(word.charAt(i)) ;
+		}
+	}
+
+	private IllegalArgumentException malformed() {
+		return new IllegalArgumentException("Malformed message at " + position) ;
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.ISO_8859_1) ;
+	}
+}
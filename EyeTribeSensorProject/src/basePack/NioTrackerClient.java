@@ -0,0 +1,482 @@
+package basePack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+
+/**
+ * Client of the EyeTribe tracker server on one non-blocking {@link java.nio.channels.SocketChannel}, in place of
+ * {@link com.theeyetribe.client.GazeManager}.<br><p>
+ * The bundled client reads, sends heartbeats and calls its listeners on threads of their own, and maps every frame to
+ * a new {@link com.theeyetribe.client.data.GazeData} with Gson. This client does all of it on a single thread around
+ * a {@link java.nio.channels.Selector}:<br>
+ * 1. On {@link basePack.NioTrackerClient#activate(long)}, it connects, asks for the tracker values and for the frames
+ * to be pushed, and waits until both are answered.<br>
+ * 2. The bytes read go into one reused buffer. Every complete line is parsed in place by a
+ * {@link basePack.GazeFrameParser}, and what is left of a line is moved to the front of the buffer for the next
+ * read.<br>
+ * 3. Every frame is handed to a {@link basePack.GazeFrameListener} as the reused {@link basePack.GazeFrame}, which
+ * allocates nothing, or copied into a reused {@link com.theeyetribe.client.data.GazeData} for an
+ * {@link com.theeyetribe.client.IGazeListener}.<br>
+ * 4. Heartbeats are sent at the interval the tracker asked for, when the selector wakes up for them.<br>
+ * If the connection is lost, the thread ends with a message; a new client is needed to connect again.
+ */
+public class NioTrackerClient implements Closeable, Runnable {
+
+	/**
+	 * Host of the tracker server.
+	 */
+	public static final String DEFAULT_HOST = "localhost" ;
+	/**
+	 * Port of the tracker server.
+	 */
+	public static final int DEFAULT_PORT = 6555 ;
+	/**
+	 * Heartbeat interval in milliseconds until the tracker reports its own.
+	 */
+	public static final int DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 3000 ;
+	/**
+	 * Initial size of the read buffer, which holds about a hundred frames.
+	 */
+	private static final int READ_BUFFER_SIZE = 1 << 16 ;
+
+	private static final byte[] TRACKER_GET_REQUEST = ("{\"category\":\"tracker\",\"request\":\"get\",\"values\":["
+			+ "\"push\",\"heartbeatinterval\",\"version\",\"trackerstate\",\"framerate\",\"iscalibrated\","
+			+ "\"iscalibrating\",\"screenindex\",\"screenresw\",\"screenresh\",\"screenpsyw\",\"screenpsyh\"]}\n")
+			.getBytes(StandardCharsets.ISO_8859_1) ;
+	private static final byte[] PUSH_REQUEST = "{\"category\":\"tracker\",\"request\":\"set\",\"values\":{\"push\":true,\"version\":1}}\n"
+			.getBytes(StandardCharsets.ISO_8859_1) ;
+	private static final byte[] HEARTBEAT_REQUEST = "{\"category\":\"heartbeat\"}\n"
+			.getBytes(StandardCharsets.ISO_8859_1) ;
+
+	private final String host ;
+	private final int port ;
+	/**
+	 * Listener of the frames in primitive form, or null.
+	 */
+	private final GazeFrameListener gazeFrameListener ;
+	/**
+	 * Listener of the frames as {@link com.theeyetribe.client.data.GazeData}, or null.
+	 */
+	private final IGazeListener gazeListener ;
+	/**
+	 * Frame handed to {@link basePack.NioTrackerClient#gazeListener}, reused for every frame.
+	 */
+	private final GazeData gazeData = new GazeData() ;
+	private final GazeFrameParser gazeFrameParser = new GazeFrameParser() ;
+	/**
+	 * Bytes read and not parsed yet, in write mode between reads.
+	 */
+	private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE) ;
+	/**
+	 * Bytes of the requests not sent yet, in write mode between writes.
+	 */
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(1024) ;
+	private Selector selector ;
+	private SocketChannel socketChannel ;
+	private Thread clientThread ;
+	/**
+	 * Counted down once the tracker values and the push request are both answered.
+	 */
+	private final CountDownLatch activation = new CountDownLatch(1) ;
+	private boolean trackerValuesReceived ;
+	private boolean pushAcknowledged ;
+	private long nextHeartbeatMillis ;
+
+	private volatile boolean closed ;
+	private volatile int heartbeatIntervalMillis = DEFAULT_HEARTBEAT_INTERVAL_MILLIS ;
+	private volatile int frameRate ;
+	private volatile int screenResolutionWidth ;
+	private volatile int screenResolutionHeight ;
+	private volatile long frameCount ;
+	private volatile long malformedCount ;
+
+	/**
+	 * Constructor to initialize a client of the local tracker handing the frames in primitive form.
+	 * @param gazeFrameListener {@link basePack.GazeFrameListener} called for every frame.
+	 */
+	public NioTrackerClient(GazeFrameListener gazeFrameListener) {
+		this(DEFAULT_HOST, DEFAULT_PORT, gazeFrameListener, null) ;
+	}
+
+	/**
+	 * Constructor to initialize a client of the local tracker handing the frames as
+	 * {@link com.theeyetribe.client.data.GazeData}.
+	 * @param gazeListener {@link com.theeyetribe.client.IGazeListener} called for every frame.
+	 */
+	public NioTrackerClient(IGazeListener gazeListener) {
+		this(DEFAULT_HOST, DEFAULT_PORT, null, gazeListener) ;
+	}
+
+	/**
+	 * Constructor to initialize a client.
+	 * @param host host of the tracker server.
+	 * @param port port of the tracker server.
+	 * @param gazeFrameListener {@link basePack.GazeFrameListener} called for every frame, or null.
+	 * @param gazeListener {@link com.theeyetribe.client.IGazeListener} called for every frame, or null.
+	 */
+	public NioTrackerClient(String host, int port, GazeFrameListener gazeFrameListener, IGazeListener gazeListener) {
+		super();
+		this.host = host ;
+		this.port = port ;
+		this.gazeFrameListener = gazeFrameListener ;
+		this.gazeListener = gazeListener ;
+	}
+
+	/**
+	 * Method to connect to the tracker, ask for the frames and start the thread of the client.
+	 * @param timeoutMillis longest time to wait for the tracker to answer, in milliseconds.
+	 * @return true if the tracker answered in time, false otherwise, in which case the client keeps waiting for it
+	 * until closed.
+	 * @throws IOException if the connection cannot be started.
+	 */
+	public synchronized boolean activate(long timeoutMillis) throws IOException {
+		if (clientThread != null)
+		{
+			throw new IllegalStateException("Tracker client already activated") ;
+		}
+		selector = Selector.open() ;
+		socketChannel = SocketChannel.open() ;
+		socketChannel.configureBlocking(false) ;
+		socketChannel.socket().setTcpNoDelay(true) ;
+		if (socketChannel.connect(new InetSocketAddress(host, port)))
+		{
+			socketChannel.register(selector, SelectionKey.OP_READ) ;
+		}
+		else
+		{
+			socketChannel.register(selector, SelectionKey.OP_CONNECT) ;
+		}
+		queueRequest(TRACKER_GET_REQUEST) ;
+		queueRequest(PUSH_REQUEST) ;
+		clientThread = new Thread(this, "tracker-client") ;
+		clientThread.setDaemon(true) ;
+		clientThread.start() ;
+		try {
+			return activation.await(timeoutMillis, TimeUnit.MILLISECONDS) ;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt() ;
+			return false ;
+		}
+	}
+
+	/**
+	 * Overridden Method from Runnable running the selector until the client is closed or the connection is lost.
+	 */
+	@Override
+	public void run() {
+		nextHeartbeatMillis = System.currentTimeMillis() + heartbeatIntervalMillis ;
+		try {
+			while (!closed)
+			{
+				long waitMillis = nextHeartbeatMillis - System.currentTimeMillis() ;
+				if (waitMillis <= 0)
+				{
+					queueRequest(HEARTBEAT_REQUEST) ;
+					nextHeartbeatMillis = System.currentTimeMillis() + heartbeatIntervalMillis ;
+					continue ;
+				}
+				selector.select(waitMillis) ;
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator() ;
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next() ;
+					keys.remove() ;
+					if (!key.isValid())
+					{
+						continue ;
+					}
+					if (key.isConnectable() && socketChannel.finishConnect())
+					{
+						updateInterest() ;
+					}
+					if (key.isValid() && key.isReadable() && !read())
+					{
+						if (!closed)
+						{
+							System.out.println("Could Not read from the tracker, connection lost!") ;
+						}
+						return ;
+					}
+					if (key.isValid() && key.isWritable())
+					{
+						write() ;
+					}
+				}
+			}
+		} catch (IOException e) {
+			if (!closed)
+			{
+				System.out.println("Could Not talk to the tracker, connection lost!") ;
+			}
+		} finally {
+			closeChannel() ;
+		}
+	}
+
+	/**
+	 * Method to stop the thread of the client and close the connection.
+	 */
+	@Override
+	public void close() {
+		closed = true ;
+		Thread thread ;
+		synchronized (this)
+		{
+			thread = clientThread ;
+			if (selector != null)
+			{
+				selector.wakeup() ;
+			}
+		}
+		if (thread != null && thread != Thread.currentThread())
+		{
+			try {
+				thread.join() ;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt() ;
+			}
+		}
+		else
+		{
+			closeChannel() ;
+		}
+	}
+
+	/**
+	 * Method to know whether the tracker answered the activation.
+	 * @return true once the tracker values and the push request are both answered.
+	 */
+	public boolean isActivated() {
+		return activation.getCount() == 0 ;
+	}
+
+	/**
+	 * Method to get the screen width reported by the tracker.
+	 * @return width in pixels, 0 until reported.
+	 */
+	public int getScreenResolutionWidth() {
+		return screenResolutionWidth ;
+	}
+
+	/**
+	 * Method to get the screen height reported by the tracker.
+	 * @return height in pixels, 0 until reported.
+	 */
+	public int getScreenResolutionHeight() {
+		return screenResolutionHeight ;
+	}
+
+	/**
+	 * Method to get the frame rate reported by the tracker.
+	 * @return frames per second, 0 until reported.
+	 */
+	public int getFrameRate() {
+		return frameRate ;
+	}
+
+	/**
+	 * Method to get the number of frames received.
+	 * @return {@link basePack.NioTrackerClient#frameCount}
+	 */
+	public long getFrameCount() {
+		return frameCount ;
+	}
+
+	/**
+	 * Method to get the number of lines which could not be parsed and were dropped.
+	 * @return {@link basePack.NioTrackerClient#malformedCount}
+	 */
+	public long getMalformedCount() {
+		return malformedCount ;
+	}
+
+	/**
+	 * Method to read what is available and handle every complete line.
+	 * @return false if the tracker closed the connection.
+	 * @throws IOException if the socket fails.
+	 */
+	private boolean read() throws IOException {
+		while (true)
+		{
+			if (!readBuffer.hasRemaining())
+			{
+				ByteBuffer largerBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2) ;
+				readBuffer.flip() ;
+				largerBuffer.put(readBuffer) ;
+				readBuffer = largerBuffer ;
+			}
+			int count = socketChannel.read(readBuffer) ;
+			if (count < 0)
+			{
+				return false ;
+			}
+			if (count == 0)
+			{
+				return true ;
+			}
+			handleLines() ;
+		}
+	}
+
+	/**
+	 * Method to handle the complete lines at the front of the read buffer and keep the rest.
+	 */
+	private void handleLines() {
+		byte[] bytes = readBuffer.array() ;
+		int limit = readBuffer.position() ;
+		int lineStart = 0 ;
+		for (int i = 0 ; i < limit ; i++)
+		{
+			if (bytes[i] == '\n')
+			{
+				if (i > lineStart)
+				{
+					handleMessage(gazeFrameParser.parse(bytes, lineStart, i)) ;
+				}
+				lineStart = i + 1 ;
+			}
+		}
+		if (lineStart > 0)
+		{
+			System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart) ;
+			readBuffer.position(limit - lineStart) ;
+		}
+	}
+
+	/**
+	 * Method to act on a parsed message.
+	 * @param kind kind of the message, one of the GazeFrameParser.MESSAGE_ constants.
+	 */
+	private void handleMessage(int kind) {
+		switch (kind)
+		{
+		case GazeFrameParser.MESSAGE_FRAME:
+			frameCount++ ;
+			deliver(gazeFrameParser.getGazeFrame()) ;
+			break ;
+		case GazeFrameParser.MESSAGE_TRACKER_VALUES:
+			if (gazeFrameParser.getHeartbeatIntervalMillis() > 0)
+			{
+				heartbeatIntervalMillis = gazeFrameParser.getHeartbeatIntervalMillis() ;
+			}
+			frameRate = gazeFrameParser.getFrameRate() ;
+			screenResolutionWidth = gazeFrameParser.getScreenWidth() ;
+			screenResolutionHeight = gazeFrameParser.getScreenHeight() ;
+			trackerValuesReceived = true ;
+			break ;
+		case GazeFrameParser.MESSAGE_REPLY:
+			if (gazeFrameParser.getCategory() == GazeFrameParser.CATEGORY_TRACKER
+					&& gazeFrameParser.getRequest() == GazeFrameParser.REQUEST_SET)
+			{
+				if (gazeFrameParser.getStatusCode() == 200)
+				{
+					pushAcknowledged = true ;
+				}
+				else
+				{
+					System.out.println("Could Not start the frames, tracker status " + gazeFrameParser.getStatusCode()) ;
+				}
+			}
+			break ;
+		default:
+			malformedCount++ ;
+			break ;
+		}
+		if (trackerValuesReceived && pushAcknowledged && activation.getCount() > 0)
+		{
+			activation.countDown() ;
+		}
+	}
+
+	/**
+	 * Method to hand a frame to the listeners. A listener failing is reported and does not stop the client.
+	 * @param gazeFrame {@link basePack.GazeFrame} of the frame.
+	 */
+	private void deliver(GazeFrame gazeFrame) {
+		try {
+			if (gazeFrameListener != null)
+			{
+				gazeFrameListener.onGazeFrame(gazeFrame) ;
+			}
+			if (gazeListener != null)
+			{
+				gazeFrame.copyTo(gazeData) ;
+				gazeListener.onGazeUpdate(gazeData) ;
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Could Not deliver the gaze frame: " + e) ;
+		}
+	}
+
+	/**
+	 * Method to add a request to the bytes to be sent, and try to send them.
+	 * @param request bytes of the request, ending with a line break.
+	 * @throws IOException if the socket fails.
+	 */
+	private void queueRequest(byte[] request) throws IOException {
+		if (writeBuffer.remaining() < request.length)
+		{
+			ByteBuffer largerBuffer = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2,
+					writeBuffer.position() + request.length)) ;
+			writeBuffer.flip() ;
+			largerBuffer.put(writeBuffer) ;
+			writeBuffer = largerBuffer ;
+		}
+		writeBuffer.put(request) ;
+		if (socketChannel.isConnected())
+		{
+			write() ;
+		}
+	}
+
+	/**
+	 * Method to send as much of the pending requests as the socket takes.
+	 * @throws IOException if the socket fails.
+	 */
+	private void write() throws IOException {
+		writeBuffer.flip() ;
+		socketChannel.write(writeBuffer) ;
+		writeBuffer.compact() ;
+		updateInterest() ;
+	}
+
+	/**
+	 * Method to select reads, and writes while requests are pending.
+	 */
+	private void updateInterest() {
+		SelectionKey key = socketChannel.keyFor(selector) ;
+		if (key != null && key.isValid())
+		{
+			key.interestOps(SelectionKey.OP_READ | (writeBuffer.position() > 0 ? SelectionKey.OP_WRITE : 0)) ;
+		}
+	}
+
+	/**
+	 * Method to close the channel and the selector, reporting nothing.
+	 */
+	private void closeChannel() {
+		try {
+			if (socketChannel != null)
+			{
+				socketChannel.close() ;
+			}
+			if (selector != null)
+			{
+				selector.close() ;
+			}
+		} catch (IOException e) {
+		}
+	}
+}
@@ -1,53 +1,120 @@
 package basePack;
 
+import java.io.IOException;
+
 import dataPack.FixationSet;
-import dataPack.QueueOfFixationSets;
-import dataPack.SmoothedEye;
+import dataPack.FixationSetReader;
+import metricsPack.PipelineMetrics;
+import outputPack.AsyncFixationSetSink;
+import outputPack.FixationSetSink;
+import outputPack.OutputFormat;
 
 /**
  * Class to consume data from the sensor.<br><p>
  * The class takes in the fixation sets from the queue and uses them as needed. Thus, it only need 
- * have the handle to the Queue and make use of it.
+ * have the handle to the Queue and make use of it.<br>
+ * Each fixation set is written to a {@link outputPack.FixationSetSink} and then handed back to the queue, whether the
+ * write worked or not, so a failing sink never holds up the queue or leaks a pooled fixation set.<br>
+ * A failed write is reported once, and the consumer then waits before each further fixation set, doubling the wait up
+ * to {@link basePack.SensorDataConsumer#MAXIMUM_BACKOFF_MILLIS} while the writes keep failing, instead of spinning on a
+ * sink whose failure is permanent. The first write to succeed again ends the back-off.<br>
+ * The consumer stops once its thread is interrupted.
  */
 public class SensorDataConsumer implements Runnable {
 
 	/**
-	 * Handle to the queue {@link dataPack.QueueOfFixationSets}
+	 * Wait in milliseconds after the first failed write.
+	 */
+	private static final long INITIAL_BACKOFF_MILLIS = 10 ;
+	/**
+	 * Longest wait in milliseconds between two writes while they keep failing.
+	 */
+	public static final long MAXIMUM_BACKOFF_MILLIS = 1000 ;
+
+	/**
+	 * Handle to the queue, read through its {@link dataPack.FixationSetReader}
+	 */
+	private FixationSetReader queueOfFixationSets ;
+	/**
+	 * {@link outputPack.FixationSetSink} to which the fixation sets are written.
+	 */
+	private FixationSetSink fixationSetSink ;
+	/**
+	 * {@link metricsPack.PipelineMetrics} recording the pickups and failed writes, null for none.
+	 */
+	private PipelineMetrics pipelineMetrics ;
+
+	/**
+	 * Constructor to assign the queue for use. The fixation sets are written as text to the standard output.
+	 * @param queueOfFixationSets handle to the queue to be used for fixation sets.
+	 */
+	public SensorDataConsumer(FixationSetReader queueOfFixationSets) {
+		this(queueOfFixationSets, AsyncFixationSetSink.toStandardOutput(OutputFormat.TEXT)) ;
+	}
+
+	/**
+	 * Constructor to assign the queue and the sink for use.
+	 * @param queueOfFixationSets handle to the queue to be used for fixation sets.
+	 * @param fixationSetSink {@link outputPack.FixationSetSink} to which the fixation sets are written.
 	 */
-	private QueueOfFixationSets queueOfFixationSets ;
+	public SensorDataConsumer(FixationSetReader queueOfFixationSets, FixationSetSink fixationSetSink) {
+		this(queueOfFixationSets, fixationSetSink, null) ;
+	}
 
 	/**
-	 * Constructor to assign the queue for use.
+	 * Constructor to assign the queue, the sink and the metrics for use.
 	 * @param queueOfFixationSets handle to the queue to be used for fixation sets.
+	 * @param fixationSetSink {@link outputPack.FixationSetSink} to which the fixation sets are written.
+	 * @param pipelineMetrics {@link metricsPack.PipelineMetrics} recording the pickups and failed writes, null for none.
 	 */
-	public SensorDataConsumer(QueueOfFixationSets queueOfFixationSets) {
+	public SensorDataConsumer(FixationSetReader queueOfFixationSets, FixationSetSink fixationSetSink,
+			PipelineMetrics pipelineMetrics) {
 		this.queueOfFixationSets = queueOfFixationSets ;
+		this.fixationSetSink = fixationSetSink ;
+		this.pipelineMetrics = pipelineMetrics ;
 	}
 
 	@Override
 	public void run() {
-		// TODO Auto-generated method stub
 
 		int fixationSetNumber = 0 ;
+		long backoffMillis = 0 ;
 
 		while(true)
 		{
+			FixationSet fixationSet = null ;
 			try {
-				FixationSet fixationSet = queueOfFixationSets.getFIFOFixationSet();
-				System.out.println("FixationSet Number: "+ ++fixationSetNumber) ;
-				System.out.println("FixationPoints in Current Set: ");
-				for(SmoothedEye fs : fixationSet.getEyeCoordinatesSet())
+				if (backoffMillis > 0)
 				{
-					System.out.println("\t\tX: "+fs.getSmoothedEyeCoordinate().getX()+
-							"\tY: "+fs.getSmoothedEyeCoordinate().getY());
+					Thread.sleep(backoffMillis) ;
 				}
-				System.out.println("Mean Position: "+ fixationSet.getMeanEyeCoordinate().toString());
-				System.out.println("Top Left Position: " + fixationSet.getTopLeftCornerOfFixation().toString());
-				System.out.println("Bottom Right Position: "+ fixationSet.getBottomRightCornerOfFixation().toString());
-
-
+				fixationSet = queueOfFixationSets.getFIFOFixationSet();
+				if (pipelineMetrics != null)
+				{
+					pipelineMetrics.recordPickup(fixationSet) ;
+				}
+				fixationSetSink.write(fixationSet, ++fixationSetNumber);
+				backoffMillis = 0 ;
 			} catch (InterruptedException e) {
-				System.out.println("Could Not receive fixations set from the list!");
+				System.out.println("Could Not receive fixations set from the list, stopping!");
+				Thread.currentThread().interrupt();
+				return ;
+			} catch (IOException e) {
+				if (pipelineMetrics != null)
+				{
+					pipelineMetrics.recordFailedWrite() ;
+				}
+				if (backoffMillis == 0)
+				{
+					System.out.println("Could Not write fixation set to the output, backing off!");
+				}
+				backoffMillis = backoffMillis == 0 ? INITIAL_BACKOFF_MILLIS
+						: Math.min(backoffMillis * 2, MAXIMUM_BACKOFF_MILLIS) ;
+			} finally {
+				if (fixationSet != null)
+				{
+					queueOfFixationSets.releaseFixationSet(fixationSet);
+				}
 			}
 		}
 
@@ -1,11 +1,17 @@
 package basePack;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import com.theeyetribe.client.IGazeListener;
 import com.theeyetribe.client.data.GazeData;
 
+import commandPack.GazeCommandEngine;
+import dataPack.FixationDetector;
 import dataPack.FixationSet;
-import dataPack.QueueOfFixationSets;
-import dataPack.SmoothedEye;
+import dataPack.FixationSetPublisher;
+import metricsPack.PipelineMetrics;
+import saccadePack.SaccadeAnalyzer;
 
 /**
  * Class to receive data from the sensor.<br><p>
@@ -16,59 +22,372 @@ import dataPack.SmoothedEye;
  * 		into a ongoing fixation set, or send the fixation set aquired from the above actions to the queue 
  * 		to be used.<br>
  * As the call is asynchronous, and the class is referenced from the default thread in {@link basePack.startPoint}, technically, 
- * this producer is not a separate thread from the default thread.
+ * this producer is not a separate thread from the default thread.<br>
+ * The samples are copied straight out of the {@link com.theeyetribe.client.data.GazeData} into the primitive storage of 
+ * the {@link dataPack.FixationSet}, and fixation sets are taken from the queue's pool. With a 
+ * {@link dataPack.RingOfFixationSets} sized for the longest fixation, handling a sample allocates nothing.<br>
+ * The decision of Part 2. is taken by the tracker's own flag, or by a {@link dataPack.FixationDetector} when one is
+ * given, which makes it tunable and lets it work on replayed raw data.<br>
+ * When a {@link saccadePack.SaccadeAnalyzer} is given, it is told where fixations end and start and is handed the 
+ * samples in between, which are otherwise thrown away, to measure the saccades.<br>
+ * On every sample, the queue is told the earliest start of a fixation still to come, so that a fixation set held back
+ * for merging or by a full queue is handed on as soon as it can be, rather than when the next fixation ends.<br>
+ * When a {@link commandPack.GazeCommandEngine} is set, it is handed every sample of a fixation as it arrives, so the
+ * dwell on a region is followed while the fixation lasts rather than once it has ended.<br>
+ * The producer is also a {@link basePack.GazeFrameListener}, so a {@link basePack.NioTrackerClient} can hand it the 
+ * frames without building a {@link com.theeyetribe.client.data.GazeData}.<br>
+ * It is closed with {@link basePack.SensorDataProducer#close(long)} from any thread: the next sample then hands on the
+ * fixation set under way and whatever the queue holds back, on the thread delivering the samples, and every later
+ * sample is ignored. The queue thus only ever has one producer, even while the listener is being removed.
  */
-public class SensorDataProducer implements IGazeListener {
+public class SensorDataProducer implements IGazeListener, GazeFrameListener {
+
+	/**
+	 * Default wait in milliseconds for the next sample when closing, several frames at the tracker's slowest rate.
+	 */
+	public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 1000 ;
 
 	/**
 	 * Ongoing fixation set within which current data can be added.
 	 */
 	private FixationSet currentFixationSet ;
+	/**
+	 * Fixation set kept by the producer after an interrupted hand-off, reused for the next fixation. It is never
+	 * handed back through {@link dataPack.FixationSetReader#releaseFixationSet(FixationSet)}, which is the
+	 * consumer's side of the pool.
+	 */
+	private FixationSet spareFixationSet ;
 	/**
 	 * Queue to which the most recently finished fixation set is to be added.
 	 */
-	private QueueOfFixationSets queueOfFixationSets ;
+	private FixationSetPublisher queueOfFixationSets ;
+	/**
+	 * {@link dataPack.FixationDetector} deciding which samples belong to a fixation, null to trust the tracker.
+	 */
+	private FixationDetector fixationDetector ;
+	/**
+	 * {@link metricsPack.PipelineMetrics} recording the samples and hand-offs, null for none.
+	 */
+	private PipelineMetrics pipelineMetrics ;
+	/**
+	 * {@link saccadePack.SaccadeAnalyzer} measuring the saccades between fixations, null for none.
+	 */
+	private SaccadeAnalyzer saccadeAnalyzer ;
+	/**
+	 * {@link commandPack.GazeCommandEngine} handed the samples of the fixations, null for none. It may be set after
+	 * the producer has started receiving data, from another thread.
+	 */
+	private volatile GazeCommandEngine gazeCommandEngine ;
+	/**
+	 * Set by {@link basePack.SensorDataProducer#close(long)}, read on every sample.
+	 */
+	private volatile boolean closeRequested ;
+	/**
+	 * true once the producer has handed on its last fixation sets. Only used by the thread delivering the samples.
+	 */
+	private boolean closed ;
+	/**
+	 * Released once the producer has handed on its last fixation sets.
+	 */
+	private final CountDownLatch closedLatch = new CountDownLatch(1) ;
 
 	/**
 	 * Constructor to initialize the Producer by handing over the Queue.
+	 * Fixations are taken from the tracker's {@link com.theeyetribe.client.data.GazeData#isFixated} flag.
+	 * @param queueOfFixationSets Queue to which fixation sets would be added.
+	 */
+	public SensorDataProducer(FixationSetPublisher queueOfFixationSets) {
+		this(queueOfFixationSets, null) ;
+	}
+
+	/**
+	 * Constructor to initialize the Producer by handing over the Queue and the fixation detector.
+	 * @param queueOfFixationSets Queue to which fixation sets would be added.
+	 * @param fixationDetector {@link dataPack.FixationDetector} deciding which samples belong to a fixation, 
+	 * null to trust the tracker's {@link com.theeyetribe.client.data.GazeData#isFixated} flag.
+	 */
+	public SensorDataProducer(FixationSetPublisher queueOfFixationSets, FixationDetector fixationDetector) {
+		this(queueOfFixationSets, fixationDetector, null) ;
+	}
+
+	/**
+	 * Constructor to initialize the Producer by handing over the Queue, the fixation detector and the metrics.
+	 * @param queueOfFixationSets Queue to which fixation sets would be added.
+	 * @param fixationDetector {@link dataPack.FixationDetector} deciding which samples belong to a fixation, 
+	 * null to trust the tracker's {@link com.theeyetribe.client.data.GazeData#isFixated} flag.
+	 * @param pipelineMetrics {@link metricsPack.PipelineMetrics} recording the samples and hand-offs, null for none.
+	 */
+	public SensorDataProducer(FixationSetPublisher queueOfFixationSets, FixationDetector fixationDetector,
+			PipelineMetrics pipelineMetrics) {
+		this(queueOfFixationSets, fixationDetector, pipelineMetrics, null) ;
+	}
+
+	/**
+	 * Constructor to initialize the Producer by handing over the Queue, the fixation detector, the metrics and the 
+	 * saccade analyzer.
 	 * @param queueOfFixationSets Queue to which fixation sets would be added.
+	 * @param fixationDetector {@link dataPack.FixationDetector} deciding which samples belong to a fixation, 
+	 * null to trust the tracker's {@link com.theeyetribe.client.data.GazeData#isFixated} flag.
+	 * @param pipelineMetrics {@link metricsPack.PipelineMetrics} recording the samples and hand-offs, null for none.
+	 * @param saccadeAnalyzer {@link saccadePack.SaccadeAnalyzer} measuring the saccades between fixations, null for 
+	 * none.
 	 */
-	public SensorDataProducer(QueueOfFixationSets queueOfFixationSets) {
+	public SensorDataProducer(FixationSetPublisher queueOfFixationSets, FixationDetector fixationDetector,
+			PipelineMetrics pipelineMetrics, SaccadeAnalyzer saccadeAnalyzer) {
 		super();
 		this.queueOfFixationSets = queueOfFixationSets;
+		this.fixationDetector = fixationDetector ;
+		this.pipelineMetrics = pipelineMetrics ;
+		this.saccadeAnalyzer = saccadeAnalyzer ;
 		currentFixationSet = null ;
 	}
 
 	/** 
 	 * Overridden Method from IGazeListener to get data from the sensor asynchronously.<br><p>
-	 * The Method, based on the {@link dataPack.SmoothedEye#isFixated}, 
+	 * The Method, based on the {@link dataPack.SmoothedEye#isFixated} or on the events of the 
+	 * {@link basePack.SensorDataProducer#fixationDetector}, 
 	 * either adds the data to the {@link basePack.SensorDataProducer#currentFixationSet}, 
 	 * or sends the {@link basePack.SensorDataProducer#currentFixationSet} to the Queue.<p><br>
 	 * @see com.theeyetribe.client.IGazeListener#onGazeUpdate(com.theeyetribe.client.data.GazeData)
 	 */
 	@Override
 	public void onGazeUpdate(GazeData gazeData) {
-		if(gazeData.isFixated)
+		onSample(gazeData.smoothedCoordinates.x, gazeData.smoothedCoordinates.y, gazeData.state, gazeData.isFixated,
+				gazeData.timeStamp) ;
+	}
+
+	/**
+	 * Overridden Method from GazeFrameListener to get data from a {@link basePack.NioTrackerClient}, handled as in
+	 * {@link basePack.SensorDataProducer#onGazeUpdate(GazeData)} but straight from the primitive fields of the frame.
+	 * @see basePack.GazeFrameListener#onGazeFrame(basePack.GazeFrame)
+	 */
+	@Override
+	public void onGazeFrame(GazeFrame gazeFrame) {
+		onSample(gazeFrame.getSmoothedX(), gazeFrame.getSmoothedY(), gazeFrame.getState(), gazeFrame.isFixated(),
+				gazeFrame.getTimeStamp()) ;
+	}
+
+	/**
+	 * Method to handle one sample, whichever listener it came through.
+	 * @param x smoothed x coordinate of the gaze.
+	 * @param y smoothed y coordinate of the gaze.
+	 * @param state state of the tracker.
+	 * @param isFixated the tracker's fixated flag.
+	 * @param timeStamp time at which the tracker recorded the sample, in milliseconds.
+	 */
+	private void onSample(double x, double y, int state, boolean isFixated, long timeStamp) {
+		if (closeRequested)
 		{
-			if(currentFixationSet == null)
+			if (!closed)
 			{
-				currentFixationSet = new FixationSet(gazeData.timeStamp) ;
+				handOnLastFixationSets() ;
 			}
-			SmoothedEye newSmootherEye = new SmoothedEye(gazeData.smoothedCoordinates.x,
-					gazeData.smoothedCoordinates.y,
-					gazeData.isFixated,
-					gazeData.state,
-					gazeData.timeStamp) ;
-			currentFixationSet.addEyeCoordinatesSet(newSmootherEye);
-		}
-		else if (currentFixationSet != null)
+			return ;
+		}
+		if (pipelineMetrics != null)
+		{
+			pipelineMetrics.recordSample() ;
+		}
+		if (fixationDetector != null)
 		{
-			try {
-				this.queueOfFixationSets.addFIFOFixationSet(currentFixationSet);
-				currentFixationSet = null ;
-			} catch (InterruptedException e) {
-				System.out.println("Could Not add current fixation set to list!");
+			onDetectedSample(x, y, state, timeStamp) ;
+		}
+		else if(isFixated)
+		{
+			boolean started = currentFixationSet == null ;
+			if(started)
+			{
+				currentFixationSet = acquireFixationSet(timeStamp) ;
+			}
+			currentFixationSet.addEyeCoordinate(x, y, state, timeStamp);
+			if (started && saccadeAnalyzer != null)
+			{
+				saccadeAnalyzer.fixationStarted(currentFixationSet) ;
+			}
+			GazeCommandEngine engine = gazeCommandEngine ;
+			if (engine != null)
+			{
+				engine.onGaze(x, y, timeStamp) ;
+			}
+		}
+		else
+		{
+			if (currentFixationSet != null)
+			{
+				handOffCurrentFixationSet() ;
+			}
+			if (saccadeAnalyzer != null)
+			{
+				saccadeAnalyzer.addSample(x, y, timeStamp) ;
+			}
+		}
+		handOnHeldBackFixationSets(timeStamp) ;
+	}
+
+	/**
+	 * Method to close the producer, waiting for the thread delivering the samples to hand on the fixation set under way
+	 * and whatever the queue holds back. Samples are ignored from then on, so the listener may be removed afterwards
+	 * at leisure.
+	 * @param timeoutMillis longest wait in milliseconds for the next sample to arrive.
+	 * @return true if the last fixation sets were handed on, false if no sample arrived in time. They are then left
+	 * where they are, as the thread delivering the samples may still hold them.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 */
+	public boolean close(long timeoutMillis) throws InterruptedException {
+		closeRequested = true ;
+		return closedLatch.await(timeoutMillis, TimeUnit.MILLISECONDS) ;
+	}
+
+	/**
+	 * Method for the thread delivering the samples to hand on the fixation set under way and whatever the queue holds
+	 * back, once the producer is closed.
+	 */
+	private void handOnLastFixationSets() {
+		closed = true ;
+		if (currentFixationSet != null)
+		{
+			handOffCurrentFixationSet() ;
+		}
+		try {
+			queueOfFixationSets.handOnHeldBackFixationSets(Long.MAX_VALUE) ;
+		} catch (InterruptedException e) {
+			System.out.println("Could Not hand on the last fixation set!");
+		}
+		closedLatch.countDown() ;
+	}
+
+	/**
+	 * Method to let the queue hand on the fixation sets it holds back, given the earliest start of a fixation still to
+	 * come: the start of the current fixation set, else of the samples pending in the
+	 * {@link basePack.SensorDataProducer#fixationDetector}, else the latest sample.
+	 * @param timeStamp time at which the tracker recorded the latest sample, in milliseconds.
+	 */
+	private void handOnHeldBackFixationSets(long timeStamp) {
+		long earliestStartTimeStamp = timeStamp ;
+		if (currentFixationSet != null)
+		{
+			earliestStartTimeStamp = currentFixationSet.getStartTimeStamp() ;
+		}
+		else if (fixationDetector != null && fixationDetector.getPendingSampleCount() > 0)
+		{
+			earliestStartTimeStamp = fixationDetector.getPendingStartTimeStamp() ;
+		}
+		try {
+			queueOfFixationSets.handOnHeldBackFixationSets(earliestStartTimeStamp) ;
+		} catch (InterruptedException e) {
+			System.out.println("Could Not hand on the held back fixation sets!");
+		}
+	}
+
+	/**
+	 * Method to handle a sample with the {@link basePack.SensorDataProducer#fixationDetector}.<br>
+	 * A fixation is only recognised once it has lasted the minimum duration, so its first samples are taken 
+	 * from the detector when it starts. They are handed to the {@link basePack.SensorDataProducer#gazeCommandEngine}
+	 * in time order, the new sample last, so a prediction made from the new sample is applied to it.
+	 * @param x smoothed x coordinate of the gaze.
+	 * @param y smoothed y coordinate of the gaze.
+	 * @param state state of the tracker.
+	 * @param timeStamp time at which the tracker recorded the sample, in milliseconds.
+	 */
+	private void onDetectedSample(double x, double y, int state, long timeStamp) {
+		int event = fixationDetector.addSample(x, y, state, timeStamp) ;
+		if ((event & FixationDetector.FIXATION_ENDED) != 0 && currentFixationSet != null)
+		{
+			handOffCurrentFixationSet() ;
+		}
+		if ((event & FixationDetector.FIXATION_STARTED) != 0)
+		{
+			if (currentFixationSet != null)
+			{
+				currentFixationSet.reset(fixationDetector.getPendingStartTimeStamp()) ;
+			}
+			else
+			{
+				currentFixationSet = acquireFixationSet(fixationDetector.getPendingStartTimeStamp()) ;
+			}
+			fixationDetector.movePendingSamples(currentFixationSet) ;
+			if (saccadeAnalyzer != null)
+			{
+				saccadeAnalyzer.fixationStarted(currentFixationSet) ;
+			}
+			GazeCommandEngine engine = gazeCommandEngine ;
+			if (engine != null)
+			{
+				for (int i = 0 ; i < currentFixationSet.getSampleCount() ; i++)
+				{
+					engine.onGaze(currentFixationSet.getX(i), currentFixationSet.getY(i),
+							currentFixationSet.getTimeStamp(i)) ;
+				}
+			}
+		}
+		else if ((event & FixationDetector.FIXATION_CONTINUED) != 0 && currentFixationSet != null)
+		{
+			currentFixationSet.addEyeCoordinate(x, y, state, timeStamp);
+			GazeCommandEngine engine = gazeCommandEngine ;
+			if (engine != null)
+			{
+				engine.onGaze(x, y, timeStamp) ;
+			}
+		}
+		else if (saccadeAnalyzer != null)
+		{
+			saccadeAnalyzer.addSample(x, y, timeStamp) ;
+		}
+	}
+
+	/**
+	 * Method to set the {@link basePack.SensorDataProducer#gazeCommandEngine}. From then on, the producer's thread is
+	 * the only one to drive it.
+	 * @param gazeCommandEngine {@link commandPack.GazeCommandEngine} handed the samples of the fixations, null for
+	 * none.
+	 */
+	public void setGazeCommandEngine(GazeCommandEngine gazeCommandEngine) {
+		this.gazeCommandEngine = gazeCommandEngine ;
+	}
+
+	/**
+	 * Method to get an empty fixation set, the {@link basePack.SensorDataProducer#spareFixationSet} if there is one,
+	 * otherwise one from the queue.
+	 * @param startTimeStamp start time of the fixation set in milliseconds.
+	 * @return empty {@link dataPack.FixationSet} starting at startTimeStamp.
+	 */
+	private FixationSet acquireFixationSet(long startTimeStamp) {
+		FixationSet fixationSet = spareFixationSet ;
+		if (fixationSet == null)
+		{
+			return queueOfFixationSets.acquireFixationSet(startTimeStamp) ;
+		}
+		spareFixationSet = null ;
+		fixationSet.reset(startTimeStamp) ;
+		return fixationSet ;
+	}
+
+	/**
+	 * Method to send the {@link basePack.SensorDataProducer#currentFixationSet} to the Queue.<br>
+	 * If the producer is interrupted, the fixation set is lost but kept as the
+	 * {@link basePack.SensorDataProducer#spareFixationSet}, so the next fixation starts in an empty set.
+	 */
+	private void handOffCurrentFixationSet() {
+		if (saccadeAnalyzer != null)
+		{
+			saccadeAnalyzer.fixationEnded(currentFixationSet) ;
+		}
+		try {
+			long startNanos = pipelineMetrics != null ? System.nanoTime() : 0 ;
+			this.queueOfFixationSets.addFIFOFixationSet(currentFixationSet);
+			currentFixationSet = null ;
+			if (pipelineMetrics != null)
+			{
+				pipelineMetrics.recordEnqueue(System.nanoTime() - startNanos, queueOfFixationSets.size()) ;
+			}
+		} catch (InterruptedException e) {
+			if (pipelineMetrics != null)
+			{
+				pipelineMetrics.recordInterruptedEnqueue() ;
 			}
+			spareFixationSet = currentFixationSet ;
+			currentFixationSet = null ;
+			System.out.println("Could Not add current fixation set to list!");
 		}
 	}
 
@@ -1,13 +1,38 @@
 package basePack;
 
+import java.io.IOException;
+
 import com.theeyetribe.client.GazeManager;
 import com.theeyetribe.client.GazeManager.ApiVersion;
 import com.theeyetribe.client.GazeManager.ClientMode;
+import com.theeyetribe.client.IGazeListener;
 
-import commandPack.CommandAttribute;
+import commandPack.CommandListener;
+import commandPack.CommandTransport;
 import commandPack.Commands;
+import commandPack.GazeCommandEngine;
+import commandPack.ScreenRegion;
+import commandPack.ScrollDown;
 import commandPack.ScrollUp;
-import dataPack.QueueOfFixationSets;
+import dataPack.BroadcastRingOfFixationSets;
+import dataPack.DispersionThresholdDetector;
+import dataPack.FixationSet;
+import dataPack.MergingQueueOfFixationSets;
+import dataPack.OverflowPolicy;
+import dataPack.WaitStrategy;
+import filterPack.GazeCoordinateSource;
+import metricsPack.PipelineMetrics;
+import metricsPack.PipelineMetricsReporter;
+import outputPack.AsyncFixationSetSink;
+import outputPack.OutputFormat;
+import predictPack.GazePredictor;
+import predictPack.PredictingGazeListener;
+import recordPack.GazeRecorder;
+import saccadePack.Saccade;
+import saccadePack.SaccadeAnalyzer;
+import saccadePack.SaccadeListener;
+import saccadePack.SaccadeWindow;
+import saccadePack.SaccadeWindowSnapshot;
 
 
 
@@ -17,38 +42,138 @@ import dataPack.QueueOfFixationSets;
  * From here, we do the following:<p>
  * 1. Get {@link com.theeyetribe.client.GazeManager} handler.<br>
  * 2. Check for its connection status.<br>
- * 3. Get a {@link dataPack.QueueOfFixationSets} handle.<br>
- * 4. Get {@link basePack.SensorDataProducer} handle by passing it handle from Part 3.<br>
- * 5. Get {@link basePack.SensorDataConsumer} handle by passing it handle from Part 3.<br>
- * 6. Make thread from the handle in Part 5. <br>
- * 7. Add a shutdown hook for the handle in Part 1.<br>
+ * 3. Get a {@link dataPack.BroadcastRingOfFixationSets} handle, and a {@link dataPack.QueueOfFixationSets} handle 
+ * publishing to it, merging nearby fixations through a {@link dataPack.MergingQueueOfFixationSets}. When a subscriber 
+ * falls behind, further fixations are merged on the producer side ({@link dataPack.OverflowPolicy#COALESCE}) so that 
+ * the gaze input is never blocked.<br>
+ * 4. Get {@link basePack.SensorDataProducer} handle by passing it handle from Part 3, a 
+ * {@link dataPack.DispersionThresholdDetector} to find the fixations, and a {@link saccadePack.SaccadeAnalyzer} 
+ * logging the saccade rate and amplitude of the last 10 seconds and of the last minute to the standard error.<br>
+ * 5. Get a {@link basePack.SensorDataConsumer} handle for a subscriber of the ring writing the fixation sets to the 
+ * standard output.<br>
+ * 6. Make a thread from the handle in Part 5, and give the producer a {@link commandPack.GazeCommandEngine} which 
+ * scrolls when the gaze dwells on the top or bottom band of the screen. It is fed the samples of every fixation as 
+ * they arrive, so it scrolls while the gaze stays on a band rather than after the eyes have left it.<br>
+ * 7. Add a shutdown hook for the handle in Part 1. It first closes the producer, which hands on the fixation set still 
+ * held back for merging on its own thread with the next sample, and only then removes the listener.<br>
+ * The producer and the consumer record into {@link metricsPack.PipelineMetrics}, which a
+ * {@link metricsPack.PipelineMetricsReporter} publishes through JMX and logs to the standard error.<br>
+ * If a path prefix is given as the first argument, every frame is also recorded by a {@link recordPack.GazeRecorder}
+ * on its way to the producer.<br>
+ * With -Dtracker.client=nio, the frames are read by a {@link basePack.NioTrackerClient} instead of the
+ * {@link com.theeyetribe.client.GazeManager}, and handed to the producer without building a
+ * {@link com.theeyetribe.client.data.GazeData}, unless they are recorded.<br>
+ * With -Dpage.port=N, the commands are also sent to the helper of the web page on that local port by a
+ * {@link commandPack.CommandTransport}, which reports their latency on exit.<br>
+ * With -Dpredict.horizon=N, a {@link predictPack.PredictingGazeListener} in front of the producer predicts the gaze
+ * N milliseconds ahead and hands the predictions to the {@link commandPack.GazeCommandEngine}, which uses the
+ * confident ones in place of the samples. The producer still gets the gaze as measured. The errors of the
+ * predictions are logged to the standard error.<br>
  * @version 1.0
  * 
  */
 public class startPoint {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		
-		final GazeManager gm = GazeManager.getInstance();
-        boolean success = gm.activate(ApiVersion.VERSION_1_0, ClientMode.PUSH);
+		final boolean nioClient = "nio".equals(System.getProperty("tracker.client")) ;
+		final GazeManager gm = nioClient ? null : GazeManager.getInstance();
+		if (gm != null)
+		{
+	        boolean success = gm.activate(ApiVersion.VERSION_1_0, ClientMode.PUSH);
 
-		System.out.println("Hello, World! Activation: "+ success);
+			System.out.println("Hello, World! Activation: "+ success);
+		}
 		
         
-        QueueOfFixationSets queueOfFixationSets = new QueueOfFixationSets(25) ;
+        BroadcastRingOfFixationSets broadcastRing = new BroadcastRingOfFixationSets(25, FixationSet.INITIAL_CAPACITY, 
+        		WaitStrategy.PARK, OverflowPolicy.COALESCE) ;
+        BroadcastRingOfFixationSets.Subscriber outputSubscriber = broadcastRing.newSubscriber("output", WaitStrategy.PARK) ;
+        final MergingQueueOfFixationSets queueOfFixationSets = new MergingQueueOfFixationSets(broadcastRing) ;
         
 
-		final SensorDataProducer gazeProuducerListener = new SensorDataProducer(queueOfFixationSets) ;
-        gm.addGazeListener(gazeProuducerListener);
+		PipelineMetrics pipelineMetrics = new PipelineMetrics(queueOfFixationSets) ;
+		pipelineMetrics.addSubscriber(outputSubscriber) ;
+		final PipelineMetricsReporter pipelineMetricsReporter = new PipelineMetricsReporter(pipelineMetrics,
+				PipelineMetricsReporter.DEFAULT_PERIOD_MILLIS, System.err) ;
+		pipelineMetricsReporter.start() ;
+
+		SaccadeAnalyzer saccadeAnalyzer = new SaccadeAnalyzer(new SaccadeListener()
+		{
+			@Override
+			public void onSaccade(Saccade saccade)
+			{
+			}
+
+			@Override
+			public void onWindowClosed(SaccadeWindow window, SaccadeWindowSnapshot snapshot)
+			{
+				System.err.println("[reading " + window.getName() + "] " + snapshot) ;
+			}
+		}) ;
+		saccadeAnalyzer.addWindow(new SaccadeWindow("10s", 10000)) ;
+		saccadeAnalyzer.addWindow(new SaccadeWindow("60s", 60000, 10000)) ;
+
+		final SensorDataProducer sensorDataProducer = new SensorDataProducer(queueOfFixationSets, 
+				new DispersionThresholdDetector(), pipelineMetrics, saccadeAnalyzer) ;
+		final PredictingGazeListener predictingGazeListener = System.getProperty("predict.horizon") != null
+				? new PredictingGazeListener(new GazePredictor(Long.parseLong(System.getProperty("predict.horizon"))),
+						GazeCoordinateSource.SMOOTHED, sensorDataProducer, null, System.err,
+						PipelineMetricsReporter.DEFAULT_PERIOD_MILLIS) : null ;
+		final IGazeListener producerInputListener = predictingGazeListener != null ? predictingGazeListener
+				: sensorDataProducer ;
+		final GazeRecorder gazeRecorder = args.length > 0 ? new GazeRecorder(args[0], producerInputListener) : null ;
+		final IGazeListener gazeProuducerListener = gazeRecorder != null ? gazeRecorder : producerInputListener ;
+        final NioTrackerClient trackerClient = nioClient ? (gazeRecorder != null ? new NioTrackerClient(gazeRecorder)
+        		: new NioTrackerClient((GazeFrameListener) producerInputListener)) : null ;
+        if (trackerClient != null)
+        {
+        	System.out.println("Hello, World! Activation: "+ trackerClient.activate(5000));
+        }
+        else
+        {
+        	gm.addGazeListener(gazeProuducerListener);
+        }
         
         
-        SensorDataConsumer sensorDataConsumer = new SensorDataConsumer(queueOfFixationSets) ;
+        SensorDataConsumer sensorDataConsumer = new SensorDataConsumer(outputSubscriber, 
+        		AsyncFixationSetSink.toStandardOutput(OutputFormat.TEXT), pipelineMetrics) ;
         
         Thread consumerThread = new Thread(sensorDataConsumer) ;
         consumerThread.start();
         
-        CommandAttribute cm = new ScrollUp(5) ;
-        Commands c = new Commands("Scroll Up",cm) ;
+        int reportedWidth = trackerClient != null ? trackerClient.getScreenResolutionWidth() : gm.getScreenResolutionWidth() ;
+        int reportedHeight = trackerClient != null ? trackerClient.getScreenResolutionHeight() : gm.getScreenResolutionHeight() ;
+        int screenWidth = reportedWidth > 0 ? reportedWidth : 1920 ;
+        int screenHeight = reportedHeight > 0 ? reportedHeight : 1080 ;
+        final CommandTransport commandTransport = System.getProperty("page.port") != null ? new CommandTransport(
+        		"localhost", Integer.parseInt(System.getProperty("page.port")), CommandTransport.DEFAULT_WINDOW_MILLIS) : null ;
+        if (commandTransport != null)
+        {
+        	commandTransport.connect();
+        }
+        GazeCommandEngine gazeCommandEngine = new GazeCommandEngine(screenWidth, screenHeight, new CommandListener()
+        {
+        	@Override
+        	public void onCommand(Commands command, ScreenRegion region, long timeStamp)
+        	{
+        		System.out.println(command);
+        		if (commandTransport != null)
+        		{
+        			commandTransport.onCommand(command, region, timeStamp);
+        		}
+        	}
+        });
+        gazeCommandEngine.addRegion(new ScreenRegion("Top Band", 0, 0, screenWidth, screenHeight / 8, 
+        		new Commands("Scroll Up", new ScrollUp(5)), 400, true)) ;
+        gazeCommandEngine.addRegion(new ScreenRegion("Bottom Band", 0, screenHeight - screenHeight / 8, screenWidth, 
+        		screenHeight, new Commands("Scroll Down", new ScrollDown(5)), 400, true)) ;
+        
+        if (predictingGazeListener != null)
+        {
+        	predictingGazeListener.setPredictionListener(gazeCommandEngine);
+        }
+        sensorDataProducer.setGazeCommandEngine(gazeCommandEngine);
        
         
         
@@ -58,8 +183,37 @@ public class startPoint {
             @Override
             public void run()
             {
-                gm.removeGazeListener(gazeProuducerListener);
-             gm.deactivate();
+             try {
+            	 if (!sensorDataProducer.close(SensorDataProducer.DEFAULT_CLOSE_TIMEOUT_MILLIS))
+            	 {
+            		 System.out.println("Could Not hand on the last fixation set!");
+            	 }
+             } catch (InterruptedException e) {
+            	 System.out.println("Could Not hand on the last fixation set!");
+             }
+             if (trackerClient != null)
+             {
+            	 trackerClient.close();
+             }
+             else
+             {
+            	 gm.removeGazeListener(gazeProuducerListener);
+            	 gm.deactivate();
+             }
+             if (gazeRecorder != null)
+             {
+            	 gazeRecorder.close();
+             }
+             if (predictingGazeListener != null)
+             {
+            	 predictingGazeListener.getGazePredictor().report(System.err);
+             }
+             if (commandTransport != null)
+             {
+            	 commandTransport.report(System.err);
+            	 commandTransport.close();
+             }
+             pipelineMetricsReporter.close();
             }
         });
         
@@ -4,4 +4,9 @@ public abstract class CommandAttribute {
 	
 	abstract String getCommandAttributeAsString() ;
 
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " {" + getCommandAttributeAsString() + "}" ;
+	}
+
 }
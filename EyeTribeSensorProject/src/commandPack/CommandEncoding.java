@@ -0,0 +1,224 @@
+package commandPack;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary layout of the messages between a {@link commandPack.CommandTransport} and the helper of the web page.<br><p>
+ * Every message is a length of 2 bytes, counting the bytes after it, followed by:<br>
+ * 1. A type of 1 byte, one of the TYPE_ constants.<br>
+ * 2. The number of commands merged into the message, 1 byte, at most 255.<br>
+ * 3. A sequence number of 4 bytes, which the acknowledgement repeats.<br>
+ * 4. The values of the type: a pixel count of 4 bytes for a scroll, x and y as floats of 4 bytes and a button byte for
+ * a point, and two strings of a 2 byte length and UTF-8 bytes for any other command, its instruction and its
+ * attribute.<br>
+ * A scroll is 12 bytes in all. The page answers every message with an acknowledgement of type
+ * {@link commandPack.CommandEncoding#TYPE_ACKNOWLEDGEMENT} and no values. All values are big endian.
+ */
+public final class CommandEncoding {
+
+	/**
+	 * Size of the length in front of every message.
+	 */
+	public static final int LENGTH_SIZE = 2 ;
+	/**
+	 * Size of the type, count and sequence number of every message.
+	 */
+	public static final int HEADER_SIZE = 6 ;
+	/**
+	 * Longest message in bytes, length included.
+	 */
+	public static final int MAXIMUM_MESSAGE_SIZE = LENGTH_SIZE + 0xFFFF ;
+
+	public static final int TYPE_SCROLL_UP = 1 ;
+	public static final int TYPE_SCROLL_DOWN = 2 ;
+	public static final int TYPE_POINT = 3 ;
+	public static final int TYPE_INSTRUCTION = 4 ;
+	public static final int TYPE_ACKNOWLEDGEMENT = 0x7F ;
+
+	private CommandEncoding() {
+	}
+
+	/**
+	 * Method to write a scroll.
+	 * @param buffer buffer the message is put into.
+	 * @param type {@link commandPack.CommandEncoding#TYPE_SCROLL_UP} or
+	 * {@link commandPack.CommandEncoding#TYPE_SCROLL_DOWN}.
+	 * @param commandCount number of commands merged into the message.
+	 * @param sequence sequence number of the message.
+	 * @param pixelCount number of pixels to scroll.
+	 */
+	public static void putScroll(ByteBuffer buffer, int type, int commandCount, int sequence, int pixelCount) {
+		putHeader(buffer, HEADER_SIZE + 4, type, commandCount, sequence) ;
+		buffer.putInt(pixelCount) ;
+	}
+
+	/**
+	 * Method to write a point.
+	 * @param buffer buffer the message is put into.
+	 * @param commandCount number of commands merged into the message.
+	 * @param sequence sequence number of the message.
+	 * @param x x coordinate on the page.
+	 * @param y y coordinate on the page.
+	 * @param pressButton whether the button is pressed at the point.
+	 */
+	public static void putPoint(ByteBuffer buffer, int commandCount, int sequence, float x, float y,
+			boolean pressButton) {
+		putHeader(buffer, HEADER_SIZE + 9, TYPE_POINT, commandCount, sequence) ;
+		buffer.putFloat(x) ;
+		buffer.putFloat(y) ;
+		buffer.put((byte) (pressButton ? 1 : 0)) ;
+	}
+
+	/**
+	 * Method to write any other command as its instruction and attribute.
+	 * @param buffer buffer the message is put into.
+	 * @param commandCount number of commands merged into the message.
+	 * @param sequence sequence number of the message.
+	 * @param instruction bytes of the instruction, at most 32000.
+	 * @param attribute bytes of the attribute, at most 32000.
+	 */
+	public static void putInstruction(ByteBuffer buffer, int commandCount, int sequence, byte[] instruction,
+			byte[] attribute) {
+		putHeader(buffer, HEADER_SIZE + 4 + instruction.length + attribute.length, TYPE_INSTRUCTION, commandCount,
+				sequence) ;
+		buffer.putShort((short) instruction.length) ;
+		buffer.put(instruction) ;
+		buffer.putShort((short) attribute.length) ;
+		buffer.put(attribute) ;
+	}
+
+	/**
+	 * Method to write an acknowledgement.
+	 * @param buffer buffer the message is put into.
+	 * @param sequence sequence number of the message acknowledged.
+	 */
+	public static void putAcknowledgement(ByteBuffer buffer, int sequence) {
+		putHeader(buffer, HEADER_SIZE, TYPE_ACKNOWLEDGEMENT, 1, sequence) ;
+	}
+
+	/**
+	 * Method to get the size of the instruction message of a command.
+	 * @param instruction bytes of the instruction.
+	 * @param attribute bytes of the attribute.
+	 * @return size of the message, length included.
+	 */
+	public static int instructionSize(byte[] instruction, byte[] attribute) {
+		return LENGTH_SIZE + HEADER_SIZE + 4 + instruction.length + attribute.length ;
+	}
+
+	/**
+	 * Method to get the bytes of a string as sent.
+	 * @param text string to be sent, null for none.
+	 * @return UTF-8 bytes, cut to 32000.
+	 */
+	public static byte[] bytes(String text) {
+		byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8) ;
+		if (bytes.length > 32000)
+		{
+			byte[] cut = new byte[32000] ;
+			System.arraycopy(bytes, 0, cut, 0, cut.length) ;
+			return cut ;
+		}
+		return bytes ;
+	}
+
+	/**
+	 * Method to read the type of a message.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return type of the message.
+	 */
+	public static int getType(ByteBuffer message) {
+		return message.get(0) & 0xFF ;
+	}
+
+	/**
+	 * Method to read the number of commands merged into a message.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return number of commands.
+	 */
+	public static int getCommandCount(ByteBuffer message) {
+		return message.get(1) & 0xFF ;
+	}
+
+	/**
+	 * Method to read the sequence number of a message.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return sequence number.
+	 */
+	public static int getSequence(ByteBuffer message) {
+		return message.getInt(2) ;
+	}
+
+	/**
+	 * Method to read the pixel count of a scroll.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return number of pixels to scroll.
+	 */
+	public static int getPixelCount(ByteBuffer message) {
+		return message.getInt(HEADER_SIZE) ;
+	}
+
+	/**
+	 * Method to read the x coordinate of a point.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return x coordinate on the page.
+	 */
+	public static float getX(ByteBuffer message) {
+		return message.getFloat(HEADER_SIZE) ;
+	}
+
+	/**
+	 * Method to read the y coordinate of a point.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return y coordinate on the page.
+	 */
+	public static float getY(ByteBuffer message) {
+		return message.getFloat(HEADER_SIZE + 4) ;
+	}
+
+	/**
+	 * Method to read whether the button is pressed at a point.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return true if the button is pressed.
+	 */
+	public static boolean isPressButton(ByteBuffer message) {
+		return message.get(HEADER_SIZE + 8) != 0 ;
+	}
+
+	/**
+	 * Method to read the instruction of an instruction message.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return the instruction.
+	 */
+	public static String getInstruction(ByteBuffer message) {
+		return getString(message, HEADER_SIZE) ;
+	}
+
+	/**
+	 * Method to read the attribute of an instruction message.
+	 * @param message buffer holding the message after its length, from position 0.
+	 * @return the attribute.
+	 */
+	public static String getAttribute(ByteBuffer message) {
+		int instructionLength = message.getShort(HEADER_SIZE) & 0xFFFF ;
+		return getString(message, HEADER_SIZE + 2 + instructionLength) ;
+	}
+
+	private static void putHeader(ByteBuffer buffer, int length, int type, int commandCount, int sequence) {
+		buffer.putShort((short) length) ;
+		buffer.put((byte) type) ;
+		buffer.put((byte) Math.min(commandCount, 0xFF)) ;
+		buffer.putInt(sequence) ;
+	}
+
+	private static String getString(ByteBuffer message, int position) {
+		int length = message.getShort(position) & 0xFFFF ;
+		byte[] bytes = new byte[length] ;
+		for (int i = 0 ; i < length ; i++)
+		{
+			bytes[i] = message.get(position + 2 + i) ;
+		}
+		return new String(bytes, StandardCharsets.UTF_8) ;
+	}
+}
@@ -0,0 +1,16 @@
+package commandPack;
+
+/**
+ * Receiver of the commands issued by a {@link commandPack.GazeCommandEngine}.
+ */
+public interface CommandListener {
+
+	/**
+	 * Method called on the engine's thread for every command issued. It should return quickly, as the next fixation
+	 * waits for it.
+	 * @param command {@link commandPack.Commands} issued, shared by every issue of the region.
+	 * @param region {@link commandPack.ScreenRegion} which issued the command.
+	 * @param timeStamp time stamp of the end of the fixation which completed the dwell.
+	 */
+	void onCommand(Commands command, ScreenRegion region, long timeStamp) ;
+}
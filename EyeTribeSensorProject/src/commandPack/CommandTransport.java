@@ -0,0 +1,440 @@
+package commandPack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import metricsPack.LatencyHistogram;
+
+/**
+ * Transport of the {@link commandPack.Commands} to a helper of the web page over TCP, in the binary layout of
+ * {@link commandPack.CommandEncoding}.<br><p>
+ * The transport is a {@link commandPack.CommandListener}, so a {@link commandPack.GazeCommandEngine} can hand it the
+ * commands on its own thread, and works as follows:<br>
+ * 1. A command handed over is copied into a small pending list and the engine returns at once. A scroll in the same
+ * direction as the last pending command is merged into it, summing the pixel counts.<br>
+ * 2. A sender thread writes the pending commands as soon as the last write is at least one frame window old, and
+ * otherwise at the end of the window. The first scroll after a pause is sent at once, and a dwell issuing scrolls
+ * faster than the window sends at most one message per window, which the page can animate as one step.<br>
+ * 3. An acknowledgement thread reads the acknowledgements of the page, and records the time from the moment the first
+ * command of the message was handed over to its acknowledgement into a {@link metricsPack.LatencyHistogram}.<br>
+ * A command handed over while the pending list is full is dropped and counted. If the connection is lost, the threads
+ * end with a message and further commands are dropped.
+ */
+public class CommandTransport implements CommandListener, Closeable {
+
+	/**
+	 * Port of the helper of the web page.
+	 */
+	public static final int DEFAULT_PORT = 6556 ;
+	/**
+	 * Default frame window in milliseconds, one frame of a 60 Hz display.
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = 16 ;
+	/**
+	 * Number of commands which can be pending, after merging.
+	 */
+	private static final int PENDING_CAPACITY = 64 ;
+	/**
+	 * Number of messages whose hand over time is kept until acknowledged. A power of two.
+	 */
+	private static final int IN_FLIGHT_CAPACITY = 1024 ;
+
+	private final String host ;
+	private final int port ;
+	private final long windowNanos ;
+
+	/**
+	 * Pending commands, guarded by the transport, each as a type, merged count, time handed over and values.
+	 */
+	private final int[] pendingTypes = new int[PENDING_CAPACITY] ;
+	private final int[] pendingCounts = new int[PENDING_CAPACITY] ;
+	private final long[] pendingNanos = new long[PENDING_CAPACITY] ;
+	private final int[] pendingPixelCounts = new int[PENDING_CAPACITY] ;
+	private final float[] pendingXs = new float[PENDING_CAPACITY] ;
+	private final float[] pendingYs = new float[PENDING_CAPACITY] ;
+	private final boolean[] pendingPresses = new boolean[PENDING_CAPACITY] ;
+	private final byte[][] pendingInstructions = new byte[PENDING_CAPACITY][] ;
+	private final byte[][] pendingAttributes = new byte[PENDING_CAPACITY][] ;
+	private int pendingCount ;
+
+	/**
+	 * Time each message in flight was handed over, by sequence number.
+	 */
+	private final long[] inFlightNanos = new long[IN_FLIGHT_CAPACITY] ;
+	private final LatencyHistogram latencyHistogram = new LatencyHistogram() ;
+	/**
+	 * Bytes of the messages being written, used by the sender thread only.
+	 */
+	private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(4096) ;
+	private int nextSequence ;
+	private long lastSendNanos ;
+
+	private SocketChannel socketChannel ;
+	private Thread senderThread ;
+	private Thread acknowledgementThread ;
+	private volatile boolean closed ;
+	private volatile long commandCount ;
+	private volatile long messageCount ;
+	private volatile long acknowledgedCount ;
+	private volatile long droppedCount ;
+
+	/**
+	 * Constructor to initialize a transport to the local helper with the default frame window.
+	 */
+	public CommandTransport() {
+		this("localhost", DEFAULT_PORT, DEFAULT_WINDOW_MILLIS) ;
+	}
+
+	/**
+	 * Constructor to initialize a transport.
+	 * @param host host of the helper of the web page.
+	 * @param port port of the helper of the web page.
+	 * @param windowMillis frame window in milliseconds within which scrolls are merged.
+	 */
+	public CommandTransport(String host, int port, long windowMillis) {
+		super();
+		if (windowMillis < 0)
+		{
+			throw new IllegalArgumentException("Invalid frame window: " + windowMillis) ;
+		}
+		this.host = host ;
+		this.port = port ;
+		this.windowNanos = windowMillis * 1000000L ;
+		this.lastSendNanos = System.nanoTime() - windowNanos ;
+	}
+
+	/**
+	 * Method to connect to the helper of the web page and start the sender and acknowledgement threads.
+	 * @throws IOException if the connection cannot be made.
+	 */
+	public synchronized void connect() throws IOException {
+		if (socketChannel != null)
+		{
+			throw new IllegalStateException("Command transport already connected") ;
+		}
+		socketChannel = SocketChannel.open(new InetSocketAddress(host, port)) ;
+		socketChannel.socket().setTcpNoDelay(true) ;
+		senderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				sendCommands() ;
+			}
+		}, "command-sender") ;
+		acknowledgementThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readAcknowledgements() ;
+			}
+		}, "command-acknowledgements") ;
+		senderThread.setDaemon(true) ;
+		acknowledgementThread.setDaemon(true) ;
+		senderThread.start() ;
+		acknowledgementThread.start() ;
+	}
+
+	/**
+	 * Overridden Method from CommandListener to send the command issued by a region.
+	 * @see commandPack.CommandListener#onCommand(commandPack.Commands, commandPack.ScreenRegion, long)
+	 */
+	@Override
+	public void onCommand(Commands command, ScreenRegion region, long timeStamp) {
+		send(command) ;
+	}
+
+	/**
+	 * Method to hand a command over to be sent. The values of the command are copied, so it may be reused at once.
+	 * @param command {@link commandPack.Commands} to be sent.
+	 */
+	public void send(Commands command) {
+		long nowNanos = System.nanoTime() ;
+		CommandAttribute attribute = command.getCommandAttribute() ;
+		int type ;
+		int pixelCount = 0 ;
+		if (attribute instanceof ScrollUp)
+		{
+			type = CommandEncoding.TYPE_SCROLL_UP ;
+			pixelCount = ((ScrollUp) attribute).getPixelCount() ;
+		}
+		else if (attribute instanceof ScrollDown)
+		{
+			type = CommandEncoding.TYPE_SCROLL_DOWN ;
+			pixelCount = ((ScrollDown) attribute).getPixelCount() ;
+		}
+		else if (attribute instanceof SpecificCommand)
+		{
+			type = CommandEncoding.TYPE_POINT ;
+		}
+		else
+		{
+			type = CommandEncoding.TYPE_INSTRUCTION ;
+		}
+		synchronized (this)
+		{
+			if (closed)
+			{
+				droppedCount++ ;
+				return ;
+			}
+			commandCount++ ;
+			int last = pendingCount - 1 ;
+			if (last >= 0 && pendingTypes[last] == type
+					&& (type == CommandEncoding.TYPE_SCROLL_UP || type == CommandEncoding.TYPE_SCROLL_DOWN))
+			{
+				pendingPixelCounts[last] = (int) Math.min(Integer.MAX_VALUE, (long) pendingPixelCounts[last] + pixelCount) ;
+				pendingCounts[last]++ ;
+				return ;
+			}
+			if (pendingCount == PENDING_CAPACITY)
+			{
+				droppedCount++ ;
+				return ;
+			}
+			int slot = pendingCount++ ;
+			pendingTypes[slot] = type ;
+			pendingCounts[slot] = 1 ;
+			pendingNanos[slot] = nowNanos ;
+			pendingPixelCounts[slot] = pixelCount ;
+			if (type == CommandEncoding.TYPE_POINT)
+			{
+				SpecificCommand specificCommand = (SpecificCommand) attribute ;
+				pendingXs[slot] = (float) specificCommand.getxPos() ;
+				pendingYs[slot] = (float) specificCommand.getyPos() ;
+				pendingPresses[slot] = specificCommand.isPressButton() ;
+			}
+			else if (type == CommandEncoding.TYPE_INSTRUCTION)
+			{
+				pendingInstructions[slot] = CommandEncoding.bytes(command.getCommandInstruction()) ;
+				pendingAttributes[slot] = CommandEncoding.bytes(attribute != null
+						? attribute.getCommandAttributeAsString() : null) ;
+			}
+			if (pendingCount == 1)
+			{
+				notifyAll() ;
+			}
+		}
+	}
+
+	/**
+	 * Method to stop the threads and close the connection. Pending commands are dropped.
+	 */
+	@Override
+	public void close() {
+		Thread sender ;
+		Thread acknowledgements ;
+		synchronized (this)
+		{
+			closed = true ;
+			notifyAll() ;
+			sender = senderThread ;
+			acknowledgements = acknowledgementThread ;
+		}
+		try {
+			if (socketChannel != null)
+			{
+				socketChannel.close() ;
+			}
+			if (sender != null)
+			{
+				sender.join() ;
+			}
+			if (acknowledgements != null)
+			{
+				acknowledgements.join() ;
+			}
+		} catch (IOException e) {
+			System.out.println("Could Not close the command transport!") ;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt() ;
+		}
+	}
+
+	/**
+	 * Method to get the number of commands handed over and not dropped.
+	 * @return {@link commandPack.CommandTransport#commandCount}
+	 */
+	public long getCommandCount() {
+		return commandCount ;
+	}
+
+	/**
+	 * Method to get the number of messages sent, fewer than the commands when scrolls are merged.
+	 * @return {@link commandPack.CommandTransport#messageCount}
+	 */
+	public long getMessageCount() {
+		return messageCount ;
+	}
+
+	/**
+	 * Method to get the number of messages acknowledged by the page.
+	 * @return {@link commandPack.CommandTransport#acknowledgedCount}
+	 */
+	public long getAcknowledgedCount() {
+		return acknowledgedCount ;
+	}
+
+	/**
+	 * Method to get the number of commands dropped.
+	 * @return {@link commandPack.CommandTransport#droppedCount}
+	 */
+	public long getDroppedCount() {
+		return droppedCount ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.CommandTransport#latencyHistogram}, in nanoseconds from the hand over of
+	 * the first command of a message to its acknowledgement.
+	 * @return {@link commandPack.CommandTransport#latencyHistogram}
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return latencyHistogram ;
+	}
+
+	/**
+	 * Method to print the counts and the latency since the last report on one line.
+	 * @param printStream stream the report is printed to.
+	 */
+	public void report(PrintStream printStream) {
+		LatencyHistogram.Snapshot snapshot = latencyHistogram.snapshot(true) ;
+		printStream.println(String.format("[commands] handed=%d sent=%d acknowledged=%d dropped=%d "
+				+ "latency_ms mean=%.2f p50=%.2f p99=%.2f max=%.2f", commandCount, messageCount, acknowledgedCount,
+				droppedCount, snapshot.getMean() / 1e6, snapshot.getValueAtPercentile(50) / 1e6,
+				snapshot.getValueAtPercentile(99) / 1e6, snapshot.getMaximum() / 1e6)) ;
+	}
+
+	/**
+	 * Method run by the sender thread: waits for pending commands and for the end of the frame window, then writes
+	 * them all.
+	 */
+	private void sendCommands() {
+		try {
+			while (true)
+			{
+				synchronized (this)
+				{
+					while (!closed && pendingCount == 0)
+					{
+						wait() ;
+					}
+					long waitNanos = lastSendNanos + windowNanos - System.nanoTime() ;
+					while (!closed && waitNanos > 0)
+					{
+						wait(waitNanos / 1000000L, (int) (waitNanos % 1000000L)) ;
+						waitNanos = lastSendNanos + windowNanos - System.nanoTime() ;
+					}
+					if (closed)
+					{
+						return ;
+					}
+					encodePending() ;
+					lastSendNanos = System.nanoTime() ;
+				}
+				writeBuffer.flip() ;
+				while (writeBuffer.hasRemaining())
+				{
+					socketChannel.write(writeBuffer) ;
+				}
+				writeBuffer.clear() ;
+			}
+		} catch (IOException e) {
+			if (!closed)
+			{
+				System.out.println("Could Not send the commands, connection lost!") ;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt() ;
+		} finally {
+			synchronized (this)
+			{
+				closed = true ;
+			}
+		}
+	}
+
+	/**
+	 * Method to move the pending commands into the write buffer as messages. Called with the transport locked.
+	 */
+	private void encodePending() {
+		int size = 0 ;
+		for (int i = 0 ; i < pendingCount ; i++)
+		{
+			size += pendingTypes[i] == CommandEncoding.TYPE_INSTRUCTION
+					? CommandEncoding.instructionSize(pendingInstructions[i], pendingAttributes[i])
+					: CommandEncoding.LENGTH_SIZE + CommandEncoding.HEADER_SIZE + 9 ;
+		}
+		if (writeBuffer.capacity() < size)
+		{
+			writeBuffer = ByteBuffer.allocateDirect(Math.max(size, writeBuffer.capacity() * 2)) ;
+		}
+		for (int i = 0 ; i < pendingCount ; i++)
+		{
+			int sequence = nextSequence++ ;
+			inFlightNanos[sequence & (IN_FLIGHT_CAPACITY - 1)] = pendingNanos[i] ;
+			switch (pendingTypes[i])
+			{
+			case CommandEncoding.TYPE_SCROLL_UP:
+			case CommandEncoding.TYPE_SCROLL_DOWN:
+				CommandEncoding.putScroll(writeBuffer, pendingTypes[i], pendingCounts[i], sequence,
+						pendingPixelCounts[i]) ;
+				break ;
+			case CommandEncoding.TYPE_POINT:
+				CommandEncoding.putPoint(writeBuffer, pendingCounts[i], sequence, pendingXs[i], pendingYs[i],
+						pendingPresses[i]) ;
+				break ;
+			default:
+				CommandEncoding.putInstruction(writeBuffer, pendingCounts[i], sequence, pendingInstructions[i],
+						pendingAttributes[i]) ;
+				pendingInstructions[i] = null ;
+				pendingAttributes[i] = null ;
+				break ;
+			}
+		}
+		messageCount += pendingCount ;
+		pendingCount = 0 ;
+	}
+
+	/**
+	 * Method run by the acknowledgement thread: reads the acknowledgements and records their latency.
+	 */
+	private void readAcknowledgements() {
+		ByteBuffer readBuffer = ByteBuffer.allocateDirect(4096) ;
+		try {
+			while (socketChannel.read(readBuffer) >= 0)
+			{
+				readBuffer.flip() ;
+				while (readBuffer.remaining() >= CommandEncoding.LENGTH_SIZE)
+				{
+					int start = readBuffer.position() ;
+					int length = readBuffer.getShort(start) & 0xFFFF ;
+					if (readBuffer.remaining() < CommandEncoding.LENGTH_SIZE + length)
+					{
+						break ;
+					}
+					int body = start + CommandEncoding.LENGTH_SIZE ;
+					if (length >= CommandEncoding.HEADER_SIZE
+							&& (readBuffer.get(body) & 0xFF) == CommandEncoding.TYPE_ACKNOWLEDGEMENT)
+					{
+						int sequence = readBuffer.getInt(body + 2) ;
+						long sentNanos ;
+						synchronized (this)
+						{
+							sentNanos = inFlightNanos[sequence & (IN_FLIGHT_CAPACITY - 1)] ;
+						}
+						latencyHistogram.record(Math.max(0, System.nanoTime() - sentNanos)) ;
+						acknowledgedCount++ ;
+					}
+					readBuffer.position(body + length) ;
+				}
+				readBuffer.compact() ;
+			}
+		} catch (IOException e) {
+			if (!closed)
+			{
+				System.out.println("Could Not read the acknowledgements, connection lost!") ;
+			}
+		}
+	}
+}
@@ -12,6 +12,14 @@ public class Commands {
 		this.commandAttribute = commandAttribute;
 	}
 
+	public String getCommandInstruction() {
+		return commandInstruction;
+	}
+
+	public CommandAttribute getCommandAttribute() {
+		return commandAttribute;
+	}
+
 	@Override
 	public String toString() {
 		return "Commands {commandInstruction=" + commandInstruction + ", commandAttribute=" + commandAttribute + "}";
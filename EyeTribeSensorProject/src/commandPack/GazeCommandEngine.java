@@ -0,0 +1,349 @@
+package commandPack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dataPack.FixationSet;
+import outputPack.FixationSetSink;
+import predictPack.GazePredictionListener;
+
+/**
+ * Engine turning fixations into the {@link commandPack.Commands} of the {@link commandPack.ScreenRegion}s looked at.<br><p>
+ * Every fixation is handled in the following steps:<br>
+ * 1. The region looked at is found through a {@link commandPack.RegionGridIndex}: the region on which the mean of
+ * the fixation lies, or failing that the region sharing most of the fixation's bounding box.<br>
+ * 2. Hysteresis: while the mean stays within a margin around the region already looked at, that region is kept
+ * unless the mean lies deeper than the margin inside another region, so that jitter along an edge does not restart
+ * the dwell.<br>
+ * 3. Dwell: the time on a region runs from the start of the first fixation on it, across the saccades between
+ * fixations on it as long as no gap is longer than the largest gap allowed. Once it reaches the region's dwell time,
+ * the region's command is issued; a repeating region issues it again after every further dwell time.<br>
+ * Commands are handed out as made when their region was added, so handling a fixation allocates nothing. As a
+ * {@link outputPack.FixationSetSink}, the engine can be driven by a {@link basePack.SensorDataConsumer}, for example
+ * from a {@link dataPack.BroadcastRingOfFixationSets.Subscriber}, which only sees a fixation once it has ended. It can
+ * instead be handed every sample of a fixation under way by
+ * {@link commandPack.GazeCommandEngine#onGaze(double, double, long)}, as the {@link basePack.SensorDataProducer} does,
+ * so a long fixation fires as soon as the dwell time is reached and repeats while the gaze stays.<br>
+ * As a {@link predictPack.GazePredictionListener}, the engine keeps the prediction made from the latest sample when
+ * it is confident enough, and uses it in place of that sample when the sample reaches
+ * {@link commandPack.GazeCommandEngine#onGaze(double, double, long)}: the region is looked up at the predicted point,
+ * and the dwell time still to run is shortened by the horizon of the prediction, so commands fire ahead of the
+ * pipeline's latency. The dwell itself is timed on the measured time stamps, and the fixations stay as measured. It is meant for one thread and one of the two ways; regions must all be added before the
+ * first fixation.
+ */
+public class GazeCommandEngine implements FixationSetSink, GazePredictionListener {
+
+	/**
+	 * Default side of a grid cell in pixels.
+	 */
+	public static final double DEFAULT_CELL_SIZE = 64 ;
+	/**
+	 * Default margin in pixels around the region looked at within which it is kept.
+	 */
+	public static final double DEFAULT_HYSTERESIS_PIXELS = 30 ;
+	/**
+	 * Default longest gap in milliseconds between fixations on a region which keeps the dwell running.
+	 */
+	public static final long DEFAULT_MAXIMUM_GAP_MILLIS = 300 ;
+	/**
+	 * Default confidence a prediction must reach to be used.
+	 */
+	public static final double DEFAULT_MINIMUM_PREDICTION_CONFIDENCE = 0.5 ;
+	/**
+	 * Smallest part of a fixation's bounding box a region must share to be looked at when the mean misses every region.
+	 */
+	private static final double MINIMUM_OVERLAP_FRACTION = 0.5 ;
+
+	private final int screenWidth ;
+	private final int screenHeight ;
+	private final double cellSize ;
+	private final double hysteresisPixels ;
+	private final long maximumGapMillis ;
+	/**
+	 * {@link commandPack.CommandListener} receiving the commands issued.
+	 */
+	private final CommandListener commandListener ;
+	/**
+	 * Regions added so far.
+	 */
+	private final List<ScreenRegion> regionList = new ArrayList<ScreenRegion>() ;
+
+	/**
+	 * Regions indexed, built from {@link commandPack.GazeCommandEngine#regionList} on the first fixation.
+	 */
+	private ScreenRegion[] regions ;
+	private RegionGridIndex regionGridIndex ;
+	/**
+	 * Index of the region looked at, -1 for none.
+	 */
+	private int currentRegion = -1 ;
+	/**
+	 * Start of the dwell on the current region.
+	 */
+	private long dwellStartTimeStamp ;
+	/**
+	 * End of the last fixation handled.
+	 */
+	private long lastStopTimeStamp = Long.MIN_VALUE ;
+	/**
+	 * Time stamp at which the current region last issued its command, Long.MIN_VALUE if it has not yet in this visit.
+	 */
+	private long lastIssueTimeStamp = Long.MIN_VALUE ;
+	/**
+	 * Number of commands issued.
+	 */
+	private long issuedCount ;
+	/**
+	 * Confidence a prediction must reach to be used.
+	 */
+	private double minimumPredictionConfidence = DEFAULT_MINIMUM_PREDICTION_CONFIDENCE ;
+	/**
+	 * Time stamp of the sample the kept prediction was made from, Long.MIN_VALUE if none is kept.
+	 */
+	private long predictionSampleTimeStamp = Long.MIN_VALUE ;
+	/**
+	 * Kept prediction: predicted point, and how far ahead of its sample it is in milliseconds.
+	 */
+	private double predictedX , predictedY ;
+	private long predictionLeadMillis ;
+	/**
+	 * Horizon in milliseconds of the prediction the current region last issued its command on, 0 if it was measured.
+	 */
+	private long lastIssueLeadMillis ;
+
+	/**
+	 * Constructor to initialize the engine with the default grid, hysteresis and gap.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param commandListener {@link commandPack.CommandListener} receiving the commands issued.
+	 */
+	public GazeCommandEngine(int screenWidth, int screenHeight, CommandListener commandListener) {
+		this(screenWidth, screenHeight, DEFAULT_CELL_SIZE, DEFAULT_HYSTERESIS_PIXELS, DEFAULT_MAXIMUM_GAP_MILLIS,
+				commandListener) ;
+	}
+
+	/**
+	 * Constructor to initialize the engine.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param cellSize side of a grid cell in pixels.
+	 * @param hysteresisPixels margin in pixels around the region looked at within which it is kept.
+	 * @param maximumGapMillis longest gap in milliseconds between fixations on a region which keeps the dwell running.
+	 * @param commandListener {@link commandPack.CommandListener} receiving the commands issued.
+	 */
+	public GazeCommandEngine(int screenWidth, int screenHeight, double cellSize, double hysteresisPixels,
+			long maximumGapMillis, CommandListener commandListener) {
+		super();
+		if (screenWidth <= 0 || screenHeight <= 0 || cellSize <= 0)
+		{
+			throw new IllegalArgumentException("Screen and cell sizes must be positive") ;
+		}
+		this.screenWidth = screenWidth ;
+		this.screenHeight = screenHeight ;
+		this.cellSize = cellSize ;
+		this.hysteresisPixels = hysteresisPixels ;
+		this.maximumGapMillis = maximumGapMillis ;
+		this.commandListener = commandListener ;
+	}
+
+	/**
+	 * Method to add a region, before the first fixation.
+	 * @param region {@link commandPack.ScreenRegion} to be added.
+	 */
+	public void addRegion(ScreenRegion region) {
+		if (regionGridIndex != null)
+		{
+			throw new IllegalStateException("Regions must be added before the first fixation") ;
+		}
+		regionList.add(region) ;
+	}
+
+	/**
+	 * Method to handle a fixation.
+	 * @param meanX X coordinate of the mean of the fixation.
+	 * @param meanY Y coordinate of the mean of the fixation.
+	 * @param left left edge of the fixation's bounding box.
+	 * @param top top edge of the fixation's bounding box.
+	 * @param right right edge of the fixation's bounding box.
+	 * @param bottom bottom edge of the fixation's bounding box.
+	 * @param startTimeStamp start of the fixation in milliseconds.
+	 * @param stopTimeStamp end of the fixation in milliseconds.
+	 * @return {@link commandPack.Commands} issued, null for none.
+	 */
+	public Commands onFixation(double meanX, double meanY, double left, double top, double right, double bottom,
+			long startTimeStamp, long stopTimeStamp) {
+		int region = findRegion(meanX, meanY) ;
+		if (region < 0)
+		{
+			region = regionGridIndex.findLargestOverlap(left, top, right, bottom, MINIMUM_OVERLAP_FRACTION) ;
+		}
+		return dwell(region, startTimeStamp, stopTimeStamp, 0) ;
+	}
+
+	/**
+	 * Method to handle one sample of a fixation still under way, so that the dwell is followed as it goes rather than
+	 * once the fixation ends.<br>
+	 * The sample counts as a fixation of no length: the dwell runs from the first sample on a region across all the
+	 * samples on it, and the command is issued on the sample at which the dwell time is reached, then again after
+	 * every further dwell time while the gaze stays. Only the samples of fixations should be handed over, so that
+	 * saccades count as gaps; an engine fed this way must not also be fed the fixations.<br>
+	 * If a confident prediction was made from this sample, the region is looked up at the predicted point, and the
+	 * dwell is taken as reached that much earlier; the sample's own time stamp still times the dwell.
+	 * @param x X coordinate of the sample.
+	 * @param y Y coordinate of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 * @return {@link commandPack.Commands} issued, null for none.
+	 */
+	public Commands onGaze(double x, double y, long timeStamp) {
+		if (timeStamp != predictionSampleTimeStamp)
+		{
+			return dwell(findRegion(x, y), timeStamp, timeStamp, 0) ;
+		}
+		predictionSampleTimeStamp = Long.MIN_VALUE ;
+		return dwell(findRegion(predictedX, predictedY), timeStamp, timeStamp, predictionLeadMillis) ;
+	}
+
+	/**
+	 * Overridden Method from GazePredictionListener to keep the prediction made from a sample until the sample
+	 * reaches {@link commandPack.GazeCommandEngine#onGaze(double, double, long)}; older samples handed over in
+	 * between, as when a fixation is recognised, leave it kept. A fallback, or a prediction below
+	 * the {@link commandPack.GazeCommandEngine#minimumPredictionConfidence}, drops the kept one, so the sample is used
+	 * as measured.
+	 * @see predictPack.GazePredictionListener#onPrediction(double, double, long, long, double, boolean)
+	 */
+	@Override
+	public void onPrediction(double predictedX, double predictedY, long timeStamp, long predictedTimeStamp,
+			double confidence, boolean fallback) {
+		if (fallback || confidence < minimumPredictionConfidence)
+		{
+			predictionSampleTimeStamp = Long.MIN_VALUE ;
+			return ;
+		}
+		this.predictedX = predictedX ;
+		this.predictedY = predictedY ;
+		predictionLeadMillis = Math.max(0, predictedTimeStamp - timeStamp) ;
+		predictionSampleTimeStamp = timeStamp ;
+	}
+
+	/**
+	 * Method to find the region looked at from a point, keeping the current region within the hysteresis margin.
+	 * The index is built on the first call.
+	 * @param x X coordinate of the point.
+	 * @param y Y coordinate of the point.
+	 * @return index of the region looked at, -1 for none.
+	 */
+	private int findRegion(double x, double y) {
+		if (regionGridIndex == null)
+		{
+			regions = regionList.toArray(new ScreenRegion[regionList.size()]) ;
+			regionGridIndex = new RegionGridIndex(regions, screenWidth, screenHeight, cellSize) ;
+		}
+		int region = regionGridIndex.find(x, y) ;
+		if (currentRegion >= 0 && region != currentRegion
+				&& regions[currentRegion].contains(x, y, hysteresisPixels)
+				&& (region < 0 || !regions[region].contains(x, y, -hysteresisPixels)))
+		{
+			region = currentRegion ;
+		}
+		return region ;
+	}
+
+	/**
+	 * Method to run the dwell on the region looked at from startTimeStamp to stopTimeStamp, and issue its command when
+	 * due.<br>
+	 * With a lead, the region was found from a prediction that far ahead, so the command is issued that much before
+	 * the dwell time is reached. A repeat is timed from the previous command less its own lead, so a steady lead keeps
+	 * the repeats one dwell time apart.
+	 * @param region index of the region looked at, -1 for none.
+	 * @param startTimeStamp start of the look in milliseconds, as measured.
+	 * @param stopTimeStamp end of the look in milliseconds, as measured.
+	 * @param leadMillis horizon in milliseconds of the prediction the region was found from, 0 for none.
+	 * @return {@link commandPack.Commands} issued, null for none.
+	 */
+	private Commands dwell(int region, long startTimeStamp, long stopTimeStamp, long leadMillis) {
+		if (region != currentRegion || startTimeStamp - lastStopTimeStamp > maximumGapMillis)
+		{
+			currentRegion = region ;
+			dwellStartTimeStamp = startTimeStamp ;
+			lastIssueTimeStamp = Long.MIN_VALUE ;
+		}
+		lastStopTimeStamp = Math.max(lastStopTimeStamp, stopTimeStamp) ;
+		if (region < 0)
+		{
+			return null ;
+		}
+
+		ScreenRegion screenRegion = regions[region] ;
+		long dwellMillis = screenRegion.getDwellMillis() ;
+		boolean issue ;
+		if (lastIssueTimeStamp == Long.MIN_VALUE)
+		{
+			issue = stopTimeStamp - dwellStartTimeStamp >= dwellMillis - leadMillis ;
+		}
+		else
+		{
+			issue = screenRegion.isRepeating()
+					&& stopTimeStamp - lastIssueTimeStamp >= dwellMillis - leadMillis + lastIssueLeadMillis ;
+		}
+		if (!issue)
+		{
+			return null ;
+		}
+		lastIssueTimeStamp = stopTimeStamp ;
+		lastIssueLeadMillis = leadMillis ;
+		issuedCount++ ;
+		if (commandListener != null)
+		{
+			commandListener.onCommand(screenRegion.getCommand(), screenRegion, stopTimeStamp) ;
+		}
+		return screenRegion.getCommand() ;
+	}
+
+	/**
+	 * Method to handle a fixation set taken from the queue.
+	 * @param fixationSet {@link dataPack.FixationSet} to be handled.
+	 * @param fixationSetNumber running number of the fixation set, not used.
+	 */
+	@Override
+	public void write(FixationSet fixationSet, int fixationSetNumber) {
+		if (fixationSet.getSampleCount() == 0)
+		{
+			return ;
+		}
+		onFixation(fixationSet.getMeanX(), fixationSet.getMeanY(), fixationSet.getTopLeftX(), fixationSet.getTopLeftY(),
+				fixationSet.getBottomRightX(), fixationSet.getBottomRightY(), fixationSet.getStartTimeStamp(),
+				fixationSet.getStopTimeStamp()) ;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Method to get the region looked at.
+	 * @return {@link commandPack.ScreenRegion} looked at, null for none.
+	 */
+	public ScreenRegion getCurrentRegion() {
+		return currentRegion >= 0 ? regions[currentRegion] : null ;
+	}
+
+	/**
+	 * Method to set the {@link commandPack.GazeCommandEngine#minimumPredictionConfidence}.
+	 * @param minimumPredictionConfidence confidence from 0 to 1 a prediction must reach to be used.
+	 */
+	public void setMinimumPredictionConfidence(double minimumPredictionConfidence) {
+		this.minimumPredictionConfidence = minimumPredictionConfidence ;
+	}
+
+	/**
+	 * Method to get the number of commands issued.
+	 * @return number of commands issued.
+	 */
+	public long getIssuedCount() {
+		return issuedCount ;
+	}
+}
@@ -0,0 +1,98 @@
+package commandPack;
+
+import java.util.Arrays;
+
+/**
+ * Gesture made of fixations on a sequence of {@link commandPack.ScreenRegion}s, declared for a
+ * {@link commandPack.GestureRecognizer}.<br><p>
+ * A gesture is described by the following items:<br>
+ * 1. The names of the regions the consecutive fixations must land on, for example "Bottom Edge", "Top Edge" to scroll
+ * up, or "Target", "Target" for a double fixation.<br>
+ * 2. The longest time in milliseconds from the end of the first fixation to the start of the last.<br>
+ * 3. The {@link commandPack.Commands} issued when the gesture is made.
+ */
+public class GesturePattern {
+
+	/**
+	 * Name of the gesture.
+	 */
+	private final String name ;
+	/**
+	 * Names of the regions of the consecutive fixations.
+	 */
+	private final String[] regionNames ;
+	/**
+	 * Longest time in milliseconds from the end of the first fixation to the start of the last.
+	 */
+	private final long withinMillis ;
+	/**
+	 * {@link commandPack.Commands} issued when the gesture is made.
+	 */
+	private final Commands command ;
+
+	/**
+	 * Constructor to initialize the gesture.
+	 * @param name name of the gesture.
+	 * @param withinMillis longest time in milliseconds from the end of the first fixation to the start of the last.
+	 * @param command {@link commandPack.Commands} issued when the gesture is made.
+	 * @param regionNames names of the regions of the consecutive fixations, at least one.
+	 */
+	public GesturePattern(String name, long withinMillis, Commands command, String... regionNames) {
+		super();
+		if (regionNames.length == 0)
+		{
+			throw new IllegalArgumentException("Gesture " + name + " has no regions") ;
+		}
+		this.name = name ;
+		this.regionNames = regionNames.clone() ;
+		this.withinMillis = withinMillis ;
+		this.command = command ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.GesturePattern#name}.
+	 * @return {@link commandPack.GesturePattern#name}
+	 */
+	public String getName() {
+		return name ;
+	}
+
+	/**
+	 * Method to get the number of fixations of the gesture.
+	 * @return number of fixations.
+	 */
+	public int length() {
+		return regionNames.length ;
+	}
+
+	/**
+	 * Method to get the name of the region of one fixation of the gesture.
+	 * @param index index of the fixation, from 0.
+	 * @return name of the region.
+	 */
+	public String getRegionName(int index) {
+		return regionNames[index] ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.GesturePattern#withinMillis}.
+	 * @return {@link commandPack.GesturePattern#withinMillis}
+	 */
+	public long getWithinMillis() {
+		return withinMillis ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.GesturePattern#command}.
+	 * @return {@link commandPack.GesturePattern#command}
+	 */
+	public Commands getCommand() {
+		return command ;
+	}
+
+	@Override
+	public String toString() {
+		return "GesturePattern {name=" + name + ", regionNames=" + Arrays.toString(regionNames)
+				+ ", withinMillis=" + withinMillis + ", command=" + command + "}" ;
+	}
+}
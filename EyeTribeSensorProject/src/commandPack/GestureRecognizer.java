@@ -0,0 +1,353 @@
+package commandPack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dataPack.FixationSet;
+import outputPack.FixationSetSink;
+
+/**
+ * Recognizer of {@link commandPack.GesturePattern}s in the stream of fixations, issuing their
+ * {@link commandPack.Commands}.<br><p>
+ * Every fixation is turned into a symbol, the {@link commandPack.ScreenRegion} it lands on or none, found through a
+ * {@link commandPack.RegionGridIndex}. The patterns are compiled once into a single automaton over these symbols, in
+ * the manner of Aho-Corasick:<br>
+ * 1. A trie of all patterns is built, and failure links are added so that every state stands for the longest tail of
+ * the fixations seen which begins some pattern.<br>
+ * 2. The failure links are folded into a full transition table, and every state lists the patterns ending there,
+ * its own and those of its failure states.<br>
+ * So each fixation costs one table lookup whatever the number of patterns. The timing of a pattern is checked only
+ * when it ends, from the times of the last fixations kept in a small ring. When a pattern is made, the first one
+ * declared among those ending there, its command is issued and the automaton starts over, so a triple fixation does
+ * not count as two doubles. Handling a fixation allocates nothing. It is meant for one thread; regions and patterns
+ * must all be added before the first fixation.
+ */
+public class GestureRecognizer implements FixationSetSink {
+
+	/**
+	 * Smallest part of a fixation's bounding box a region must share to be looked at when the mean misses every region.
+	 */
+	private static final double MINIMUM_OVERLAP_FRACTION = 0.5 ;
+
+	private final int screenWidth ;
+	private final int screenHeight ;
+	private final double cellSize ;
+	/**
+	 * {@link commandPack.CommandListener} receiving the commands issued.
+	 */
+	private final CommandListener commandListener ;
+	private final List<ScreenRegion> regionList = new ArrayList<ScreenRegion>() ;
+	private final List<GesturePattern> patternList = new ArrayList<GesturePattern>() ;
+
+	private ScreenRegion[] regions ;
+	private GesturePattern[] patterns ;
+	private RegionGridIndex regionGridIndex ;
+	/**
+	 * Number of symbols, one per region and one more for a fixation on none.
+	 */
+	private int symbolCount ;
+	/**
+	 * Next state for every state and symbol, at state * symbolCount + symbol.
+	 */
+	private int[] transitions ;
+	/**
+	 * Start of every state's list in {@link commandPack.GestureRecognizer#statePatterns}, with one more entry for the end.
+	 */
+	private int[] statePatternStarts ;
+	/**
+	 * Indexes of the patterns ending in every state, state after state, in the order declared.
+	 */
+	private int[] statePatterns ;
+	/**
+	 * Start and stop time stamps of the last fixations, at their number masked by
+	 * {@link commandPack.GestureRecognizer#timeStampMask}.
+	 */
+	private long[] startTimeStamps ;
+	private long[] stopTimeStamps ;
+	private int timeStampMask ;
+	/**
+	 * Number of fixations handled.
+	 */
+	private long fixationCount ;
+	/**
+	 * Current state of the automaton, 0 for the start.
+	 */
+	private int state ;
+	/**
+	 * Number of commands issued.
+	 */
+	private long issuedCount ;
+
+	/**
+	 * Constructor to initialize the recognizer with the default grid.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param commandListener {@link commandPack.CommandListener} receiving the commands issued, null for none.
+	 */
+	public GestureRecognizer(int screenWidth, int screenHeight, CommandListener commandListener) {
+		this(screenWidth, screenHeight, GazeCommandEngine.DEFAULT_CELL_SIZE, commandListener) ;
+	}
+
+	/**
+	 * Constructor to initialize the recognizer.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param cellSize side of a grid cell in pixels.
+	 * @param commandListener {@link commandPack.CommandListener} receiving the commands issued, null for none.
+	 */
+	public GestureRecognizer(int screenWidth, int screenHeight, double cellSize, CommandListener commandListener) {
+		super();
+		if (screenWidth <= 0 || screenHeight <= 0 || cellSize <= 0)
+		{
+			throw new IllegalArgumentException("Screen and cell sizes must be positive") ;
+		}
+		this.screenWidth = screenWidth ;
+		this.screenHeight = screenHeight ;
+		this.cellSize = cellSize ;
+		this.commandListener = commandListener ;
+	}
+
+	/**
+	 * Method to add a region which patterns may name, before the first fixation.
+	 * @param region {@link commandPack.ScreenRegion} to be added. Its command and dwell time are not used.
+	 */
+	public void addRegion(ScreenRegion region) {
+		checkNotCompiled() ;
+		regionList.add(region) ;
+	}
+
+	/**
+	 * Method to add a pattern, before the first fixation.
+	 * @param pattern {@link commandPack.GesturePattern} to be added.
+	 */
+	public void addPattern(GesturePattern pattern) {
+		checkNotCompiled() ;
+		patternList.add(pattern) ;
+	}
+
+	/**
+	 * Method to build the automaton from the regions and patterns added. Called on the first fixation if not before.
+	 * @throws IllegalArgumentException if a pattern names a region which was not added.
+	 */
+	public void compile() {
+		if (regionGridIndex != null)
+		{
+			return ;
+		}
+		ScreenRegion[] compiledRegions = regionList.toArray(new ScreenRegion[regionList.size()]) ;
+		GesturePattern[] compiledPatterns = patternList.toArray(new GesturePattern[patternList.size()]) ;
+		Map<String, Integer> symbolOfName = new HashMap<String, Integer>() ;
+		for (int symbol = 0 ; symbol < compiledRegions.length ; symbol++)
+		{
+			if (symbolOfName.put(compiledRegions[symbol].getName(), symbol) != null)
+			{
+				throw new IllegalArgumentException("Two regions are named " + compiledRegions[symbol].getName()) ;
+			}
+		}
+		symbolCount = compiledRegions.length + 1 ;
+
+		int stateLimit = 1 ;
+		int longestPattern = 1 ;
+		for (GesturePattern pattern : compiledPatterns)
+		{
+			stateLimit += pattern.length() ;
+			longestPattern = Math.max(longestPattern, pattern.length()) ;
+		}
+
+		int[] next = new int[stateLimit * symbolCount] ;
+		Arrays.fill(next, -1) ;
+		List<List<Integer>> ownPatterns = new ArrayList<List<Integer>>() ;
+		ownPatterns.add(new ArrayList<Integer>()) ;
+		int stateCount = 1 ;
+		for (int index = 0 ; index < compiledPatterns.length ; index++)
+		{
+			GesturePattern pattern = compiledPatterns[index] ;
+			int current = 0 ;
+			for (int step = 0 ; step < pattern.length() ; step++)
+			{
+				Integer symbol = symbolOfName.get(pattern.getRegionName(step)) ;
+				if (symbol == null)
+				{
+					throw new IllegalArgumentException("Gesture " + pattern.getName() + " names unknown region "
+							+ pattern.getRegionName(step)) ;
+				}
+				if (next[current * symbolCount + symbol] < 0)
+				{
+					next[current * symbolCount + symbol] = stateCount++ ;
+					ownPatterns.add(new ArrayList<Integer>()) ;
+				}
+				current = next[current * symbolCount + symbol] ;
+			}
+			ownPatterns.get(current).add(index) ;
+		}
+
+		int[] failures = new int[stateCount] ;
+		int[] order = new int[stateCount] ;
+		int head = 0 ;
+		int tail = 0 ;
+		order[tail++] = 0 ;
+		while (head < tail)
+		{
+			int current = order[head++] ;
+			for (int symbol = 0 ; symbol < symbolCount ; symbol++)
+			{
+				int child = next[current * symbolCount + symbol] ;
+				if (child >= 0)
+				{
+					failures[child] = current == 0 ? 0 : next[failures[current] * symbolCount + symbol] ;
+					order[tail++] = child ;
+				}
+				else
+				{
+					next[current * symbolCount + symbol] = current == 0 ? 0 : next[failures[current] * symbolCount + symbol] ;
+				}
+			}
+		}
+
+		List<List<Integer>> endingPatterns = new ArrayList<List<Integer>>(stateCount) ;
+		int endingCount = 0 ;
+		for (int current = 0 ; current < stateCount ; current++)
+		{
+			endingPatterns.add(null) ;
+		}
+		for (int i = 0 ; i < stateCount ; i++)
+		{
+			int current = order[i] ;
+			List<Integer> ending = new ArrayList<Integer>(ownPatterns.get(current)) ;
+			if (current != 0)
+			{
+				ending.addAll(endingPatterns.get(failures[current])) ;
+			}
+			Collections.sort(ending) ;
+			endingPatterns.set(current, ending) ;
+			endingCount += ending.size() ;
+		}
+		statePatternStarts = new int[stateCount + 1] ;
+		statePatterns = new int[endingCount] ;
+		for (int current = 0 ; current < stateCount ; current++)
+		{
+			List<Integer> ending = endingPatterns.get(current) ;
+			statePatternStarts[current + 1] = statePatternStarts[current] + ending.size() ;
+			for (int i = 0 ; i < ending.size() ; i++)
+			{
+				statePatterns[statePatternStarts[current] + i] = ending.get(i) ;
+			}
+		}
+
+		transitions = new int[stateCount * symbolCount] ;
+		System.arraycopy(next, 0, transitions, 0, transitions.length) ;
+		int ringSize = Integer.highestOneBit(longestPattern) ;
+		if (ringSize < longestPattern)
+		{
+			ringSize <<= 1 ;
+		}
+		startTimeStamps = new long[ringSize] ;
+		stopTimeStamps = new long[ringSize] ;
+		timeStampMask = ringSize - 1 ;
+		regions = compiledRegions ;
+		patterns = compiledPatterns ;
+		regionGridIndex = new RegionGridIndex(compiledRegions, screenWidth, screenHeight, cellSize) ;
+	}
+
+	/**
+	 * Method to handle a fixation.
+	 * @param meanX X coordinate of the mean of the fixation.
+	 * @param meanY Y coordinate of the mean of the fixation.
+	 * @param left left edge of the fixation's bounding box.
+	 * @param top top edge of the fixation's bounding box.
+	 * @param right right edge of the fixation's bounding box.
+	 * @param bottom bottom edge of the fixation's bounding box.
+	 * @param startTimeStamp start of the fixation in milliseconds.
+	 * @param stopTimeStamp end of the fixation in milliseconds.
+	 * @return {@link commandPack.Commands} of the gesture made, null for none.
+	 */
+	public Commands onFixation(double meanX, double meanY, double left, double top, double right, double bottom,
+			long startTimeStamp, long stopTimeStamp) {
+		compile() ;
+		int symbol = regionGridIndex.find(meanX, meanY) ;
+		if (symbol < 0)
+		{
+			symbol = regionGridIndex.findLargestOverlap(left, top, right, bottom, MINIMUM_OVERLAP_FRACTION) ;
+		}
+		if (symbol < 0)
+		{
+			symbol = symbolCount - 1 ;
+		}
+
+		long fixation = fixationCount++ ;
+		startTimeStamps[(int) fixation & timeStampMask] = startTimeStamp ;
+		stopTimeStamps[(int) fixation & timeStampMask] = stopTimeStamp ;
+		state = transitions[state * symbolCount + symbol] ;
+
+		for (int i = statePatternStarts[state] ; i < statePatternStarts[state + 1] ; i++)
+		{
+			GesturePattern pattern = patterns[statePatterns[i]] ;
+			long firstFixation = fixation - (pattern.length() - 1) ;
+			if (startTimeStamp - stopTimeStamps[(int) firstFixation & timeStampMask] <= pattern.getWithinMillis())
+			{
+				state = 0 ;
+				issuedCount++ ;
+				if (commandListener != null)
+				{
+					commandListener.onCommand(pattern.getCommand(), regions[symbol], stopTimeStamp) ;
+				}
+				return pattern.getCommand() ;
+			}
+		}
+		return null ;
+	}
+
+	/**
+	 * Method to handle a fixation set taken from the queue.
+	 * @param fixationSet {@link dataPack.FixationSet} to be handled.
+	 * @param fixationSetNumber running number of the fixation set, not used.
+	 */
+	@Override
+	public void write(FixationSet fixationSet, int fixationSetNumber) {
+		if (fixationSet.getSampleCount() == 0)
+		{
+			return ;
+		}
+		onFixation(fixationSet.getMeanX(), fixationSet.getMeanY(), fixationSet.getTopLeftX(), fixationSet.getTopLeftY(),
+				fixationSet.getBottomRightX(), fixationSet.getBottomRightY(), fixationSet.getStartTimeStamp(),
+				fixationSet.getStopTimeStamp()) ;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Method to get the number of states of the compiled automaton.
+	 * @return number of states, 0 before compiling.
+	 */
+	public int getStateCount() {
+		return statePatternStarts == null ? 0 : statePatternStarts.length - 1 ;
+	}
+
+	/**
+	 * Method to get the number of commands issued.
+	 * @return number of commands issued.
+	 */
+	public long getIssuedCount() {
+		return issuedCount ;
+	}
+
+	/**
+	 * Method to refuse changes once the automaton is compiled.
+	 */
+	private void checkNotCompiled() {
+		if (regionGridIndex != null)
+		{
+			throw new IllegalStateException("Regions and patterns must be added before the first fixation") ;
+		}
+	}
+}
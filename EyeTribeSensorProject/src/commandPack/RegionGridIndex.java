@@ -0,0 +1,171 @@
+package commandPack;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the screen listing, for every cell, the {@link commandPack.ScreenRegion}s touching it.<br><p>
+ * The lists are packed into one array, with the start of every cell's list in a second one, so a lookup reads a
+ * handful of regions whatever their number and allocates nothing. Regions are kept in the order they were added,
+ * which settles ties. The grid is built once and only read afterwards.
+ */
+final class RegionGridIndex {
+
+	/**
+	 * Regions indexed.
+	 */
+	private final ScreenRegion[] regions ;
+	/**
+	 * Side of a cell in pixels.
+	 */
+	private final double cellSize ;
+	private final int columns ;
+	private final int rows ;
+	/**
+	 * Start of every cell's list in {@link commandPack.RegionGridIndex#cellRegions}, with one more entry for the end.
+	 */
+	private final int[] cellStarts ;
+	/**
+	 * Indexes of the regions touching every cell, cell after cell.
+	 */
+	private final int[] cellRegions ;
+	/**
+	 * Lookup a region was last counted in, so that regions spanning several cells are only counted once.
+	 */
+	private final int[] visitStamps ;
+	/**
+	 * Number of the current lookup.
+	 */
+	private int visitStamp ;
+
+	/**
+	 * Constructor to build the grid.
+	 * @param regions regions to be indexed.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param cellSize side of a cell in pixels.
+	 */
+	RegionGridIndex(ScreenRegion[] regions, int screenWidth, int screenHeight, double cellSize) {
+		this.regions = regions ;
+		this.cellSize = cellSize ;
+		this.columns = Math.max(1, (int) Math.ceil(screenWidth / cellSize)) ;
+		this.rows = Math.max(1, (int) Math.ceil(screenHeight / cellSize)) ;
+		this.cellStarts = new int[columns * rows + 1] ;
+		this.visitStamps = new int[regions.length] ;
+
+		for (ScreenRegion region : regions)
+		{
+			for (int row = rowOf(region.getTop()) ; row <= rowOf(Math.nextDown(region.getBottom())) ; row++)
+			{
+				for (int column = columnOf(region.getLeft()) ; column <= columnOf(Math.nextDown(region.getRight())) ; column++)
+				{
+					cellStarts[row * columns + column + 1]++ ;
+				}
+			}
+		}
+		for (int cell = 0 ; cell < columns * rows ; cell++)
+		{
+			cellStarts[cell + 1] += cellStarts[cell] ;
+		}
+		this.cellRegions = new int[cellStarts[columns * rows]] ;
+		int[] filled = new int[columns * rows] ;
+		for (int index = 0 ; index < regions.length ; index++)
+		{
+			ScreenRegion region = regions[index] ;
+			for (int row = rowOf(region.getTop()) ; row <= rowOf(Math.nextDown(region.getBottom())) ; row++)
+			{
+				for (int column = columnOf(region.getLeft()) ; column <= columnOf(Math.nextDown(region.getRight())) ; column++)
+				{
+					int cell = row * columns + column ;
+					cellRegions[cellStarts[cell] + filled[cell]++] = index ;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to find the region on which a point lies. Where regions overlap, the smallest wins.
+	 * @param x X coordinate in pixels.
+	 * @param y Y coordinate in pixels.
+	 * @return index of the region, -1 if there is none.
+	 */
+	int find(double x, double y) {
+		if (!(x >= 0 && y >= 0 && x < columns * cellSize && y < rows * cellSize))
+		{
+			return -1 ;
+		}
+		int cell = rowOf(y) * columns + columnOf(x) ;
+		int found = -1 ;
+		for (int i = cellStarts[cell] ; i < cellStarts[cell + 1] ; i++)
+		{
+			int index = cellRegions[i] ;
+			if (regions[index].contains(x, y, 0) && (found < 0 || regions[index].area() < regions[found].area()))
+			{
+				found = index ;
+			}
+		}
+		return found ;
+	}
+
+	/**
+	 * Method to find the region sharing the largest area with a rectangle.
+	 * @param left left edge of the rectangle.
+	 * @param top top edge of the rectangle.
+	 * @param right right edge of the rectangle.
+	 * @param bottom bottom edge of the rectangle.
+	 * @param minimumFraction smallest part of the rectangle's area the region must share.
+	 * @return index of the region, -1 if there is none.
+	 */
+	int findLargestOverlap(double left, double top, double right, double bottom, double minimumFraction) {
+		double area = (right - left) * (bottom - top) ;
+		if (!(area > 0))
+		{
+			return -1 ;
+		}
+		if (++visitStamp == 0)
+		{
+			Arrays.fill(visitStamps, 0) ;
+			visitStamp = 1 ;
+		}
+		int found = -1 ;
+		double largestOverlap = minimumFraction * area ;
+		int lastRow = rowOf(Math.nextDown(bottom)) ;
+		int lastColumn = columnOf(Math.nextDown(right)) ;
+		for (int row = rowOf(top) ; row <= lastRow ; row++)
+		{
+			for (int column = columnOf(left) ; column <= lastColumn ; column++)
+			{
+				int cell = row * columns + column ;
+				for (int i = cellStarts[cell] ; i < cellStarts[cell + 1] ; i++)
+				{
+					int index = cellRegions[i] ;
+					if (visitStamps[index] == visitStamp)
+					{
+						continue ;
+					}
+					visitStamps[index] = visitStamp ;
+					double overlap = regions[index].overlapArea(left, top, right, bottom) ;
+					if (overlap > largestOverlap || (overlap > 0 && overlap == largestOverlap && found < 0))
+					{
+						largestOverlap = overlap ;
+						found = index ;
+					}
+				}
+			}
+		}
+		return found ;
+	}
+
+	/**
+	 * Method to get the column of an X coordinate, clamped to the grid.
+	 */
+	private int columnOf(double x) {
+		return Math.min(columns - 1, Math.max(0, (int) (x / cellSize))) ;
+	}
+
+	/**
+	 * Method to get the row of a Y coordinate, clamped to the grid.
+	 */
+	private int rowOf(double y) {
+		return Math.min(rows - 1, Math.max(0, (int) (y / cellSize))) ;
+	}
+}
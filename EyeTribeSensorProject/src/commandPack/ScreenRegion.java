@@ -0,0 +1,148 @@
+package commandPack;
+
+/**
+ * Rectangle of the screen, in pixels, which issues a command when the gaze dwells on it.<br><p>
+ * A region is described by the following items:<br>
+ * 1. Its bounds, left and top inclusive, right and bottom exclusive.<br>
+ * 2. The {@link commandPack.Commands} it issues, made once and handed out every time.<br>
+ * 3. The dwell time in milliseconds the gaze must stay on it before the command is issued.<br>
+ * 4. Whether the command is issued again after every further dwell time, as for scrolling, or only once per visit.
+ */
+public class ScreenRegion {
+
+	/**
+	 * Name of the region.
+	 */
+	private final String name ;
+	private final double left ;
+	private final double top ;
+	private final double right ;
+	private final double bottom ;
+	/**
+	 * {@link commandPack.Commands} issued by the region.
+	 */
+	private final Commands command ;
+	/**
+	 * Time in milliseconds the gaze must stay on the region before the command is issued.
+	 */
+	private final long dwellMillis ;
+	/**
+	 * true if the command is issued again after every further dwell time.
+	 */
+	private final boolean repeating ;
+
+	/**
+	 * Constructor to initialize the region.
+	 * @param name name of the region.
+	 * @param left left edge in pixels, inclusive.
+	 * @param top top edge in pixels, inclusive.
+	 * @param right right edge in pixels, exclusive.
+	 * @param bottom bottom edge in pixels, exclusive.
+	 * @param command {@link commandPack.Commands} issued by the region.
+	 * @param dwellMillis time in milliseconds the gaze must stay on the region before the command is issued.
+	 * @param repeating true if the command is issued again after every further dwell time.
+	 */
+	public ScreenRegion(String name, double left, double top, double right, double bottom, Commands command,
+			long dwellMillis, boolean repeating) {
+		super();
+		if (right <= left || bottom <= top)
+		{
+			throw new IllegalArgumentException("Region " + name + " is empty") ;
+		}
+		this.name = name ;
+		this.left = left ;
+		this.top = top ;
+		this.right = right ;
+		this.bottom = bottom ;
+		this.command = command ;
+		this.dwellMillis = dwellMillis ;
+		this.repeating = repeating ;
+	}
+
+	/**
+	 * Method to check whether a point lies on the region grown by a margin on every side.
+	 * @param x X coordinate in pixels.
+	 * @param y Y coordinate in pixels.
+	 * @param margin pixels added on every side, 0 for the region itself.
+	 * @return true if the point lies on the grown region.
+	 */
+	public boolean contains(double x, double y, double margin) {
+		return x >= left - margin && x < right + margin && y >= top - margin && y < bottom + margin ;
+	}
+
+	/**
+	 * Method to get the area a rectangle shares with the region.
+	 * @param otherLeft left edge of the rectangle.
+	 * @param otherTop top edge of the rectangle.
+	 * @param otherRight right edge of the rectangle.
+	 * @param otherBottom bottom edge of the rectangle.
+	 * @return shared area in square pixels, 0 if they do not overlap.
+	 */
+	public double overlapArea(double otherLeft, double otherTop, double otherRight, double otherBottom) {
+		double width = Math.min(right, otherRight) - Math.max(left, otherLeft) ;
+		double height = Math.min(bottom, otherBottom) - Math.max(top, otherTop) ;
+		return width > 0 && height > 0 ? width * height : 0 ;
+	}
+
+	/**
+	 * Method to get the area of the region.
+	 * @return area in square pixels.
+	 */
+	public double area() {
+		return (right - left) * (bottom - top) ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.ScreenRegion#name}.
+	 * @return {@link commandPack.ScreenRegion#name}
+	 */
+	public String getName() {
+		return name ;
+	}
+
+	public double getLeft() {
+		return left ;
+	}
+
+	public double getTop() {
+		return top ;
+	}
+
+	public double getRight() {
+		return right ;
+	}
+
+	public double getBottom() {
+		return bottom ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.ScreenRegion#command}.
+	 * @return {@link commandPack.ScreenRegion#command}
+	 */
+	public Commands getCommand() {
+		return command ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.ScreenRegion#dwellMillis}.
+	 * @return {@link commandPack.ScreenRegion#dwellMillis}
+	 */
+	public long getDwellMillis() {
+		return dwellMillis ;
+	}
+
+	/**
+	 * Method to get the {@link commandPack.ScreenRegion#repeating}.
+	 * @return {@link commandPack.ScreenRegion#repeating}
+	 */
+	public boolean isRepeating() {
+		return repeating ;
+	}
+
+	@Override
+	public String toString() {
+		return "ScreenRegion {name=" + name + ", left=" + left + ", top=" + top + ", right=" + right + ", bottom="
+				+ bottom + ", command=" + command + ", dwellMillis=" + dwellMillis + ", repeating=" + repeating + "}" ;
+	}
+}
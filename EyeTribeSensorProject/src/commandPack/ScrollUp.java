@@ -19,8 +19,7 @@ public class ScrollUp extends CommandAttribute{
 
 	@Override
 	String getCommandAttributeAsString() {
-		// TODO Auto-generated method stub
-		return null;
+		return "pixelCount=" + pixelCount ;
 	}
 
 }
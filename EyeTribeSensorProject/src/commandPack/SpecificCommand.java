@@ -5,10 +5,41 @@ public class SpecificCommand extends CommandAttribute {
 	private double xPos ;
 	private double yPos ;
 	private boolean pressButton ;
+
+	public SpecificCommand(double xPos, double yPos, boolean pressButton) {
+		super();
+		this.xPos = xPos;
+		this.yPos = yPos;
+		this.pressButton = pressButton;
+	}
+
+	public double getxPos() {
+		return xPos;
+	}
+
+	public void setxPos(double xPos) {
+		this.xPos = xPos;
+	}
+
+	public double getyPos() {
+		return yPos;
+	}
+
+	public void setyPos(double yPos) {
+		this.yPos = yPos;
+	}
+
+	public boolean isPressButton() {
+		return pressButton;
+	}
+
+	public void setPressButton(boolean pressButton) {
+		this.pressButton = pressButton;
+	}
+
 	@Override
 	String getCommandAttributeAsString() {
-		// TODO Auto-generated method stub
-		return null;
+		return "xPos=" + xPos + ", yPos=" + yPos + ", pressButton=" + pressButton ;
 	}
 
 }
@@ -0,0 +1,368 @@
+package dataPack;
+
+/**
+ * Ring of fixation sets from one producer to any number of subscribers, each of which sees every fixation set.<br><p>
+ * The ring works in the manner of the LMAX Disruptor:<br>
+ * 1. The producer {@link basePack.SensorDataProducer} publishes through the ring as its
+ * {@link dataPack.FixationSetPublisher}. Publishing swaps the filled fixation set into the next slot and takes
+ * the one it replaces back as the producer's next empty set, so nothing is copied or allocated.<br>
+ * 2. Each {@link dataPack.BroadcastRingOfFixationSets.Subscriber} keeps its own padded sequence of the fixation sets
+ * it is done with, and reads the published slots in place. A subscriber is a {@link dataPack.FixationSetReader}, so
+ * a {@link basePack.SensorDataConsumer} can drive it unchanged.<br>
+ * 3. A subscriber may depend on others, and then only sees a fixation set once all of them are done with it, for
+ * example an analytics stage reading what the command stage has annotated.<br>
+ * 4. A slot is only reused once every subscriber is done with it, so the producer is held back by the slowest one.
+ * What it does then is decided by the {@link dataPack.OverflowPolicy}; {@link dataPack.OverflowPolicy#DROP_OLDEST} is
+ * not supported, as a published fixation set may already be in use by a subscriber.<br>
+ * Subscribers share the fixation sets, so they must only read them. Subscribers should be added before publishing
+ * starts; one added later starts from the next fixation set published.
+ */
+public class BroadcastRingOfFixationSets extends PublisherOfFixationSets {
+
+	/**
+	 * Slots of the ring, each holding a fixation set. The length is a power of two.
+	 */
+	private final FixationSet[] slots ;
+	/**
+	 * slots.length - 1, to map a sequence to a slot.
+	 */
+	private final int mask ;
+	/**
+	 * Number of fixation sets published, written by the producer.
+	 * Its {@link dataPack.SpscSlots.SequenceValue#cache} holds the producer's last seen slowest subscriber sequence.
+	 */
+	private final SpscSlots.PaddedSequence cursor ;
+	/**
+	 * {@link dataPack.WaitStrategy} used by the producer when the ring is full under {@link dataPack.OverflowPolicy#BLOCK}.
+	 */
+	private final WaitStrategy producerWaitStrategy ;
+	/**
+	 * Number of samples each new fixation set can hold before growing.
+	 */
+	private final int samplesPerFixationSet ;
+	/**
+	 * Subscribers of the ring, replaced as a whole when one is added.
+	 */
+	private volatile Subscriber[] subscribers ;
+	/**
+	 * Empty fixation set for the producer's next acquire. Only used by the producer.
+	 */
+	private FixationSet spareFixationSet ;
+
+	/**
+	 * Constructor to initialize the ring to a specific size, with the producer parking while the ring is full.
+	 * @param sizeOfRing minimum size of the ring, rounded up to a power of two.
+	 */
+	public BroadcastRingOfFixationSets(int sizeOfRing) {
+		this(sizeOfRing, FixationSet.INITIAL_CAPACITY, WaitStrategy.PARK, OverflowPolicy.BLOCK) ;
+	}
+
+	/**
+	 * Constructor to initialize the ring.
+	 * @param sizeOfRing minimum size of the ring, rounded up to a power of two.
+	 * @param samplesPerFixationSet number of samples each pre-allocated {@link dataPack.FixationSet} can hold before growing.
+	 * @param producerWaitStrategy {@link dataPack.WaitStrategy} used by the producer when the ring is full under
+	 * {@link dataPack.OverflowPolicy#BLOCK}.
+	 * @param overflowPolicy {@link dataPack.OverflowPolicy} applied when the ring is full.
+	 */
+	public BroadcastRingOfFixationSets(int sizeOfRing, int samplesPerFixationSet, WaitStrategy producerWaitStrategy,
+			OverflowPolicy overflowPolicy) {
+		super(overflowPolicy) ;
+		if (overflowPolicy == OverflowPolicy.DROP_OLDEST)
+		{
+			throw new IllegalArgumentException("Published fixation sets cannot be dropped from a broadcast ring") ;
+		}
+		if (sizeOfRing < 1)
+		{
+			throw new IllegalArgumentException("Capacity must be positive: " + sizeOfRing) ;
+		}
+		int capacity = Integer.highestOneBit(sizeOfRing) ;
+		if (capacity < sizeOfRing)
+		{
+			capacity <<= 1 ;
+		}
+		this.slots = new FixationSet[capacity] ;
+		for (int i = 0 ; i < capacity ; i++)
+		{
+			this.slots[i] = new FixationSet(0, samplesPerFixationSet) ;
+		}
+		this.mask = capacity - 1 ;
+		this.cursor = new SpscSlots.PaddedSequence() ;
+		this.producerWaitStrategy = producerWaitStrategy ;
+		this.samplesPerFixationSet = samplesPerFixationSet ;
+		this.subscribers = new Subscriber[0] ;
+		this.spareFixationSet = new FixationSet(0, samplesPerFixationSet) ;
+	}
+
+	/**
+	 * Method to add a subscriber which sees every fixation set published from now on.
+	 * @param name name of the subscriber, for metrics and logs.
+	 * @param consumerWaitStrategy {@link dataPack.WaitStrategy} used by the subscriber while nothing is available.
+	 * @param dependencies subscribers which must be done with a fixation set before this one sees it.
+	 * @return the new {@link dataPack.BroadcastRingOfFixationSets.Subscriber}.
+	 */
+	public synchronized Subscriber newSubscriber(String name, WaitStrategy consumerWaitStrategy, Subscriber... dependencies) {
+		for (Subscriber dependency : dependencies)
+		{
+			if (dependency.ring != this)
+			{
+				throw new IllegalArgumentException("Dependency " + dependency.name + " belongs to another ring") ;
+			}
+		}
+		Subscriber subscriber = new Subscriber(this, name, consumerWaitStrategy, dependencies.clone(), cursor.value) ;
+		Subscriber[] current = subscribers ;
+		Subscriber[] updated = new Subscriber[current.length + 1] ;
+		System.arraycopy(current, 0, updated, 0, current.length) ;
+		updated[current.length] = subscriber ;
+		subscribers = updated ;
+		return subscriber ;
+	}
+
+	/**
+	 * Method to get the number of slots of the ring.
+	 * @return number of slots.
+	 */
+	public int capacity() {
+		return slots.length ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets published so far.
+	 * @return number of fixation sets published.
+	 */
+	public long getPublishedCount() {
+		return cursor.value ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets the slowest subscriber is behind.
+	 * @return largest lag of any subscriber.
+	 */
+	@Override
+	public int size()
+	{
+		long published = cursor.value ;
+		return (int) (published - slowestSequence(published)) ;
+	}
+
+	/**
+	 * Method for the producer to publish a fixation set, waiting according to the producer
+	 * {@link dataPack.WaitStrategy} while the slowest subscriber is a full ring behind.
+	 * @param fixationSet {@link dataPack.FixationSet} to be published.
+	 * @throws InterruptedException if the producer is interrupted while waiting.
+	 */
+	@Override
+	protected void putFixationSet(FixationSet fixationSet) throws InterruptedException
+	{
+		while (!offerFixationSet(fixationSet))
+		{
+			producerWaitStrategy.idle() ;
+		}
+	}
+
+	/**
+	 * Method for the producer to publish a fixation set if the slowest subscriber is done with the slot.<br>
+	 * The fixation set replaced in the slot becomes the producer's next empty set.
+	 * @param fixationSet {@link dataPack.FixationSet} to be published.
+	 * @return false if the ring is full, in which case nothing is published.
+	 */
+	@Override
+	protected boolean offerFixationSet(FixationSet fixationSet)
+	{
+		long sequence = cursor.value ;
+		if (sequence - cursor.cache >= slots.length)
+		{
+			cursor.cache = slowestSequence(sequence) ;
+			if (sequence - cursor.cache >= slots.length)
+			{
+				return false ;
+			}
+		}
+		int index = (int) sequence & mask ;
+		FixationSet replaced = slots[index] ;
+		slots[index] = fixationSet ;
+		cursor.lazySet(sequence + 1) ;
+		if (spareFixationSet == null)
+		{
+			spareFixationSet = replaced ;
+		}
+		return true ;
+	}
+
+	/**
+	 * Method for the producer to keep a dropped or merged fixation set for its next acquire.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use.
+	 */
+	@Override
+	protected void discardFixationSet(FixationSet fixationSet)
+	{
+		if (spareFixationSet == null)
+		{
+			spareFixationSet = fixationSet ;
+		}
+	}
+
+	/**
+	 * Method for the producer to get an empty {@link dataPack.FixationSet} to fill.<br>
+	 * The fixation set last swapped out of the ring is reused when available, otherwise a new one is made.
+	 * @param startTimeStamp start time of the fixation set in milliseconds.
+	 * @return empty {@link dataPack.FixationSet} starting at startTimeStamp.
+	 */
+	@Override
+	public FixationSet acquireFixationSet(long startTimeStamp)
+	{
+		FixationSet fixationSet = spareFixationSet ;
+		if (fixationSet == null)
+		{
+			return new FixationSet(startTimeStamp, samplesPerFixationSet) ;
+		}
+		spareFixationSet = null ;
+		fixationSet.reset(startTimeStamp) ;
+		return fixationSet ;
+	}
+
+	/**
+	 * Method to find the sequence of the slowest subscriber.
+	 * @param published number of fixation sets published, returned if there are no subscribers.
+	 * @return smallest subscriber sequence.
+	 */
+	private long slowestSequence(long published) {
+		long slowest = published ;
+		for (Subscriber subscriber : subscribers)
+		{
+			slowest = Math.min(slowest, subscriber.sequence.value) ;
+		}
+		return slowest ;
+	}
+
+	/**
+	 * Reader of a {@link dataPack.BroadcastRingOfFixationSets}, used by its consumer like any
+	 * {@link dataPack.FixationSetReader}.<br><p>
+	 * {@link dataPack.BroadcastRingOfFixationSets.Subscriber#getFIFOFixationSet()} returns the next fixation set in
+	 * place, and {@link dataPack.BroadcastRingOfFixationSets.Subscriber#releaseFixationSet(FixationSet)} marks it as
+	 * done, which must happen before the next one is taken. The subscriber must not change the fixation set.
+	 * Exactly one thread may read through a subscriber.
+	 */
+	public static class Subscriber implements FixationSetReader {
+
+		/**
+		 * Ring the subscriber reads.
+		 */
+		private final BroadcastRingOfFixationSets ring ;
+		/**
+		 * Name of the subscriber.
+		 */
+		private final String name ;
+		/**
+		 * {@link dataPack.WaitStrategy} used while nothing is available.
+		 */
+		private final WaitStrategy consumerWaitStrategy ;
+		/**
+		 * Subscribers which must be done with a fixation set before this one sees it.
+		 */
+		private final Subscriber[] dependencies ;
+		/**
+		 * Number of fixation sets this subscriber is done with, written by its reader.
+		 * Its {@link dataPack.SpscSlots.SequenceValue#cache} holds the reader's last seen available sequence.
+		 */
+		private final SpscSlots.PaddedSequence sequence ;
+
+		/**
+		 * Constructor to initialize the subscriber.
+		 * @param ring ring the subscriber reads.
+		 * @param name name of the subscriber.
+		 * @param consumerWaitStrategy {@link dataPack.WaitStrategy} used while nothing is available.
+		 * @param dependencies subscribers which must be done with a fixation set before this one sees it.
+		 * @param startSequence sequence of the first fixation set the subscriber sees.
+		 */
+		Subscriber(BroadcastRingOfFixationSets ring, String name, WaitStrategy consumerWaitStrategy,
+				Subscriber[] dependencies, long startSequence) {
+			super();
+			this.ring = ring ;
+			this.name = name ;
+			this.consumerWaitStrategy = consumerWaitStrategy ;
+			this.dependencies = dependencies ;
+			this.sequence = new SpscSlots.PaddedSequence() ;
+			this.sequence.value = startSequence ;
+			this.sequence.cache = startSequence ;
+		}
+
+		/**
+		 * @return next {@link dataPack.FixationSet} for this subscriber, read in place. Waits according to the
+		 * subscriber's {@link dataPack.WaitStrategy} while none is available.
+		 * @throws InterruptedException if the reader is interrupted while waiting.
+		 */
+		@Override
+		public FixationSet getFIFOFixationSet() throws InterruptedException
+		{
+			long next = sequence.value ;
+			while (next >= sequence.cache)
+			{
+				sequence.cache = availableSequence() ;
+				if (next < sequence.cache)
+				{
+					break ;
+				}
+				consumerWaitStrategy.idle() ;
+			}
+			return ring.slots[(int) next & ring.mask] ;
+		}
+
+		/**
+		 * Method to mark the fixation set last taken as done, letting dependent subscribers and the producer move on.
+		 * @param fixationSet {@link dataPack.FixationSet} last taken by this subscriber.
+		 */
+		@Override
+		public void releaseFixationSet(FixationSet fixationSet)
+		{
+			sequence.lazySet(sequence.value + 1) ;
+		}
+
+		/**
+		 * Method to get the number of fixation sets this subscriber is behind the producer.
+		 * @return lag of the subscriber.
+		 */
+		@Override
+		public int size()
+		{
+			return (int) (ring.cursor.value - sequence.value) ;
+		}
+
+		/**
+		 * Method to get the number of fixation sets this subscriber is behind the producer.
+		 * @return lag of the subscriber.
+		 */
+		public long getLag() {
+			return ring.cursor.value - sequence.value ;
+		}
+
+		/**
+		 * Method to get the number of fixation sets this subscriber is done with.
+		 * @return number of fixation sets done.
+		 */
+		public long getConsumedCount() {
+			return sequence.value ;
+		}
+
+		/**
+		 * Method to get the name of the subscriber.
+		 * @return name of the subscriber.
+		 */
+		public String getName() {
+			return name ;
+		}
+
+		/**
+		 * Method to find the sequence up to which this subscriber may read.
+		 * @return number of fixation sets published and done by all dependencies.
+		 */
+		private long availableSequence() {
+			long available = ring.cursor.value ;
+			for (Subscriber dependency : dependencies)
+			{
+				available = Math.min(available, dependency.sequence.value) ;
+			}
+			return available ;
+		}
+	}
+}
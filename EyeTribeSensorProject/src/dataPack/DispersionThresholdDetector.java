@@ -0,0 +1,143 @@
+package dataPack;
+
+/**
+ * {@link dataPack.FixationDetector} implementing the dispersion threshold (I-DT) algorithm over a sliding window.<br><p>
+ * The dispersion of a window is (max x - min x) + (max y - min y). The detector works as follows:<br>
+ * 1. Outside a fixation, each sample joins the window and the oldest samples are dropped until the dispersion is
+ * within the threshold again. Once the window spans the minimum duration, a fixation is recognised.<br>
+ * 2. Inside a fixation, the window only grows. The first sample taking the dispersion over the threshold ends the
+ * fixation and starts a new window on its own.<br>
+ * The minimum and maximum of each coordinate are kept by {@link dataPack.MonotonicDeque}s, so each sample costs
+ * O(1) amortized time however long the window is.
+ */
+public class DispersionThresholdDetector extends FixationDetector {
+
+	/**
+	 * Default maximum dispersion of a fixation in pixels.
+	 */
+	public static final double DEFAULT_MAXIMUM_DISPERSION = 50 ;
+	/**
+	 * Default minimum duration of a fixation in milliseconds.
+	 */
+	public static final long DEFAULT_MINIMUM_DURATION_MILLIS = 100 ;
+
+	/**
+	 * Maximum dispersion of a fixation in pixels.
+	 */
+	private final double maximumDispersion ;
+	/**
+	 * Minimum and maximum x coordinate of the window.
+	 */
+	private final MonotonicDeque minimumX , maximumX ;
+	/**
+	 * Minimum and maximum y coordinate of the window.
+	 */
+	private final MonotonicDeque minimumY , maximumY ;
+	/**
+	 * Sequence number of the next sample.
+	 */
+	private long nextSequence ;
+	/**
+	 * Sequence number of the oldest sample of the window.
+	 */
+	private long windowStartSequence ;
+
+	/**
+	 * Constructor to initialize the detector with the default thresholds.
+	 */
+	public DispersionThresholdDetector() {
+		this(DEFAULT_MAXIMUM_DISPERSION, DEFAULT_MINIMUM_DURATION_MILLIS) ;
+	}
+
+	/**
+	 * Constructor to initialize the detector.
+	 * @param maximumDispersion maximum dispersion of a fixation in pixels.
+	 * @param minimumDurationMillis minimum duration of a fixation in milliseconds.
+	 */
+	public DispersionThresholdDetector(double maximumDispersion, long minimumDurationMillis) {
+		super(minimumDurationMillis) ;
+		if (!(maximumDispersion >= 0))
+		{
+			throw new IllegalArgumentException("Invalid maximum dispersion: " + maximumDispersion) ;
+		}
+		this.maximumDispersion = maximumDispersion ;
+		this.minimumX = new MonotonicDeque(false) ;
+		this.maximumX = new MonotonicDeque(true) ;
+		this.minimumY = new MonotonicDeque(false) ;
+		this.maximumY = new MonotonicDeque(true) ;
+	}
+
+	@Override
+	public int addSample(double x, double y, int state, long timeStamp) {
+		long sequence = nextSequence++ ;
+		pushToWindow(sequence, x, y) ;
+		int event = 0 ;
+		if (inFixation)
+		{
+			if (dispersion() <= maximumDispersion)
+			{
+				return FIXATION_CONTINUED ;
+			}
+			inFixation = false ;
+			event = FIXATION_ENDED ;
+			clearPendingSamples() ;
+			clearWindow() ;
+			windowStartSequence = sequence ;
+			pushToWindow(sequence, x, y) ;
+		}
+		addPendingSample(x, y, state, timeStamp) ;
+		while (dispersion() > maximumDispersion)
+		{
+			removeOldestPendingSample() ;
+			windowStartSequence++ ;
+			minimumX.evictBefore(windowStartSequence) ;
+			maximumX.evictBefore(windowStartSequence) ;
+			minimumY.evictBefore(windowStartSequence) ;
+			maximumY.evictBefore(windowStartSequence) ;
+		}
+		if (pendingSamplesLastLongEnough(timeStamp))
+		{
+			inFixation = true ;
+			event |= FIXATION_STARTED ;
+		}
+		return event ;
+	}
+
+	@Override
+	public void reset() {
+		super.reset() ;
+		clearWindow() ;
+		windowStartSequence = nextSequence ;
+	}
+
+	/**
+	 * Method to get the dispersion of the window.
+	 * @return dispersion in pixels.
+	 */
+	private double dispersion() {
+		return (maximumX.peek() - minimumX.peek()) + (maximumY.peek() - minimumY.peek()) ;
+	}
+
+	/**
+	 * Method to add a sample to the window.
+	 * @param sequence sequence number of the sample.
+	 * @param x x coordinate of the sample.
+	 * @param y y coordinate of the sample.
+	 */
+	private void pushToWindow(long sequence, double x, double y) {
+		minimumX.push(sequence, x) ;
+		maximumX.push(sequence, x) ;
+		minimumY.push(sequence, y) ;
+		maximumY.push(sequence, y) ;
+	}
+
+	/**
+	 * Method to empty the window.
+	 */
+	private void clearWindow() {
+		minimumX.clear() ;
+		maximumX.clear() ;
+		minimumY.clear() ;
+		maximumY.clear() ;
+	}
+}
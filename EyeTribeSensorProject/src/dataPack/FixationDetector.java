@@ -0,0 +1,224 @@
+package dataPack;
+
+/**
+ * Base class of the streaming detectors deciding which gaze samples belong to a fixation, in place of the tracker's
+ * own {@link com.theeyetribe.client.data.GazeData#isFixated} flag.<br><p>
+ * Samples are fed one by one to {@link dataPack.FixationDetector#addSample(double, double, int, long)}, which returns
+ * a combination of the following events:<br>
+ * 1. {@link dataPack.FixationDetector#FIXATION_ENDED}, the ongoing fixation ended with the previous sample.<br>
+ * 2. {@link dataPack.FixationDetector#FIXATION_STARTED}, a fixation has been recognised. It started some samples ago,
+ * once it has lasted the minimum duration, so its samples so far, the new one included, are pending in the detector
+ * and are moved into a fixation set by {@link dataPack.FixationDetector#movePendingSamples(FixationSet)}.<br>
+ * 3. {@link dataPack.FixationDetector#FIXATION_CONTINUED}, the new sample extends the ongoing fixation.<br>
+ * No event means the sample is not, or not yet, part of a fixation. A sample can end a fixation and start the next.<p>
+ * Time stamps are in milliseconds, as sent by the tracker. The pending samples live in a growable ring of primitives,
+ * so a detector which has reached its working size allocates nothing.
+ */
+public abstract class FixationDetector {
+
+	/**
+	 * Event of the ongoing fixation having ended with the previous sample.
+	 */
+	public static final int FIXATION_ENDED = 1 ;
+	/**
+	 * Event of a fixation having been recognised, whose samples are pending.
+	 */
+	public static final int FIXATION_STARTED = 2 ;
+	/**
+	 * Event of the new sample extending the ongoing fixation.
+	 */
+	public static final int FIXATION_CONTINUED = 4 ;
+
+	/**
+	 * Initial number of pending samples the ring can hold before growing. A power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 64 ;
+
+	/**
+	 * Minimum duration of a fixation in milliseconds.
+	 */
+	protected final long minimumDurationMillis ;
+	/**
+	 * Whether a fixation is ongoing.
+	 */
+	protected boolean inFixation ;
+
+	/**
+	 * x coordinates of the pending samples.
+	 */
+	private double[] x ;
+	/**
+	 * y coordinates of the pending samples.
+	 */
+	private double[] y ;
+	/**
+	 * states of the pending samples.
+	 */
+	private int[] state ;
+	/**
+	 * time stamps of the pending samples.
+	 */
+	private long[] ts ;
+	/**
+	 * x.length - 1, to map a position to a slot.
+	 */
+	private int mask ;
+	/**
+	 * Position of the oldest pending sample.
+	 */
+	private int head ;
+	/**
+	 * Number of pending samples.
+	 */
+	private int pendingCount ;
+
+	/**
+	 * Constructor to initialize the detector.
+	 * @param minimumDurationMillis minimum duration of a fixation in milliseconds.
+	 */
+	protected FixationDetector(long minimumDurationMillis) {
+		super();
+		if (minimumDurationMillis < 0)
+		{
+			throw new IllegalArgumentException("Invalid minimum duration: " + minimumDurationMillis) ;
+		}
+		this.minimumDurationMillis = minimumDurationMillis ;
+		this.x = new double[INITIAL_CAPACITY] ;
+		this.y = new double[INITIAL_CAPACITY] ;
+		this.state = new int[INITIAL_CAPACITY] ;
+		this.ts = new long[INITIAL_CAPACITY] ;
+		this.mask = INITIAL_CAPACITY - 1 ;
+	}
+
+	/**
+	 * Method to feed the next gaze sample to the detector.
+	 * @param x x coordinate of the sample.
+	 * @param y y coordinate of the sample.
+	 * @param state tracker state of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 * @return combination of {@link dataPack.FixationDetector#FIXATION_ENDED},
+	 * {@link dataPack.FixationDetector#FIXATION_STARTED} and {@link dataPack.FixationDetector#FIXATION_CONTINUED},
+	 * or 0.
+	 */
+	public abstract int addSample(double x, double y, int state, long timeStamp) ;
+
+	/**
+	 * Method to forget all samples, as if the detector were new.
+	 */
+	public void reset() {
+		inFixation = false ;
+		clearPendingSamples() ;
+	}
+
+	/**
+	 * Method to know whether a fixation is ongoing.
+	 * @return true between {@link dataPack.FixationDetector#FIXATION_STARTED} and
+	 * {@link dataPack.FixationDetector#FIXATION_ENDED}.
+	 */
+	public boolean isInFixation() {
+		return inFixation ;
+	}
+
+	/**
+	 * Method to get the number of pending samples.
+	 * @return number of samples not yet handed out.
+	 */
+	public int getPendingSampleCount() {
+		return pendingCount ;
+	}
+
+	/**
+	 * Method to get the time stamp of the oldest pending sample, which is the start of a fixation just recognised.
+	 * @return time stamp in milliseconds.
+	 */
+	public long getPendingStartTimeStamp() {
+		if (pendingCount == 0)
+		{
+			throw new IllegalStateException("No pending samples") ;
+		}
+		return ts[head] ;
+	}
+
+	/**
+	 * Method to move the pending samples, oldest first, into a fixation set.
+	 * @param fixationSet {@link dataPack.FixationSet} receiving the samples.
+	 */
+	public void movePendingSamples(FixationSet fixationSet) {
+		for (int i = 0 ; i < pendingCount ; i++)
+		{
+			int slot = (head + i) & mask ;
+			fixationSet.addEyeCoordinate(x[slot], y[slot], state[slot], ts[slot]) ;
+		}
+		clearPendingSamples() ;
+	}
+
+	/**
+	 * Method to add a sample after the pending ones.
+	 * @param x x coordinate of the sample.
+	 * @param y y coordinate of the sample.
+	 * @param state tracker state of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	protected void addPendingSample(double x, double y, int state, long timeStamp) {
+		if (pendingCount == this.x.length)
+		{
+			growCapacity() ;
+		}
+		int slot = (head + pendingCount) & mask ;
+		this.x[slot] = x ;
+		this.y[slot] = y ;
+		this.state[slot] = state ;
+		this.ts[slot] = timeStamp ;
+		pendingCount++ ;
+	}
+
+	/**
+	 * Method to drop the oldest pending sample.
+	 */
+	protected void removeOldestPendingSample() {
+		head = (head + 1) & mask ;
+		pendingCount-- ;
+	}
+
+	/**
+	 * Method to drop all pending samples.
+	 */
+	protected void clearPendingSamples() {
+		head = 0 ;
+		pendingCount = 0 ;
+	}
+
+	/**
+	 * Method to know whether the pending samples span the minimum duration of a fixation.
+	 * @param timeStamp time stamp of the newest pending sample in milliseconds.
+	 * @return true if a fixation can be recognised.
+	 */
+	protected boolean pendingSamplesLastLongEnough(long timeStamp) {
+		return pendingCount > 0 && timeStamp - ts[head] >= minimumDurationMillis ;
+	}
+
+	/**
+	 * Method to double the capacity of the ring, unwrapping its samples to the start.
+	 */
+	private void growCapacity() {
+		int capacity = x.length ;
+		double[] newX = new double[capacity << 1] ;
+		double[] newY = new double[capacity << 1] ;
+		int[] newState = new int[capacity << 1] ;
+		long[] newTs = new long[capacity << 1] ;
+		for (int i = 0 ; i < pendingCount ; i++)
+		{
+			int slot = (head + i) & mask ;
+			newX[i] = x[slot] ;
+			newY[i] = y[slot] ;
+			newState[i] = state[slot] ;
+			newTs[i] = ts[slot] ;
+		}
+		x = newX ;
+		y = newY ;
+		state = newState ;
+		ts = newTs ;
+		mask = (capacity << 1) - 1 ;
+		head = 0 ;
+	}
+}
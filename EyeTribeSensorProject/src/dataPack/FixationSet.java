@@ -1,6 +1,7 @@
 package dataPack;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 
@@ -20,15 +21,44 @@ import java.util.Set;
  * within that set, the bottom right corner position would be the point made from the maximum possible x coordinate and the maximum
  * possible y coordinate from the points in the set.<br>
  * These point may or may not be in the set itself, but will be useful for determining, along with start and stop time, if two or more 
- * fixation sets could be merged into one bigger set or not.
+ * fixation sets could be merged into one bigger set or not.<p>
+ * The samples are stored column wise in growable primitive arrays, in the order they were added, and can be read
+ * without allocation through {@link dataPack.FixationSet#getSampleCount()} and the index based getters. The mean,
+ * the corners and further measures of spread are kept up to date as samples are added by a
+ * {@link dataPack.FixationStatistics}, so none of them needs the samples to be scanned again.
  */
 public class FixationSet {
 
 
 
+	/**
+	 * Initial number of samples the primitive arrays can hold before growing.
+	 */
+	public static final int INITIAL_CAPACITY = 32 ;
+
+	/**
+	 * x coordinates of the samples within the fixation, in the order they were added.
+	 */
+	private double[] x ;
+	/**
+	 * y coordinates of the samples within the fixation, in the order they were added.
+	 */
+	private double[] y ;
+	/**
+	 * time stamps of the samples within the fixation in milliseconds, in the order they were added.
+	 */
+	private long[] ts ;
+	/**
+	 * states of the samples within the fixation, in the order they were added.
+	 */
+	private int[] state ;
+	/**
+	 * Number of samples currently held in the primitive arrays.
+	 */
+	private int sampleCount ;
 	/**
 	 * {@link java.util.Set} of {@link dataPack.SmoothedEye} values which lie within the fixation.
-	 * Implemented as a {@link java.util.HashSet}
+	 * Only built on request by {@link dataPack.FixationSet#getEyeCoordinatesSet()}, null until then.
 	 */
 	private Set<SmoothedEye> eyeCoordinatesSet ;
 	/**
@@ -40,13 +70,10 @@ public class FixationSet {
 	 */
 	private long stopTimeStamp ;
 	/**
-	 * mean {@link dataPack.EyeCoordinate} of the fixation set.
-	 */
-	private EyeCoordinate meanEyeCoordinate ;
-	/**
-	 * top left and bottom right {@link dataPack.EyeCoordinate}s of the fixation set, respectively. 
+	 * {@link dataPack.FixationStatistics} of the samples, holding the mean position and the top left and bottom right
+	 * corners of the fixation set.
 	 */
-	private EyeCoordinate topLeftCornerOfFixation , bottomRightCornerOfFixation ;
+	private final FixationStatistics statistics = new FixationStatistics() ;
 
 
 	/**
@@ -56,10 +83,42 @@ public class FixationSet {
 	 * @param startTimeStamp To initialize the {@link dataPack.FixationSet#startTimeStamp} value of the fixation set.
 	 */
 	public FixationSet(long startTimeStamp) {
+		this(startTimeStamp, INITIAL_CAPACITY) ;
+	}
+
+	/**
+	 * Constructor to initialize a fixation set with room for a given number of samples.<br>
+	 * Sizing the fixation set for the longest expected fixation means that adding samples never allocates.
+	 * @param startTimeStamp To initialize the {@link dataPack.FixationSet#startTimeStamp} value of the fixation set.
+	 * @param initialCapacity number of samples the fixation set can hold before growing.
+	 */
+	public FixationSet(long startTimeStamp, int initialCapacity) {
 		super();
+		if (initialCapacity < 1)
+		{
+			throw new IllegalArgumentException("Capacity must be positive: " + initialCapacity) ;
+		}
 		this.startTimeStamp = startTimeStamp;
-		this.eyeCoordinatesSet = new HashSet<SmoothedEye>() ;
-		this.meanEyeCoordinate = null ;
+		this.x = new double[initialCapacity] ;
+		this.y = new double[initialCapacity] ;
+		this.ts = new long[initialCapacity] ;
+		this.state = new int[initialCapacity] ;
+		this.sampleCount = 0 ;
+		this.eyeCoordinatesSet = null ;
+	}
+
+	/**
+	 * Method to empty the fixation set so that it can be reused for a new fixation.<br>
+	 * The primitive arrays keep their capacity, so a recycled fixation set does not need to grow again.
+	 * @param startTimeStamp To initialize the {@link dataPack.FixationSet#startTimeStamp} value of the fixation set.
+	 */
+	public void reset(long startTimeStamp)
+	{
+		this.startTimeStamp = startTimeStamp ;
+		this.stopTimeStamp = 0 ;
+		this.sampleCount = 0 ;
+		this.eyeCoordinatesSet = null ;
+		this.statistics.reset() ;
 	}
 
 	/**
@@ -72,112 +131,223 @@ public class FixationSet {
 	 */
 	public void addEyeCoordinatesSet(SmoothedEye eyeValue)
 	{
-		this.eyeCoordinatesSet.add(eyeValue) ;
-		this.stopTimeStamp = eyeValue.getTimeStamp() ;
-		updateMeanEyeCoordinate(eyeValue) ;
-		updateTopLeftAndBottomRightEyeCoordinates(eyeValue) ;
-
+		addEyeCoordinate(eyeValue.getSmoothedEyeCoordinate().getX(),
+				eyeValue.getSmoothedEyeCoordinate().getY(),
+				eyeValue.getState(),
+				eyeValue.getTimeStamp()) ;
 	}
-	
 
 	/**
-	 * Method to update top left and bottom right {@link dataPack.EyeCoordinate}s of the fixation set. 
-	 * @param eyeValue {@link dataPack.SmoothedEye} From which the {@link dataPack.EyeCoordinate}'s {@link dataPack.EyeCoordinate#x} and 
-	 * {@link dataPack.EyeCoordinate#y} are used.
+	 * Method to add a new sample to the fixation set directly from its primitive values. <p>
+	 * Behaves as {@link dataPack.FixationSet#addEyeCoordinatesSet(SmoothedEye)}, but does not need a
+	 * {@link dataPack.SmoothedEye} to be built for the sample. Samples with a repeated position are kept.
+	 * @param xValue x coordinate of the sample.
+	 * @param yValue y coordinate of the sample.
+	 * @param stateValue state of the sample.
+	 * @param timeStamp time at which the sensor recorded the sample in milliseconds.
 	 */
-	private void updateTopLeftAndBottomRightEyeCoordinates(SmoothedEye eyeValue) {
-		if (this.topLeftCornerOfFixation == null)
+	public void addEyeCoordinate(double xValue, double yValue, int stateValue, long timeStamp)
+	{
+		if (this.sampleCount == this.x.length)
 		{
-			this.topLeftCornerOfFixation = new EyeCoordinate(eyeValue.getSmoothedEyeCoordinate().getX(),
-					eyeValue.getSmoothedEyeCoordinate().getY()) ;
+			growCapacity() ;
 		}
-		else
+		this.x[this.sampleCount] = xValue ;
+		this.y[this.sampleCount] = yValue ;
+		this.ts[this.sampleCount] = timeStamp ;
+		this.state[this.sampleCount] = stateValue ;
+		this.sampleCount++ ;
+		this.eyeCoordinatesSet = null ;
+		this.stopTimeStamp = timeStamp ;
+		this.statistics.add(xValue, yValue, timeStamp) ;
+	}
+
+	/**
+	 * Method to append all samples of a later fixation set to this one, as if they had been added one by one.<p>
+	 * The statistics are combined with {@link dataPack.FixationStatistics#merge(FixationStatistics)} and the times 
+	 * from the two spans, so nothing is recomputed per sample. The sample columns are appended with one 
+	 * bulk copy each. The other fixation set is left unchanged.
+	 * @param laterFixationSet {@link dataPack.FixationSet} whose samples follow the samples of this one.
+	 */
+	public void mergeFixationSet(FixationSet laterFixationSet)
+	{
+		int otherCount = laterFixationSet.sampleCount ;
+		if (otherCount == 0)
 		{
-			if (this.topLeftCornerOfFixation.getX() > eyeValue.getSmoothedEyeCoordinate().getX())
-			{
-				this.topLeftCornerOfFixation.setX(eyeValue.getSmoothedEyeCoordinate().getX());
-			}
-			if (this.topLeftCornerOfFixation.getY() > eyeValue.getSmoothedEyeCoordinate().getY())
-			{
-				this.topLeftCornerOfFixation.setY(eyeValue.getSmoothedEyeCoordinate().getY());
-			}
+			return ;
 		}
-		if (this.bottomRightCornerOfFixation == null)
+		int newCount = this.sampleCount + otherCount ;
+		if (newCount > this.x.length)
 		{
-			this.bottomRightCornerOfFixation = new EyeCoordinate(eyeValue.getSmoothedEyeCoordinate().getX(),
-					eyeValue.getSmoothedEyeCoordinate().getY()) ;
+			int newCapacity = Math.max(this.x.length << 1, newCount) ;
+			this.x = Arrays.copyOf(this.x, newCapacity) ;
+			this.y = Arrays.copyOf(this.y, newCapacity) ;
+			this.ts = Arrays.copyOf(this.ts, newCapacity) ;
+			this.state = Arrays.copyOf(this.state, newCapacity) ;
 		}
-		else
+		System.arraycopy(laterFixationSet.x, 0, this.x, this.sampleCount, otherCount) ;
+		System.arraycopy(laterFixationSet.y, 0, this.y, this.sampleCount, otherCount) ;
+		System.arraycopy(laterFixationSet.ts, 0, this.ts, this.sampleCount, otherCount) ;
+		System.arraycopy(laterFixationSet.state, 0, this.state, this.sampleCount, otherCount) ;
+		this.statistics.merge(laterFixationSet.statistics) ;
+		this.sampleCount = newCount ;
+		this.stopTimeStamp = Math.max(this.stopTimeStamp, laterFixationSet.stopTimeStamp) ;
+		this.eyeCoordinatesSet = null ;
+	}
+
+	/**
+	 * Method to double the capacity of the primitive sample arrays.
+	 */
+	private void growCapacity()
+	{
+		int newCapacity = this.x.length << 1 ;
+		this.x = Arrays.copyOf(this.x, newCapacity) ;
+		this.y = Arrays.copyOf(this.y, newCapacity) ;
+		this.ts = Arrays.copyOf(this.ts, newCapacity) ;
+		this.state = Arrays.copyOf(this.state, newCapacity) ;
+	}
+
+	/**
+	 * Method to get the number of samples in the fixation set.
+	 * @return {@link dataPack.FixationSet#sampleCount}
+	 */
+	public int getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * Method to get the x coordinate of a sample.
+	 * @param index position of the sample, from 0 to {@link dataPack.FixationSet#getSampleCount()} - 1, in time order.
+	 * @return x coordinate of the sample.
+	 */
+	public double getX(int index) {
+		checkIndex(index) ;
+		return x[index];
+	}
+
+	/**
+	 * Method to get the y coordinate of a sample.
+	 * @param index position of the sample, from 0 to {@link dataPack.FixationSet#getSampleCount()} - 1, in time order.
+	 * @return y coordinate of the sample.
+	 */
+	public double getY(int index) {
+		checkIndex(index) ;
+		return y[index];
+	}
+
+	/**
+	 * Method to get the time stamp of a sample.
+	 * @param index position of the sample, from 0 to {@link dataPack.FixationSet#getSampleCount()} - 1, in time order.
+	 * @return time stamp of the sample in milliseconds.
+	 */
+	public long getTimeStamp(int index) {
+		checkIndex(index) ;
+		return ts[index];
+	}
+
+	/**
+	 * Method to get the state of a sample.
+	 * @param index position of the sample, from 0 to {@link dataPack.FixationSet#getSampleCount()} - 1, in time order.
+	 * @return state of the sample.
+	 */
+	public int getState(int index) {
+		checkIndex(index) ;
+		return state[index];
+	}
+
+	/**
+	 * Method to check that a sample index lies within the stored samples.
+	 * @param index position of the sample.
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= sampleCount)
 		{
-			if (this.bottomRightCornerOfFixation.getX() < eyeValue.getSmoothedEyeCoordinate().getX())
-			{
-				this.bottomRightCornerOfFixation.setX(eyeValue.getSmoothedEyeCoordinate().getX());
-			}
-			if (this.bottomRightCornerOfFixation.getY() < eyeValue.getSmoothedEyeCoordinate().getY())
-			{
-				this.bottomRightCornerOfFixation.setY(eyeValue.getSmoothedEyeCoordinate().getY());
-			}
-		}	
+			throw new IndexOutOfBoundsException("Index: " + index + ", Samples: " + sampleCount) ;
+		}
 	}
 
 	/**
-	 * Method to get the {@link dataPack.EyeCoordinate} {@link dataPack.FixationSet#topLeftCornerOfFixation}.
-	 * @return {@link dataPack.FixationSet#topLeftCornerOfFixation}
+	 * Method to get the top left corner of the fixation set as a new {@link dataPack.EyeCoordinate}.
+	 * @return top left corner, or null if the fixation set has no samples.
 	 */
 	public EyeCoordinate getTopLeftCornerOfFixation() {
-		return topLeftCornerOfFixation;
+		return sampleCount == 0 ? null : new EyeCoordinate(statistics.getMinimumX(), statistics.getMinimumY()) ;
 	}
 
 	/**
-	 * Method to get the {@link dataPack.EyeCoordinate} {@link dataPack.FixationSet#bottomRightCornerOfFixation}.
-	 * @return {@link dataPack.FixationSet#bottomRightCornerOfFixation}
+	 * Method to get the bottom right corner of the fixation set as a new {@link dataPack.EyeCoordinate}.
+	 * @return bottom right corner, or null if the fixation set has no samples.
 	 */
 	public EyeCoordinate getBottomRightCornerOfFixation() {
-		return bottomRightCornerOfFixation;
+		return sampleCount == 0 ? null : new EyeCoordinate(statistics.getMaximumX(), statistics.getMaximumY()) ;
 	}
 
-	
 	/**
-	 * Method to update the {@link dataPack.FixationSet#meanEyeCoordinate}.
-	 * @param eyeValue Current {@link dataPack.SmoothedEye} to be added to the fixation, from which the actual
-	 * {@link dataPack.EyeCoordinate} would be used.
+	 * Method to get the x coordinate of the top left corner of the fixation set.
+	 * @return x coordinate of the top left corner, meaningless if the fixation set has no samples.
 	 */
-	private void updateMeanEyeCoordinate(SmoothedEye eyeValue)
-	{
-		if (this.meanEyeCoordinate == null)
-		{
-			this.meanEyeCoordinate = new EyeCoordinate(eyeValue.getSmoothedEyeCoordinate().getX(),
-					eyeValue.getSmoothedEyeCoordinate().getY()) ;
-		}
-		else
-		{
-			double currentMeanX = this.meanEyeCoordinate.getX() ;
-			double currentMeanY = this.meanEyeCoordinate.getY() ;
-			double newXToAdd = eyeValue.getSmoothedEyeCoordinate().getX() ;
-			double newYToAdd = eyeValue.getSmoothedEyeCoordinate().getY() ;
-			int newSizeOfSet = this.eyeCoordinatesSet.size() ;
-			double newMeanX = (currentMeanX*(newSizeOfSet-1) + newXToAdd)/newSizeOfSet ;
-			double newMeanY = (currentMeanY*(newSizeOfSet-1) + newYToAdd)/newSizeOfSet ;
-			this.meanEyeCoordinate.setX(newMeanX) ;
-			this.meanEyeCoordinate.setY(newMeanY) ;
-		}
+	public double getTopLeftX() {
+		return statistics.getMinimumX() ;
+	}
+
+	/**
+	 * Method to get the y coordinate of the top left corner of the fixation set.
+	 * @return y coordinate of the top left corner, meaningless if the fixation set has no samples.
+	 */
+	public double getTopLeftY() {
+		return statistics.getMinimumY() ;
+	}
+
+	/**
+	 * Method to get the x coordinate of the bottom right corner of the fixation set.
+	 * @return x coordinate of the bottom right corner, meaningless if the fixation set has no samples.
+	 */
+	public double getBottomRightX() {
+		return statistics.getMaximumX() ;
+	}
+
+	/**
+	 * Method to get the y coordinate of the bottom right corner of the fixation set.
+	 * @return y coordinate of the bottom right corner, meaningless if the fixation set has no samples.
+	 */
+	public double getBottomRightY() {
+		return statistics.getMaximumY() ;
 	}
 
+	
 	/**
-	 * Method to get the {@link dataPack.FixationSet#eyeCoordinatesSet}
+	 * Method to get the {@link dataPack.FixationSet#eyeCoordinatesSet}.<br>
+	 * The set is a compatibility view built from the primitive arrays on the first call after a change, and
+	 * iterates in time order. As {@link dataPack.SmoothedEye} compares positions only, samples with a repeated position
+	 * appear once in the view. Prefer the index based getters on hot paths.
 	 * @return {@link dataPack.FixationSet#eyeCoordinatesSet}
 	 */
 	public Set<SmoothedEye> getEyeCoordinatesSet() {
+		if (eyeCoordinatesSet == null)
+		{
+			Set<SmoothedEye> view = new LinkedHashSet<SmoothedEye>() ;
+			for (int i = 0 ; i < sampleCount ; i++)
+			{
+				view.add(new SmoothedEye(x[i], y[i], true, state[i], ts[i])) ;
+			}
+			eyeCoordinatesSet = view ;
+		}
 		return eyeCoordinatesSet;
 	}
 
 
 	/**
-	 * Method to set the {@link dataPack.FixationSet#eyeCoordinatesSet} of the fixation set.
-	 * @param eyeCoordinatesSet new {@link java.util.Set} to be used. More restrictively, use {@link java.util.HashSet}.
+	 * Method to replace the samples of the fixation set by the given {@link dataPack.SmoothedEye} values.<br>
+	 * The samples are added in the iteration order of the set, and the mean, corners and stop time are rebuilt from them.
+	 * @param eyeCoordinatesSet new {@link java.util.Set} to be used.
 	 */
 	public void setEyeCoordinatesSet(Set<SmoothedEye> eyeCoordinatesSet) {
-		this.eyeCoordinatesSet = eyeCoordinatesSet;
+		this.sampleCount = 0 ;
+		this.statistics.reset() ;
+		for (SmoothedEye eyeValue : eyeCoordinatesSet)
+		{
+			addEyeCoordinatesSet(eyeValue) ;
+		}
 	}
 
 
@@ -220,20 +390,47 @@ public class FixationSet {
 
 
 	/**
-	 * Method to get the {@link dataPack.FixationSet#meanEyeCoordinate} of the fixation set.
-	 * @return {@link dataPack.FixationSet#meanEyeCoordinate}
+	 * Method to get the mean position of the fixation set as a new {@link dataPack.EyeCoordinate}.
+	 * @return mean position, or null if the fixation set has no samples.
 	 */
 	public EyeCoordinate getMeanEyeCoordinate() {
-		return meanEyeCoordinate;
+		return sampleCount == 0 ? null : new EyeCoordinate(statistics.getMeanX(), statistics.getMeanY()) ;
 	}
 
 
 	/**
-	 * Method to set the {@link dataPack.FixationSet#meanEyeCoordinate} of the fixation set.
-	 * @param meanEyeCoordinate {@link dataPack.EyeCoordinate} to be set as {@link dataPack.FixationSet#meanEyeCoordinate} 
+	 * Method to set the mean position of the fixation set. Adding a sample afterwards updates the mean from this value.
+	 * @param meanEyeCoordinate {@link dataPack.EyeCoordinate} to be used as the mean position.
 	 */
 	public void setMeanEyeCoordinate(EyeCoordinate meanEyeCoordinate) {
-		this.meanEyeCoordinate = meanEyeCoordinate;
+		this.statistics.setMean(meanEyeCoordinate.getX(), meanEyeCoordinate.getY()) ;
+	}
+
+
+	/**
+	 * Method to get the x coordinate of the mean position of the fixation set.
+	 * @return x coordinate of the mean position, meaningless if the fixation set has no samples.
+	 */
+	public double getMeanX() {
+		return statistics.getMeanX() ;
+	}
+
+
+	/**
+	 * Method to get the y coordinate of the mean position of the fixation set.
+	 * @return y coordinate of the mean position, meaningless if the fixation set has no samples.
+	 */
+	public double getMeanY() {
+		return statistics.getMeanY() ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationSet#statistics}, kept up to date as samples are added. It must only be
+	 * read; it changes when the fixation set does.
+	 * @return {@link dataPack.FixationSet#statistics}
+	 */
+	public FixationStatistics getStatistics() {
+		return statistics ;
 	}
 
 
@@ -242,8 +439,8 @@ public class FixationSet {
 
 	@Override
 	public String toString() {
-		return "FixationSet [eyeCoordinatesSet=" + eyeCoordinatesSet.toString() + ", startTimeStamp=" + startTimeStamp
-				+ ", stopTimeStamp=" + stopTimeStamp + ", meanEyeCoordinate=" + meanEyeCoordinate.toString() + "]";
+		return "FixationSet [eyeCoordinatesSet=" + getEyeCoordinatesSet().toString() + ", startTimeStamp=" + startTimeStamp
+				+ ", stopTimeStamp=" + stopTimeStamp + ", meanEyeCoordinate=" + getMeanEyeCoordinate() + "]";
 	}
 
 
@@ -0,0 +1,58 @@
+package dataPack;
+
+/**
+ * Producer side of a hand-off of fixation sets, as used by {@link basePack.SensorDataProducer}.<br><p>
+ * The producer works as follows:<br>
+ * 1. Gets an empty {@link dataPack.FixationSet} from {@link dataPack.FixationSetPublisher#acquireFixationSet(long)}
+ * and fills it.<br>
+ * 2. Publishes it with {@link dataPack.FixationSetPublisher#addFIFOFixationSet(FixationSet)}, after which it must not
+ * touch it.<br>
+ * 3. Calls {@link dataPack.FixationSetPublisher#handOnHeldBackFixationSets(long)} on every sample, so that what the
+ * publisher holds back goes out as soon as it can.<br>
+ * Exactly one thread may publish. The fixation sets are read on the other side through a
+ * {@link dataPack.FixationSetReader}.
+ */
+public interface FixationSetPublisher {
+
+	/**
+	 * Method for the producer to get an empty {@link dataPack.FixationSet} to fill.
+	 * @param startTimeStamp start time of the fixation set in milliseconds.
+	 * @return empty {@link dataPack.FixationSet} starting at startTimeStamp.
+	 */
+	FixationSet acquireFixationSet(long startTimeStamp) ;
+
+	/**
+	 * Method for the producer to publish a filled fixation set. The producer must not touch it afterwards, as it may
+	 * have been dropped or merged and reused.
+	 * @param fixationSet {@link dataPack.FixationSet} to be published.
+	 * @throws InterruptedException if the producer is interrupted while waiting for room.
+	 */
+	void addFIFOFixationSet(FixationSet fixationSet) throws InterruptedException ;
+
+	/**
+	 * Method for the producer to hand on what the publisher holds back, called on every sample, so that nothing stays
+	 * held back once the input pauses. Long.MAX_VALUE tells the publisher that no further fixation set will come.
+	 * @param earliestStartTimeStamp earliest start in milliseconds of a fixation set the producer may still add: the
+	 * start of the fixation under way, or the time stamp of the latest sample if there is none.
+	 * @throws InterruptedException if the producer is interrupted while handing a fixation set on.
+	 */
+	void handOnHeldBackFixationSets(long earliestStartTimeStamp) throws InterruptedException ;
+
+	/**
+	 * Method to get the number of fixation sets published and not yet read, by the slowest reader if there are several.
+	 * @return number of fixation sets waiting.
+	 */
+	int size() ;
+
+	/**
+	 * Method to get the number of fixation sets dropped because there was no room.
+	 * @return number of fixation sets dropped.
+	 */
+	long getDroppedCount() ;
+
+	/**
+	 * Method to get the number of fixation sets merged into a held back one because there was no room.
+	 * @return number of fixation sets merged.
+	 */
+	long getCoalescedCount() ;
+}
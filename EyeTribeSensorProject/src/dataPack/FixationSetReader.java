@@ -0,0 +1,31 @@
+package dataPack;
+
+/**
+ * Consumer side of a hand-off of fixation sets, as used by {@link basePack.SensorDataConsumer}.<br><p>
+ * The consumer takes each {@link dataPack.FixationSet} with {@link dataPack.FixationSetReader#getFIFOFixationSet()},
+ * and hands it back with {@link dataPack.FixationSetReader#releaseFixationSet(FixationSet)} once done with it, before
+ * taking the next one. Exactly one thread may read through a reader. The fixation sets are published on the other
+ * side through a {@link dataPack.FixationSetPublisher}.
+ */
+public interface FixationSetReader {
+
+	/**
+	 * Method for the consumer to take the next fixation set, waiting while there is none.
+	 * @return next {@link dataPack.FixationSet}, in the order published.
+	 * @throws InterruptedException if the consumer is interrupted while waiting.
+	 */
+	FixationSet getFIFOFixationSet() throws InterruptedException ;
+
+	/**
+	 * Method for the consumer to hand back a {@link dataPack.FixationSet} it has finished using. The consumer must not
+	 * touch the fixation set after handing it back.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use by the consumer.
+	 */
+	void releaseFixationSet(FixationSet fixationSet) ;
+
+	/**
+	 * Method to get the number of fixation sets waiting to be read.
+	 * @return number of fixation sets waiting.
+	 */
+	int size() ;
+}
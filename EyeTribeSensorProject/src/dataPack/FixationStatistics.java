@@ -0,0 +1,497 @@
+package dataPack;
+
+import java.util.Arrays;
+
+/**
+ * Running statistics of the samples of a {@link dataPack.FixationSet}, updated in constant time per sample.<br><p>
+ * The statistics are the following:<br>
+ * 1. Mean, variances and covariance of the coordinates, kept with Welford's method, which does not drift however long
+ * the fixation lasts. Two sets of statistics are combined with the parallel formula of Chan, Golub and LeVeque.<br>
+ * 2. Bounding box and dispersion, the width plus the height of the box as used by
+ * {@link dataPack.DispersionThresholdDetector}.<br>
+ * 3. Path length, the distance travelled from sample to sample, and duration.<br>
+ * 4. A fixed size sketch of where the samples lie: a grid of {@link dataPack.FixationStatistics#SKETCH_SIDE} cells a
+ * side, laid on the multiples of the cell width so that any two grids of the same cell width line up. It starts with
+ * cells {@link dataPack.FixationStatistics#SKETCH_CELL_PIXELS} pixels wide around the first sample, and whenever a
+ * sample, or the grid of a merged fixation, falls outside it, the cells are doubled in width and their counts added
+ * up four to one, which moves no sample out of its cell. From it, percentiles of the distance from the final centroid
+ * are read to within a cell, without going back to the samples, however far the samples spread.<br>
+ * Nothing is allocated after construction.
+ */
+public class FixationStatistics {
+
+	/**
+	 * Number of cells a side of the sketch grid.
+	 */
+	public static final int SKETCH_SIDE = 32 ;
+	/**
+	 * Width in pixels of a cell of the sketch grid before it is widened.
+	 */
+	public static final double SKETCH_CELL_PIXELS = 4 ;
+
+	/**
+	 * Number of samples added.
+	 */
+	private int count ;
+	/**
+	 * x and y coordinates of the mean position of the samples, respectively.
+	 */
+	private double meanX , meanY ;
+	/**
+	 * Sums of squared differences from the mean, and of the products of the differences of x and y.
+	 */
+	private double m2X , m2Y , coMomentXY ;
+	/**
+	 * Corners of the bounding box of the samples, the top left being the minimum.
+	 */
+	private double minimumX , minimumY , maximumX , maximumY ;
+	/**
+	 * Distance travelled from sample to sample in pixels.
+	 */
+	private double pathLength ;
+	/**
+	 * Positions of the first and the last sample, the first being needed to join two paths in a merge.
+	 */
+	private double firstX , firstY , lastX , lastY ;
+	/**
+	 * Time stamps of the first and the last sample in milliseconds.
+	 */
+	private long firstTimeStamp , lastTimeStamp ;
+	/**
+	 * Number of samples in every cell of the sketch grid, row after row.
+	 */
+	private int[] sketch = new int[SKETCH_SIDE * SKETCH_SIDE] ;
+	/**
+	 * Grid into which {@link dataPack.FixationStatistics#widenSketch()} adds up the cells, swapped with
+	 * {@link dataPack.FixationStatistics#sketch} afterwards.
+	 */
+	private int[] widenedSketch = new int[SKETCH_SIDE * SKETCH_SIDE] ;
+	/**
+	 * Position of the top left corner of the sketch grid, a multiple of the cell width.
+	 */
+	private double sketchLeft , sketchTop ;
+	/**
+	 * Width of a cell of the sketch grid in pixels, {@link dataPack.FixationStatistics#SKETCH_CELL_PIXELS} times a
+	 * power of two.
+	 */
+	private double sketchCellPixels = SKETCH_CELL_PIXELS ;
+
+	/**
+	 * Method to empty the statistics.
+	 */
+	public void reset() {
+		count = 0 ;
+		meanX = meanY = 0 ;
+		m2X = m2Y = coMomentXY = 0 ;
+		pathLength = 0 ;
+		Arrays.fill(sketch, 0) ;
+	}
+
+	/**
+	 * Method to add a sample.
+	 * @param x x coordinate of the sample.
+	 * @param y y coordinate of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	public void add(double x, double y, long timeStamp) {
+		count++ ;
+		if (count == 1)
+		{
+			meanX = x ;
+			meanY = y ;
+			minimumX = maximumX = firstX = x ;
+			minimumY = maximumY = firstY = y ;
+			firstTimeStamp = timeStamp ;
+			sketchCellPixels = SKETCH_CELL_PIXELS ;
+			sketchLeft = snapToCell(x, sketchCellPixels) - SKETCH_SIDE / 2 * sketchCellPixels ;
+			sketchTop = snapToCell(y, sketchCellPixels) - SKETCH_SIDE / 2 * sketchCellPixels ;
+		}
+		else
+		{
+			double deltaX = x - meanX ;
+			double deltaY = y - meanY ;
+			meanX += deltaX / count ;
+			meanY += deltaY / count ;
+			m2X += deltaX * (x - meanX) ;
+			m2Y += deltaY * (y - meanY) ;
+			coMomentXY += deltaX * (y - meanY) ;
+			minimumX = Math.min(minimumX, x) ;
+			minimumY = Math.min(minimumY, y) ;
+			maximumX = Math.max(maximumX, x) ;
+			maximumY = Math.max(maximumY, y) ;
+			pathLength += Math.hypot(x - lastX, y - lastY) ;
+		}
+		lastX = x ;
+		lastY = y ;
+		lastTimeStamp = timeStamp ;
+		while (!sketchCovers(x, y))
+		{
+			widenSketch() ;
+		}
+		sketch[sketchCellOf(x, y)]++ ;
+	}
+
+	/**
+	 * Method to add the statistics of samples which follow the samples of these ones.
+	 * @param later {@link dataPack.FixationStatistics} of the later samples, left unchanged.
+	 */
+	public void merge(FixationStatistics later) {
+		if (later.count == 0)
+		{
+			return ;
+		}
+		if (count == 0)
+		{
+			copyFrom(later) ;
+			return ;
+		}
+		int total = count + later.count ;
+		double deltaX = later.meanX - meanX ;
+		double deltaY = later.meanY - meanY ;
+		double weight = (double) count * later.count / total ;
+		meanX += deltaX * later.count / total ;
+		meanY += deltaY * later.count / total ;
+		m2X += later.m2X + deltaX * deltaX * weight ;
+		m2Y += later.m2Y + deltaY * deltaY * weight ;
+		coMomentXY += later.coMomentXY + deltaX * deltaY * weight ;
+		minimumX = Math.min(minimumX, later.minimumX) ;
+		minimumY = Math.min(minimumY, later.minimumY) ;
+		maximumX = Math.max(maximumX, later.maximumX) ;
+		maximumY = Math.max(maximumY, later.maximumY) ;
+		pathLength += later.pathLength + Math.hypot(later.firstX - lastX, later.firstY - lastY) ;
+		lastX = later.lastX ;
+		lastY = later.lastY ;
+		lastTimeStamp = Math.max(lastTimeStamp, later.lastTimeStamp) ;
+		mergeSketch(later) ;
+		count = total ;
+	}
+
+	/**
+	 * Method to make these statistics a copy of others.
+	 * @param other {@link dataPack.FixationStatistics} to be copied.
+	 */
+	public void copyFrom(FixationStatistics other) {
+		count = other.count ;
+		meanX = other.meanX ;
+		meanY = other.meanY ;
+		m2X = other.m2X ;
+		m2Y = other.m2Y ;
+		coMomentXY = other.coMomentXY ;
+		minimumX = other.minimumX ;
+		minimumY = other.minimumY ;
+		maximumX = other.maximumX ;
+		maximumY = other.maximumY ;
+		pathLength = other.pathLength ;
+		firstX = other.firstX ;
+		firstY = other.firstY ;
+		lastX = other.lastX ;
+		lastY = other.lastY ;
+		firstTimeStamp = other.firstTimeStamp ;
+		lastTimeStamp = other.lastTimeStamp ;
+		sketchLeft = other.sketchLeft ;
+		sketchTop = other.sketchTop ;
+		sketchCellPixels = other.sketchCellPixels ;
+		System.arraycopy(other.sketch, 0, sketch, 0, sketch.length) ;
+	}
+
+	/**
+	 * Method to move the mean, as {@link dataPack.FixationSet#setMeanEyeCoordinate(EyeCoordinate)} does. The spread
+	 * about the mean is kept.
+	 * @param x x coordinate of the new mean.
+	 * @param y y coordinate of the new mean.
+	 */
+	void setMean(double x, double y) {
+		meanX = x ;
+		meanY = y ;
+	}
+
+	/**
+	 * Method to add the sketch of later samples to this one. This grid is widened until its cells are at least as wide
+	 * as those of the other, so that each cell of the other lies in exactly one of its cells, and further while a cell
+	 * of the other falls outside it.
+	 * @param later {@link dataPack.FixationStatistics} of the later samples, left unchanged.
+	 */
+	private void mergeSketch(FixationStatistics later) {
+		while (sketchCellPixels < later.sketchCellPixels)
+		{
+			widenSketch() ;
+		}
+		for (int row = 0 ; row < SKETCH_SIDE ; row++)
+		{
+			double y = later.sketchTop + (row + 0.5) * later.sketchCellPixels ;
+			for (int column = 0 ; column < SKETCH_SIDE ; column++)
+			{
+				int samples = later.sketch[row * SKETCH_SIDE + column] ;
+				if (samples != 0)
+				{
+					double x = later.sketchLeft + (column + 0.5) * later.sketchCellPixels ;
+					while (!sketchCovers(x, y))
+					{
+						widenSketch() ;
+					}
+					sketch[sketchCellOf(x, y)] += samples ;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to double the width of the cells of the sketch grid, keeping its centre to within a cell. The grid stays
+	 * on the multiples of the cell width, so each old cell lies in exactly one new cell.
+	 */
+	private void widenSketch() {
+		double cellPixels = sketchCellPixels ;
+		double left = widenedCorner(sketchLeft, cellPixels) ;
+		double top = widenedCorner(sketchTop, cellPixels) ;
+		int[] widened = widenedSketch ;
+		Arrays.fill(widened, 0) ;
+		for (int row = 0 ; row < SKETCH_SIDE ; row++)
+		{
+			int widenedRow = (int) Math.floor((sketchTop + row * cellPixels - top) / (2 * cellPixels)) ;
+			for (int column = 0 ; column < SKETCH_SIDE ; column++)
+			{
+				int samples = sketch[row * SKETCH_SIDE + column] ;
+				if (samples != 0)
+				{
+					int widenedColumn = (int) Math.floor((sketchLeft + column * cellPixels - left) / (2 * cellPixels)) ;
+					widened[widenedRow * SKETCH_SIDE + widenedColumn] += samples ;
+				}
+			}
+		}
+		widenedSketch = sketch ;
+		sketch = widened ;
+		sketchLeft = left ;
+		sketchTop = top ;
+		sketchCellPixels = 2 * cellPixels ;
+	}
+
+	/**
+	 * Method to get the corner of the sketch grid once its cells are doubled in width.
+	 * @param corner left or top of the grid, a multiple of cellPixels.
+	 * @param cellPixels width of a cell before widening.
+	 * @return left or top of the widened grid, a multiple of twice cellPixels.
+	 */
+	private static double widenedCorner(double corner, double cellPixels) {
+		return snapToCell(corner - SKETCH_SIDE / 2 * cellPixels, 2 * cellPixels) ;
+	}
+
+	/**
+	 * Method to round a coordinate down to a multiple of the cell width.
+	 * @param coordinate coordinate in pixels.
+	 * @param cellPixels width of a cell in pixels.
+	 * @return largest multiple of cellPixels not above coordinate.
+	 */
+	private static double snapToCell(double coordinate, double cellPixels) {
+		return Math.floor(coordinate / cellPixels) * cellPixels ;
+	}
+
+	/**
+	 * Method to tell whether a point lies on the sketch grid. A point whose coordinates are not finite is taken to lie
+	 * on it, and is counted in an edge cell, as is any point once the grid was laid on such a point.
+	 * @param x x coordinate of the point.
+	 * @param y y coordinate of the point.
+	 * @return false if the grid must be widened for the point.
+	 */
+	private boolean sketchCovers(double x, double y) {
+		if (!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(sketchLeft) || !Double.isFinite(sketchTop))
+		{
+			return true ;
+		}
+		double extent = SKETCH_SIDE * sketchCellPixels ;
+		return x >= sketchLeft && x < sketchLeft + extent && y >= sketchTop && y < sketchTop + extent ;
+	}
+
+	/**
+	 * Method to get the sketch cell of a point, clamped to the grid.
+	 * @param x x coordinate of the point.
+	 * @param y y coordinate of the point.
+	 * @return index of the cell in {@link dataPack.FixationStatistics#sketch}.
+	 */
+	private int sketchCellOf(double x, double y) {
+		int column = (int) Math.floor((x - sketchLeft) / sketchCellPixels) ;
+		int row = (int) Math.floor((y - sketchTop) / sketchCellPixels) ;
+		column = Math.min(SKETCH_SIDE - 1, Math.max(0, column)) ;
+		row = Math.min(SKETCH_SIDE - 1, Math.max(0, row)) ;
+		return row * SKETCH_SIDE + column ;
+	}
+
+	/**
+	 * Method to get a percentile of the distance of the samples from the centroid, read from the sketch. Each cell
+	 * counts at the distance of its centre, so the answer is good to about a cell.
+	 * @param percentile percentile from 0 to 100.
+	 * @return distance in pixels below which that share of the samples lies, 0 without samples.
+	 */
+	public double getDistancePercentile(double percentile) {
+		if (count == 0)
+		{
+			return 0 ;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count)) ;
+		double low = 0 ;
+		double high = Math.hypot(SKETCH_SIDE * sketchCellPixels, SKETCH_SIDE * sketchCellPixels)
+				+ Math.hypot(meanX - sketchLeft, meanY - sketchTop) ;
+		for (int step = 0 ; step < 40 && high - low > sketchCellPixels / 8 ; step++)
+		{
+			double middle = (low + high) / 2 ;
+			if (countWithin(middle) >= rank)
+			{
+				high = middle ;
+			}
+			else
+			{
+				low = middle ;
+			}
+		}
+		return high ;
+	}
+
+	/**
+	 * Method to count the samples of the cells whose centre lies within a distance of the centroid.
+	 * @param distance distance from the centroid in pixels.
+	 * @return number of samples.
+	 */
+	private long countWithin(double distance) {
+		double squared = distance * distance ;
+		long within = 0 ;
+		for (int row = 0 ; row < SKETCH_SIDE ; row++)
+		{
+			double offsetY = sketchTop + (row + 0.5) * sketchCellPixels - meanY ;
+			for (int column = 0 ; column < SKETCH_SIDE ; column++)
+			{
+				int samples = sketch[row * SKETCH_SIDE + column] ;
+				if (samples != 0)
+				{
+					double offsetX = sketchLeft + (column + 0.5) * sketchCellPixels - meanX ;
+					if (offsetX * offsetX + offsetY * offsetY <= squared)
+					{
+						within += samples ;
+					}
+				}
+			}
+		}
+		return within ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#count}.
+	 * @return {@link dataPack.FixationStatistics#count}
+	 */
+	public int getCount() {
+		return count ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#meanX}.
+	 * @return {@link dataPack.FixationStatistics#meanX}
+	 */
+	public double getMeanX() {
+		return meanX ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#meanY}.
+	 * @return {@link dataPack.FixationStatistics#meanY}
+	 */
+	public double getMeanY() {
+		return meanY ;
+	}
+
+	/**
+	 * Method to get the variance of the x coordinates over the samples.
+	 * @return population variance, 0 without samples.
+	 */
+	public double getVarianceX() {
+		return count > 0 ? m2X / count : 0 ;
+	}
+
+	/**
+	 * Method to get the variance of the y coordinates over the samples.
+	 * @return population variance, 0 without samples.
+	 */
+	public double getVarianceY() {
+		return count > 0 ? m2Y / count : 0 ;
+	}
+
+	/**
+	 * Method to get the covariance of the x and y coordinates over the samples.
+	 * @return population covariance, 0 without samples.
+	 */
+	public double getCovarianceXY() {
+		return count > 0 ? coMomentXY / count : 0 ;
+	}
+
+	/**
+	 * Method to get the root mean square distance of the samples from the centroid.
+	 * @return distance in pixels.
+	 */
+	public double getRootMeanSquareDistance() {
+		return Math.sqrt(Math.max(0, getVarianceX() + getVarianceY())) ;
+	}
+
+	/**
+	 * Method to get the dispersion, the width plus the height of the bounding box.
+	 * @return dispersion in pixels, 0 without samples.
+	 */
+	public double getDispersion() {
+		return count > 0 ? (maximumX - minimumX) + (maximumY - minimumY) : 0 ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#minimumX}.
+	 * @return {@link dataPack.FixationStatistics#minimumX}
+	 */
+	public double getMinimumX() {
+		return minimumX ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#minimumY}.
+	 * @return {@link dataPack.FixationStatistics#minimumY}
+	 */
+	public double getMinimumY() {
+		return minimumY ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#maximumX}.
+	 * @return {@link dataPack.FixationStatistics#maximumX}
+	 */
+	public double getMaximumX() {
+		return maximumX ;
+	}
+
+	/**
+	 * Method to get the {@link dataPack.FixationStatistics#maximumY}.
+	 * @return {@link dataPack.FixationStatistics#maximumY}
+	 */
+	public double getMaximumY() {
+		return maximumY ;
+	}
+
+	/**
+	 * Method to get the distance travelled from sample to sample.
+	 * @return path length in pixels.
+	 */
+	public double getPathLength() {
+		return pathLength ;
+	}
+
+	/**
+	 * Method to get the time from the first sample to the last.
+	 * @return duration in milliseconds, 0 without samples.
+	 */
+	public long getDurationMillis() {
+		return count > 0 ? lastTimeStamp - firstTimeStamp : 0 ;
+	}
+
+	/**
+	 * Method to describe the statistics on one line.
+	 */
+	@Override
+	public String toString() {
+		return String.format("FixationStatistics {count=%d, mean=(%.2f, %.2f), sd=%.2f, dispersion=%.2f,"
+				+ " pathLength=%.2f, durationMillis=%d, p50=%.1f, p95=%.1f}", count, meanX, meanY,
+				getRootMeanSquareDistance(), getDispersion(), pathLength, getDurationMillis(),
+				getDistancePercentile(50), getDistancePercentile(95)) ;
+	}
+}
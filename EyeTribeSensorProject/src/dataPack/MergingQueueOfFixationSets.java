@@ -0,0 +1,247 @@
+package dataPack;
+
+/**
+ * Queue of fixation sets which merges nearby fixations on their way from the producer to another queue.<br><p>
+ * The producer {@link basePack.SensorDataProducer} uses it like any {@link dataPack.FixationSetPublisher}, and the
+ * consumer reads the fixation sets from the other publisher, through its {@link dataPack.FixationSetReader}, as
+ * before. On the producer side it works as follows:<br>
+ * 1. The latest fixation set is held back as pending instead of being handed on at once.<br>
+ * 2. When the next fixation set arrives, it is merged into the pending one if it starts within the maximum gap after
+ * the pending one stops, and the two bounding boxes overlap or lie within the maximum distance of each other. The
+ * merge combines the means, boxes and times in O(1), see {@link dataPack.FixationSet#mergeFixationSet(FixationSet)}.<br>
+ * 3. Otherwise, the pending fixation set is handed on to the other queue and the new one becomes pending.<br>
+ * Only neighbouring fixations are merged, so the fixation sets still reach the consumer in time order. The pending
+ * fixation set is handed on when the next one arrives, as soon as no fixation the producer may still add could start
+ * within the maximum gap after it, see
+ * {@link dataPack.MergingQueueOfFixationSets#handOnHeldBackFixationSets(long)}, or by
+ * {@link dataPack.MergingQueueOfFixationSets#flushPendingFixationSet()}. A fixation is thus held back by at most the
+ * maximum gap after its end, and the last one before the gaze goes idle is delivered too.<br>
+ * Fixation sets absorbed by a merge are kept on the producer side and given out again by
+ * {@link dataPack.MergingQueueOfFixationSets#acquireFixationSet(long)}, so the stage allocates nothing either.
+ */
+public class MergingQueueOfFixationSets implements FixationSetPublisher {
+
+	/**
+	 * Default maximum distance in pixels between two bounding boxes to be merged.
+	 */
+	public static final double DEFAULT_MAXIMUM_DISTANCE = 40 ;
+	/**
+	 * Default maximum time in milliseconds between the stop of a fixation and the start of the next to be merged.
+	 */
+	public static final long DEFAULT_MAXIMUM_GAP_MILLIS = 75 ;
+	/**
+	 * Number of absorbed fixation sets kept for reuse.
+	 */
+	private static final int SPARE_CAPACITY = 4 ;
+
+	/**
+	 * Queue to which the merged fixation sets are handed on.
+	 */
+	private final FixationSetPublisher downstreamQueue ;
+	/**
+	 * Maximum distance in pixels between two bounding boxes to be merged.
+	 */
+	private final double maximumDistance ;
+	/**
+	 * Maximum gap in milliseconds between two fixations to be merged.
+	 */
+	private final long maximumGapMillis ;
+	/**
+	 * Latest fixation set, held back for merging. Only used by the producer.
+	 */
+	private FixationSet pendingFixationSet ;
+	/**
+	 * Fixation sets absorbed by a merge, ready for reuse. Only used by the producer.
+	 */
+	private final FixationSet[] spareFixationSets ;
+	/**
+	 * Number of fixation sets in {@link dataPack.MergingQueueOfFixationSets#spareFixationSets}.
+	 */
+	private int spareCount ;
+	/**
+	 * Number of fixation sets received from the producer.
+	 */
+	private volatile long receivedCount ;
+	/**
+	 * Number of fixation sets merged into a pending one.
+	 */
+	private volatile long mergedCount ;
+
+	/**
+	 * Constructor to put the merging stage in front of a queue, with the default thresholds.
+	 * @param downstreamQueue {@link dataPack.FixationSetPublisher} to which the merged fixation sets are handed on.
+	 */
+	public MergingQueueOfFixationSets(FixationSetPublisher downstreamQueue) {
+		this(downstreamQueue, DEFAULT_MAXIMUM_DISTANCE, DEFAULT_MAXIMUM_GAP_MILLIS) ;
+	}
+
+	/**
+	 * Constructor to put the merging stage in front of a queue.
+	 * @param downstreamQueue {@link dataPack.FixationSetPublisher} to which the merged fixation sets are handed on.
+	 * @param maximumDistance maximum distance in pixels between two bounding boxes to be merged.
+	 * @param maximumGapMillis maximum time in milliseconds between the stop of a fixation and the start of the next
+	 * to be merged.
+	 */
+	public MergingQueueOfFixationSets(FixationSetPublisher downstreamQueue, double maximumDistance,
+			long maximumGapMillis) {
+		super();
+		if (!(maximumDistance >= 0) || maximumGapMillis < 0)
+		{
+			throw new IllegalArgumentException("Invalid merging thresholds") ;
+		}
+		this.downstreamQueue = downstreamQueue ;
+		this.maximumDistance = maximumDistance ;
+		this.maximumGapMillis = maximumGapMillis ;
+		this.spareFixationSets = new FixationSet[SPARE_CAPACITY] ;
+	}
+
+	/**
+	 * @param fixationSet {@link dataPack.FixationSet} received from the producer, merged into the pending one or held
+	 * back in its place. The producer must not touch it afterwards, as it may be reused at once after a merge.
+	 * @throws InterruptedException if the producer is interrupted while handing the pending fixation set on. The
+	 * given fixation set is then not taken.
+	 */
+	@Override
+	public void addFIFOFixationSet(FixationSet fixationSet) throws InterruptedException
+	{
+		FixationSet previousFixationSet = pendingFixationSet ;
+		if (previousFixationSet != null && canMerge(previousFixationSet, fixationSet))
+		{
+			previousFixationSet.mergeFixationSet(fixationSet) ;
+			if (spareCount < SPARE_CAPACITY)
+			{
+				spareFixationSets[spareCount++] = fixationSet ;
+			}
+			receivedCount++ ;
+			mergedCount++ ;
+			return ;
+		}
+		if (previousFixationSet != null)
+		{
+			downstreamQueue.addFIFOFixationSet(previousFixationSet) ;
+		}
+		pendingFixationSet = fixationSet ;
+		receivedCount++ ;
+	}
+
+	/**
+	 * Method for the producer to hand the pending fixation set on once nothing can be merged into it any more, and to
+	 * let the other queue hand on what it holds back.
+	 * @param earliestStartTimeStamp earliest start in milliseconds of a fixation set the producer may still add.
+	 * @throws InterruptedException if the producer is interrupted while handing it on. It then stays pending.
+	 */
+	@Override
+	public void handOnHeldBackFixationSets(long earliestStartTimeStamp) throws InterruptedException
+	{
+		FixationSet previousFixationSet = pendingFixationSet ;
+		if (previousFixationSet != null
+				&& earliestStartTimeStamp - previousFixationSet.getStopTimeStamp() > maximumGapMillis)
+		{
+			downstreamQueue.addFIFOFixationSet(previousFixationSet) ;
+			pendingFixationSet = null ;
+		}
+		downstreamQueue.handOnHeldBackFixationSets(earliestStartTimeStamp) ;
+	}
+
+	/**
+	 * Method for the producer to hand the pending fixation set on without waiting for the next one, and to let the
+	 * other queue hand on what it holds back if it has room.
+	 * @throws InterruptedException if the producer is interrupted while handing it on. It then stays pending.
+	 */
+	public void flushPendingFixationSet() throws InterruptedException
+	{
+		FixationSet previousFixationSet = pendingFixationSet ;
+		if (previousFixationSet != null)
+		{
+			downstreamQueue.addFIFOFixationSet(previousFixationSet) ;
+			pendingFixationSet = null ;
+		}
+		downstreamQueue.handOnHeldBackFixationSets(Long.MAX_VALUE) ;
+	}
+
+	/**
+	 * Method for the producer to get an empty {@link dataPack.FixationSet} to fill.<br>
+	 * A fixation set absorbed by a merge is reused when one is available, otherwise one is taken from the other queue.
+	 * @param startTimeStamp start time of the fixation set in milliseconds.
+	 * @return empty {@link dataPack.FixationSet} starting at startTimeStamp.
+	 */
+	@Override
+	public FixationSet acquireFixationSet(long startTimeStamp)
+	{
+		if (spareCount > 0)
+		{
+			FixationSet fixationSet = spareFixationSets[--spareCount] ;
+			spareFixationSets[spareCount] = null ;
+			fixationSet.reset(startTimeStamp) ;
+			return fixationSet ;
+		}
+		return downstreamQueue.acquireFixationSet(startTimeStamp) ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets waiting in the other queue. The pending fixation set is not counted.
+	 * @return number of fixation sets waiting in the other queue.
+	 */
+	@Override
+	public int size()
+	{
+		return downstreamQueue.size() ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets dropped by the other queue because it was full.
+	 * @return number of fixation sets dropped.
+	 */
+	@Override
+	public long getDroppedCount() {
+		return downstreamQueue.getDroppedCount() ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets merged by the other queue because it was full.
+	 * @return number of fixation sets merged.
+	 */
+	@Override
+	public long getCoalescedCount() {
+		return downstreamQueue.getCoalescedCount() ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets received from the producer.
+	 * @return number of fixation sets received.
+	 */
+	public long getReceivedCount() {
+		return receivedCount ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets merged into an earlier one.
+	 * @return number of fixation sets merged.
+	 */
+	public long getMergedCount() {
+		return mergedCount ;
+	}
+
+	/**
+	 * Method to decide whether a fixation set can be merged into the pending one.
+	 * @param earlier pending {@link dataPack.FixationSet}.
+	 * @param later new {@link dataPack.FixationSet}.
+	 * @return true if the time gap and the distance between the boxes are both small enough.
+	 */
+	private boolean canMerge(FixationSet earlier, FixationSet later) {
+		if (earlier.getSampleCount() == 0 || later.getSampleCount() == 0)
+		{
+			return false ;
+		}
+		long gap = later.getStartTimeStamp() - earlier.getStopTimeStamp() ;
+		if (gap > maximumGapMillis)
+		{
+			return false ;
+		}
+		double dx = Math.max(0, Math.max(earlier.getTopLeftX(), later.getTopLeftX())
+				- Math.min(earlier.getBottomRightX(), later.getBottomRightX())) ;
+		double dy = Math.max(0, Math.max(earlier.getTopLeftY(), later.getTopLeftY())
+				- Math.min(earlier.getBottomRightY(), later.getBottomRightY())) ;
+		return dx * dx + dy * dy <= maximumDistance * maximumDistance ;
+	}
+}
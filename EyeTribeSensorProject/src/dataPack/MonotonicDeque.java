@@ -0,0 +1,123 @@
+package dataPack;
+
+/**
+ * Monotonic deque giving the minimum or the maximum of a sliding window of values in O(1) amortized time.<br><p>
+ * Values are pushed at the back with increasing sequence numbers. A pushed value first drops every value at the back
+ * which can never again be the extreme, so the front always holds the extreme of the window. When the window slides,
+ * values older than its new start are dropped from the front. Each value is pushed and dropped at most once.<br>
+ * The values live in a growable ring of primitives, so a deque which has reached its working size allocates nothing.
+ */
+class MonotonicDeque {
+
+	/**
+	 * Initial number of values the ring can hold before growing. A power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 64 ;
+
+	/**
+	 * Whether the deque keeps the maximum rather than the minimum.
+	 */
+	private final boolean maximum ;
+	/**
+	 * Sequence numbers of the values in the ring.
+	 */
+	private long[] sequences ;
+	/**
+	 * Values in the ring.
+	 */
+	private double[] values ;
+	/**
+	 * sequences.length - 1, to map a position to a slot.
+	 */
+	private int mask ;
+	/**
+	 * Position of the front value.
+	 */
+	private int head ;
+	/**
+	 * Number of values in the deque.
+	 */
+	private int size ;
+
+	/**
+	 * Constructor to initialize an empty deque.
+	 * @param maximum true to keep the maximum of the window, false to keep the minimum.
+	 */
+	MonotonicDeque(boolean maximum) {
+		this.maximum = maximum ;
+		this.sequences = new long[INITIAL_CAPACITY] ;
+		this.values = new double[INITIAL_CAPACITY] ;
+		this.mask = INITIAL_CAPACITY - 1 ;
+	}
+
+	/**
+	 * Method to add the newest value of the window.
+	 * @param sequence sequence number of the value, greater than that of any value pushed before.
+	 * @param value the value.
+	 */
+	void push(long sequence, double value) {
+		while (size > 0)
+		{
+			double back = values[(head + size - 1) & mask] ;
+			if (maximum ? back > value : back < value)
+			{
+				break ;
+			}
+			size-- ;
+		}
+		if (size == sequences.length)
+		{
+			growCapacity() ;
+		}
+		int slot = (head + size) & mask ;
+		sequences[slot] = sequence ;
+		values[slot] = value ;
+		size++ ;
+	}
+
+	/**
+	 * Method to drop the values which have left the window.
+	 * @param startSequence sequence number of the oldest value still in the window.
+	 */
+	void evictBefore(long startSequence) {
+		while (size > 0 && sequences[head] < startSequence)
+		{
+			head = (head + 1) & mask ;
+			size-- ;
+		}
+	}
+
+	/**
+	 * Method to get the extreme of the window.
+	 * @return the minimum or maximum value, NaN if the deque is empty.
+	 */
+	double peek() {
+		return size > 0 ? values[head] : Double.NaN ;
+	}
+
+	/**
+	 * Method to empty the deque, keeping its capacity.
+	 */
+	void clear() {
+		head = 0 ;
+		size = 0 ;
+	}
+
+	/**
+	 * Method to double the capacity of the ring, unwrapping its values to the start.
+	 */
+	private void growCapacity() {
+		int capacity = sequences.length ;
+		long[] newSequences = new long[capacity << 1] ;
+		double[] newValues = new double[capacity << 1] ;
+		for (int i = 0 ; i < size ; i++)
+		{
+			newSequences[i] = sequences[(head + i) & mask] ;
+			newValues[i] = values[(head + i) & mask] ;
+		}
+		sequences = newSequences ;
+		values = newValues ;
+		mask = (capacity << 1) - 1 ;
+		head = 0 ;
+	}
+}
@@ -0,0 +1,25 @@
+package dataPack;
+
+/**
+ * Policies of a {@link dataPack.QueueOfFixationSets} for a fixation set arriving while the queue is full.<br><p>
+ * The policies are the following:<br>
+ * 1. {@link dataPack.OverflowPolicy#BLOCK} waits for room, which stalls the tracker client's thread calling the
+ * producer.<br>
+ * 2. {@link dataPack.OverflowPolicy#DROP_NEWEST} drops the arriving fixation set.<br>
+ * 3. {@link dataPack.OverflowPolicy#DROP_OLDEST} drops the oldest fixation sets waiting in the queue to make room,
+ * so the consumer always gets the latest gaze.<br>
+ * 4. {@link dataPack.OverflowPolicy#COALESCE} keeps the arriving fixation set back on the producer side, and merges
+ * every further arrival into it until the queue has room again. The producer offers it again on every sample, so it
+ * does not wait for the next arrival. Nothing is lost, but the fixations of a backlog reach the consumer as one.<br>
+ * All but {@link dataPack.OverflowPolicy#BLOCK} return at once, and count what they drop or merge.
+ */
+public enum OverflowPolicy {
+
+	BLOCK,
+
+	DROP_NEWEST,
+
+	DROP_OLDEST,
+
+	COALESCE
+}
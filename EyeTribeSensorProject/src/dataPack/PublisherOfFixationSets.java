@@ -0,0 +1,170 @@
+package dataPack;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Producer side shared by the bounded hand-offs of fixation sets, which applies the {@link dataPack.OverflowPolicy}.<br><p>
+ * Subclasses provide the storage through the producer side primitives
+ * {@link dataPack.PublisherOfFixationSets#putFixationSet(FixationSet)},
+ * {@link dataPack.PublisherOfFixationSets#offerFixationSet(FixationSet)},
+ * {@link dataPack.PublisherOfFixationSets#pollOldestFixationSet()} and
+ * {@link dataPack.PublisherOfFixationSets#discardFixationSet(FixationSet)}, and
+ * {@link dataPack.PublisherOfFixationSets#addFIFOFixationSet(FixationSet)} decides which to call when the storage is
+ * full. The reading side is left to the subclasses: {@link dataPack.QueueOfFixationSets} is read directly, a
+ * {@link dataPack.BroadcastRingOfFixationSets} through its subscribers.
+ */
+public abstract class PublisherOfFixationSets implements FixationSetPublisher {
+
+	/**
+	 * {@link dataPack.OverflowPolicy} applied when the storage is full.
+	 */
+	private final OverflowPolicy overflowPolicy ;
+	/**
+	 * Number of fixation sets dropped by the {@link dataPack.PublisherOfFixationSets#overflowPolicy}.
+	 */
+	private final AtomicLong droppedCount = new AtomicLong() ;
+	/**
+	 * Number of fixation sets merged into a held back one by {@link dataPack.OverflowPolicy#COALESCE}.
+	 */
+	private final AtomicLong coalescedCount = new AtomicLong() ;
+	/**
+	 * Fixation set held back by {@link dataPack.OverflowPolicy#COALESCE} until the storage has room. Only used by
+	 * the producer.
+	 */
+	private FixationSet heldBackFixationSet ;
+
+	/**
+	 * Constructor to initialize the overflow policy.
+	 * @param overflowPolicy {@link dataPack.OverflowPolicy} applied when the storage is full.
+	 */
+	protected PublisherOfFixationSets(OverflowPolicy overflowPolicy) {
+		super();
+		this.overflowPolicy = overflowPolicy ;
+	}
+
+	/**
+	 * @param fixationSet {@link dataPack.FixationSet} which are received from the producer and published, according
+	 * to the {@link dataPack.PublisherOfFixationSets#overflowPolicy} if the storage is full. The producer must not
+	 * touch it afterwards, as it may have been dropped or merged and reused.
+	 * @throws InterruptedException if the producer is interrupted while waiting under {@link dataPack.OverflowPolicy#BLOCK}.
+	 */
+	@Override
+	public void addFIFOFixationSet(FixationSet fixationSet) throws InterruptedException
+	{
+		switch (overflowPolicy)
+		{
+		case DROP_NEWEST:
+			if (!offerFixationSet(fixationSet))
+			{
+				droppedCount.incrementAndGet() ;
+				discardFixationSet(fixationSet) ;
+			}
+			break ;
+		case DROP_OLDEST:
+			while (!offerFixationSet(fixationSet))
+			{
+				FixationSet oldestFixationSet = pollOldestFixationSet() ;
+				if (oldestFixationSet != null)
+				{
+					droppedCount.incrementAndGet() ;
+					discardFixationSet(oldestFixationSet) ;
+				}
+			}
+			break ;
+		case COALESCE:
+			if (heldBackFixationSet != null && offerFixationSet(heldBackFixationSet))
+			{
+				heldBackFixationSet = null ;
+			}
+			if (heldBackFixationSet == null)
+			{
+				if (!offerFixationSet(fixationSet))
+				{
+					heldBackFixationSet = fixationSet ;
+				}
+			}
+			else
+			{
+				heldBackFixationSet.mergeFixationSet(fixationSet) ;
+				coalescedCount.incrementAndGet() ;
+				discardFixationSet(fixationSet) ;
+			}
+			break ;
+		default:
+			putFixationSet(fixationSet) ;
+		}
+	}
+
+	/**
+	 * Method for the producer to hand on what the publisher holds back, called on every sample.<br>
+	 * Under {@link dataPack.OverflowPolicy#COALESCE}, the held back fixation set is offered again, so it reaches the
+	 * readers as soon as the storage has room rather than with the next fixation set. Other policies hold nothing back.
+	 * @param earliestStartTimeStamp earliest start in milliseconds of a fixation set the producer may still add.
+	 */
+	@Override
+	public void handOnHeldBackFixationSets(long earliestStartTimeStamp)
+	{
+		if (heldBackFixationSet != null && offerFixationSet(heldBackFixationSet))
+		{
+			heldBackFixationSet = null ;
+		}
+	}
+
+	/**
+	 * Method for the producer to add a fixation set, waiting while the storage is full.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @throws InterruptedException if the producer is interrupted while waiting.
+	 */
+	protected abstract void putFixationSet(FixationSet fixationSet) throws InterruptedException ;
+
+	/**
+	 * Method for the producer to add a fixation set if the storage has room.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @return false if the storage is full, in which case nothing is added.
+	 */
+	protected abstract boolean offerFixationSet(FixationSet fixationSet) ;
+
+	/**
+	 * Method for the producer to take the oldest fixation set out of the storage, to make room under
+	 * {@link dataPack.OverflowPolicy#DROP_OLDEST}.<br>
+	 * By default nothing can be taken back once published, and null is returned; a subclass which keeps it so must
+	 * refuse {@link dataPack.OverflowPolicy#DROP_OLDEST} when constructed.
+	 * @return oldest {@link dataPack.FixationSet}, or null if there is none to take.
+	 */
+	protected FixationSet pollOldestFixationSet()
+	{
+		return null ;
+	}
+
+	/**
+	 * Method for the producer to get rid of a fixation set which was dropped or merged.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use.
+	 */
+	protected abstract void discardFixationSet(FixationSet fixationSet) ;
+
+	/**
+	 * Method to get the {@link dataPack.PublisherOfFixationSets#overflowPolicy}.
+	 * @return {@link dataPack.PublisherOfFixationSets#overflowPolicy}
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets dropped because the storage was full.
+	 * @return number of fixation sets dropped.
+	 */
+	@Override
+	public long getDroppedCount() {
+		return droppedCount.get() ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets merged into a held back one because the storage was full.
+	 * @return number of fixation sets merged.
+	 */
+	@Override
+	public long getCoalescedCount() {
+		return coalescedCount.get() ;
+	}
+}
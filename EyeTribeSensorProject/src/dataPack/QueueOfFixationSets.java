@@ -10,42 +10,130 @@ import java.util.concurrent.BlockingQueue;
  * Succinctly, a {@link java.util.concurrent.ArrayBlockingQueue} of {@link dataPack.FixationSet}. <br>
  * We use this to have thread safety for the data from the sensor to the actual usage of it.<br>
  * As the queue is filled by the producer {@link basePack.SensorDataProducer}, 
- * the {@link basePack.SensorDataConsumer} thread consumes the fixation sets and uses them as desired.
+ * the {@link basePack.SensorDataConsumer} thread consumes the fixation sets and uses them as desired.<br>
+ * The queue is both the {@link dataPack.FixationSetPublisher} of the producer and the
+ * {@link dataPack.FixationSetReader} of its one consumer. What happens when the producer adds to a full queue is
+ * decided by the {@link dataPack.OverflowPolicy}, applied by {@link dataPack.PublisherOfFixationSets}. Subclasses 
+ * keep the policies by overriding the producer side primitives rather than 
+ * {@link dataPack.QueueOfFixationSets#addFIFOFixationSet(FixationSet)} itself.
  */
-public class QueueOfFixationSets {
+public class QueueOfFixationSets extends PublisherOfFixationSets implements FixationSetReader {
 
 	private BlockingQueue<FixationSet> queueOfFixationSets ;
 
 	/**
-	 * Constructor to initialize the queue to a specific size.
+	 * Constructor for subclasses which provide their own storage for the fixation sets and override the producer 
+	 * side primitives and {@link dataPack.QueueOfFixationSets#getFIFOFixationSet()}.
+	 * @param overflowPolicy {@link dataPack.OverflowPolicy} applied when the queue is full.
+	 */
+	protected QueueOfFixationSets(OverflowPolicy overflowPolicy) {
+		super(overflowPolicy);
+		this.queueOfFixationSets = null ;
+	}
+
+	/**
+	 * Constructor to initialize the queue to a specific size. The producer waits while the queue is full.
 	 * @param sizeOfQueue size of the queue.
 	 */
 	public QueueOfFixationSets(int sizeOfQueue) {
-		super();
-		this.queueOfFixationSets = new ArrayBlockingQueue<FixationSet>(sizeOfQueue) ;
+		this(sizeOfQueue, OverflowPolicy.BLOCK) ;
 	}
 
+	/**
+	 * Constructor to initialize the queue to a specific size and overflow policy.
+	 * @param sizeOfQueue size of the queue.
+	 * @param overflowPolicy {@link dataPack.OverflowPolicy} applied when the queue is full.
+	 */
+	public QueueOfFixationSets(int sizeOfQueue, OverflowPolicy overflowPolicy) {
+		super(overflowPolicy);
+		this.queueOfFixationSets = new ArrayBlockingQueue<FixationSet>(sizeOfQueue) ;
+	}
 
 	/**
-	 * @param fixationSet {@link dataPack.FixationSet} which are received from the producer and added to 
-	 * {@link dataPack.QueueOfFixationSets#queueOfFixationSets}
-	 * @throws InterruptedException Due to use of {@link java.util.concurrent.ArrayBlockingQueue}, this is necessary.
+	 * Method for the producer to add a fixation set, waiting while the queue is full.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @throws InterruptedException if the producer is interrupted while waiting.
 	 */
-	public void addFIFOFixationSet(FixationSet fixationSet) throws InterruptedException
+	@Override
+	protected void putFixationSet(FixationSet fixationSet) throws InterruptedException
 	{
 		queueOfFixationSets.put(fixationSet);
 	}
 
+	/**
+	 * Method for the producer to add a fixation set if the queue has room.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @return false if the queue is full, in which case nothing is added.
+	 */
+	@Override
+	protected boolean offerFixationSet(FixationSet fixationSet)
+	{
+		return queueOfFixationSets.offer(fixationSet) ;
+	}
 
+	/**
+	 * Method for the producer to take the oldest fixation set out of the queue, to make room under 
+	 * {@link dataPack.OverflowPolicy#DROP_OLDEST}.
+	 * @return oldest {@link dataPack.FixationSet}, or null if the consumer emptied the queue in the meantime.
+	 */
+	@Override
+	protected FixationSet pollOldestFixationSet()
+	{
+		return queueOfFixationSets.poll() ;
+	}
+
+	/**
+	 * Method for the producer to get rid of a fixation set which was dropped or merged.<br>
+	 * This queue does not recycle fixation sets, so the call does nothing.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use.
+	 */
+	@Override
+	protected void discardFixationSet(FixationSet fixationSet)
+	{
+	}
 
 	/**
 	 * @return {@link dataPack.FixationSet} at the head of the queue.
 	 * @throws InterruptedException Due to use of {@link java.util.concurrent.ArrayBlockingQueue}, this is necessary.
 	 */
+	@Override
 	public FixationSet getFIFOFixationSet() throws InterruptedException
 	{
 		return queueOfFixationSets.take() ;
 	}
 
+	/**
+	 * Method for the producer to get an empty {@link dataPack.FixationSet} to fill.<br>
+	 * This queue does not recycle fixation sets, so a new one is made on every call.
+	 * @param startTimeStamp start time of the fixation set in milliseconds.
+	 * @return empty {@link dataPack.FixationSet} starting at startTimeStamp.
+	 */
+	@Override
+	public FixationSet acquireFixationSet(long startTimeStamp)
+	{
+		return new FixationSet(startTimeStamp) ;
+	}
+
+	/**
+	 * Method for the consumer to hand back a {@link dataPack.FixationSet} it has finished using.<br>
+	 * The consumer must not touch the fixation set after handing it back. This queue does not recycle
+	 * fixation sets, so the call does nothing.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use by the consumer.
+	 */
+	@Override
+	public void releaseFixationSet(FixationSet fixationSet)
+	{
+	}
+
+	/**
+	 * Method to get the number of fixation sets waiting in the queue.
+	 * @return number of fixation sets waiting in the queue.
+	 */
+	@Override
+	public int size()
+	{
+		return queueOfFixationSets.size() ;
+	}
+
 
 }
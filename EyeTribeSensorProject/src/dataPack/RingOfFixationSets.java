@@ -0,0 +1,223 @@
+package dataPack;
+
+/**
+ * Lock free queue of different fixation sets for exactly one producer and one consumer thread.<br><p>
+ * A drop in replacement for {@link dataPack.QueueOfFixationSets}: the producer {@link basePack.SensorDataProducer} 
+ * and the consumer {@link basePack.SensorDataConsumer} use it through the same methods. Instead of taking a lock and 
+ * parking or unparking the other thread, each side polls a padded sequence and waits according to its 
+ * {@link dataPack.WaitStrategy}.<br>
+ * The queue also keeps a pool of pre-allocated {@link dataPack.FixationSet}s. The producer takes empty sets with 
+ * {@link dataPack.RingOfFixationSets#acquireFixationSet(long)} and the consumer hands them back with 
+ * {@link dataPack.RingOfFixationSets#releaseFixationSet(FixationSet)}, so that no fixation set is allocated in 
+ * steady state.<br>
+ * Every {@link dataPack.OverflowPolicy} is supported. Under {@link dataPack.OverflowPolicy#DROP_OLDEST} the producer 
+ * may take the oldest fixation set out of the ring as well, so both sides then claim slots with a compare and set. 
+ * Dropped and merged fixation sets are kept by the producer for its next 
+ * {@link dataPack.RingOfFixationSets#acquireFixationSet(long)}, as only the consumer hands sets back to the pool.
+ */
+public class RingOfFixationSets extends QueueOfFixationSets {
+
+	/**
+	 * Ring carrying finished fixation sets from the producer to the consumer.
+	 */
+	private final SpscSlots handOffSlots ;
+	/**
+	 * Ring carrying used fixation sets back from the consumer to the producer.
+	 */
+	private final SpscSlots poolSlots ;
+	/**
+	 * {@link dataPack.WaitStrategy} used by the producer when the queue is full.
+	 */
+	private final WaitStrategy producerWaitStrategy ;
+	/**
+	 * {@link dataPack.WaitStrategy} used by the consumer when the queue is empty.
+	 */
+	private final WaitStrategy consumerWaitStrategy ;
+	/**
+	 * Fixation set dropped or merged by the producer, reused by its next acquire. Only used by the producer.
+	 */
+	private FixationSet spareFixationSet ;
+
+	/**
+	 * Constructor to initialize the queue to a specific size, with both sides parking while waiting.
+	 * @param sizeOfQueue minimum size of the queue, rounded up to a power of two.
+	 */
+	public RingOfFixationSets(int sizeOfQueue) {
+		this(sizeOfQueue, WaitStrategy.PARK, WaitStrategy.PARK) ;
+	}
+
+	/**
+	 * Constructor to initialize the queue to a specific size and overflow policy, with both sides parking while waiting.
+	 * @param sizeOfQueue minimum size of the queue, rounded up to a power of two.
+	 * @param overflowPolicy {@link dataPack.OverflowPolicy} applied when the queue is full.
+	 */
+	public RingOfFixationSets(int sizeOfQueue, OverflowPolicy overflowPolicy) {
+		this(sizeOfQueue, FixationSet.INITIAL_CAPACITY, WaitStrategy.PARK, WaitStrategy.PARK, overflowPolicy) ;
+	}
+
+	/**
+	 * Constructor to initialize the queue to a specific size and wait strategies.
+	 * @param sizeOfQueue minimum size of the queue, rounded up to a power of two.
+	 * @param producerWaitStrategy {@link dataPack.WaitStrategy} used by the producer when the queue is full.
+	 * @param consumerWaitStrategy {@link dataPack.WaitStrategy} used by the consumer when the queue is empty.
+	 */
+	public RingOfFixationSets(int sizeOfQueue, WaitStrategy producerWaitStrategy, WaitStrategy consumerWaitStrategy) {
+		this(sizeOfQueue, FixationSet.INITIAL_CAPACITY, producerWaitStrategy, consumerWaitStrategy) ;
+	}
+
+	/**
+	 * Constructor to initialize the queue to a specific size and wait strategies, with pooled fixation sets 
+	 * pre-sized to hold a given number of samples.<br>
+	 * The pool is filled with enough fixation sets for a full queue, plus the one being filled by the producer 
+	 * and the one being used by the consumer.
+	 * @param sizeOfQueue minimum size of the queue, rounded up to a power of two.
+	 * @param samplesPerFixationSet number of samples each pooled {@link dataPack.FixationSet} can hold before growing.
+	 * @param producerWaitStrategy {@link dataPack.WaitStrategy} used by the producer when the queue is full.
+	 * @param consumerWaitStrategy {@link dataPack.WaitStrategy} used by the consumer when the queue is empty.
+	 */
+	public RingOfFixationSets(int sizeOfQueue, int samplesPerFixationSet, 
+			WaitStrategy producerWaitStrategy, WaitStrategy consumerWaitStrategy) {
+		this(sizeOfQueue, samplesPerFixationSet, producerWaitStrategy, consumerWaitStrategy, OverflowPolicy.BLOCK) ;
+	}
+
+	/**
+	 * Constructor to initialize the queue to a specific size, wait strategies and overflow policy, with pooled 
+	 * fixation sets pre-sized to hold a given number of samples.<br>
+	 * The pool is filled with enough fixation sets for a full queue, plus the one being filled by the producer 
+	 * and the one being used by the consumer.
+	 * @param sizeOfQueue minimum size of the queue, rounded up to a power of two.
+	 * @param samplesPerFixationSet number of samples each pooled {@link dataPack.FixationSet} can hold before growing.
+	 * @param producerWaitStrategy {@link dataPack.WaitStrategy} used by the producer when the queue is full under 
+	 * {@link dataPack.OverflowPolicy#BLOCK}.
+	 * @param consumerWaitStrategy {@link dataPack.WaitStrategy} used by the consumer when the queue is empty.
+	 * @param overflowPolicy {@link dataPack.OverflowPolicy} applied when the queue is full.
+	 */
+	public RingOfFixationSets(int sizeOfQueue, int samplesPerFixationSet, 
+			WaitStrategy producerWaitStrategy, WaitStrategy consumerWaitStrategy, OverflowPolicy overflowPolicy) {
+		super(overflowPolicy);
+		this.handOffSlots = new SpscSlots(sizeOfQueue, overflowPolicy == OverflowPolicy.DROP_OLDEST) ;
+		int sizeOfPool = this.handOffSlots.capacity() + 2 ;
+		this.poolSlots = new SpscSlots(sizeOfPool) ;
+		for (int i = 0 ; i < sizeOfPool ; i++)
+		{
+			this.poolSlots.offer(new FixationSet(0, samplesPerFixationSet)) ;
+		}
+		this.producerWaitStrategy = producerWaitStrategy ;
+		this.consumerWaitStrategy = consumerWaitStrategy ;
+	}
+
+	/**
+	 * Method for the producer to add a fixation set, waiting according to the producer {@link dataPack.WaitStrategy}
+	 * while the queue is full.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @throws InterruptedException if the producer is interrupted while waiting.
+	 */
+	@Override
+	protected void putFixationSet(FixationSet fixationSet) throws InterruptedException
+	{
+		while (!handOffSlots.offer(fixationSet))
+		{
+			producerWaitStrategy.idle() ;
+		}
+	}
+
+	/**
+	 * Method for the producer to add a fixation set if the queue has room.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @return false if the queue is full, in which case nothing is added.
+	 */
+	@Override
+	protected boolean offerFixationSet(FixationSet fixationSet)
+	{
+		return handOffSlots.offer(fixationSet) ;
+	}
+
+	/**
+	 * Method for the producer to take the oldest fixation set out of the queue under 
+	 * {@link dataPack.OverflowPolicy#DROP_OLDEST}.
+	 * @return oldest {@link dataPack.FixationSet}, or null if the consumer emptied the queue in the meantime.
+	 */
+	@Override
+	protected FixationSet pollOldestFixationSet()
+	{
+		return handOffSlots.pollOldestFromProducer() ;
+	}
+
+	/**
+	 * Method for the producer to keep a dropped or merged fixation set for its next acquire. If it already keeps 
+	 * one, the fixation set is left to the garbage collector.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use.
+	 */
+	@Override
+	protected void discardFixationSet(FixationSet fixationSet)
+	{
+		if (spareFixationSet == null)
+		{
+			spareFixationSet = fixationSet ;
+		}
+	}
+
+	/**
+	 * @return {@link dataPack.FixationSet} at the head of the queue. Waits according to the consumer 
+	 * {@link dataPack.WaitStrategy} while the queue is empty.
+	 * @throws InterruptedException if the consumer is interrupted while waiting.
+	 */
+	@Override
+	public FixationSet getFIFOFixationSet() throws InterruptedException
+	{
+		FixationSet fixationSet ;
+		while ((fixationSet = handOffSlots.poll()) == null)
+		{
+			consumerWaitStrategy.idle() ;
+		}
+		return fixationSet ;
+	}
+
+	/**
+	 * Method for the producer to get an empty {@link dataPack.FixationSet} to fill.<br>
+	 * A fixation set dropped by the producer or handed back by the consumer is reused when one is available, 
+	 * otherwise a new one is made.
+	 * @param startTimeStamp start time of the fixation set in milliseconds.
+	 * @return empty {@link dataPack.FixationSet} starting at startTimeStamp.
+	 */
+	@Override
+	public FixationSet acquireFixationSet(long startTimeStamp)
+	{
+		FixationSet fixationSet = spareFixationSet ;
+		if (fixationSet != null)
+		{
+			spareFixationSet = null ;
+			fixationSet.reset(startTimeStamp) ;
+			return fixationSet ;
+		}
+		fixationSet = poolSlots.poll() ;
+		if (fixationSet == null)
+		{
+			return new FixationSet(startTimeStamp) ;
+		}
+		fixationSet.reset(startTimeStamp) ;
+		return fixationSet ;
+	}
+
+	/**
+	 * Method for the consumer to hand back a {@link dataPack.FixationSet} it has finished using.<br>
+	 * The consumer must not touch the fixation set after handing it back. If the pool is already full, the 
+	 * fixation set is left to the garbage collector.
+	 * @param fixationSet {@link dataPack.FixationSet} no longer in use by the consumer.
+	 */
+	@Override
+	public void releaseFixationSet(FixationSet fixationSet)
+	{
+		poolSlots.offer(fixationSet) ;
+	}
+
+	/**
+	 * Method to get an estimate of the number of fixation sets waiting in the queue.
+	 * @return number of fixation sets waiting in the queue.
+	 */
+	@Override
+	public int size()
+	{
+		return handOffSlots.size() ;
+	}
+}
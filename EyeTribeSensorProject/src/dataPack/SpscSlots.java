@@ -0,0 +1,209 @@
+package dataPack;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Non blocking single producer, single consumer ring of {@link dataPack.FixationSet} slots.<br><p>
+ * Exactly one thread may call {@link dataPack.SpscSlots#offer(FixationSet)} and exactly one other thread may call
+ * {@link dataPack.SpscSlots#poll()}. The read and write sequences sit on their own cache lines, and each side keeps
+ * a cached copy of the other side's sequence next to its own, so the shared lines are only read when the ring looks
+ * full or empty.<br>
+ * A ring made with shared reads also lets the producer take the oldest fixation set out with
+ * {@link dataPack.SpscSlots#pollOldestFromProducer()}. Both takers then claim a slot by compare and set on the read
+ * sequence, and slots are not cleared after being read, as the producer may already be refilling them.
+ */
+class SpscSlots {
+
+	/**
+	 * Slots of the ring. The length is a power of two.
+	 */
+	private final FixationSet[] slots ;
+	/**
+	 * slots.length - 1, to map a sequence to a slot.
+	 */
+	private final int mask ;
+	/**
+	 * Sequence of the next slot to be read, written by the consumer.
+	 * Its {@link dataPack.SpscSlots.PaddedSequence#cache} holds the consumer's last seen write sequence.
+	 */
+	private final PaddedSequence readSequence ;
+	/**
+	 * Sequence of the next slot to be written, written by the producer.
+	 * Its {@link dataPack.SpscSlots.PaddedSequence#cache} holds the producer's last seen read sequence.
+	 */
+	private final PaddedSequence writeSequence ;
+	/**
+	 * Whether the producer may also take fixation sets out of the ring.
+	 */
+	private final boolean sharedReads ;
+
+	/**
+	 * Constructor to initialize the ring with at least the given number of slots, read by the consumer only.
+	 * @param minimumCapacity minimum number of slots, rounded up to a power of two.
+	 */
+	SpscSlots(int minimumCapacity) {
+		this(minimumCapacity, false) ;
+	}
+
+	/**
+	 * Constructor to initialize the ring with at least the given number of slots.
+	 * @param minimumCapacity minimum number of slots, rounded up to a power of two.
+	 * @param sharedReads true to let the producer take the oldest fixation set out as well.
+	 */
+	SpscSlots(int minimumCapacity, boolean sharedReads) {
+		if (minimumCapacity < 1)
+		{
+			throw new IllegalArgumentException("Capacity must be positive: " + minimumCapacity) ;
+		}
+		int capacity = Integer.highestOneBit(minimumCapacity) ;
+		if (capacity < minimumCapacity)
+		{
+			capacity <<= 1 ;
+		}
+		this.slots = new FixationSet[capacity] ;
+		this.mask = capacity - 1 ;
+		this.readSequence = new PaddedSequence() ;
+		this.writeSequence = new PaddedSequence() ;
+		this.sharedReads = sharedReads ;
+	}
+
+	/**
+	 * Method to get the number of slots of the ring.
+	 * @return number of slots.
+	 */
+	int capacity() {
+		return slots.length ;
+	}
+
+	/**
+	 * Method for the producer to put a fixation set in the ring.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @return false if the ring is full, in which case nothing is added.
+	 */
+	boolean offer(FixationSet fixationSet) {
+		long write = writeSequence.value ;
+		if (write - writeSequence.cache >= slots.length)
+		{
+			writeSequence.cache = readSequence.value ;
+			if (write - writeSequence.cache >= slots.length)
+			{
+				return false ;
+			}
+		}
+		slots[(int) write & mask] = fixationSet ;
+		writeSequence.lazySet(write + 1) ;
+		return true ;
+	}
+
+	/**
+	 * Method for the consumer to take the oldest fixation set out of the ring.
+	 * @return oldest {@link dataPack.FixationSet}, or null if the ring is empty.
+	 */
+	FixationSet poll() {
+		long read = readSequence.value ;
+		if (read >= readSequence.cache)
+		{
+			readSequence.cache = writeSequence.value ;
+			if (read >= readSequence.cache)
+			{
+				return null ;
+			}
+		}
+		int index = (int) read & mask ;
+		FixationSet fixationSet = slots[index] ;
+		if (sharedReads)
+		{
+			while (!readSequence.compareAndSet(read, read + 1))
+			{
+				read = readSequence.value ;
+				if (read >= writeSequence.value)
+				{
+					return null ;
+				}
+				fixationSet = slots[(int) read & mask] ;
+			}
+			return fixationSet ;
+		}
+		slots[index] = null ;
+		readSequence.lazySet(read + 1) ;
+		return fixationSet ;
+	}
+
+	/**
+	 * Method for the producer to take the oldest fixation set out of a ring made with shared reads.
+	 * @return oldest {@link dataPack.FixationSet}, or null if the ring is empty.
+	 */
+	FixationSet pollOldestFromProducer() {
+		if (!sharedReads)
+		{
+			throw new IllegalStateException("Ring is read by the consumer only") ;
+		}
+		long read ;
+		FixationSet fixationSet ;
+		do
+		{
+			read = readSequence.value ;
+			if (read >= writeSequence.value)
+			{
+				return null ;
+			}
+			fixationSet = slots[(int) read & mask] ;
+		} while (!readSequence.compareAndSet(read, read + 1)) ;
+		return fixationSet ;
+	}
+
+	/**
+	 * Method to get an estimate of the number of fixation sets in the ring, from any thread.
+	 * @return number of fixation sets in the ring.
+	 */
+	int size() {
+		long read = readSequence.value ;
+		long write = writeSequence.value ;
+		return (int) Math.max(0, write - read) ;
+	}
+
+	/**
+	 * Padding in front of {@link dataPack.SpscSlots.PaddedSequence#value} so that it does not share a cache line
+	 * with whatever was allocated before it.
+	 */
+	static class LeftPadding {
+		long p01, p02, p03, p04, p05, p06, p07 ;
+	}
+
+	/**
+	 * The sequence value, together with a cached copy of the other side's sequence owned by the same writer.
+	 */
+	static class SequenceValue extends LeftPadding {
+		volatile long value ;
+		long cache ;
+	}
+
+	/**
+	 * Sequence padded on both sides up to a full cache line.
+	 */
+	static final class PaddedSequence extends SequenceValue {
+
+		private static final AtomicLongFieldUpdater<SequenceValue> VALUE_UPDATER =
+				AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value") ;
+
+		long p11, p12, p13, p14, p15, p16 ;
+
+		/**
+		 * Method to publish a new value with store ordering only, which is enough for a single writer.
+		 * @param newValue value to publish.
+		 */
+		void lazySet(long newValue) {
+			VALUE_UPDATER.lazySet(this, newValue) ;
+		}
+
+		/**
+		 * Method to move the value on only if no other thread has moved it since it was read.
+		 * @param expectedValue value read before.
+		 * @param newValue value to publish.
+		 * @return true if the value was moved on.
+		 */
+		boolean compareAndSet(long expectedValue, long newValue) {
+			return VALUE_UPDATER.compareAndSet(this, expectedValue, newValue) ;
+		}
+	}
+}
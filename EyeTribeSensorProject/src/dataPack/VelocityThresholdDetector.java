@@ -0,0 +1,119 @@
+package dataPack;
+
+/**
+ * {@link dataPack.FixationDetector} implementing the velocity threshold (I-VT) algorithm.<br><p>
+ * The velocity of a sample is the distance from the previous sample divided by the time between them. The detector
+ * works as follows:<br>
+ * 1. A sample at or below the threshold joins the run of slow samples, and a fast one drops the run.<br>
+ * 2. Once the run spans the minimum duration, a fixation is recognised.<br>
+ * 3. Inside a fixation, the first fast sample ends it.<br>
+ * Samples with the same time stamp as the previous one, common at high frame rates with millisecond time stamps,
+ * keep the classification of the previous sample. Each sample costs O(1) time.
+ */
+public class VelocityThresholdDetector extends FixationDetector {
+
+	/**
+	 * Default maximum velocity of a fixation in pixels per second.
+	 */
+	public static final double DEFAULT_MAXIMUM_VELOCITY = 1000 ;
+	/**
+	 * Default minimum duration of a fixation in milliseconds.
+	 */
+	public static final long DEFAULT_MINIMUM_DURATION_MILLIS = 100 ;
+
+	/**
+	 * Maximum velocity of a fixation in pixels per millisecond.
+	 */
+	private final double maximumVelocityPerMilli ;
+	/**
+	 * Whether a previous sample has been seen.
+	 */
+	private boolean hasPrevious ;
+	/**
+	 * Coordinates of the previous sample.
+	 */
+	private double previousX , previousY ;
+	/**
+	 * Time stamp of the previous sample in milliseconds.
+	 */
+	private long previousTimeStamp ;
+	/**
+	 * Whether the previous sample was slow.
+	 */
+	private boolean previousSlow ;
+
+	/**
+	 * Constructor to initialize the detector with the default thresholds.
+	 */
+	public VelocityThresholdDetector() {
+		this(DEFAULT_MAXIMUM_VELOCITY, DEFAULT_MINIMUM_DURATION_MILLIS) ;
+	}
+
+	/**
+	 * Constructor to initialize the detector.
+	 * @param maximumVelocity maximum velocity of a fixation in pixels per second.
+	 * @param minimumDurationMillis minimum duration of a fixation in milliseconds.
+	 */
+	public VelocityThresholdDetector(double maximumVelocity, long minimumDurationMillis) {
+		super(minimumDurationMillis) ;
+		if (!(maximumVelocity >= 0))
+		{
+			throw new IllegalArgumentException("Invalid maximum velocity: " + maximumVelocity) ;
+		}
+		this.maximumVelocityPerMilli = maximumVelocity / 1000 ;
+	}
+
+	@Override
+	public int addSample(double x, double y, int state, long timeStamp) {
+		boolean slow ;
+		if (!hasPrevious)
+		{
+			slow = true ;
+		}
+		else if (timeStamp <= previousTimeStamp)
+		{
+			slow = previousSlow ;
+		}
+		else
+		{
+			double dx = x - previousX ;
+			double dy = y - previousY ;
+			double maximumDistance = maximumVelocityPerMilli * (timeStamp - previousTimeStamp) ;
+			slow = dx * dx + dy * dy <= maximumDistance * maximumDistance ;
+		}
+		hasPrevious = true ;
+		previousX = x ;
+		previousY = y ;
+		previousTimeStamp = timeStamp ;
+		previousSlow = slow ;
+
+		if (inFixation)
+		{
+			if (slow)
+			{
+				return FIXATION_CONTINUED ;
+			}
+			inFixation = false ;
+			clearPendingSamples() ;
+			return FIXATION_ENDED ;
+		}
+		if (!slow)
+		{
+			clearPendingSamples() ;
+			return 0 ;
+		}
+		addPendingSample(x, y, state, timeStamp) ;
+		if (pendingSamplesLastLongEnough(timeStamp))
+		{
+			inFixation = true ;
+			return FIXATION_STARTED ;
+		}
+		return 0 ;
+	}
+
+	@Override
+	public void reset() {
+		super.reset() ;
+		hasPrevious = false ;
+	}
+}
@@ -0,0 +1,59 @@
+package dataPack;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategies for a thread waiting on a {@link dataPack.RingOfFixationSets}.<br><p>
+ * The ring never signals a waiting thread, so each strategy simply decides what to do between two checks:<br>
+ * 1. {@link dataPack.WaitStrategy#BUSY_SPIN} keeps the core busy and gives the lowest hand-off latency. Only use it when
+ * the producer and the consumer each have a core of their own.<br>
+ * 2. {@link dataPack.WaitStrategy#YIELD} lets other threads run on the core between checks.<br>
+ * 3. {@link dataPack.WaitStrategy#PARK} sleeps for {@link dataPack.WaitStrategy#PARK_NANOS} between checks and
+ * keeps the CPU usage low, at the cost of latency.<br>
+ * All strategies throw {@link java.lang.InterruptedException} when the waiting thread is interrupted.
+ */
+public enum WaitStrategy {
+
+	BUSY_SPIN {
+		@Override
+		void idle() throws InterruptedException {
+			checkInterrupted() ;
+		}
+	},
+	YIELD {
+		@Override
+		void idle() throws InterruptedException {
+			checkInterrupted() ;
+			Thread.yield() ;
+		}
+	},
+	PARK {
+		@Override
+		void idle() throws InterruptedException {
+			checkInterrupted() ;
+			LockSupport.parkNanos(PARK_NANOS) ;
+		}
+	};
+
+	/**
+	 * Time in nanoseconds a {@link dataPack.WaitStrategy#PARK} waiter sleeps between two checks.
+	 */
+	public static final long PARK_NANOS = 50000L ;
+
+	/**
+	 * Method called once per failed check while waiting.
+	 * @throws InterruptedException if the waiting thread has been interrupted.
+	 */
+	abstract void idle() throws InterruptedException ;
+
+	/**
+	 * Method to throw if the current thread has been interrupted, clearing the interrupt flag.
+	 * @throws InterruptedException if the current thread has been interrupted.
+	 */
+	static void checkInterrupted() throws InterruptedException {
+		if (Thread.interrupted())
+		{
+			throw new InterruptedException() ;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package filterPack;
+
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+/**
+ * Stage filtering the gaze before the fixations are looked for.<br><p>
+ * The stage is an {@link com.theeyetribe.client.IGazeListener} placed in front of a downstream listener such as
+ * {@link basePack.SensorDataProducer}, like {@link recordPack.GazeRecorder} is. For every frame, it does the
+ * following:<br>
+ * 1. Reads the smoothed or the raw coordinates, as chosen by its {@link filterPack.GazeCoordinateSource}.<br>
+ * 2. Runs them through its {@link filterPack.GazeFilter}.<br>
+ * 3. Passes on a frame carrying the filtered position as its smoothed coordinates, and everything else of the
+ * original frame.<br>
+ * The frame passed on is one reused copy, so the original frame is left untouched for other listeners and nothing is
+ * allocated. Frames in which the tracker does not see the gaze are passed on unfiltered, and reset the filter, so the
+ * position before a blink does not drag on the position after it.<br>
+ * Like the producer, the stage is called from the thread of the {@link com.theeyetribe.client.GazeManager} only.
+ */
+public class FilteringGazeListener implements IGazeListener {
+
+	/**
+	 * {@link filterPack.GazeFilter} run on every frame.
+	 */
+	private final GazeFilter gazeFilter ;
+	/**
+	 * Coordinates of the frames which are filtered.
+	 */
+	private final GazeCoordinateSource coordinateSource ;
+	/**
+	 * Listener to which every frame is passed on, or null.
+	 */
+	private final IGazeListener downstreamListener ;
+	/**
+	 * Frame passed on, reused for every frame.
+	 */
+	private final GazeData filteredGazeData = new GazeData() ;
+	/**
+	 * Smoothed coordinates of {@link filterPack.FilteringGazeListener#filteredGazeData}.
+	 */
+	private final Point2D filteredCoordinates = new Point2D() ;
+
+	/**
+	 * Constructor to put the filter in front of a listener.
+	 * @param gazeFilter {@link filterPack.GazeFilter} run on every frame.
+	 * @param coordinateSource {@link filterPack.GazeCoordinateSource} of the frames to be filtered.
+	 * @param downstreamListener listener to which every frame is passed on, or null.
+	 */
+	public FilteringGazeListener(GazeFilter gazeFilter, GazeCoordinateSource coordinateSource,
+			IGazeListener downstreamListener) {
+		super();
+		this.gazeFilter = gazeFilter ;
+		this.coordinateSource = coordinateSource ;
+		this.downstreamListener = downstreamListener ;
+	}
+
+	@Override
+	public void onGazeUpdate(GazeData gazeData) {
+		Point2D coordinates = coordinateSource == GazeCoordinateSource.RAW ? gazeData.rawCoordinates
+				: gazeData.smoothedCoordinates ;
+		boolean tracking = coordinates != null && gazeData.timeStamp != null && gazeData.state != null
+				&& (gazeData.state & GazeData.STATE_TRACKING_GAZE) != 0 ;
+		if (!tracking)
+		{
+			gazeFilter.reset() ;
+			if (downstreamListener != null)
+			{
+				downstreamListener.onGazeUpdate(gazeData) ;
+			}
+			return ;
+		}
+		gazeFilter.update(coordinates.x, coordinates.y, gazeData.timeStamp) ;
+		filteredCoordinates.x = gazeFilter.getX() ;
+		filteredCoordinates.y = gazeFilter.getY() ;
+		filteredGazeData.state = gazeData.state ;
+		filteredGazeData.timeStamp = gazeData.timeStamp ;
+		filteredGazeData.timeStampString = gazeData.timeStampString ;
+		filteredGazeData.rawCoordinates = gazeData.rawCoordinates ;
+		filteredGazeData.smoothedCoordinates = filteredCoordinates ;
+		filteredGazeData.leftEye = gazeData.leftEye ;
+		filteredGazeData.rightEye = gazeData.rightEye ;
+		filteredGazeData.isFixated = gazeData.isFixated ;
+		if (downstreamListener != null)
+		{
+			downstreamListener.onGazeUpdate(filteredGazeData) ;
+		}
+	}
+
+	/**
+	 * Method to get the {@link filterPack.FilteringGazeListener#gazeFilter}.
+	 * @return {@link filterPack.FilteringGazeListener#gazeFilter}
+	 */
+	public GazeFilter getGazeFilter() {
+		return gazeFilter ;
+	}
+}
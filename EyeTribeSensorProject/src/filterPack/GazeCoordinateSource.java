@@ -0,0 +1,15 @@
+package filterPack;
+
+/**
+ * Coordinates of a {@link com.theeyetribe.client.data.GazeData} read by a {@link filterPack.FilteringGazeListener}.<br><p>
+ * 1. {@link filterPack.GazeCoordinateSource#SMOOTHED} reads the tracker's own smoothed coordinates, to filter them
+ * further.<br>
+ * 2. {@link filterPack.GazeCoordinateSource#RAW} reads the raw coordinates, so that the filter replaces the tracker's
+ * smoothing.
+ */
+public enum GazeCoordinateSource {
+
+	SMOOTHED,
+
+	RAW
+}
@@ -0,0 +1,104 @@
+package filterPack;
+
+/**
+ * Base class of the filters smoothing the gaze coordinates before the fixations are looked for.<br><p>
+ * A filter is used in one of two ways:<br>
+ * 1. Streaming, one sample at a time through {@link filterPack.GazeFilter#update(double, double, long)}, after which
+ * the filtered position is read from {@link filterPack.GazeFilter#getX()} and {@link filterPack.GazeFilter#getY()}.
+ * This is what {@link filterPack.FilteringGazeListener} does for the live gaze.<br>
+ * 2. In batch, over whole columns of recorded samples through
+ * {@link filterPack.GazeFilter#filter(double[], double[], long[], int, double[], double[])}, for offline
+ * reprocessing.<br>
+ * The state of a filter lives in primitive fields and arrays sized at construction, so neither way allocates. Time
+ * stamps are in milliseconds, as sent by the tracker. A filter belongs to one thread at a time.
+ */
+public abstract class GazeFilter {
+
+	/**
+	 * Time step in seconds assumed when two samples carry the same time stamp, or for the first sample.
+	 */
+	protected static final double DEFAULT_TIME_STEP = 1.0 / 30 ;
+
+	/**
+	 * x and y coordinates of the filtered position after the last sample, respectively.
+	 */
+	protected double filteredX , filteredY ;
+
+	/**
+	 * Method to filter the next sample.
+	 * @param x x coordinate of the sample.
+	 * @param y y coordinate of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	public abstract void update(double x, double y, long timeStamp) ;
+
+	/**
+	 * Method to forget all samples, as if the filter were new.
+	 */
+	public abstract void reset() ;
+
+	/**
+	 * Method to filter whole columns of samples, starting from a reset filter. The filter is left in the state after
+	 * the last sample, so a recording can be filtered in consecutive chunks by calling
+	 * {@link filterPack.GazeFilter#continueFilter(double[], double[], long[], int, double[], double[])} for the
+	 * following ones.
+	 * @param x x coordinates of the samples.
+	 * @param y y coordinates of the samples.
+	 * @param timeStamps time stamps of the samples in milliseconds.
+	 * @param count number of samples, from the start of the columns.
+	 * @param filteredXs receives the filtered x coordinates, may be x itself.
+	 * @param filteredYs receives the filtered y coordinates, may be y itself.
+	 */
+	public void filter(double[] x, double[] y, long[] timeStamps, int count, double[] filteredXs, double[] filteredYs) {
+		reset() ;
+		continueFilter(x, y, timeStamps, count, filteredXs, filteredYs) ;
+	}
+
+	/**
+	 * Method to filter whole columns of samples following those already filtered.<br>
+	 * The default runs {@link filterPack.GazeFilter#update(double, double, long)} on every sample. A filter may
+	 * override it to run each axis as one tight loop over its column.
+	 * @param x x coordinates of the samples.
+	 * @param y y coordinates of the samples.
+	 * @param timeStamps time stamps of the samples in milliseconds.
+	 * @param count number of samples, from the start of the columns.
+	 * @param filteredXs receives the filtered x coordinates, may be x itself.
+	 * @param filteredYs receives the filtered y coordinates, may be y itself.
+	 */
+	public void continueFilter(double[] x, double[] y, long[] timeStamps, int count, double[] filteredXs,
+			double[] filteredYs) {
+		for (int i = 0 ; i < count ; i++)
+		{
+			update(x[i], y[i], timeStamps[i]) ;
+			filteredXs[i] = filteredX ;
+			filteredYs[i] = filteredY ;
+		}
+	}
+
+	/**
+	 * Method to get the {@link filterPack.GazeFilter#filteredX}.
+	 * @return {@link filterPack.GazeFilter#filteredX}
+	 */
+	public double getX() {
+		return filteredX ;
+	}
+
+	/**
+	 * Method to get the {@link filterPack.GazeFilter#filteredY}.
+	 * @return {@link filterPack.GazeFilter#filteredY}
+	 */
+	public double getY() {
+		return filteredY ;
+	}
+
+	/**
+	 * Method to get the time step between two samples.
+	 * @param previousTimeStamp time stamp of the previous sample in milliseconds.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 * @return time step in seconds, {@link filterPack.GazeFilter#DEFAULT_TIME_STEP} if it is not positive.
+	 */
+	protected static double timeStep(long previousTimeStamp, long timeStamp) {
+		long millis = timeStamp - previousTimeStamp ;
+		return millis > 0 ? millis / 1000.0 : DEFAULT_TIME_STEP ;
+	}
+}
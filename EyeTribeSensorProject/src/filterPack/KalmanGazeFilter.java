@@ -0,0 +1,168 @@
+package filterPack;
+
+/**
+ * Kalman filter of the gaze, with one independent filter per axis.<br><p>
+ * Two models of the gaze are offered:<br>
+ * 1. {@link filterPack.KalmanGazeFilter#POSITION}, a one dimensional state per axis, the position, which wanders at
+ * random between samples. It smooths like an adaptive moving average.<br>
+ * 2. {@link filterPack.KalmanGazeFilter#POSITION_AND_VELOCITY}, a two dimensional state per axis, the position and
+ * its velocity, whose acceleration is random. It lags less behind a moving gaze.<br>
+ * The process noise sets how fast the gaze is expected to change, the measurement noise how much the tracker jitters.
+ * The covariance of each axis is kept in three primitive fields, as it is symmetric.
+ */
+public class KalmanGazeFilter extends GazeFilter {
+
+	/**
+	 * Model with the position alone as the state, the process noise in square pixels per second.
+	 */
+	public static final int POSITION = 1 ;
+	/**
+	 * Model with the position and the velocity as the state, the process noise in square pixels per cubed second.
+	 */
+	public static final int POSITION_AND_VELOCITY = 2 ;
+	/**
+	 * Default variance of the tracker jitter in square pixels.
+	 */
+	public static final double DEFAULT_MEASUREMENT_NOISE = 100 ;
+	/**
+	 * Default process noise of the {@link filterPack.KalmanGazeFilter#POSITION} model.
+	 */
+	public static final double DEFAULT_POSITION_NOISE = 5000 ;
+	/**
+	 * Default process noise of the {@link filterPack.KalmanGazeFilter#POSITION_AND_VELOCITY} model.
+	 */
+	public static final double DEFAULT_ACCELERATION_NOISE = 500000 ;
+
+	/**
+	 * Number of state dimensions per axis, {@link filterPack.KalmanGazeFilter#POSITION} or
+	 * {@link filterPack.KalmanGazeFilter#POSITION_AND_VELOCITY}.
+	 */
+	private final int model ;
+	private final double processNoise ;
+	private final double measurementNoise ;
+	/**
+	 * Velocities of the axes in pixels per second, always 0 in the position model.
+	 */
+	private double velocityX , velocityY ;
+	/**
+	 * Covariance of the x axis: variance of the position, covariance of position and velocity, variance of the
+	 * velocity.
+	 */
+	private double covarianceXPP , covarianceXPV , covarianceXVV ;
+	/**
+	 * Covariance of the y axis, as for the x axis.
+	 */
+	private double covarianceYPP , covarianceYPV , covarianceYVV ;
+	private long previousTimeStamp ;
+	/**
+	 * Whether a sample has been filtered since the last reset.
+	 */
+	private boolean started ;
+
+	/**
+	 * Constructor to initialize the filter with the default noises of a model.
+	 * @param model {@link filterPack.KalmanGazeFilter#POSITION} or
+	 * {@link filterPack.KalmanGazeFilter#POSITION_AND_VELOCITY}.
+	 */
+	public KalmanGazeFilter(int model) {
+		this(model, model == POSITION ? DEFAULT_POSITION_NOISE : DEFAULT_ACCELERATION_NOISE, DEFAULT_MEASUREMENT_NOISE) ;
+	}
+
+	/**
+	 * Constructor to initialize the filter.
+	 * @param model {@link filterPack.KalmanGazeFilter#POSITION} or
+	 * {@link filterPack.KalmanGazeFilter#POSITION_AND_VELOCITY}.
+	 * @param processNoise spectral density of the random part of the model.
+	 * @param measurementNoise variance of the tracker jitter in square pixels.
+	 */
+	public KalmanGazeFilter(int model, double processNoise, double measurementNoise) {
+		super();
+		if ((model != POSITION && model != POSITION_AND_VELOCITY) || !(processNoise > 0) || !(measurementNoise > 0))
+		{
+			throw new IllegalArgumentException("Invalid Kalman parameters") ;
+		}
+		this.model = model ;
+		this.processNoise = processNoise ;
+		this.measurementNoise = measurementNoise ;
+	}
+
+	@Override
+	public void update(double x, double y, long timeStamp) {
+		if (!started)
+		{
+			filteredX = x ;
+			filteredY = y ;
+			velocityX = velocityY = 0 ;
+			covarianceXPP = covarianceYPP = measurementNoise ;
+			covarianceXPV = covarianceYPV = 0 ;
+			covarianceXVV = covarianceYVV = model == POSITION ? 0 : measurementNoise * 100 ;
+			previousTimeStamp = timeStamp ;
+			started = true ;
+			return ;
+		}
+		double timeStep = timeStep(previousTimeStamp, timeStamp) ;
+		previousTimeStamp = timeStamp ;
+		if (model == POSITION)
+		{
+			covarianceXPP += processNoise * timeStep ;
+			double gainX = covarianceXPP / (covarianceXPP + measurementNoise) ;
+			filteredX += gainX * (x - filteredX) ;
+			covarianceXPP *= 1 - gainX ;
+			covarianceYPP += processNoise * timeStep ;
+			double gainY = covarianceYPP / (covarianceYPP + measurementNoise) ;
+			filteredY += gainY * (y - filteredY) ;
+			covarianceYPP *= 1 - gainY ;
+			return ;
+		}
+		double q11 = processNoise * timeStep ;
+		double q01 = q11 * timeStep / 2 ;
+		double q00 = q01 * timeStep * 2 / 3 ;
+
+		filteredX += velocityX * timeStep ;
+		covarianceXPP += timeStep * (2 * covarianceXPV + timeStep * covarianceXVV) + q00 ;
+		covarianceXPV += timeStep * covarianceXVV + q01 ;
+		covarianceXVV += q11 ;
+		double innovationX = x - filteredX ;
+		double positionGainX = covarianceXPP / (covarianceXPP + measurementNoise) ;
+		double velocityGainX = covarianceXPV / (covarianceXPP + measurementNoise) ;
+		filteredX += positionGainX * innovationX ;
+		velocityX += velocityGainX * innovationX ;
+		covarianceXVV -= velocityGainX * covarianceXPV ;
+		covarianceXPP -= positionGainX * covarianceXPP ;
+		covarianceXPV -= positionGainX * covarianceXPV ;
+
+		filteredY += velocityY * timeStep ;
+		covarianceYPP += timeStep * (2 * covarianceYPV + timeStep * covarianceYVV) + q00 ;
+		covarianceYPV += timeStep * covarianceYVV + q01 ;
+		covarianceYVV += q11 ;
+		double innovationY = y - filteredY ;
+		double positionGainY = covarianceYPP / (covarianceYPP + measurementNoise) ;
+		double velocityGainY = covarianceYPV / (covarianceYPP + measurementNoise) ;
+		filteredY += positionGainY * innovationY ;
+		velocityY += velocityGainY * innovationY ;
+		covarianceYVV -= velocityGainY * covarianceYPV ;
+		covarianceYPP -= positionGainY * covarianceYPP ;
+		covarianceYPV -= positionGainY * covarianceYPV ;
+	}
+
+	@Override
+	public void reset() {
+		started = false ;
+	}
+
+	/**
+	 * Method to get the velocity of the gaze along the x axis.
+	 * @return velocity in pixels per second, 0 in the position model.
+	 */
+	public double getVelocityX() {
+		return velocityX ;
+	}
+
+	/**
+	 * Method to get the velocity of the gaze along the y axis.
+	 * @return velocity in pixels per second, 0 in the position model.
+	 */
+	public double getVelocityY() {
+		return velocityY ;
+	}
+}
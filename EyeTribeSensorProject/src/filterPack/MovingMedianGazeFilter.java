@@ -0,0 +1,142 @@
+package filterPack;
+
+/**
+ * Moving median filter of the gaze, with one independent median per axis.<br><p>
+ * Each axis keeps its last samples twice: in a ring, oldest first, and sorted. A new sample replaces the oldest in
+ * both, the sorted copy being shifted by one place at most over the window, so an update costs the length of the
+ * window and no more. The median removes single outliers, such as a lost frame reported at the screen corner,
+ * without blurring the edges of a saccade. Until the window is full, the median is taken over the samples so far.
+ */
+public class MovingMedianGazeFilter extends GazeFilter {
+
+	/**
+	 * Default number of samples of the window.
+	 */
+	public static final int DEFAULT_WINDOW = 5 ;
+	/**
+	 * Largest number of samples of the window.
+	 */
+	public static final int MAXIMUM_WINDOW = 63 ;
+
+	private final int window ;
+	/**
+	 * Last samples of each axis in arrival order, as a ring.
+	 */
+	private final double[] ringX , ringY ;
+	/**
+	 * Last samples of each axis in ascending order.
+	 */
+	private final double[] sortedX , sortedY ;
+	/**
+	 * Slot of the ring holding the oldest sample once the window is full.
+	 */
+	private int head ;
+	/**
+	 * Number of samples in the window.
+	 */
+	private int count ;
+
+	/**
+	 * Constructor to initialize the filter with the default window.
+	 */
+	public MovingMedianGazeFilter() {
+		this(DEFAULT_WINDOW) ;
+	}
+
+	/**
+	 * Constructor to initialize the filter.
+	 * @param window number of samples of the window, odd, from 1 to {@link filterPack.MovingMedianGazeFilter#MAXIMUM_WINDOW}.
+	 */
+	public MovingMedianGazeFilter(int window) {
+		super();
+		if (window < 1 || window > MAXIMUM_WINDOW || window % 2 == 0)
+		{
+			throw new IllegalArgumentException("Invalid median window: " + window) ;
+		}
+		this.window = window ;
+		this.ringX = new double[window] ;
+		this.ringY = new double[window] ;
+		this.sortedX = new double[window] ;
+		this.sortedY = new double[window] ;
+	}
+
+	@Override
+	public void update(double x, double y, long timeStamp) {
+		if (count < window)
+		{
+			ringX[count] = x ;
+			ringY[count] = y ;
+			insert(sortedX, count, x) ;
+			insert(sortedY, count, y) ;
+			count++ ;
+		}
+		else
+		{
+			replace(sortedX, ringX[head], x) ;
+			replace(sortedY, ringY[head], y) ;
+			ringX[head] = x ;
+			ringY[head] = y ;
+			head = head + 1 == window ? 0 : head + 1 ;
+		}
+		filteredX = median(sortedX, count) ;
+		filteredY = median(sortedY, count) ;
+	}
+
+	@Override
+	public void reset() {
+		head = 0 ;
+		count = 0 ;
+	}
+
+	/**
+	 * Method to insert a value into the sorted values.
+	 * @param sorted sorted values, with room for one more.
+	 * @param size number of sorted values.
+	 * @param value value to be inserted.
+	 */
+	private static void insert(double[] sorted, int size, double value) {
+		int i = size ;
+		while (i > 0 && sorted[i - 1] > value)
+		{
+			sorted[i] = sorted[i - 1] ;
+			i-- ;
+		}
+		sorted[i] = value ;
+	}
+
+	/**
+	 * Method to replace a value of the full sorted values by another, keeping them sorted.
+	 * @param sorted sorted values, the whole array being used.
+	 * @param oldValue value to be removed, which must be among them.
+	 * @param newValue value to be inserted.
+	 */
+	private static void replace(double[] sorted, double oldValue, double newValue) {
+		int i = 0 ;
+		while (sorted[i] != oldValue && !(Double.isNaN(oldValue) && Double.isNaN(sorted[i])))
+		{
+			i++ ;
+		}
+		while (i > 0 && sorted[i - 1] > newValue)
+		{
+			sorted[i] = sorted[i - 1] ;
+			i-- ;
+		}
+		while (i < sorted.length - 1 && sorted[i + 1] < newValue)
+		{
+			sorted[i] = sorted[i + 1] ;
+			i++ ;
+		}
+		sorted[i] = newValue ;
+	}
+
+	/**
+	 * Method to get the median of the sorted values.
+	 * @param sorted sorted values.
+	 * @param size number of sorted values.
+	 * @return the middle value, or the mean of the two middle values for an even number.
+	 */
+	private static double median(double[] sorted, int size) {
+		int middle = size >> 1 ;
+		return (size & 1) != 0 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2 ;
+	}
+}
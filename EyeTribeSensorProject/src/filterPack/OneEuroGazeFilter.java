@@ -0,0 +1,101 @@
+package filterPack;
+
+/**
+ * One Euro filter of the gaze, after Casiez, Roussel and Vogel (2012).<br><p>
+ * Each axis goes through a first order low pass filter whose cutoff frequency rises with the speed of the gaze:<br>
+ * 1. The speed is estimated from the difference to the previous filtered position, and itself low pass filtered at
+ * the derivative cutoff.<br>
+ * 2. The cutoff is the minimum cutoff plus beta times the filtered speed.<br>
+ * 3. The position is low pass filtered at that cutoff.<br>
+ * Slow gaze, as within a fixation, is smoothed strongly, which removes jitter, while fast gaze, as in a saccade, is
+ * followed with little lag. The axes are independent.
+ */
+public class OneEuroGazeFilter extends GazeFilter {
+
+	/**
+	 * Default minimum cutoff frequency in hertz.
+	 */
+	public static final double DEFAULT_MINIMUM_CUTOFF = 1.0 ;
+	/**
+	 * Default rise of the cutoff frequency in hertz per pixel per second.
+	 */
+	public static final double DEFAULT_BETA = 0.007 ;
+	/**
+	 * Default cutoff frequency of the speed in hertz.
+	 */
+	public static final double DEFAULT_DERIVATIVE_CUTOFF = 1.0 ;
+
+	private final double minimumCutoff ;
+	private final double beta ;
+	private final double derivativeCutoff ;
+	/**
+	 * Filtered speeds of the axes in pixels per second.
+	 */
+	private double speedX , speedY ;
+	private long previousTimeStamp ;
+	/**
+	 * Whether a sample has been filtered since the last reset.
+	 */
+	private boolean started ;
+
+	/**
+	 * Constructor to initialize the filter with the default parameters.
+	 */
+	public OneEuroGazeFilter() {
+		this(DEFAULT_MINIMUM_CUTOFF, DEFAULT_BETA, DEFAULT_DERIVATIVE_CUTOFF) ;
+	}
+
+	/**
+	 * Constructor to initialize the filter.
+	 * @param minimumCutoff minimum cutoff frequency in hertz, lower for less jitter.
+	 * @param beta rise of the cutoff frequency in hertz per pixel per second, higher for less lag.
+	 * @param derivativeCutoff cutoff frequency of the speed in hertz.
+	 */
+	public OneEuroGazeFilter(double minimumCutoff, double beta, double derivativeCutoff) {
+		super();
+		if (!(minimumCutoff > 0) || !(beta >= 0) || !(derivativeCutoff > 0))
+		{
+			throw new IllegalArgumentException("Invalid One Euro parameters") ;
+		}
+		this.minimumCutoff = minimumCutoff ;
+		this.beta = beta ;
+		this.derivativeCutoff = derivativeCutoff ;
+	}
+
+	@Override
+	public void update(double x, double y, long timeStamp) {
+		if (!started)
+		{
+			filteredX = x ;
+			filteredY = y ;
+			speedX = speedY = 0 ;
+			previousTimeStamp = timeStamp ;
+			started = true ;
+			return ;
+		}
+		double timeStep = timeStep(previousTimeStamp, timeStamp) ;
+		previousTimeStamp = timeStamp ;
+		double inverseTimeStep = 1.0 / timeStep ;
+		double derivativeAlpha = alpha(derivativeCutoff, timeStep) ;
+		speedX += derivativeAlpha * ((x - filteredX) * inverseTimeStep - speedX) ;
+		speedY += derivativeAlpha * ((y - filteredY) * inverseTimeStep - speedY) ;
+		filteredX += alpha(minimumCutoff + beta * Math.abs(speedX), timeStep) * (x - filteredX) ;
+		filteredY += alpha(minimumCutoff + beta * Math.abs(speedY), timeStep) * (y - filteredY) ;
+	}
+
+	@Override
+	public void reset() {
+		started = false ;
+	}
+
+	/**
+	 * Method to get the smoothing factor of a first order low pass filter.
+	 * @param cutoff cutoff frequency in hertz.
+	 * @param timeStep time step in seconds.
+	 * @return smoothing factor between 0 and 1.
+	 */
+	private static double alpha(double cutoff, double timeStep) {
+		double ratio = 2 * Math.PI * cutoff * timeStep ;
+		return ratio / (ratio + 1.0) ;
+	}
+}
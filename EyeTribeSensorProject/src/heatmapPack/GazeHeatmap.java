@@ -0,0 +1,401 @@
+package heatmapPack;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import dataPack.FixationSet;
+import dataPack.SmoothedEye;
+import outputPack.FixationSetSink;
+
+/**
+ * Live heatmap of where the gaze has been, kept as a density grid over the screen.<br><p>
+ * The heatmap works as follows:<br>
+ * 1. The screen is cut into square cells, whose densities are kept in a direct {@link java.nio.FloatBuffer} off the
+ * heap, so that a large grid adds nothing to the collector's work.<br>
+ * 2. Every fixation set adds its duration in seconds around its mean, and every sample the time since the previous
+ * one, spread over a normalized Gaussian kernel. So the total of the grid is the time looked at, and each addition
+ * costs the size of the kernel.<br>
+ * 3. With a half-life, older gaze fades away exponentially. The cells are grouped into tiles which each remember when
+ * they were last brought up to date, and a tile is only decayed when gaze lands on it again or a snapshot is taken,
+ * so the decay costs nothing on the parts of the screen not looked at.<br>
+ * 4. {@link heatmapPack.GazeHeatmap#snapshot()} copies the grid under an optimistic read of a
+ * {@link java.util.concurrent.locks.StampedLock}, so a renderer or an export never holds up the thread feeding the
+ * heatmap, and only retries if it raced with an addition.<br>
+ * As a {@link outputPack.FixationSetSink}, the heatmap can be fed by a {@link basePack.SensorDataConsumer}, for example
+ * from a {@link dataPack.BroadcastRingOfFixationSets.Subscriber}.
+ */
+public class GazeHeatmap implements FixationSetSink {
+
+	/**
+	 * Default side of a cell in pixels.
+	 */
+	public static final int DEFAULT_CELL_SIZE = 8 ;
+	/**
+	 * Default standard deviation of the kernel in pixels, about one degree of visual angle at a normal distance.
+	 */
+	public static final double DEFAULT_SIGMA_PIXELS = 25 ;
+	/**
+	 * Half-life of the gaze which does not fade.
+	 */
+	public static final long NO_DECAY = 0 ;
+	/**
+	 * Side of a tile in cells.
+	 */
+	static final int TILE_CELLS = 16 ;
+	/**
+	 * Longest time in milliseconds a single sample counts for, so that a gap in the data is not put on one point.
+	 */
+	private static final long MAXIMUM_SAMPLE_MILLIS = 100 ;
+	/**
+	 * Number of optimistic reads tried by a snapshot before it takes the read lock.
+	 */
+	private static final int OPTIMISTIC_ATTEMPTS = 3 ;
+
+	private final int cellSize ;
+	private final int columns ;
+	private final int rows ;
+	/**
+	 * Half-life of the gaze in milliseconds, {@link heatmapPack.GazeHeatmap#NO_DECAY} for none.
+	 */
+	private final long halfLifeMillis ;
+	/**
+	 * Densities of the cells, row after row.
+	 */
+	private final FloatBuffer densities ;
+	/**
+	 * Weights of the kernel, row after row, over (2 * kernelRadius + 1) cells a side, adding up to 1.
+	 */
+	private final float[] kernel ;
+	private final int kernelRadius ;
+	private final int tileColumns ;
+	private final int tileRows ;
+	/**
+	 * Time stamp up to which every tile is decayed.
+	 */
+	private final long[] tileTimeStamps ;
+	/**
+	 * Guards the densities and tile time stamps: additions write, snapshots read optimistically.
+	 */
+	private final StampedLock stampedLock = new StampedLock() ;
+	/**
+	 * Latest time stamp added.
+	 */
+	private volatile long latestTimeStamp = Long.MIN_VALUE ;
+	/**
+	 * Time stamp of the previous sample added, Long.MIN_VALUE for none.
+	 */
+	private long previousSampleTimeStamp = Long.MIN_VALUE ;
+
+	/**
+	 * Constructor to initialize the heatmap with the default cells and kernel, without decay.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 */
+	public GazeHeatmap(int screenWidth, int screenHeight) {
+		this(screenWidth, screenHeight, DEFAULT_CELL_SIZE, DEFAULT_SIGMA_PIXELS, NO_DECAY) ;
+	}
+
+	/**
+	 * Constructor to initialize the heatmap.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param cellSize side of a cell in pixels.
+	 * @param sigmaPixels standard deviation of the kernel in pixels.
+	 * @param halfLifeMillis half-life of the gaze in milliseconds, {@link heatmapPack.GazeHeatmap#NO_DECAY} for none.
+	 */
+	public GazeHeatmap(int screenWidth, int screenHeight, int cellSize, double sigmaPixels, long halfLifeMillis) {
+		super();
+		if (screenWidth <= 0 || screenHeight <= 0 || cellSize <= 0 || sigmaPixels <= 0 || halfLifeMillis < 0)
+		{
+			throw new IllegalArgumentException("Sizes must be positive and the half-life not negative") ;
+		}
+		this.cellSize = cellSize ;
+		this.columns = (screenWidth + cellSize - 1) / cellSize ;
+		this.rows = (screenHeight + cellSize - 1) / cellSize ;
+		this.halfLifeMillis = halfLifeMillis ;
+		this.densities = ByteBuffer.allocateDirect(columns * rows * 4).order(ByteOrder.nativeOrder()).asFloatBuffer() ;
+
+		double sigmaCells = sigmaPixels / cellSize ;
+		this.kernelRadius = (int) Math.ceil(3 * sigmaCells) ;
+		int side = 2 * kernelRadius + 1 ;
+		this.kernel = new float[side * side] ;
+		double total = 0 ;
+		for (int dy = -kernelRadius ; dy <= kernelRadius ; dy++)
+		{
+			for (int dx = -kernelRadius ; dx <= kernelRadius ; dx++)
+			{
+				double weight = Math.exp(-(dx * dx + dy * dy) / (2 * sigmaCells * sigmaCells)) ;
+				kernel[(dy + kernelRadius) * side + dx + kernelRadius] = (float) weight ;
+				total += weight ;
+			}
+		}
+		for (int i = 0 ; i < kernel.length ; i++)
+		{
+			kernel[i] = (float) (kernel[i] / total) ;
+		}
+
+		this.tileColumns = (columns + TILE_CELLS - 1) / TILE_CELLS ;
+		this.tileRows = (rows + TILE_CELLS - 1) / TILE_CELLS ;
+		this.tileTimeStamps = new long[tileColumns * tileRows] ;
+	}
+
+	/**
+	 * Method to add a fixation set, weighted by its duration, around its mean.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 */
+	public void addFixationSet(FixationSet fixationSet) {
+		if (fixationSet.getSampleCount() == 0)
+		{
+			return ;
+		}
+		long durationMillis = Math.max(0, fixationSet.getStopTimeStamp() - fixationSet.getStartTimeStamp()) ;
+		addGaze(fixationSet.getMeanX(), fixationSet.getMeanY(), durationMillis / 1000.0, fixationSet.getStopTimeStamp()) ;
+	}
+
+	/**
+	 * Method to add a sample, weighted by the time since the previous sample.
+	 * @param smoothedEye {@link dataPack.SmoothedEye} to be added.
+	 */
+	public void addSmoothedEye(SmoothedEye smoothedEye) {
+		addSample(smoothedEye.getSmoothedEyeCoordinate().getX(), smoothedEye.getSmoothedEyeCoordinate().getY(),
+				smoothedEye.getTimeStamp()) ;
+	}
+
+	/**
+	 * Method to add a sample, weighted by the time since the previous sample, at most
+	 * {@link heatmapPack.GazeHeatmap#MAXIMUM_SAMPLE_MILLIS}. The first sample only starts the clock.
+	 * @param x X coordinate in pixels.
+	 * @param y Y coordinate in pixels.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	public void addSample(double x, double y, long timeStamp) {
+		long previous = previousSampleTimeStamp ;
+		previousSampleTimeStamp = timeStamp ;
+		if (previous == Long.MIN_VALUE || timeStamp <= previous)
+		{
+			return ;
+		}
+		addGaze(x, y, Math.min(timeStamp - previous, MAXIMUM_SAMPLE_MILLIS) / 1000.0, timeStamp) ;
+	}
+
+	/**
+	 * Method to add gaze around a point.
+	 * @param x X coordinate in pixels.
+	 * @param y Y coordinate in pixels.
+	 * @param weight weight to be spread over the kernel, usually seconds looked at.
+	 * @param timeStamp time stamp of the gaze in milliseconds.
+	 */
+	public void addGaze(double x, double y, double weight, long timeStamp) {
+		if (!(x >= 0 && y >= 0) || weight <= 0)
+		{
+			return ;
+		}
+		int centerColumn = (int) (x / cellSize) ;
+		int centerRow = (int) (y / cellSize) ;
+		if (centerColumn >= columns || centerRow >= rows)
+		{
+			return ;
+		}
+		int firstColumn = Math.max(0, centerColumn - kernelRadius) ;
+		int lastColumn = Math.min(columns - 1, centerColumn + kernelRadius) ;
+		int firstRow = Math.max(0, centerRow - kernelRadius) ;
+		int lastRow = Math.min(rows - 1, centerRow + kernelRadius) ;
+		int side = 2 * kernelRadius + 1 ;
+
+		long stamp = stampedLock.writeLock() ;
+		try {
+			if (timeStamp > latestTimeStamp)
+			{
+				latestTimeStamp = timeStamp ;
+			}
+			for (int tileRow = firstRow / TILE_CELLS ; tileRow <= lastRow / TILE_CELLS ; tileRow++)
+			{
+				for (int tileColumn = firstColumn / TILE_CELLS ; tileColumn <= lastColumn / TILE_CELLS ; tileColumn++)
+				{
+					float scaledWeight = (float) (weight * decayTile(tileRow * tileColumns + tileColumn, timeStamp)) ;
+					int rowEnd = Math.min(lastRow, tileRow * TILE_CELLS + TILE_CELLS - 1) ;
+					int columnEnd = Math.min(lastColumn, tileColumn * TILE_CELLS + TILE_CELLS - 1) ;
+					for (int row = Math.max(firstRow, tileRow * TILE_CELLS) ; row <= rowEnd ; row++)
+					{
+						int kernelRow = (row - centerRow + kernelRadius) * side + kernelRadius - centerColumn ;
+						for (int column = Math.max(firstColumn, tileColumn * TILE_CELLS) ; column <= columnEnd ; column++)
+						{
+							int cell = row * columns + column ;
+							densities.put(cell, densities.get(cell) + scaledWeight * kernel[kernelRow + column]) ;
+						}
+					}
+				}
+			}
+		} finally {
+			stampedLock.unlockWrite(stamp) ;
+		}
+	}
+
+	/**
+	 * Method to bring a tile up to a time stamp, under the write lock.
+	 * @param tile index of the tile.
+	 * @param timeStamp time stamp of the gaze being added.
+	 * @return factor for the weight being added, below 1 if it is older than the tile.
+	 */
+	private double decayTile(int tile, long timeStamp) {
+		if (halfLifeMillis == NO_DECAY)
+		{
+			return 1 ;
+		}
+		long tileTimeStamp = tileTimeStamps[tile] ;
+		if (timeStamp <= tileTimeStamp)
+		{
+			return Math.pow(0.5, (double) (tileTimeStamp - timeStamp) / halfLifeMillis) ;
+		}
+		float factor = (float) Math.pow(0.5, (double) (timeStamp - tileTimeStamp) / halfLifeMillis) ;
+		int tileColumn = tile % tileColumns ;
+		int tileRow = tile / tileColumns ;
+		int rowEnd = Math.min(rows, tileRow * TILE_CELLS + TILE_CELLS) ;
+		int columnEnd = Math.min(columns, tileColumn * TILE_CELLS + TILE_CELLS) ;
+		for (int row = tileRow * TILE_CELLS ; row < rowEnd ; row++)
+		{
+			for (int cell = row * columns + tileColumn * TILE_CELLS ; cell < row * columns + columnEnd ; cell++)
+			{
+				densities.put(cell, densities.get(cell) * factor) ;
+			}
+		}
+		tileTimeStamps[tile] = timeStamp ;
+		return 1 ;
+	}
+
+	/**
+	 * Method to take a snapshot of the heatmap as of the latest time stamp added.
+	 * @return {@link heatmapPack.HeatmapSnapshot} of the heatmap.
+	 */
+	public HeatmapSnapshot snapshot() {
+		return snapshot(latestTimeStamp) ;
+	}
+
+	/**
+	 * Method to take a snapshot of the heatmap, decayed to a time stamp. The heatmap itself is not changed.
+	 * @param timeStamp time stamp in milliseconds to which the snapshot is decayed.
+	 * @return {@link heatmapPack.HeatmapSnapshot} of the heatmap.
+	 */
+	public HeatmapSnapshot snapshot(long timeStamp) {
+		float[] values = new float[columns * rows] ;
+		long[] tileTimes = new long[tileTimeStamps.length] ;
+		FloatBuffer reader = densities.duplicate() ;
+		boolean copied = false ;
+		for (int attempt = 0 ; attempt < OPTIMISTIC_ATTEMPTS && !copied ; attempt++)
+		{
+			long stamp = stampedLock.tryOptimisticRead() ;
+			if (stamp == 0)
+			{
+				Thread.yield() ;
+				continue ;
+			}
+			copy(reader, values, tileTimes) ;
+			copied = stampedLock.validate(stamp) ;
+		}
+		if (!copied)
+		{
+			long stamp = stampedLock.readLock() ;
+			try {
+				copy(reader, values, tileTimes) ;
+			} finally {
+				stampedLock.unlockRead(stamp) ;
+			}
+		}
+
+		if (halfLifeMillis != NO_DECAY)
+		{
+			for (int tile = 0 ; tile < tileTimes.length ; tile++)
+			{
+				if (timeStamp <= tileTimes[tile])
+				{
+					continue ;
+				}
+				float factor = (float) Math.pow(0.5, (double) (timeStamp - tileTimes[tile]) / halfLifeMillis) ;
+				int tileColumn = tile % tileColumns ;
+				int tileRow = tile / tileColumns ;
+				int rowEnd = Math.min(rows, tileRow * TILE_CELLS + TILE_CELLS) ;
+				int columnEnd = Math.min(columns, tileColumn * TILE_CELLS + TILE_CELLS) ;
+				for (int row = tileRow * TILE_CELLS ; row < rowEnd ; row++)
+				{
+					for (int cell = row * columns + tileColumn * TILE_CELLS ; cell < row * columns + columnEnd ; cell++)
+					{
+						values[cell] *= factor ;
+					}
+				}
+			}
+		}
+		return new HeatmapSnapshot(columns, rows, cellSize, timeStamp, values) ;
+	}
+
+	/**
+	 * Method to copy the densities and tile time stamps.
+	 */
+	private void copy(FloatBuffer reader, float[] values, long[] tileTimes) {
+		reader.clear() ;
+		reader.get(values) ;
+		System.arraycopy(tileTimeStamps, 0, tileTimes, 0, tileTimes.length) ;
+	}
+
+	/**
+	 * Method to empty the heatmap.
+	 */
+	public void clear() {
+		long stamp = stampedLock.writeLock() ;
+		try {
+			for (int cell = 0 ; cell < columns * rows ; cell++)
+			{
+				densities.put(cell, 0f) ;
+			}
+			Arrays.fill(tileTimeStamps, 0) ;
+			latestTimeStamp = Long.MIN_VALUE ;
+			previousSampleTimeStamp = Long.MIN_VALUE ;
+		} finally {
+			stampedLock.unlockWrite(stamp) ;
+		}
+	}
+
+	/**
+	 * Method to add a fixation set taken from the queue.
+	 * @param fixationSet {@link dataPack.FixationSet} to be added.
+	 * @param fixationSetNumber running number of the fixation set, not used.
+	 */
+	@Override
+	public void write(FixationSet fixationSet, int fixationSetNumber) {
+		addFixationSet(fixationSet) ;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Method to get the number of columns of cells.
+	 * @return number of columns.
+	 */
+	public int getColumns() {
+		return columns ;
+	}
+
+	/**
+	 * Method to get the number of rows of cells.
+	 * @return number of rows.
+	 */
+	public int getRows() {
+		return rows ;
+	}
+
+	/**
+	 * Method to get the side of a cell in pixels.
+	 * @return side of a cell.
+	 */
+	public int getCellSize() {
+		return cellSize ;
+	}
+}
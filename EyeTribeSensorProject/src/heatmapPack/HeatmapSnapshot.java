@@ -0,0 +1,194 @@
+package heatmapPack;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Copy of a {@link heatmapPack.GazeHeatmap} at one time, taken by {@link heatmapPack.GazeHeatmap#snapshot()}.<br><p>
+ * The snapshot belongs to its taker alone, so it can be rendered or exported at leisure, as CSV with one line per row
+ * of cells, or as a PNG image with one pixel per cell.
+ */
+public class HeatmapSnapshot {
+
+	private final int columns ;
+	private final int rows ;
+	/**
+	 * Side of a cell in pixels.
+	 */
+	private final int cellSize ;
+	/**
+	 * Time stamp in milliseconds to which the densities are decayed.
+	 */
+	private final long timeStamp ;
+	/**
+	 * Densities of the cells in seconds looked at, row after row.
+	 */
+	private final float[] values ;
+
+	/**
+	 * Constructor to initialize the snapshot.
+	 * @param columns number of columns of cells.
+	 * @param rows number of rows of cells.
+	 * @param cellSize side of a cell in pixels.
+	 * @param timeStamp time stamp in milliseconds to which the densities are decayed.
+	 * @param values densities of the cells, row after row, owned by the snapshot from now on.
+	 */
+	HeatmapSnapshot(int columns, int rows, int cellSize, long timeStamp, float[] values) {
+		this.columns = columns ;
+		this.rows = rows ;
+		this.cellSize = cellSize ;
+		this.timeStamp = timeStamp ;
+		this.values = values ;
+	}
+
+	/**
+	 * Method to get the density of a cell.
+	 * @param column column of the cell.
+	 * @param row row of the cell.
+	 * @return density of the cell in seconds looked at.
+	 */
+	public float getValue(int column, int row) {
+		return values[row * columns + column] ;
+	}
+
+	/**
+	 * Method to get the density at a point of the screen.
+	 * @param x X coordinate in pixels.
+	 * @param y Y coordinate in pixels.
+	 * @return density of the cell holding the point, 0 off the screen.
+	 */
+	public float getValueAt(double x, double y) {
+		int column = (int) (x / cellSize) ;
+		int row = (int) (y / cellSize) ;
+		if (!(x >= 0 && y >= 0) || column >= columns || row >= rows)
+		{
+			return 0 ;
+		}
+		return values[row * columns + column] ;
+	}
+
+	/**
+	 * Method to get the largest density of any cell.
+	 * @return largest density.
+	 */
+	public float getMaximum() {
+		float maximum = 0 ;
+		for (float value : values)
+		{
+			maximum = Math.max(maximum, value) ;
+		}
+		return maximum ;
+	}
+
+	/**
+	 * Method to get the sum of all densities, the time looked at the screen after decay.
+	 * @return sum of all densities.
+	 */
+	public double getTotal() {
+		double total = 0 ;
+		for (float value : values)
+		{
+			total += value ;
+		}
+		return total ;
+	}
+
+	/**
+	 * Method to write the densities as CSV, one line per row of cells.
+	 * @param writer {@link java.io.Writer} written to; it is not closed.
+	 * @throws IOException if the writer fails.
+	 */
+	public void writeCsv(Writer writer) throws IOException {
+		StringBuilder line = new StringBuilder() ;
+		for (int row = 0 ; row < rows ; row++)
+		{
+			line.setLength(0) ;
+			for (int column = 0 ; column < columns ; column++)
+			{
+				if (column > 0)
+				{
+					line.append(',') ;
+				}
+				line.append(values[row * columns + column]) ;
+			}
+			line.append('\n') ;
+			writer.write(line.toString()) ;
+		}
+		writer.flush() ;
+	}
+
+	/**
+	 * Method to write the densities as a PNG image with one pixel per cell, from black through blue, red and yellow
+	 * to white at the largest density.
+	 * @param outputStream {@link java.io.OutputStream} written to; it is not closed.
+	 * @throws IOException if the stream fails.
+	 */
+	public void writePng(OutputStream outputStream) throws IOException {
+		BufferedImage image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_RGB) ;
+		float maximum = getMaximum() ;
+		for (int row = 0 ; row < rows ; row++)
+		{
+			for (int column = 0 ; column < columns ; column++)
+			{
+				float level = maximum > 0 ? values[row * columns + column] / maximum : 0 ;
+				image.setRGB(column, row, colourOf(level)) ;
+			}
+		}
+		if (!ImageIO.write(image, "png", outputStream))
+		{
+			throw new IOException("No PNG writer available") ;
+		}
+	}
+
+	/**
+	 * Method to map a level from 0 to 1 onto the colour ramp.
+	 * @param level level from 0 to 1.
+	 * @return RGB colour.
+	 */
+	private static int colourOf(float level) {
+		float scaled = Math.max(0, Math.min(1, level)) * 4 ;
+		int step = Math.min(3, (int) scaled) ;
+		float fraction = scaled - step ;
+		int red, green, blue ;
+		switch (step)
+		{
+		case 0:
+			red = 0 ; green = 0 ; blue = (int) (255 * fraction) ;
+			break ;
+		case 1:
+			red = (int) (255 * fraction) ; green = 0 ; blue = (int) (255 * (1 - fraction)) ;
+			break ;
+		case 2:
+			red = 255 ; green = (int) (255 * fraction) ; blue = 0 ;
+			break ;
+		default:
+			red = 255 ; green = 255 ; blue = (int) (255 * fraction) ;
+			break ;
+		}
+		return (red << 16) | (green << 8) | blue ;
+	}
+
+	public int getColumns() {
+		return columns ;
+	}
+
+	public int getRows() {
+		return rows ;
+	}
+
+	public int getCellSize() {
+		return cellSize ;
+	}
+
+	/**
+	 * Method to get the {@link heatmapPack.HeatmapSnapshot#timeStamp}.
+	 * @return {@link heatmapPack.HeatmapSnapshot#timeStamp}
+	 */
+	public long getTimeStamp() {
+		return timeStamp ;
+	}
+}
@@ -0,0 +1,210 @@
+package historyPack;
+
+import java.util.Arrays;
+
+/**
+ * Block of records of a fixed number of long columns, each column stored as the zigzag varint of its difference to the
+ * previous record.<br><p>
+ * Time stamps and quantized coordinates change little from one sample to the next, so most columns take one or two
+ * bytes per record. The block also keeps the smallest and largest value of every column, so that a query can skip a
+ * block which is outside the time or screen region asked for without decoding it. A block is appended to until it is
+ * full, then sealed, which trims its bytes to size.
+ */
+final class DeltaBlock {
+
+	/**
+	 * Number of columns of every record.
+	 */
+	private final int columns ;
+	/**
+	 * Largest number of records.
+	 */
+	private final int maximumRecords ;
+	/**
+	 * Values of the first record.
+	 */
+	private final long[] firstValues ;
+	/**
+	 * Values of the last record, from which the next one is encoded.
+	 */
+	private final long[] lastValues ;
+	private final long[] minimums ;
+	private final long[] maximums ;
+	/**
+	 * Encoded differences of every record after the first.
+	 */
+	private byte[] bytes ;
+	private int byteCount ;
+	private int recordCount ;
+
+	/**
+	 * Constructor to initialize an empty block.
+	 * @param columns number of columns of every record.
+	 * @param maximumRecords largest number of records.
+	 */
+	DeltaBlock(int columns, int maximumRecords) {
+		this.columns = columns ;
+		this.maximumRecords = maximumRecords ;
+		this.firstValues = new long[columns] ;
+		this.lastValues = new long[columns] ;
+		this.minimums = new long[columns] ;
+		this.maximums = new long[columns] ;
+		this.bytes = new byte[Math.min(maximumRecords, 256) * columns] ;
+	}
+
+	/**
+	 * Method to append a record.
+	 * @param values values of the record, one per column.
+	 * @return false if the block is full, in which case nothing is appended.
+	 */
+	boolean append(long[] values) {
+		if (recordCount == maximumRecords)
+		{
+			return false ;
+		}
+		if (recordCount == 0)
+		{
+			System.arraycopy(values, 0, firstValues, 0, columns) ;
+			System.arraycopy(values, 0, minimums, 0, columns) ;
+			System.arraycopy(values, 0, maximums, 0, columns) ;
+		}
+		else
+		{
+			if (bytes.length - byteCount < columns * 10)
+			{
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + columns * 10)) ;
+			}
+			for (int column = 0 ; column < columns ; column++)
+			{
+				long value = values[column] ;
+				byteCount = writeVarLong(bytes, byteCount, zigzag(value - lastValues[column])) ;
+				if (value < minimums[column])
+				{
+					minimums[column] = value ;
+				}
+				else if (value > maximums[column])
+				{
+					maximums[column] = value ;
+				}
+			}
+		}
+		System.arraycopy(values, 0, lastValues, 0, columns) ;
+		recordCount++ ;
+		return true ;
+	}
+
+	/**
+	 * Method to trim the bytes to size once nothing more is appended.
+	 */
+	void seal() {
+		if (bytes.length != byteCount)
+		{
+			bytes = Arrays.copyOf(bytes, byteCount) ;
+		}
+	}
+
+	/**
+	 * Method to decode every record in order.
+	 * @param visitor {@link historyPack.DeltaBlock.RecordVisitor} called for every record.
+	 * @param values array of one value per column, filled for every record.
+	 * @return false if the visitor asked to stop.
+	 */
+	boolean forEach(RecordVisitor visitor, long[] values) {
+		if (recordCount == 0)
+		{
+			return true ;
+		}
+		System.arraycopy(firstValues, 0, values, 0, columns) ;
+		if (!visitor.visit(values))
+		{
+			return false ;
+		}
+		int position = 0 ;
+		for (int record = 1 ; record < recordCount ; record++)
+		{
+			for (int column = 0 ; column < columns ; column++)
+			{
+				long encoded = 0 ;
+				int shift = 0 ;
+				byte b ;
+				do
+				{
+					b = bytes[position++] ;
+					encoded |= (long) (b & 0x7F) << shift ;
+					shift += 7 ;
+				} while (b < 0) ;
+				values[column] += (encoded >>> 1) ^ -(encoded & 1) ;
+			}
+			if (!visitor.visit(values))
+			{
+				return false ;
+			}
+		}
+		return true ;
+	}
+
+	/**
+	 * Method to check whether the block may hold a value of a column within a range.
+	 * @param column column checked.
+	 * @param from smallest value, inclusive.
+	 * @param to largest value, inclusive.
+	 * @return true if some record of the block may fall within the range.
+	 */
+	boolean mayContain(int column, long from, long to) {
+		return recordCount > 0 && maximums[column] >= from && minimums[column] <= to ;
+	}
+
+	/**
+	 * Method to get the largest value of a column.
+	 * @param column column asked for.
+	 * @return largest value, meaningless for an empty block.
+	 */
+	long getMaximum(int column) {
+		return maximums[column] ;
+	}
+
+	int getRecordCount() {
+		return recordCount ;
+	}
+
+	/**
+	 * Method to get an estimate of the memory held by the block.
+	 * @return bytes held.
+	 */
+	long getMemoryBytes() {
+		return bytes.length + 4L * columns * 8 + 64 ;
+	}
+
+	/**
+	 * Method to map a signed value to an unsigned one, small magnitudes to small values.
+	 */
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63) ;
+	}
+
+	/**
+	 * Method to write an unsigned value in 7 bit groups, lowest first.
+	 * @return position after the value.
+	 */
+	static int writeVarLong(byte[] target, int position, long value) {
+		while ((value & ~0x7FL) != 0)
+		{
+			target[position++] = (byte) ((value & 0x7F) | 0x80) ;
+			value >>>= 7 ;
+		}
+		target[position++] = (byte) value ;
+		return position ;
+	}
+
+	/**
+	 * Receiver of the records decoded from a block.
+	 */
+	interface RecordVisitor {
+
+		/**
+		 * @param values values of the record, only valid during the call.
+		 * @return false to stop.
+		 */
+		boolean visit(long[] values) ;
+	}
+}
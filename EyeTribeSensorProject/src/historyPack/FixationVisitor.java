@@ -0,0 +1,24 @@
+package historyPack;
+
+/**
+ * Receiver of the fixations found by a query of a {@link historyPack.GazeHistory}.
+ */
+public interface FixationVisitor {
+
+	/**
+	 * Method called for every fixation found, oldest first. It must not add to the history. Coordinates are in pixels,
+	 * to a tenth of a pixel.
+	 * @param meanX X coordinate of the mean of the fixation.
+	 * @param meanY Y coordinate of the mean of the fixation.
+	 * @param left left edge of the fixation's bounding box.
+	 * @param top top edge of the fixation's bounding box.
+	 * @param right right edge of the fixation's bounding box.
+	 * @param bottom bottom edge of the fixation's bounding box.
+	 * @param startTimeStamp start of the fixation in milliseconds.
+	 * @param stopTimeStamp end of the fixation in milliseconds.
+	 * @param sampleCount number of samples of the fixation.
+	 * @return false to stop the query.
+	 */
+	boolean visitFixation(double meanX, double meanY, double left, double top, double right, double bottom,
+			long startTimeStamp, long stopTimeStamp, int sampleCount) ;
+}
@@ -0,0 +1,504 @@
+package historyPack;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.StampedLock;
+
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+
+import dataPack.FixationSet;
+import outputPack.FixationSetSink;
+
+/**
+ * Rolling history of the recent samples and fixations, kept compressed in memory and open to queries.<br><p>
+ * The history works as follows:<br>
+ * 1. Samples and fixations are stored as records of long columns in {@link historyPack.DeltaBlock}s, each column as
+ * the zigzag varint of its difference to the previous record. Coordinates are kept to a tenth of a pixel, so a sample
+ * at 60 frames per second takes about six bytes instead of the tens of bytes of a {@link dataPack.SmoothedEye}, and an
+ * hour of samples fits in a couple of megabytes.<br>
+ * 2. Whole blocks are dropped, oldest first, once they are older than the largest age, or while the history holds
+ * more than its memory budget.<br>
+ * 3. Queries by time, and optionally by screen region, skip every block whose time or coordinate range misses, and
+ * decode the others into a {@link historyPack.SampleVisitor} or {@link historyPack.FixationVisitor} without
+ * allocating per record.<br>
+ * Samples come in as an {@link com.theeyetribe.client.IGazeListener}, passed on to a downstream listener such as
+ * {@link basePack.SensorDataProducer} like {@link recordPack.GazeRecorder} does, and fixations as a
+ * {@link outputPack.FixationSetSink}. Additions take the write lock of a
+ * {@link java.util.concurrent.locks.StampedLock} and queries its read lock, so the history can be queried from any
+ * thread.
+ */
+public class GazeHistory implements IGazeListener, FixationSetSink {
+
+	/**
+	 * Default largest age of the history, ten minutes.
+	 */
+	public static final long DEFAULT_MAXIMUM_AGE_MILLIS = 10 * 60 * 1000 ;
+	/**
+	 * Default memory budget of the history, 8 MB.
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET_BYTES = 8L << 20 ;
+	/**
+	 * Steps per pixel of the stored coordinates.
+	 */
+	static final double COORDINATE_SCALE = 10 ;
+	/**
+	 * Number of records per block.
+	 */
+	static final int RECORDS_PER_BLOCK = 2048 ;
+
+	private static final int SAMPLE_TIME = 0 ;
+	private static final int SAMPLE_X = 1 ;
+	private static final int SAMPLE_Y = 2 ;
+	/**
+	 * State shifted left by one, with the fixated flag in the lowest bit.
+	 */
+	private static final int SAMPLE_FLAGS = 3 ;
+	private static final int SAMPLE_COLUMNS = 4 ;
+
+	private static final int FIXATION_START = 0 ;
+	private static final int FIXATION_STOP = 1 ;
+	private static final int FIXATION_MEAN_X = 2 ;
+	private static final int FIXATION_MEAN_Y = 3 ;
+	private static final int FIXATION_LEFT = 4 ;
+	private static final int FIXATION_TOP = 5 ;
+	private static final int FIXATION_RIGHT = 6 ;
+	private static final int FIXATION_BOTTOM = 7 ;
+	private static final int FIXATION_SAMPLES = 8 ;
+	private static final int FIXATION_COLUMNS = 9 ;
+
+	private final long maximumAgeMillis ;
+	private final long memoryBudgetBytes ;
+	/**
+	 * Listener to which every frame is passed on after being stored, or null.
+	 */
+	private final IGazeListener downstreamListener ;
+	private final BlockSeries samples = new BlockSeries(SAMPLE_COLUMNS, SAMPLE_TIME) ;
+	private final BlockSeries fixations = new BlockSeries(FIXATION_COLUMNS, FIXATION_STOP) ;
+	/**
+	 * Record being appended, filled under the write lock.
+	 */
+	private final long[] sampleRecord = new long[SAMPLE_COLUMNS] ;
+	private final long[] fixationRecord = new long[FIXATION_COLUMNS] ;
+	private final StampedLock stampedLock = new StampedLock() ;
+
+	/**
+	 * Constructor to initialize the history with the default age and budget, passing nothing on.
+	 */
+	public GazeHistory() {
+		this(DEFAULT_MAXIMUM_AGE_MILLIS, DEFAULT_MEMORY_BUDGET_BYTES, null) ;
+	}
+
+	/**
+	 * Constructor to initialize the history.
+	 * @param maximumAgeMillis age in milliseconds beyond which blocks are dropped, counted from the latest record.
+	 * @param memoryBudgetBytes memory the history may hold, beyond which the oldest blocks are dropped.
+	 * @param downstreamListener {@link com.theeyetribe.client.IGazeListener} to which every frame is passed on after
+	 * being stored, or null.
+	 */
+	public GazeHistory(long maximumAgeMillis, long memoryBudgetBytes, IGazeListener downstreamListener) {
+		super();
+		if (maximumAgeMillis <= 0 || memoryBudgetBytes <= 0)
+		{
+			throw new IllegalArgumentException("Age and memory budget must be positive") ;
+		}
+		this.maximumAgeMillis = maximumAgeMillis ;
+		this.memoryBudgetBytes = memoryBudgetBytes ;
+		this.downstreamListener = downstreamListener ;
+	}
+
+	/**
+	 * Overridden Method from IGazeListener to store every frame, which is then passed on to the downstream listener.
+	 * @see com.theeyetribe.client.IGazeListener#onGazeUpdate(com.theeyetribe.client.data.GazeData)
+	 */
+	@Override
+	public void onGazeUpdate(GazeData gazeData) {
+		if (gazeData.smoothedCoordinates != null && gazeData.timeStamp != null)
+		{
+			addSample(gazeData.smoothedCoordinates.x, gazeData.smoothedCoordinates.y,
+					gazeData.state != null ? gazeData.state : 0,
+					gazeData.isFixated != null && gazeData.isFixated, gazeData.timeStamp) ;
+		}
+		if (downstreamListener != null)
+		{
+			downstreamListener.onGazeUpdate(gazeData) ;
+		}
+	}
+
+	/**
+	 * Method to store a sample.
+	 * @param x X coordinate in pixels.
+	 * @param y Y coordinate in pixels.
+	 * @param state state of the sample as sent by the tracker.
+	 * @param fixated true if the tracker flagged the sample as part of a fixation.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	public void addSample(double x, double y, int state, boolean fixated, long timeStamp) {
+		long stamp = stampedLock.writeLock() ;
+		try {
+			sampleRecord[SAMPLE_TIME] = timeStamp ;
+			sampleRecord[SAMPLE_X] = quantize(x) ;
+			sampleRecord[SAMPLE_Y] = quantize(y) ;
+			sampleRecord[SAMPLE_FLAGS] = ((long) state << 1) | (fixated ? 1 : 0) ;
+			if (samples.append(sampleRecord))
+			{
+				evict(timeStamp) ;
+			}
+		} finally {
+			stampedLock.unlockWrite(stamp) ;
+		}
+	}
+
+	/**
+	 * Method to store a fixation.
+	 * @param fixationSet {@link dataPack.FixationSet} to be stored.
+	 */
+	public void addFixationSet(FixationSet fixationSet) {
+		if (fixationSet.getSampleCount() == 0)
+		{
+			return ;
+		}
+		long stamp = stampedLock.writeLock() ;
+		try {
+			fixationRecord[FIXATION_START] = fixationSet.getStartTimeStamp() ;
+			fixationRecord[FIXATION_STOP] = fixationSet.getStopTimeStamp() ;
+			fixationRecord[FIXATION_MEAN_X] = quantize(fixationSet.getMeanX()) ;
+			fixationRecord[FIXATION_MEAN_Y] = quantize(fixationSet.getMeanY()) ;
+			fixationRecord[FIXATION_LEFT] = quantize(fixationSet.getTopLeftX()) ;
+			fixationRecord[FIXATION_TOP] = quantize(fixationSet.getTopLeftY()) ;
+			fixationRecord[FIXATION_RIGHT] = quantize(fixationSet.getBottomRightX()) ;
+			fixationRecord[FIXATION_BOTTOM] = quantize(fixationSet.getBottomRightY()) ;
+			fixationRecord[FIXATION_SAMPLES] = fixationSet.getSampleCount() ;
+			if (fixations.append(fixationRecord))
+			{
+				evict(fixationSet.getStopTimeStamp()) ;
+			}
+		} finally {
+			stampedLock.unlockWrite(stamp) ;
+		}
+	}
+
+	/**
+	 * Method to find the samples within a time range.
+	 * @param fromTimeStamp earliest time stamp in milliseconds, inclusive.
+	 * @param toTimeStamp latest time stamp in milliseconds, inclusive.
+	 * @param visitor {@link historyPack.SampleVisitor} called for every sample found.
+	 * @return number of samples found.
+	 */
+	public long querySamples(long fromTimeStamp, long toTimeStamp, SampleVisitor visitor) {
+		return querySamples(fromTimeStamp, toTimeStamp, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, visitor) ;
+	}
+
+	/**
+	 * Method to find the samples within a time range on a region of the screen.
+	 * @param fromTimeStamp earliest time stamp in milliseconds, inclusive.
+	 * @param toTimeStamp latest time stamp in milliseconds, inclusive.
+	 * @param left left edge of the region in pixels, inclusive.
+	 * @param top top edge of the region in pixels, inclusive.
+	 * @param right right edge of the region in pixels, exclusive.
+	 * @param bottom bottom edge of the region in pixels, exclusive.
+	 * @param visitor {@link historyPack.SampleVisitor} called for every sample found.
+	 * @return number of samples found.
+	 */
+	public long querySamples(final long fromTimeStamp, final long toTimeStamp, double left, double top, double right,
+			double bottom, final SampleVisitor visitor) {
+		final long minimumX = quantizeFrom(left) ;
+		final long minimumY = quantizeFrom(top) ;
+		final long maximumX = quantizeTo(right) ;
+		final long maximumY = quantizeTo(bottom) ;
+		final long[] found = new long[1] ;
+		DeltaBlock.RecordVisitor recordVisitor = new DeltaBlock.RecordVisitor()
+		{
+			@Override
+			public boolean visit(long[] values)
+			{
+				long timeStamp = values[SAMPLE_TIME] ;
+				if (timeStamp < fromTimeStamp || timeStamp > toTimeStamp || values[SAMPLE_X] < minimumX
+						|| values[SAMPLE_X] > maximumX || values[SAMPLE_Y] < minimumY || values[SAMPLE_Y] > maximumY)
+				{
+					return true ;
+				}
+				found[0]++ ;
+				return visitor.visitSample(values[SAMPLE_X] / COORDINATE_SCALE, values[SAMPLE_Y] / COORDINATE_SCALE,
+						(int) (values[SAMPLE_FLAGS] >> 1), (values[SAMPLE_FLAGS] & 1) != 0, timeStamp) ;
+			}
+		} ;
+		long stamp = stampedLock.readLock() ;
+		try {
+			long[] values = new long[SAMPLE_COLUMNS] ;
+			for (DeltaBlock block : samples.blocks)
+			{
+				if (block.mayContain(SAMPLE_TIME, fromTimeStamp, toTimeStamp)
+						&& block.mayContain(SAMPLE_X, minimumX, maximumX)
+						&& block.mayContain(SAMPLE_Y, minimumY, maximumY)
+						&& !block.forEach(recordVisitor, values))
+				{
+					break ;
+				}
+			}
+		} finally {
+			stampedLock.unlockRead(stamp) ;
+		}
+		return found[0] ;
+	}
+
+	/**
+	 * Method to find the fixations overlapping a time range.
+	 * @param fromTimeStamp earliest time stamp in milliseconds, inclusive.
+	 * @param toTimeStamp latest time stamp in milliseconds, inclusive.
+	 * @param visitor {@link historyPack.FixationVisitor} called for every fixation found.
+	 * @return number of fixations found.
+	 */
+	public long queryFixations(long fromTimeStamp, long toTimeStamp, FixationVisitor visitor) {
+		return queryFixations(fromTimeStamp, toTimeStamp, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, visitor) ;
+	}
+
+	/**
+	 * Method to find the fixations overlapping a time range whose mean lies on a region of the screen.
+	 * @param fromTimeStamp earliest time stamp in milliseconds, inclusive.
+	 * @param toTimeStamp latest time stamp in milliseconds, inclusive.
+	 * @param left left edge of the region in pixels, inclusive.
+	 * @param top top edge of the region in pixels, inclusive.
+	 * @param right right edge of the region in pixels, exclusive.
+	 * @param bottom bottom edge of the region in pixels, exclusive.
+	 * @param visitor {@link historyPack.FixationVisitor} called for every fixation found.
+	 * @return number of fixations found.
+	 */
+	public long queryFixations(final long fromTimeStamp, final long toTimeStamp, double left, double top, double right,
+			double bottom, final FixationVisitor visitor) {
+		final long minimumX = quantizeFrom(left) ;
+		final long minimumY = quantizeFrom(top) ;
+		final long maximumX = quantizeTo(right) ;
+		final long maximumY = quantizeTo(bottom) ;
+		final long[] found = new long[1] ;
+		DeltaBlock.RecordVisitor recordVisitor = new DeltaBlock.RecordVisitor()
+		{
+			@Override
+			public boolean visit(long[] values)
+			{
+				if (values[FIXATION_STOP] < fromTimeStamp || values[FIXATION_START] > toTimeStamp
+						|| values[FIXATION_MEAN_X] < minimumX || values[FIXATION_MEAN_X] > maximumX
+						|| values[FIXATION_MEAN_Y] < minimumY || values[FIXATION_MEAN_Y] > maximumY)
+				{
+					return true ;
+				}
+				found[0]++ ;
+				return visitor.visitFixation(values[FIXATION_MEAN_X] / COORDINATE_SCALE,
+						values[FIXATION_MEAN_Y] / COORDINATE_SCALE, values[FIXATION_LEFT] / COORDINATE_SCALE,
+						values[FIXATION_TOP] / COORDINATE_SCALE, values[FIXATION_RIGHT] / COORDINATE_SCALE,
+						values[FIXATION_BOTTOM] / COORDINATE_SCALE, values[FIXATION_START], values[FIXATION_STOP],
+						(int) values[FIXATION_SAMPLES]) ;
+			}
+		} ;
+		long stamp = stampedLock.readLock() ;
+		try {
+			long[] values = new long[FIXATION_COLUMNS] ;
+			for (DeltaBlock block : fixations.blocks)
+			{
+				if (block.mayContain(FIXATION_STOP, fromTimeStamp, Long.MAX_VALUE)
+						&& block.mayContain(FIXATION_START, Long.MIN_VALUE, toTimeStamp)
+						&& block.mayContain(FIXATION_MEAN_X, minimumX, maximumX)
+						&& block.mayContain(FIXATION_MEAN_Y, minimumY, maximumY)
+						&& !block.forEach(recordVisitor, values))
+				{
+					break ;
+				}
+			}
+		} finally {
+			stampedLock.unlockRead(stamp) ;
+		}
+		return found[0] ;
+	}
+
+	/**
+	 * Method to drop blocks older than the largest age, then the oldest blocks while over the memory budget. The block
+	 * being appended to is always kept. Called under the write lock when a block is sealed.
+	 * @param latestTimeStamp time stamp of the record just appended.
+	 */
+	private void evict(long latestTimeStamp) {
+		long cutoff = latestTimeStamp - maximumAgeMillis ;
+		samples.dropOlderThan(cutoff) ;
+		fixations.dropOlderThan(cutoff) ;
+		while (samples.memoryBytes + fixations.memoryBytes > memoryBudgetBytes)
+		{
+			BlockSeries oldest ;
+			if (samples.blocks.size() <= 1)
+			{
+				oldest = fixations ;
+			}
+			else if (fixations.blocks.size() <= 1)
+			{
+				oldest = samples ;
+			}
+			else
+			{
+				oldest = samples.oldestTime() <= fixations.oldestTime() ? samples : fixations ;
+			}
+			if (!oldest.dropOldest())
+			{
+				break ;
+			}
+		}
+	}
+
+	/**
+	 * Method to store a fixation set taken from the queue.
+	 * @param fixationSet {@link dataPack.FixationSet} to be stored.
+	 * @param fixationSetNumber running number of the fixation set, not used.
+	 */
+	@Override
+	public void write(FixationSet fixationSet, int fixationSetNumber) {
+		addFixationSet(fixationSet) ;
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Method to get the number of samples held.
+	 * @return number of samples.
+	 */
+	public long getSampleCount() {
+		long stamp = stampedLock.readLock() ;
+		try {
+			return samples.recordCount() ;
+		} finally {
+			stampedLock.unlockRead(stamp) ;
+		}
+	}
+
+	/**
+	 * Method to get the number of fixations held.
+	 * @return number of fixations.
+	 */
+	public long getFixationCount() {
+		long stamp = stampedLock.readLock() ;
+		try {
+			return fixations.recordCount() ;
+		} finally {
+			stampedLock.unlockRead(stamp) ;
+		}
+	}
+
+	/**
+	 * Method to get an estimate of the memory held by the history.
+	 * @return bytes held.
+	 */
+	public long getMemoryBytes() {
+		long stamp = stampedLock.readLock() ;
+		try {
+			return samples.memoryBytes + fixations.memoryBytes ;
+		} finally {
+			stampedLock.unlockRead(stamp) ;
+		}
+	}
+
+	private static long quantize(double coordinate) {
+		return Math.round(coordinate * COORDINATE_SCALE) ;
+	}
+
+	/**
+	 * Method to get the smallest stored coordinate on or after an inclusive edge.
+	 */
+	private static long quantizeFrom(double edge) {
+		return edge == Double.NEGATIVE_INFINITY ? Long.MIN_VALUE : (long) Math.ceil(edge * COORDINATE_SCALE) ;
+	}
+
+	/**
+	 * Method to get the largest stored coordinate before an exclusive edge.
+	 */
+	private static long quantizeTo(double edge) {
+		return edge == Double.POSITIVE_INFINITY ? Long.MAX_VALUE : (long) Math.ceil(edge * COORDINATE_SCALE) - 1 ;
+	}
+
+	/**
+	 * Blocks of one kind of record, oldest first, the last one being appended to.
+	 */
+	private static final class BlockSeries {
+
+		private final int columns ;
+		/**
+		 * Column holding the time stamp by which blocks are aged.
+		 */
+		private final int timeColumn ;
+		private final ArrayDeque<DeltaBlock> blocks = new ArrayDeque<DeltaBlock>() ;
+		/**
+		 * Memory held by the sealed blocks and the one being appended to, as of its last growth.
+		 */
+		private long memoryBytes ;
+
+		BlockSeries(int columns, int timeColumn) {
+			this.columns = columns ;
+			this.timeColumn = timeColumn ;
+		}
+
+		/**
+		 * Method to append a record, sealing the last block and starting a new one when it is full.
+		 * @return true if a block was sealed.
+		 */
+		boolean append(long[] values) {
+			DeltaBlock last = blocks.peekLast() ;
+			if (last != null)
+			{
+				long before = last.getMemoryBytes() ;
+				if (last.append(values))
+				{
+					memoryBytes += last.getMemoryBytes() - before ;
+					return false ;
+				}
+				last.seal() ;
+				memoryBytes += last.getMemoryBytes() - before ;
+			}
+			DeltaBlock block = new DeltaBlock(columns, RECORDS_PER_BLOCK) ;
+			block.append(values) ;
+			blocks.addLast(block) ;
+			memoryBytes += block.getMemoryBytes() ;
+			return last != null ;
+		}
+
+		/**
+		 * Method to drop the blocks whose every record is older than a time stamp, but never the last one.
+		 */
+		void dropOlderThan(long cutoff) {
+			while (blocks.size() > 1 && blocks.peekFirst().getMaximum(timeColumn) < cutoff)
+			{
+				dropOldest() ;
+			}
+		}
+
+		/**
+		 * Method to drop the oldest block, but never the last one.
+		 * @return false if only the last block is left.
+		 */
+		boolean dropOldest() {
+			if (blocks.size() <= 1)
+			{
+				return false ;
+			}
+			memoryBytes -= blocks.pollFirst().getMemoryBytes() ;
+			return true ;
+		}
+
+		/**
+		 * Method to get the latest time stamp of the oldest block.
+		 */
+		long oldestTime() {
+			return blocks.peekFirst().getMaximum(timeColumn) ;
+		}
+
+		long recordCount() {
+			long count = 0 ;
+			for (DeltaBlock block : blocks)
+			{
+				count += block.getRecordCount() ;
+			}
+			return count ;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package historyPack;
+
+/**
+ * Receiver of the samples found by a query of a {@link historyPack.GazeHistory}.
+ */
+public interface SampleVisitor {
+
+	/**
+	 * Method called for every sample found, oldest first. It must not add to the history.
+	 * @param x X coordinate in pixels, to a tenth of a pixel.
+	 * @param y Y coordinate in pixels, to a tenth of a pixel.
+	 * @param state state of the sample as sent by the tracker.
+	 * @param fixated true if the tracker flagged the sample as part of a fixation.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 * @return false to stop the query.
+	 */
+	boolean visitSample(double x, double y, int state, boolean fixated, long timeStamp) ;
+}
@@ -0,0 +1,194 @@
+package metricsPack;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of non-negative values with a bounded relative error, in the style of HdrHistogram.<br><p>
+ * The histogram works as follows:<br>
+ * 1. Values below 2^{@link metricsPack.LatencyHistogram#SUB_BUCKET_BITS} get a bucket each.<br>
+ * 2. Above that, every power of two is split into 2^({@link metricsPack.LatencyHistogram#SUB_BUCKET_BITS} - 1) equal
+ * buckets, so a value is known to within 1 part in 128 whatever its size.<br>
+ * 3. The bucket of a value is found with a leading zero count and two shifts, and counted with one atomic increment,
+ * so any number of threads can record at the same time without locks or allocation.<br>
+ * Readers take a {@link metricsPack.LatencyHistogram.Snapshot}, optionally resetting the counts for the next interval.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of bits of precision kept for each value.
+	 */
+	public static final int SUB_BUCKET_BITS = 8 ;
+	/**
+	 * Number of buckets per power of two above the linear range.
+	 */
+	private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1) ;
+	/**
+	 * Number of buckets covering every non-negative long.
+	 */
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 2) * SUB_BUCKET_HALF ;
+
+	/**
+	 * Counts of the buckets.
+	 */
+	private final AtomicLongArray counts ;
+	/**
+	 * Largest value recorded since the last reset.
+	 */
+	private final AtomicLong maximum ;
+
+	/**
+	 * Constructor to initialize an empty histogram.
+	 */
+	public LatencyHistogram() {
+		super();
+		this.counts = new AtomicLongArray(BUCKET_COUNT) ;
+		this.maximum = new AtomicLong() ;
+	}
+
+	/**
+	 * Method to record a value. Negative values are recorded as 0.
+	 * @param value value to be recorded.
+	 */
+	public void record(long value) {
+		if (value < 0)
+		{
+			value = 0 ;
+		}
+		counts.incrementAndGet(bucketOf(value)) ;
+		long current ;
+		while (value > (current = maximum.get()) && !maximum.compareAndSet(current, value))
+		{
+		}
+	}
+
+	/**
+	 * Method to take a snapshot of the counts.
+	 * @param reset true to empty the histogram as the counts are taken, for interval measurements.
+	 * @return {@link metricsPack.LatencyHistogram.Snapshot} of the counts.
+	 */
+	public Snapshot snapshot(boolean reset) {
+		long[] bucketCounts = new long[BUCKET_COUNT] ;
+		long totalCount = 0 ;
+		for (int i = 0 ; i < BUCKET_COUNT ; i++)
+		{
+			bucketCounts[i] = reset ? counts.getAndSet(i, 0) : counts.get(i) ;
+			totalCount += bucketCounts[i] ;
+		}
+		long maximumValue = reset ? maximum.getAndSet(0) : maximum.get() ;
+		return new Snapshot(bucketCounts, totalCount, maximumValue) ;
+	}
+
+	/**
+	 * Method to find the bucket of a value.
+	 * @param value non-negative value.
+	 * @return index of the bucket.
+	 */
+	static int bucketOf(long value) {
+		int shift = Math.max(0, (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1)) ;
+		return shift * SUB_BUCKET_HALF + (int) (value >>> shift) ;
+	}
+
+	/**
+	 * Method to find the highest value falling in a bucket.
+	 * @param bucket index of the bucket.
+	 * @return highest value of the bucket.
+	 */
+	static long highestValueOf(int bucket) {
+		int shift = Math.max(0, bucket / SUB_BUCKET_HALF - 1) ;
+		long subBucket = bucket - (long) shift * SUB_BUCKET_HALF ;
+		return ((subBucket + 1) << shift) - 1 ;
+	}
+
+	/**
+	 * Counts of a {@link metricsPack.LatencyHistogram} at one point in time.
+	 */
+	public static class Snapshot {
+
+		/**
+		 * Counts of the buckets.
+		 */
+		private final long[] bucketCounts ;
+		/**
+		 * Number of values recorded.
+		 */
+		private final long totalCount ;
+		/**
+		 * Largest value recorded.
+		 */
+		private final long maximumValue ;
+
+		/**
+		 * Constructor to initialize the snapshot.
+		 * @param bucketCounts counts of the buckets.
+		 * @param totalCount number of values recorded.
+		 * @param maximumValue largest value recorded.
+		 */
+		Snapshot(long[] bucketCounts, long totalCount, long maximumValue) {
+			this.bucketCounts = bucketCounts ;
+			this.totalCount = totalCount ;
+			this.maximumValue = maximumValue ;
+		}
+
+		/**
+		 * Method to get the number of values recorded.
+		 * @return number of values.
+		 */
+		public long getCount() {
+			return totalCount ;
+		}
+
+		/**
+		 * Method to get the largest value recorded.
+		 * @return largest value, 0 if none.
+		 */
+		public long getMaximum() {
+			return maximumValue ;
+		}
+
+		/**
+		 * Method to get the value below or at which a given percentage of the values lie.
+		 * @param percentile percentage from 0 to 100.
+		 * @return highest value of the bucket holding the percentile, never above the maximum, 0 if no values.
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (totalCount == 0)
+			{
+				return 0 ;
+			}
+			long rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * totalCount) ;
+			rank = Math.max(1, rank) ;
+			long seen = 0 ;
+			for (int i = 0 ; i < bucketCounts.length ; i++)
+			{
+				seen += bucketCounts[i] ;
+				if (seen >= rank)
+				{
+					return Math.min(highestValueOf(i), maximumValue) ;
+				}
+			}
+			return maximumValue ;
+		}
+
+		/**
+		 * Method to get the mean of the values, each taken at the middle of its bucket.
+		 * @return mean, 0 if no values.
+		 */
+		public double getMean() {
+			if (totalCount == 0)
+			{
+				return 0 ;
+			}
+			double sum = 0 ;
+			for (int i = 0 ; i < bucketCounts.length ; i++)
+			{
+				if (bucketCounts[i] != 0)
+				{
+					long low = i == 0 ? 0 : highestValueOf(i - 1) + 1 ;
+					sum += bucketCounts[i] * ((low + highestValueOf(i)) / 2.0) ;
+				}
+			}
+			return sum / totalCount ;
+		}
+	}
+}
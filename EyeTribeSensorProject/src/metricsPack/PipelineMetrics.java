@@ -0,0 +1,312 @@
+package metricsPack;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import dataPack.BroadcastRingOfFixationSets;
+import dataPack.FixationSet;
+import dataPack.FixationSetPublisher;
+
+/**
+ * Metrics of the pipeline from {@link basePack.SensorDataProducer} through the {@link dataPack.FixationSetPublisher}
+ * to {@link basePack.SensorDataConsumer}.<br><p>
+ * The producer and the consumer record into it as they go:<br>
+ * 1. {@link metricsPack.PipelineMetrics#recordSample()} for every gaze sample.<br>
+ * 2. {@link metricsPack.PipelineMetrics#recordEnqueue(long, int)} for every fixation set handed to the queue, with the
+ * time spent blocked in the hand-off and the queue occupancy afterwards, or
+ * {@link metricsPack.PipelineMetrics#recordInterruptedEnqueue()} if the hand-off was interrupted.<br>
+ * 3. {@link metricsPack.PipelineMetrics#recordPickup(FixationSet)} for every fixation set taken by the consumer, which
+ * records the latency from the time stamp of its last sample, or
+ * {@link metricsPack.PipelineMetrics#recordFailedWrite()} if the consumer could not write it.<br>
+ * Recording only touches {@link java.util.concurrent.atomic.LongAdder}s and {@link metricsPack.LatencyHistogram}s, so
+ * it takes no lock and allocates nothing. {@link metricsPack.PipelineMetrics#snapshot()} closes an interval, and the
+ * JMX attributes show the last closed interval.<br>
+ * The subscribers of a {@link dataPack.BroadcastRingOfFixationSets} added with
+ * {@link metricsPack.PipelineMetrics#addSubscriber(BroadcastRingOfFixationSets.Subscriber)} have their lag reported
+ * each, so a slow reader shows up by name rather than only in the occupancy of the slowest.
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+	/**
+	 * Unit of the sample time stamps.
+	 */
+	private final TimeUnit timeStampUnit ;
+	/**
+	 * Queue whose occupancy is reported.
+	 */
+	private final FixationSetPublisher queueOfFixationSets ;
+	/**
+	 * Subscribers whose lag is reported.
+	 */
+	private final List<BroadcastRingOfFixationSets.Subscriber> subscribers =
+			new CopyOnWriteArrayList<BroadcastRingOfFixationSets.Subscriber>() ;
+	/**
+	 * Total number of samples received.
+	 */
+	private final LongAdder sampleCount = new LongAdder() ;
+	/**
+	 * Total number of fixation sets handed to the queue.
+	 */
+	private final LongAdder fixationSetsEnqueuedCount = new LongAdder() ;
+	/**
+	 * Total number of fixation sets taken by the consumer.
+	 */
+	private final LongAdder fixationSetsConsumedCount = new LongAdder() ;
+	/**
+	 * Total number of interrupted hand-offs.
+	 */
+	private final LongAdder interruptedEnqueueCount = new LongAdder() ;
+	/**
+	 * Total number of failed writes.
+	 */
+	private final LongAdder failedWriteCount = new LongAdder() ;
+	/**
+	 * Largest queue occupancy seen by the producer in the current interval.
+	 */
+	private final LongAccumulator maximumQueueOccupancy = new LongAccumulator(Math::max, 0) ;
+	/**
+	 * Latency from the last sample of a fixation set to its pickup, in microseconds.
+	 */
+	private final LatencyHistogram latencyMicros = new LatencyHistogram() ;
+	/**
+	 * Time the producer spent blocked in a hand-off, in microseconds.
+	 */
+	private final LatencyHistogram producerBlockedMicros = new LatencyHistogram() ;
+
+	/**
+	 * {@link java.lang.System#nanoTime()} at the end of the last interval. Guarded by this object.
+	 */
+	private long lastSnapshotNanos ;
+	/**
+	 * Sample count at the end of the last interval. Guarded by this object.
+	 */
+	private long lastSampleCount ;
+	/**
+	 * Consumed fixation set count at the end of the last interval. Guarded by this object.
+	 */
+	private long lastFixationSetsConsumedCount ;
+	/**
+	 * Last interval taken.
+	 */
+	private volatile PipelineSnapshot lastSnapshot ;
+
+	/**
+	 * Constructor to initialize the metrics for samples time stamped in milliseconds since the epoch, as sent by the
+	 * tracker.
+	 * @param queueOfFixationSets {@link dataPack.FixationSetPublisher} whose occupancy is reported.
+	 */
+	public PipelineMetrics(FixationSetPublisher queueOfFixationSets) {
+		this(queueOfFixationSets, TimeUnit.MILLISECONDS) ;
+	}
+
+	/**
+	 * Constructor to initialize the metrics.
+	 * @param queueOfFixationSets {@link dataPack.FixationSetPublisher} whose occupancy is reported.
+	 * @param timeStampUnit {@link java.util.concurrent.TimeUnit#MILLISECONDS} for time stamps in milliseconds since
+	 * the epoch, or {@link java.util.concurrent.TimeUnit#NANOSECONDS} for {@link java.lang.System#nanoTime()} stamps.
+	 */
+	public PipelineMetrics(FixationSetPublisher queueOfFixationSets, TimeUnit timeStampUnit) {
+		super();
+		if (timeStampUnit != TimeUnit.MILLISECONDS && timeStampUnit != TimeUnit.NANOSECONDS)
+		{
+			throw new IllegalArgumentException("Unsupported time stamp unit: " + timeStampUnit) ;
+		}
+		this.queueOfFixationSets = queueOfFixationSets ;
+		this.timeStampUnit = timeStampUnit ;
+		this.lastSnapshotNanos = System.nanoTime() ;
+		this.lastSnapshot = new PipelineSnapshot(0, 0, 0, latencyMicros.snapshot(false),
+				producerBlockedMicros.snapshot(false), 0, 0, 0, 0, 0, 0, getSubscriberLags()) ;
+	}
+
+	/**
+	 * Method to report the lag of a subscriber of a {@link dataPack.BroadcastRingOfFixationSets}, under its name.
+	 * @param subscriber {@link dataPack.BroadcastRingOfFixationSets.Subscriber} whose lag is reported.
+	 */
+	public void addSubscriber(BroadcastRingOfFixationSets.Subscriber subscriber) {
+		subscribers.add(subscriber) ;
+	}
+
+	/**
+	 * Method for the producer to count a gaze sample.
+	 */
+	public void recordSample() {
+		sampleCount.increment() ;
+	}
+
+	/**
+	 * Method for the producer to record a fixation set handed to the queue.
+	 * @param blockedNanos time spent in the hand-off in nanoseconds.
+	 * @param queueOccupancy number of fixation sets in the queue after the hand-off.
+	 */
+	public void recordEnqueue(long blockedNanos, int queueOccupancy) {
+		fixationSetsEnqueuedCount.increment() ;
+		producerBlockedMicros.record(TimeUnit.NANOSECONDS.toMicros(blockedNanos)) ;
+		maximumQueueOccupancy.accumulate(queueOccupancy) ;
+	}
+
+	/**
+	 * Method for the producer to count a hand-off which was interrupted.
+	 */
+	public void recordInterruptedEnqueue() {
+		interruptedEnqueueCount.increment() ;
+	}
+
+	/**
+	 * Method for the consumer to record a fixation set it has taken from the queue.
+	 * @param fixationSet {@link dataPack.FixationSet} taken, whose last sample gives the latency.
+	 */
+	public void recordPickup(FixationSet fixationSet) {
+		fixationSetsConsumedCount.increment() ;
+		int lastSample = fixationSet.getSampleCount() - 1 ;
+		if (lastSample >= 0)
+		{
+			long now = timeStampUnit == TimeUnit.NANOSECONDS ? System.nanoTime() : System.currentTimeMillis() ;
+			latencyMicros.record(timeStampUnit.toMicros(now - fixationSet.getTimeStamp(lastSample))) ;
+		}
+	}
+
+	/**
+	 * Method for the consumer to count a fixation set it could not write.
+	 */
+	public void recordFailedWrite() {
+		failedWriteCount.increment() ;
+	}
+
+	/**
+	 * Method to close the current interval and start the next.<br>
+	 * The histograms and the largest queue occupancy are reset, and the snapshot becomes the one shown through JMX.
+	 * @return {@link metricsPack.PipelineSnapshot} of the interval just closed.
+	 */
+	public synchronized PipelineSnapshot snapshot() {
+		long now = System.nanoTime() ;
+		double intervalSeconds = Math.max(1e-9, (now - lastSnapshotNanos) / 1e9) ;
+		long samples = sampleCount.sum() ;
+		long fixationSets = fixationSetsConsumedCount.sum() ;
+		PipelineSnapshot snapshot = new PipelineSnapshot(intervalSeconds,
+				(samples - lastSampleCount) / intervalSeconds,
+				(fixationSets - lastFixationSetsConsumedCount) / intervalSeconds,
+				latencyMicros.snapshot(true),
+				producerBlockedMicros.snapshot(true),
+				getQueueOccupancy(),
+				(int) maximumQueueOccupancy.getThenReset(),
+				interruptedEnqueueCount.sum(),
+				failedWriteCount.sum(),
+				queueOfFixationSets.getDroppedCount(),
+				queueOfFixationSets.getCoalescedCount(),
+				getSubscriberLags()) ;
+		lastSnapshotNanos = now ;
+		lastSampleCount = samples ;
+		lastFixationSetsConsumedCount = fixationSets ;
+		lastSnapshot = snapshot ;
+		return snapshot ;
+	}
+
+	/**
+	 * Method to get the last interval taken by {@link metricsPack.PipelineMetrics#snapshot()}.
+	 * @return {@link metricsPack.PipelineSnapshot} of the last interval.
+	 */
+	public PipelineSnapshot getLastSnapshot() {
+		return lastSnapshot ;
+	}
+
+	@Override
+	public long getSampleCount() {
+		return sampleCount.sum() ;
+	}
+
+	@Override
+	public long getFixationSetsEnqueuedCount() {
+		return fixationSetsEnqueuedCount.sum() ;
+	}
+
+	@Override
+	public long getFixationSetsConsumedCount() {
+		return fixationSetsConsumedCount.sum() ;
+	}
+
+	@Override
+	public long getInterruptedEnqueueCount() {
+		return interruptedEnqueueCount.sum() ;
+	}
+
+	@Override
+	public long getFailedWriteCount() {
+		return failedWriteCount.sum() ;
+	}
+
+	@Override
+	public long getDroppedFixationSetCount() {
+		return queueOfFixationSets.getDroppedCount() ;
+	}
+
+	@Override
+	public long getCoalescedFixationSetCount() {
+		return queueOfFixationSets.getCoalescedCount() ;
+	}
+
+	@Override
+	public int getQueueOccupancy() {
+		return queueOfFixationSets.size() ;
+	}
+
+	@Override
+	public Map<String, Long> getSubscriberLags() {
+		Map<String, Long> subscriberLags = new LinkedHashMap<String, Long>() ;
+		for (BroadcastRingOfFixationSets.Subscriber subscriber : subscribers)
+		{
+			subscriberLags.put(subscriber.getName(), subscriber.getLag()) ;
+		}
+		return Collections.unmodifiableMap(subscriberLags) ;
+	}
+
+	@Override
+	public int getMaximumQueueOccupancy() {
+		return lastSnapshot.getMaximumQueueOccupancy() ;
+	}
+
+	@Override
+	public double getSamplesPerSecond() {
+		return lastSnapshot.getSamplesPerSecond() ;
+	}
+
+	@Override
+	public double getFixationSetsPerSecond() {
+		return lastSnapshot.getFixationSetsPerSecond() ;
+	}
+
+	@Override
+	public double getLatencyMillisP50() {
+		return lastSnapshot.getLatencyMicros().getValueAtPercentile(50) / 1000.0 ;
+	}
+
+	@Override
+	public double getLatencyMillisP99() {
+		return lastSnapshot.getLatencyMicros().getValueAtPercentile(99) / 1000.0 ;
+	}
+
+	@Override
+	public double getLatencyMillisP999() {
+		return lastSnapshot.getLatencyMicros().getValueAtPercentile(99.9) / 1000.0 ;
+	}
+
+	@Override
+	public double getLatencyMillisMaximum() {
+		return lastSnapshot.getLatencyMicros().getMaximum() / 1000.0 ;
+	}
+
+	@Override
+	public double getProducerBlockedMicrosP99() {
+		return lastSnapshot.getProducerBlockedMicros().getValueAtPercentile(99) ;
+	}
+
+	@Override
+	public double getProducerBlockedMicrosMaximum() {
+		return lastSnapshot.getProducerBlockedMicros().getMaximum() ;
+	}
+}
@@ -0,0 +1,49 @@
+package metricsPack;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link metricsPack.PipelineMetrics}, as seen through JMX.<br><p>
+ * Rates, percentiles and the largest queue occupancy are those of the last interval taken by
+ * {@link metricsPack.PipelineMetrics#snapshot()}; counts and the current queue occupancy are live.
+ * Latencies are in milliseconds, producer blocking in microseconds. Subscriber lags are live, in fixation sets, by
+ * subscriber name.
+ */
+public interface PipelineMetricsMXBean {
+
+	long getSampleCount() ;
+
+	long getFixationSetsEnqueuedCount() ;
+
+	long getFixationSetsConsumedCount() ;
+
+	long getInterruptedEnqueueCount() ;
+
+	long getFailedWriteCount() ;
+
+	long getDroppedFixationSetCount() ;
+
+	long getCoalescedFixationSetCount() ;
+
+	int getQueueOccupancy() ;
+
+	Map<String, Long> getSubscriberLags() ;
+
+	int getMaximumQueueOccupancy() ;
+
+	double getSamplesPerSecond() ;
+
+	double getFixationSetsPerSecond() ;
+
+	double getLatencyMillisP50() ;
+
+	double getLatencyMillisP99() ;
+
+	double getLatencyMillisP999() ;
+
+	double getLatencyMillisMaximum() ;
+
+	double getProducerBlockedMicrosP99() ;
+
+	double getProducerBlockedMicrosMaximum() ;
+}
@@ -0,0 +1,126 @@
+package metricsPack;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class to publish {@link metricsPack.PipelineMetrics} through JMX and a periodic snapshot log.<br><p>
+ * Once started, the reporter does the following:<br>
+ * 1. Registers the metrics with the platform MBean server under
+ * {@link metricsPack.PipelineMetricsReporter#OBJECT_NAME}.<br>
+ * 2. Every period, on a daemon thread of its own, closes an interval with {@link metricsPack.PipelineMetrics#snapshot()}
+ * and prints it as one line to the log stream.<br>
+ * Closing the reporter stops the log and unregisters the metrics.
+ */
+public class PipelineMetricsReporter implements Closeable {
+
+	/**
+	 * JMX name of the pipeline metrics.
+	 */
+	public static final String OBJECT_NAME = "eyeTribeSensor:type=PipelineMetrics" ;
+	/**
+	 * Default period of the snapshot log in milliseconds.
+	 */
+	public static final long DEFAULT_PERIOD_MILLIS = 10000 ;
+
+	/**
+	 * {@link metricsPack.PipelineMetrics} being published.
+	 */
+	private final PipelineMetrics pipelineMetrics ;
+	/**
+	 * Period of the snapshot log in milliseconds.
+	 */
+	private final long periodMillis ;
+	/**
+	 * Stream to which the snapshots are printed.
+	 */
+	private final PrintStream logStream ;
+	/**
+	 * Thread taking the snapshots, null until started.
+	 */
+	private ScheduledExecutorService scheduler ;
+	/**
+	 * Name under which the metrics were registered, null if not registered.
+	 */
+	private ObjectName objectName ;
+
+	/**
+	 * Constructor to initialize the reporter.
+	 * @param pipelineMetrics {@link metricsPack.PipelineMetrics} to be published.
+	 * @param periodMillis period of the snapshot log in milliseconds.
+	 * @param logStream stream to which the snapshots are printed.
+	 */
+	public PipelineMetricsReporter(PipelineMetrics pipelineMetrics, long periodMillis, PrintStream logStream) {
+		super();
+		if (periodMillis <= 0)
+		{
+			throw new IllegalArgumentException("Invalid period: " + periodMillis) ;
+		}
+		this.pipelineMetrics = pipelineMetrics ;
+		this.periodMillis = periodMillis ;
+		this.logStream = logStream ;
+	}
+
+	/**
+	 * Method to register the metrics with JMX and start the snapshot log.<br>
+	 * If the metrics cannot be registered, for example because another instance already is, the log still starts.
+	 */
+	public synchronized void start() {
+		if (scheduler != null)
+		{
+			throw new IllegalStateException("Reporter already started") ;
+		}
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer() ;
+			ObjectName name = new ObjectName(OBJECT_NAME) ;
+			mBeanServer.registerMBean(pipelineMetrics, name) ;
+			objectName = name ;
+		} catch (JMException e) {
+			System.out.println("Could Not register pipeline metrics with JMX!") ;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "pipeline-metrics") ;
+				thread.setDaemon(true) ;
+				return thread ;
+			}
+		}) ;
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				logStream.println("[metrics] " + pipelineMetrics.snapshot()) ;
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS) ;
+	}
+
+	/**
+	 * Method to stop the snapshot log and unregister the metrics.
+	 */
+	@Override
+	public synchronized void close() {
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow() ;
+			scheduler = null ;
+		}
+		if (objectName != null)
+		{
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName) ;
+			} catch (JMException e) {
+				System.out.println("Could Not unregister pipeline metrics from JMX!") ;
+			}
+			objectName = null ;
+		}
+	}
+}
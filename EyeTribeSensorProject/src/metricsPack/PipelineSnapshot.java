@@ -0,0 +1,205 @@
+package metricsPack;
+
+import java.util.Map;
+
+/**
+ * Metrics of the pipeline over one interval, taken by {@link metricsPack.PipelineMetrics#snapshot()}.<br><p>
+ * Rates, histograms and the largest queue occupancy cover the interval only; counts are totals since the start.
+ */
+public class PipelineSnapshot {
+
+	/**
+	 * Length of the interval in seconds.
+	 */
+	private final double intervalSeconds ;
+	/**
+	 * Samples received per second over the interval.
+	 */
+	private final double samplesPerSecond ;
+	/**
+	 * Fixation sets taken by the consumer per second over the interval.
+	 */
+	private final double fixationSetsPerSecond ;
+	/**
+	 * Latency from the last sample of a fixation set to its pickup by the consumer, in microseconds.
+	 */
+	private final LatencyHistogram.Snapshot latencyMicros ;
+	/**
+	 * Time the producer spent handing a fixation set to the queue, in microseconds.
+	 */
+	private final LatencyHistogram.Snapshot producerBlockedMicros ;
+	/**
+	 * Number of fixation sets in the queue when the snapshot was taken.
+	 */
+	private final int queueOccupancy ;
+	/**
+	 * Largest number of fixation sets in the queue seen by the producer over the interval.
+	 */
+	private final int maximumQueueOccupancy ;
+	/**
+	 * Total number of hand-offs to the queue interrupted.
+	 */
+	private final long interruptedEnqueueCount ;
+	/**
+	 * Total number of fixation sets the consumer failed to write.
+	 */
+	private final long failedWriteCount ;
+	/**
+	 * Total number of fixation sets dropped by the queue's overflow policy.
+	 */
+	private final long droppedCount ;
+	/**
+	 * Total number of fixation sets merged by the queue's overflow policy.
+	 */
+	private final long coalescedCount ;
+	/**
+	 * Number of fixation sets each subscriber of a broadcast ring was behind the producer when the snapshot was taken,
+	 * by subscriber name.
+	 */
+	private final Map<String, Long> subscriberLags ;
+
+	/**
+	 * Constructor to initialize the snapshot.
+	 * @param intervalSeconds length of the interval in seconds.
+	 * @param samplesPerSecond samples received per second.
+	 * @param fixationSetsPerSecond fixation sets taken by the consumer per second.
+	 * @param latencyMicros latency histogram in microseconds.
+	 * @param producerBlockedMicros producer blocking histogram in microseconds.
+	 * @param queueOccupancy current number of fixation sets in the queue.
+	 * @param maximumQueueOccupancy largest number of fixation sets in the queue over the interval.
+	 * @param interruptedEnqueueCount total number of interrupted hand-offs.
+	 * @param failedWriteCount total number of failed writes.
+	 * @param droppedCount total number of fixation sets dropped by the queue's overflow policy.
+	 * @param coalescedCount total number of fixation sets merged by the queue's overflow policy.
+	 * @param subscriberLags current lag of each subscriber by name, empty if there are none.
+	 */
+	PipelineSnapshot(double intervalSeconds, double samplesPerSecond, double fixationSetsPerSecond,
+			LatencyHistogram.Snapshot latencyMicros, LatencyHistogram.Snapshot producerBlockedMicros,
+			int queueOccupancy, int maximumQueueOccupancy, long interruptedEnqueueCount, long failedWriteCount,
+			long droppedCount, long coalescedCount, Map<String, Long> subscriberLags) {
+		this.intervalSeconds = intervalSeconds ;
+		this.samplesPerSecond = samplesPerSecond ;
+		this.fixationSetsPerSecond = fixationSetsPerSecond ;
+		this.latencyMicros = latencyMicros ;
+		this.producerBlockedMicros = producerBlockedMicros ;
+		this.queueOccupancy = queueOccupancy ;
+		this.maximumQueueOccupancy = maximumQueueOccupancy ;
+		this.interruptedEnqueueCount = interruptedEnqueueCount ;
+		this.failedWriteCount = failedWriteCount ;
+		this.droppedCount = droppedCount ;
+		this.coalescedCount = coalescedCount ;
+		this.subscriberLags = subscriberLags ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#intervalSeconds}.
+	 * @return {@link metricsPack.PipelineSnapshot#intervalSeconds}
+	 */
+	public double getIntervalSeconds() {
+		return intervalSeconds ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#samplesPerSecond}.
+	 * @return {@link metricsPack.PipelineSnapshot#samplesPerSecond}
+	 */
+	public double getSamplesPerSecond() {
+		return samplesPerSecond ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#fixationSetsPerSecond}.
+	 * @return {@link metricsPack.PipelineSnapshot#fixationSetsPerSecond}
+	 */
+	public double getFixationSetsPerSecond() {
+		return fixationSetsPerSecond ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#latencyMicros}.
+	 * @return {@link metricsPack.PipelineSnapshot#latencyMicros}
+	 */
+	public LatencyHistogram.Snapshot getLatencyMicros() {
+		return latencyMicros ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#producerBlockedMicros}.
+	 * @return {@link metricsPack.PipelineSnapshot#producerBlockedMicros}
+	 */
+	public LatencyHistogram.Snapshot getProducerBlockedMicros() {
+		return producerBlockedMicros ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#queueOccupancy}.
+	 * @return {@link metricsPack.PipelineSnapshot#queueOccupancy}
+	 */
+	public int getQueueOccupancy() {
+		return queueOccupancy ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#maximumQueueOccupancy}.
+	 * @return {@link metricsPack.PipelineSnapshot#maximumQueueOccupancy}
+	 */
+	public int getMaximumQueueOccupancy() {
+		return maximumQueueOccupancy ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#interruptedEnqueueCount}.
+	 * @return {@link metricsPack.PipelineSnapshot#interruptedEnqueueCount}
+	 */
+	public long getInterruptedEnqueueCount() {
+		return interruptedEnqueueCount ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#failedWriteCount}.
+	 * @return {@link metricsPack.PipelineSnapshot#failedWriteCount}
+	 */
+	public long getFailedWriteCount() {
+		return failedWriteCount ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#droppedCount}.
+	 * @return {@link metricsPack.PipelineSnapshot#droppedCount}
+	 */
+	public long getDroppedCount() {
+		return droppedCount ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#coalescedCount}.
+	 * @return {@link metricsPack.PipelineSnapshot#coalescedCount}
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount ;
+	}
+
+	/**
+	 * Method to get the {@link metricsPack.PipelineSnapshot#subscriberLags}.
+	 * @return {@link metricsPack.PipelineSnapshot#subscriberLags}
+	 */
+	public Map<String, Long> getSubscriberLags() {
+		return subscriberLags ;
+	}
+
+	/**
+	 * Method to describe the snapshot on one line, as written to the snapshot log.
+	 */
+	@Override
+	public String toString() {
+		return String.format("samples/s=%.1f fixations/s=%.2f latency_ms[p50=%.1f p99=%.1f p99.9=%.1f max=%.1f n=%d]"
+				+ " blocked_us[p99=%d max=%d] queue=%d max_queue=%d interrupted=%d failed_writes=%d dropped=%d coalesced=%d lag=%s",
+				samplesPerSecond, fixationSetsPerSecond,
+				latencyMicros.getValueAtPercentile(50) / 1000.0, latencyMicros.getValueAtPercentile(99) / 1000.0,
+				latencyMicros.getValueAtPercentile(99.9) / 1000.0, latencyMicros.getMaximum() / 1000.0,
+				latencyMicros.getCount(),
+				producerBlockedMicros.getValueAtPercentile(99), producerBlockedMicros.getMaximum(),
+				queueOccupancy, maximumQueueOccupancy, interruptedEnqueueCount, failedWriteCount, droppedCount, coalescedCount,
+				subscriberLags) ;
+	}
+}
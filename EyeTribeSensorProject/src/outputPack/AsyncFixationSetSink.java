@@ -0,0 +1,361 @@
+package outputPack;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dataPack.FixationSet;
+
+/**
+ * {@link outputPack.FixationSetSink} which formats on the calling thread and writes on a thread of its own.<br><p>
+ * The sink works as follows:<br>
+ * 1. Each fixation set is formatted by an {@link outputPack.OutputFormat} into a reused {@link java.lang.StringBuilder}, 
+ * and copied into the current {@link java.nio.ByteBuffer}.<br>
+ * 2. Once the current buffer holds more than the flush size, or the flush interval has passed since the last hand-off, 
+ * the buffer is handed to the writer thread and a free one is taken in its place.<br>
+ * 3. The writer thread writes full buffers to the {@link java.nio.channels.WritableByteChannel} in one call each, and 
+ * gives them back. It also hands off a partly filled buffer by itself when no output has been written for a 
+ * flush interval, so that output never waits longer than that.<br>
+ * Memory is bounded by the number and size of the buffers. When all buffers are waiting to be written, the 
+ * calling thread waits for the writer.<br>
+ * A failure of the writer thread drops the output waiting to be written, and is reported once, by the next call. The
+ * sink then writes on, so it recovers as soon as the channel takes output again.
+ */
+public class AsyncFixationSetSink implements FixationSetSink {
+
+	/**
+	 * Default size of each buffer in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024 ;
+	/**
+	 * Default number of buffers.
+	 */
+	public static final int DEFAULT_BUFFER_COUNT = 4 ;
+	/**
+	 * Default longest time in milliseconds output may wait in a buffer.
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200 ;
+
+	/**
+	 * Channel to which the output is written.
+	 */
+	private final WritableByteChannel channel ;
+	/**
+	 * Whether {@link outputPack.AsyncFixationSetSink#close()} also closes the channel.
+	 */
+	private final boolean closeChannel ;
+	/**
+	 * {@link outputPack.OutputFormat} of the output.
+	 */
+	private final OutputFormat outputFormat ;
+	/**
+	 * Number of bytes after which the current buffer is handed to the writer thread.
+	 */
+	private final int flushSize ;
+	/**
+	 * Longest time in nanoseconds output may wait in the current buffer.
+	 */
+	private final long flushIntervalNanos ;
+	/**
+	 * Buffers free to be filled.
+	 */
+	private final BlockingQueue<ByteBuffer> freeBuffers ;
+	/**
+	 * Buffers waiting to be written, in order.
+	 */
+	private final BlockingQueue<ByteBuffer> fullBuffers ;
+	/**
+	 * Reused builder into which fixation sets are formatted. Guarded by this sink.
+	 */
+	private final StringBuilder text ;
+	/**
+	 * Buffer currently being filled. Guarded by this sink.
+	 */
+	private ByteBuffer currentBuffer ;
+	/**
+	 * {@link java.lang.System#nanoTime()} of the last hand-off to the writer thread. Guarded by this sink.
+	 */
+	private long lastHandOffNanos ;
+	/**
+	 * Number of buffers handed to the writer thread and not yet written. Guarded by this sink.
+	 */
+	private int pendingBuffers ;
+	/**
+	 * Set while the calling thread waits for a free buffer, so that the writer thread leaves the current buffer 
+	 * alone. Guarded by this sink.
+	 */
+	private boolean waitingForBuffer ;
+	/**
+	 * First failure of the writer thread not yet reported, reported to the caller on its next call and then cleared.
+	 */
+	private final AtomicReference<IOException> writeFailure = new AtomicReference<IOException>() ;
+	/**
+	 * Set once the sink is closed.
+	 */
+	private volatile boolean closed ;
+	/**
+	 * Thread writing the full buffers to the channel.
+	 */
+	private final Thread writerThread ;
+
+	/**
+	 * Constructor to initialize the sink with the default buffers and flush interval.
+	 * @param channel channel to which the output is written.
+	 * @param closeChannel true if closing the sink should also close the channel.
+	 * @param outputFormat {@link outputPack.OutputFormat} of the output.
+	 */
+	public AsyncFixationSetSink(WritableByteChannel channel, boolean closeChannel, OutputFormat outputFormat) {
+		this(channel, closeChannel, outputFormat, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT, 
+				DEFAULT_BUFFER_SIZE / 2, DEFAULT_FLUSH_INTERVAL_MILLIS) ;
+	}
+
+	/**
+	 * Constructor to initialize the sink.
+	 * @param channel channel to which the output is written.
+	 * @param closeChannel true if closing the sink should also close the channel.
+	 * @param outputFormat {@link outputPack.OutputFormat} of the output.
+	 * @param bufferSize size of each buffer in bytes.
+	 * @param bufferCount number of buffers, at least 2.
+	 * @param flushSize number of bytes after which a buffer is written, at most bufferSize.
+	 * @param flushIntervalMillis longest time in milliseconds output may wait in a buffer.
+	 */
+	public AsyncFixationSetSink(WritableByteChannel channel, boolean closeChannel, OutputFormat outputFormat,
+			int bufferSize, int bufferCount, int flushSize, long flushIntervalMillis) {
+		super();
+		if (bufferCount < 2 || bufferSize < 1 || flushSize < 1 || flushSize > bufferSize || flushIntervalMillis < 1)
+		{
+			throw new IllegalArgumentException("Invalid buffers: size=" + bufferSize + ", count=" + bufferCount
+					+ ", flushSize=" + flushSize + ", flushIntervalMillis=" + flushIntervalMillis) ;
+		}
+		this.channel = channel ;
+		this.closeChannel = closeChannel ;
+		this.outputFormat = outputFormat ;
+		this.flushSize = flushSize ;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis) ;
+		this.freeBuffers = new ArrayBlockingQueue<ByteBuffer>(bufferCount) ;
+		this.fullBuffers = new ArrayBlockingQueue<ByteBuffer>(bufferCount) ;
+		for (int i = 1 ; i < bufferCount ; i++)
+		{
+			this.freeBuffers.add(ByteBuffer.allocateDirect(bufferSize)) ;
+		}
+		this.currentBuffer = ByteBuffer.allocateDirect(bufferSize) ;
+		this.text = new StringBuilder(1024) ;
+		this.lastHandOffNanos = System.nanoTime() ;
+		this.writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeBuffers() ;
+			}
+		}, "fixation-set-writer") ;
+		this.writerThread.setDaemon(true) ;
+		this.writerThread.start() ;
+		synchronized (this)
+		{
+			this.outputFormat.appendHeader(this.text) ;
+			try {
+				copyText() ;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt() ;
+			}
+		}
+	}
+
+	/**
+	 * Method to make a sink writing to the standard output.
+	 * @param outputFormat {@link outputPack.OutputFormat} of the output.
+	 * @return new {@link outputPack.AsyncFixationSetSink}, which leaves the standard output open when closed.
+	 */
+	public static AsyncFixationSetSink toStandardOutput(OutputFormat outputFormat) {
+		return new AsyncFixationSetSink(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), 
+				false, outputFormat) ;
+	}
+
+	/**
+	 * Method to make a sink writing to a file through its {@link java.nio.channels.FileChannel}.
+	 * @param fileName name of the file, which is created or truncated.
+	 * @param outputFormat {@link outputPack.OutputFormat} of the output.
+	 * @return new {@link outputPack.AsyncFixationSetSink}, which closes the file when closed.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static AsyncFixationSetSink toFile(String fileName, OutputFormat outputFormat) throws IOException {
+		return new AsyncFixationSetSink(new FileOutputStream(fileName).getChannel(), true, outputFormat) ;
+	}
+
+	@Override
+	public synchronized void write(FixationSet fixationSet, int fixationSetNumber) throws IOException, InterruptedException {
+		checkOpen() ;
+		text.setLength(0) ;
+		outputFormat.append(text, fixationSet, fixationSetNumber) ;
+		copyText() ;
+		if (currentBuffer.position() >= flushSize || System.nanoTime() - lastHandOffNanos >= flushIntervalNanos)
+		{
+			handOffCurrentBuffer() ;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException, InterruptedException {
+		synchronized (this)
+		{
+			checkOpen() ;
+			if (currentBuffer.position() > 0)
+			{
+				handOffCurrentBuffer() ;
+			}
+			while (pendingBuffers > 0 && writeFailure.get() == null)
+			{
+				wait() ;
+			}
+		}
+		checkFailure() ;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+		{
+			return ;
+		}
+		try {
+			flush() ;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt() ;
+		} finally {
+			closed = true ;
+			writerThread.interrupt() ;
+			if (closeChannel)
+			{
+				channel.close() ;
+			}
+		}
+	}
+
+	/**
+	 * Method to copy the formatted text into the current buffer, handing full buffers off as needed. The formats 
+	 * only produce ASCII, so each character is one byte.
+	 * Must be called holding the lock of this sink.
+	 * @throws InterruptedException if interrupted while waiting for a free buffer.
+	 */
+	private void copyText() throws InterruptedException {
+		int length = text.length() ;
+		for (int i = 0 ; i < length ; i++)
+		{
+			if (!currentBuffer.hasRemaining())
+			{
+				handOffCurrentBuffer() ;
+			}
+			currentBuffer.put((byte) text.charAt(i)) ;
+		}
+	}
+
+	/**
+	 * Method to hand the current buffer to the writer thread and take a free one, waiting if there is none.
+	 * Must be called holding the lock of this sink.
+	 * @throws InterruptedException if interrupted while waiting for a free buffer.
+	 */
+	private void handOffCurrentBuffer() throws InterruptedException {
+		ByteBuffer nextBuffer = freeBuffers.poll() ;
+		if (nextBuffer == null)
+		{
+			waitingForBuffer = true ;
+			try {
+				while (nextBuffer == null)
+				{
+					wait(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos)) ;
+					nextBuffer = freeBuffers.poll() ;
+				}
+			} finally {
+				waitingForBuffer = false ;
+			}
+		}
+		currentBuffer.flip() ;
+		fullBuffers.add(currentBuffer) ;
+		pendingBuffers++ ;
+		currentBuffer = nextBuffer ;
+		lastHandOffNanos = System.nanoTime() ;
+	}
+
+	/**
+	 * Body of the writer thread. Writes full buffers in order until the sink is closed.
+	 */
+	private void writeBuffers() {
+		while (!closed)
+		{
+			ByteBuffer buffer ;
+			try {
+				buffer = fullBuffers.poll(flushIntervalNanos, TimeUnit.NANOSECONDS) ;
+			} catch (InterruptedException e) {
+				continue ;
+			}
+			if (buffer == null)
+			{
+				handOffStaleBuffer() ;
+				continue ;
+			}
+			try {
+				while (buffer.hasRemaining() && writeFailure.get() == null)
+				{
+					channel.write(buffer) ;
+				}
+			} catch (IOException e) {
+				writeFailure.compareAndSet(null, e) ;
+			}
+			buffer.clear() ;
+			freeBuffers.add(buffer) ;
+			synchronized (this)
+			{
+				pendingBuffers-- ;
+				notifyAll() ;
+			}
+		}
+	}
+
+	/**
+	 * Method for the writer thread to hand off a partly filled buffer which has waited longer than the flush interval.
+	 */
+	private synchronized void handOffStaleBuffer() {
+		if (!closed && !waitingForBuffer && currentBuffer.position() > 0 && System.nanoTime() - lastHandOffNanos >= flushIntervalNanos)
+		{
+			ByteBuffer nextBuffer = freeBuffers.poll() ;
+			if (nextBuffer != null)
+			{
+				currentBuffer.flip() ;
+				fullBuffers.add(currentBuffer) ;
+				pendingBuffers++ ;
+				currentBuffer = nextBuffer ;
+				lastHandOffNanos = System.nanoTime() ;
+			}
+		}
+	}
+
+	/**
+	 * Method to fail if the sink is closed or the writer thread has failed.
+	 * @throws IOException if the sink is closed or the writer thread has failed.
+	 */
+	private void checkOpen() throws IOException {
+		if (closed)
+		{
+			throw new IOException("Sink is closed") ;
+		}
+		checkFailure() ;
+	}
+
+	/**
+	 * Method to report a failure of the writer thread to the caller, once, so that the writes go on afterwards.
+	 * @throws IOException the failure of the writer thread, if any.
+	 */
+	private void checkFailure() throws IOException {
+		IOException failure = writeFailure.getAndSet(null) ;
+		if (failure != null)
+		{
+			throw new IOException("Could not write fixation sets", failure) ;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package outputPack;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import dataPack.FixationSet;
+
+/**
+ * Destination of the fixation sets taken out of the queue by {@link basePack.SensorDataConsumer}.<br><p>
+ * A sink must be done with the {@link dataPack.FixationSet} when {@link outputPack.FixationSetSink#write(FixationSet, int)} 
+ * returns, as the consumer hands the fixation set back to the queue straight afterwards.
+ */
+public interface FixationSetSink extends Closeable {
+
+	/**
+	 * Method to write a fixation set to the sink.
+	 * @param fixationSet {@link dataPack.FixationSet} to be written.
+	 * @param fixationSetNumber running number of the fixation set, starting at 1.
+	 * @throws IOException if the sink has failed to write earlier output.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for room in the sink.
+	 */
+	void write(FixationSet fixationSet, int fixationSetNumber) throws IOException, InterruptedException ;
+
+	/**
+	 * Method to push everything written so far to the underlying output.
+	 * @throws IOException if the sink has failed to write.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 */
+	void flush() throws IOException, InterruptedException ;
+}
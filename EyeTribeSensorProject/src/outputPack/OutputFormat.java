@@ -0,0 +1,128 @@
+package outputPack;
+
+import dataPack.FixationSet;
+
+/**
+ * Formats in which a {@link outputPack.FixationSetSink} can write fixation sets.<br><p>
+ * 1. {@link outputPack.OutputFormat#TEXT} is the human readable layout printed by {@link basePack.SensorDataConsumer}.<br>
+ * 2. {@link outputPack.OutputFormat#CSV} writes one row per sample, repeating the fixation set columns, after a header row.<br>
+ * 3. {@link outputPack.OutputFormat#JSON_LINES} writes one JSON object per fixation set, with its samples as 
+ * [timeStamp, x, y, state] arrays. A coordinate which is not a finite number, such as the mean of an empty set, is
+ * written as null.<br>
+ * All formats append to a reused {@link java.lang.StringBuilder} and only produce ASCII characters.
+ */
+public enum OutputFormat {
+
+	TEXT {
+		@Override
+		void appendHeader(StringBuilder out) {
+		}
+
+		@Override
+		void append(StringBuilder out, FixationSet fixationSet, int fixationSetNumber) {
+			out.append("FixationSet Number: ").append(fixationSetNumber).append('\n') ;
+			out.append("FixationPoints in Current Set: ").append('\n') ;
+			for (int i = 0 ; i < fixationSet.getSampleCount() ; i++)
+			{
+				out.append("\t\tX: ").append(fixationSet.getX(i)).append("\tY: ").append(fixationSet.getY(i)).append('\n') ;
+			}
+			appendEyeCoordinate(out.append("Mean Position: "), fixationSet.getMeanX(), fixationSet.getMeanY()) ;
+			appendEyeCoordinate(out.append("Top Left Position: "), fixationSet.getTopLeftX(), fixationSet.getTopLeftY()) ;
+			appendEyeCoordinate(out.append("Bottom Right Position: "), 
+					fixationSet.getBottomRightX(), fixationSet.getBottomRightY()) ;
+		}
+
+		/**
+		 * Method to append a position the way {@link dataPack.EyeCoordinate#toString()} prints it, followed by a new line.
+		 */
+		private void appendEyeCoordinate(StringBuilder out, double x, double y) {
+			out.append("EyeCoordinate [x=").append(x).append(", y=").append(y).append(']').append('\n') ;
+		}
+	},
+	CSV {
+		@Override
+		void appendHeader(StringBuilder out) {
+			out.append("fixationSetNumber,startTimeStamp,stopTimeStamp,meanX,meanY,topLeftX,topLeftY,")
+					.append("bottomRightX,bottomRightY,timeStamp,x,y,state").append('\n') ;
+		}
+
+		@Override
+		void append(StringBuilder out, FixationSet fixationSet, int fixationSetNumber) {
+			for (int i = 0 ; i < fixationSet.getSampleCount() ; i++)
+			{
+				out.append(fixationSetNumber).append(',')
+						.append(fixationSet.getStartTimeStamp()).append(',')
+						.append(fixationSet.getStopTimeStamp()).append(',')
+						.append(fixationSet.getMeanX()).append(',')
+						.append(fixationSet.getMeanY()).append(',')
+						.append(fixationSet.getTopLeftX()).append(',')
+						.append(fixationSet.getTopLeftY()).append(',')
+						.append(fixationSet.getBottomRightX()).append(',')
+						.append(fixationSet.getBottomRightY()).append(',')
+						.append(fixationSet.getTimeStamp(i)).append(',')
+						.append(fixationSet.getX(i)).append(',')
+						.append(fixationSet.getY(i)).append(',')
+						.append(fixationSet.getState(i)).append('\n') ;
+			}
+		}
+	},
+	JSON_LINES {
+		@Override
+		void appendHeader(StringBuilder out) {
+		}
+
+		@Override
+		void append(StringBuilder out, FixationSet fixationSet, int fixationSetNumber) {
+			out.append("{\"fixationSetNumber\":").append(fixationSetNumber)
+					.append(",\"startTimeStamp\":").append(fixationSet.getStartTimeStamp())
+					.append(",\"stopTimeStamp\":").append(fixationSet.getStopTimeStamp()) ;
+			appendNumber(out.append(",\"mean\":["), fixationSet.getMeanX()) ;
+			appendNumber(out.append(','), fixationSet.getMeanY()) ;
+			appendNumber(out.append("],\"topLeft\":["), fixationSet.getTopLeftX()) ;
+			appendNumber(out.append(','), fixationSet.getTopLeftY()) ;
+			appendNumber(out.append("],\"bottomRight\":["), fixationSet.getBottomRightX()) ;
+			appendNumber(out.append(','), fixationSet.getBottomRightY()) ;
+			out.append("],\"samples\":[") ;
+			for (int i = 0 ; i < fixationSet.getSampleCount() ; i++)
+			{
+				if (i > 0)
+				{
+					out.append(',') ;
+				}
+				out.append('[').append(fixationSet.getTimeStamp(i)) ;
+				appendNumber(out.append(','), fixationSet.getX(i)) ;
+				appendNumber(out.append(','), fixationSet.getY(i)) ;
+				out.append(',').append(fixationSet.getState(i)).append(']') ;
+			}
+			out.append("]}").append('\n') ;
+		}
+
+		/**
+		 * Method to append a number, or null for a NaN or an infinity, which JSON cannot hold.
+		 */
+		private void appendNumber(StringBuilder out, double value) {
+			if (Double.isNaN(value) || Double.isInfinite(value))
+			{
+				out.append("null") ;
+			}
+			else
+			{
+				out.append(value) ;
+			}
+		}
+	};
+
+	/**
+	 * Method to append what has to come before the first fixation set, if anything.
+	 * @param out builder to append to.
+	 */
+	abstract void appendHeader(StringBuilder out) ;
+
+	/**
+	 * Method to append one fixation set.
+	 * @param out builder to append to.
+	 * @param fixationSet {@link dataPack.FixationSet} to be formatted.
+	 * @param fixationSetNumber running number of the fixation set.
+	 */
+	abstract void append(StringBuilder out, FixationSet fixationSet, int fixationSetNumber) ;
+}
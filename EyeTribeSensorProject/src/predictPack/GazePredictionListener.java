@@ -0,0 +1,20 @@
+package predictPack;
+
+/**
+ * Receiver of the predictions made by a {@link predictPack.PredictingGazeListener}.
+ */
+public interface GazePredictionListener {
+
+	/**
+	 * Method called on the thread of the gaze for every prediction. It should return quickly, as the frame waits for
+	 * it.
+	 * @param predictedX x coordinate of the predicted gaze.
+	 * @param predictedY y coordinate of the predicted gaze.
+	 * @param timeStamp time stamp of the sample predicted from, in milliseconds.
+	 * @param predictedTimeStamp time stamp the prediction is for, the sample's plus the horizon, in milliseconds.
+	 * @param confidence confidence of the prediction from 0 to 1, 0 for a fallback.
+	 * @param fallback true if the prediction fell back to the sample during a saccade.
+	 */
+	void onPrediction(double predictedX, double predictedY, long timeStamp, long predictedTimeStamp,
+			double confidence, boolean fallback) ;
+}
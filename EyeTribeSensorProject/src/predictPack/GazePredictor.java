@@ -0,0 +1,369 @@
+package predictPack;
+
+import java.io.PrintStream;
+
+import dataPack.VelocityThresholdDetector;
+import filterPack.KalmanGazeFilter;
+import metricsPack.LatencyHistogram;
+
+/**
+ * Predictor of where the gaze will be a short horizon ahead, to make up for the time a sample spends in the tracker,
+ * the client and the queues before a command fires.<br><p>
+ * For every sample, the predictor does the following:<br>
+ * 1. Runs the sample through a {@link filterPack.KalmanGazeFilter} of the
+ * {@link filterPack.KalmanGazeFilter#POSITION_AND_VELOCITY} model, which estimates the position and the velocity of
+ * the gaze from the recent samples.<br>
+ * 2. Extrapolates the filtered position along the velocity to the time stamp of the sample plus the horizon.<br>
+ * 3. Falls back to the sample itself, with a confidence of 0, on the first sample after a reset and while either the
+ * filtered velocity or the step from the previous sample is above the saccade velocity: a saccade is too fast and too
+ * short for a constant velocity to hold until the horizon, and extrapolating it overshoots the landing point. The
+ * model is restarted from every such sample, so the velocity of the saccade does not carry over into the
+ * fixation after it.<br>
+ * 4. Keeps the prediction until a sample reaches its time stamp, then measures how far off it was from the gaze at
+ * that time, interpolated between the two samples around it, and how far off the sample it was made from was. Both
+ * distances go into histograms, so {@link predictPack.GazePredictor#report(PrintStream)} shows whether the horizon
+ * gains on simply using the latest sample.<br>
+ * The confidence of a prediction is errorTolerance^2 / (errorTolerance^2 + e), where e is a moving mean of the squared
+ * errors of the predictions made and measured outside saccades, as no model can foresee the start of a saccade. It is near 1 while the model follows the gaze well, and drops
+ * towards 0 as its errors grow past the tolerance.<br>
+ * The predictor belongs to the thread delivering the samples; the horizon may be changed and the report printed from
+ * any thread. Nothing is allocated per sample.
+ */
+public class GazePredictor {
+
+	/**
+	 * Default horizon of the prediction in milliseconds.
+	 */
+	public static final long DEFAULT_HORIZON_MILLIS = 50 ;
+	/**
+	 * Default speed in pixels per second above which the gaze is taken to be in a saccade.
+	 */
+	public static final double DEFAULT_SACCADE_VELOCITY = VelocityThresholdDetector.DEFAULT_MAXIMUM_VELOCITY ;
+	/**
+	 * Default error in pixels at which the confidence is one half.
+	 */
+	public static final double DEFAULT_ERROR_TOLERANCE = 40 ;
+	/**
+	 * Number of predictions waiting for the gaze to reach their time stamp, a power of two. When full, the oldest is
+	 * dropped unmeasured.
+	 */
+	private static final int PENDING_CAPACITY = 64 ;
+	/**
+	 * Weight of the latest squared error in the moving mean behind the confidence.
+	 */
+	private static final double ERROR_SMOOTHING = 0.1 ;
+	/**
+	 * Time step in seconds assumed between two samples carrying the same time stamp, as in
+	 * {@link filterPack.GazeFilter}.
+	 */
+	private static final double DEFAULT_TIME_STEP = 1.0 / 30 ;
+	/**
+	 * Errors are recorded into the histograms in tenths of a pixel.
+	 */
+	private static final double ERROR_SCALE = 10 ;
+
+	/**
+	 * {@link filterPack.KalmanGazeFilter} estimating the position and the velocity.
+	 */
+	private final KalmanGazeFilter kalmanGazeFilter = new KalmanGazeFilter(KalmanGazeFilter.POSITION_AND_VELOCITY) ;
+	private final double saccadeVelocity ;
+	private final double errorTolerance ;
+	/**
+	 * Horizon of the prediction in milliseconds.
+	 */
+	private volatile long horizonMillis ;
+
+	/**
+	 * Last prediction, its time stamp and its confidence.
+	 */
+	private double predictedX , predictedY ;
+	private long predictedTimeStamp ;
+	private double confidence ;
+	/**
+	 * Whether the last prediction fell back to the sample during a saccade.
+	 */
+	private boolean fallback ;
+	/**
+	 * Moving mean of the squared errors of the predictions made and measured outside saccades.
+	 */
+	private double meanSquaredError ;
+	/**
+	 * Last sample, to interpolate the gaze at the time stamps of the predictions.
+	 */
+	private double previousX , previousY ;
+	private long previousTimeStamp ;
+	/**
+	 * Whether a sample has been seen since the last reset.
+	 */
+	private boolean started ;
+
+	/**
+	 * Predictions waiting for the gaze to reach their time stamp, as a ring of columns.
+	 */
+	private final long[] pendingTimeStamps = new long[PENDING_CAPACITY] ;
+	private final double[] pendingPredictedX = new double[PENDING_CAPACITY] ;
+	private final double[] pendingPredictedY = new double[PENDING_CAPACITY] ;
+	private final double[] pendingSampleX = new double[PENDING_CAPACITY] ;
+	private final double[] pendingSampleY = new double[PENDING_CAPACITY] ;
+	private final boolean[] pendingFallback = new boolean[PENDING_CAPACITY] ;
+	private int pendingHead ;
+	private int pendingCount ;
+
+	/**
+	 * Errors of the predictions, in tenths of a pixel.
+	 */
+	private final LatencyHistogram predictionErrorHistogram = new LatencyHistogram() ;
+	/**
+	 * Errors of the samples the predictions were made from, in tenths of a pixel.
+	 */
+	private final LatencyHistogram sampleErrorHistogram = new LatencyHistogram() ;
+	private volatile long predictionCount ;
+	private volatile long fallbackCount ;
+
+	/**
+	 * Constructor to initialize the predictor with the default horizon, saccade velocity and error tolerance.
+	 */
+	public GazePredictor() {
+		this(DEFAULT_HORIZON_MILLIS) ;
+	}
+
+	/**
+	 * Constructor to initialize the predictor with the default saccade velocity and error tolerance.
+	 * @param horizonMillis horizon of the prediction in milliseconds.
+	 */
+	public GazePredictor(long horizonMillis) {
+		this(horizonMillis, DEFAULT_SACCADE_VELOCITY, DEFAULT_ERROR_TOLERANCE) ;
+	}
+
+	/**
+	 * Constructor to initialize the predictor.
+	 * @param horizonMillis horizon of the prediction in milliseconds.
+	 * @param saccadeVelocity speed in pixels per second above which the gaze is taken to be in a saccade.
+	 * @param errorTolerance error in pixels at which the confidence is one half.
+	 */
+	public GazePredictor(long horizonMillis, double saccadeVelocity, double errorTolerance) {
+		super();
+		if (horizonMillis < 0 || !(saccadeVelocity > 0) || !(errorTolerance > 0))
+		{
+			throw new IllegalArgumentException("Invalid prediction parameters") ;
+		}
+		this.horizonMillis = horizonMillis ;
+		this.saccadeVelocity = saccadeVelocity ;
+		this.errorTolerance = errorTolerance ;
+		this.meanSquaredError = errorTolerance * errorTolerance ;
+	}
+
+	/**
+	 * Method to predict the gaze from the next sample.
+	 * @param x x coordinate of the sample.
+	 * @param y y coordinate of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	public void update(double x, double y, long timeStamp) {
+		kalmanGazeFilter.update(x, y, timeStamp) ;
+		double velocityX = kalmanGazeFilter.getVelocityX() ;
+		double velocityY = kalmanGazeFilter.getVelocityY() ;
+		double squaredSaccadeVelocity = saccadeVelocity * saccadeVelocity ;
+		boolean saccade = velocityX * velocityX + velocityY * velocityY > squaredSaccadeVelocity ;
+		if (started && !saccade)
+		{
+			double step = timeStamp > previousTimeStamp ? (timeStamp - previousTimeStamp) / 1000.0
+					: DEFAULT_TIME_STEP ;
+			double stepX = x - previousX ;
+			double stepY = y - previousY ;
+			saccade = stepX * stepX + stepY * stepY > squaredSaccadeVelocity * step * step ;
+		}
+		if (started)
+		{
+			measurePending(x, y, timeStamp, saccade) ;
+		}
+		long horizon = horizonMillis ;
+		predictedTimeStamp = timeStamp + horizon ;
+		if (!started || saccade)
+		{
+			kalmanGazeFilter.reset() ;
+			kalmanGazeFilter.update(x, y, timeStamp) ;
+			predictedX = x ;
+			predictedY = y ;
+			confidence = 0 ;
+			fallback = true ;
+			fallbackCount++ ;
+		}
+		else
+		{
+			predictedX = kalmanGazeFilter.getX() + velocityX * horizon / 1000 ;
+			predictedY = kalmanGazeFilter.getY() + velocityY * horizon / 1000 ;
+			double tolerance = errorTolerance * errorTolerance ;
+			confidence = tolerance / (tolerance + meanSquaredError) ;
+			fallback = false ;
+		}
+		predictionCount++ ;
+		addPending(x, y) ;
+		previousX = x ;
+		previousY = y ;
+		previousTimeStamp = timeStamp ;
+		started = true ;
+	}
+
+	/**
+	 * Method to forget the samples, for example when the tracker loses the gaze. The predictions still waiting are
+	 * dropped unmeasured; the errors measured so far are kept.
+	 */
+	public void reset() {
+		kalmanGazeFilter.reset() ;
+		pendingCount = 0 ;
+		started = false ;
+	}
+
+	/**
+	 * Method to keep the last prediction until the gaze reaches its time stamp.
+	 * @param sampleX x coordinate of the sample the prediction was made from.
+	 * @param sampleY y coordinate of the sample the prediction was made from.
+	 */
+	private void addPending(double sampleX, double sampleY) {
+		if (pendingCount == PENDING_CAPACITY)
+		{
+			pendingHead = (pendingHead + 1) & (PENDING_CAPACITY - 1) ;
+			pendingCount-- ;
+		}
+		int slot = (pendingHead + pendingCount) & (PENDING_CAPACITY - 1) ;
+		pendingTimeStamps[slot] = predictedTimeStamp ;
+		pendingPredictedX[slot] = predictedX ;
+		pendingPredictedY[slot] = predictedY ;
+		pendingSampleX[slot] = sampleX ;
+		pendingSampleY[slot] = sampleY ;
+		pendingFallback[slot] = fallback ;
+		pendingCount++ ;
+	}
+
+	/**
+	 * Method to measure the predictions whose time stamp the gaze has reached.
+	 * @param x x coordinate of the new sample.
+	 * @param y y coordinate of the new sample.
+	 * @param timeStamp time stamp of the new sample in milliseconds.
+	 * @param saccade whether the new sample is in a saccade, in which case the errors are left out of the confidence.
+	 */
+	private void measurePending(double x, double y, long timeStamp, boolean saccade) {
+		while (pendingCount > 0 && pendingTimeStamps[pendingHead] <= timeStamp)
+		{
+			long pendingTimeStamp = pendingTimeStamps[pendingHead] ;
+			double gazeX = x ;
+			double gazeY = y ;
+			if (pendingTimeStamp > previousTimeStamp && timeStamp > previousTimeStamp)
+			{
+				double fraction = (double) (pendingTimeStamp - previousTimeStamp) / (timeStamp - previousTimeStamp) ;
+				gazeX = previousX + fraction * (x - previousX) ;
+				gazeY = previousY + fraction * (y - previousY) ;
+			}
+			else if (pendingTimeStamp <= previousTimeStamp)
+			{
+				gazeX = previousX ;
+				gazeY = previousY ;
+			}
+			double predictionErrorX = pendingPredictedX[pendingHead] - gazeX ;
+			double predictionErrorY = pendingPredictedY[pendingHead] - gazeY ;
+			double squaredError = predictionErrorX * predictionErrorX + predictionErrorY * predictionErrorY ;
+			predictionErrorHistogram.record(Math.round(Math.sqrt(squaredError) * ERROR_SCALE)) ;
+			sampleErrorHistogram.record(Math.round(Math.hypot(pendingSampleX[pendingHead] - gazeX,
+					pendingSampleY[pendingHead] - gazeY) * ERROR_SCALE)) ;
+			if (!saccade && !pendingFallback[pendingHead])
+			{
+				meanSquaredError += ERROR_SMOOTHING * (squaredError - meanSquaredError) ;
+			}
+			pendingHead = (pendingHead + 1) & (PENDING_CAPACITY - 1) ;
+			pendingCount-- ;
+		}
+	}
+
+	/**
+	 * Method to print the counts and the errors measured since the last report on one line.
+	 * @param printStream stream the report is printed to.
+	 */
+	public void report(PrintStream printStream) {
+		LatencyHistogram.Snapshot predictionErrors = predictionErrorHistogram.snapshot(true) ;
+		LatencyHistogram.Snapshot sampleErrors = sampleErrorHistogram.snapshot(true) ;
+		printStream.println(String.format("[prediction] horizon_ms=%d predicted=%d fallback=%d measured=%d "
+				+ "error_px mean=%.1f p50=%.1f p99=%.1f max=%.1f unpredicted_px mean=%.1f p50=%.1f p99=%.1f",
+				horizonMillis, predictionCount, fallbackCount, predictionErrors.getCount(),
+				predictionErrors.getMean() / ERROR_SCALE, predictionErrors.getValueAtPercentile(50) / ERROR_SCALE,
+				predictionErrors.getValueAtPercentile(99) / ERROR_SCALE, predictionErrors.getMaximum() / ERROR_SCALE,
+				sampleErrors.getMean() / ERROR_SCALE, sampleErrors.getValueAtPercentile(50) / ERROR_SCALE,
+				sampleErrors.getValueAtPercentile(99) / ERROR_SCALE)) ;
+	}
+
+	/**
+	 * Method to get the {@link predictPack.GazePredictor#horizonMillis}.
+	 * @return {@link predictPack.GazePredictor#horizonMillis}
+	 */
+	public long getHorizonMillis() {
+		return horizonMillis ;
+	}
+
+	/**
+	 * Method to set the {@link predictPack.GazePredictor#horizonMillis}, taking effect from the next sample.
+	 * @param horizonMillis horizon of the prediction in milliseconds.
+	 */
+	public void setHorizonMillis(long horizonMillis) {
+		if (horizonMillis < 0)
+		{
+			throw new IllegalArgumentException("Invalid horizon: " + horizonMillis) ;
+		}
+		this.horizonMillis = horizonMillis ;
+	}
+
+	/**
+	 * Method to get the x coordinate of the last prediction.
+	 * @return {@link predictPack.GazePredictor#predictedX}
+	 */
+	public double getPredictedX() {
+		return predictedX ;
+	}
+
+	/**
+	 * Method to get the y coordinate of the last prediction.
+	 * @return {@link predictPack.GazePredictor#predictedY}
+	 */
+	public double getPredictedY() {
+		return predictedY ;
+	}
+
+	/**
+	 * Method to get the time stamp the last prediction is for.
+	 * @return time stamp of the sample plus the horizon, in milliseconds.
+	 */
+	public long getPredictedTimeStamp() {
+		return predictedTimeStamp ;
+	}
+
+	/**
+	 * Method to get the {@link predictPack.GazePredictor#confidence} of the last prediction.
+	 * @return confidence from 0 to 1, 0 for a fallback.
+	 */
+	public double getConfidence() {
+		return confidence ;
+	}
+
+	/**
+	 * Method to know whether the last prediction fell back to the sample during a saccade.
+	 * @return {@link predictPack.GazePredictor#fallback}
+	 */
+	public boolean isFallback() {
+		return fallback ;
+	}
+
+	/**
+	 * Method to get the number of predictions made.
+	 * @return {@link predictPack.GazePredictor#predictionCount}
+	 */
+	public long getPredictionCount() {
+		return predictionCount ;
+	}
+
+	/**
+	 * Method to get the number of predictions which fell back to the sample.
+	 * @return {@link predictPack.GazePredictor#fallbackCount}
+	 */
+	public long getFallbackCount() {
+		return fallbackCount ;
+	}
+}
@@ -0,0 +1,209 @@
+package predictPack;
+
+import java.io.PrintStream;
+
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+import basePack.GazeFrame;
+import basePack.GazeFrameListener;
+import filterPack.GazeCoordinateSource;
+
+/**
+ * Stage predicting the gaze ahead of the pipeline, so that the commands follow where the gaze is now rather than
+ * where it was when the tracker saw it.<br><p>
+ * The stage is placed in front of {@link basePack.SensorDataProducer}, like
+ * {@link filterPack.FilteringGazeListener} is, and takes frames both from the
+ * {@link com.theeyetribe.client.GazeManager} and from a {@link basePack.NioTrackerClient}. For every frame, it does
+ * the following:<br>
+ * 1. Reads the smoothed or the raw coordinates, as chosen by its {@link filterPack.GazeCoordinateSource}, and runs
+ * them through its {@link predictPack.GazePredictor}.<br>
+ * 2. Hands the prediction and its confidence to its {@link predictPack.GazePredictionListener}, if any, such as a
+ * {@link commandPack.GazeCommandEngine}, which decides whether it is confident enough to act on.<br>
+ * 3. Passes the frame on as measured, so the fixations, their recording and their output are never made of
+ * extrapolated points.<br>
+ * The prediction is handed over before the frame is passed on, so a listener fed by the producer finds the prediction
+ * for the sample when the sample reaches it. Nothing is allocated, except when a {@link basePack.GazeFrame} is passed
+ * on to a downstream listener that only takes a {@link com.theeyetribe.client.data.GazeData}. Frames in which the
+ * tracker does not see the gaze reset the predictor. With a log stream, the errors of the predictions are reported
+ * every period of gaze time, from the thread of the gaze.
+ */
+public class PredictingGazeListener implements IGazeListener, GazeFrameListener {
+
+	/**
+	 * {@link predictPack.GazePredictor} run on every frame.
+	 */
+	private final GazePredictor gazePredictor ;
+	/**
+	 * Coordinates of the frames which are predicted from.
+	 */
+	private final GazeCoordinateSource coordinateSource ;
+	/**
+	 * Listener to which every frame is passed on, or null.
+	 */
+	private final IGazeListener downstreamListener ;
+	/**
+	 * {@link predictPack.PredictingGazeListener#downstreamListener} as a {@link basePack.GazeFrameListener}, or null
+	 * if it is not one.
+	 */
+	private final GazeFrameListener downstreamFrameListener ;
+	/**
+	 * Listener to which every prediction is handed, or null. It may be set after the frames have started, from
+	 * another thread.
+	 */
+	private volatile GazePredictionListener predictionListener ;
+	/**
+	 * Stream the errors are reported to, or null.
+	 */
+	private final PrintStream logStream ;
+	/**
+	 * Period of the report in milliseconds of gaze time.
+	 */
+	private final long reportPeriodMillis ;
+	/**
+	 * Time stamp of the frame at which the errors were last reported.
+	 */
+	private long lastReportTimeStamp = Long.MIN_VALUE ;
+
+	/**
+	 * Copy of a {@link basePack.GazeFrame} passed on to a downstream listener that only takes a
+	 * {@link com.theeyetribe.client.data.GazeData}, reused for every frame.
+	 */
+	private final GazeData copiedGazeData = new GazeData() ;
+
+	/**
+	 * Constructor to put the predictor in front of a listener, without a report.
+	 * @param gazePredictor {@link predictPack.GazePredictor} run on every frame.
+	 * @param coordinateSource {@link filterPack.GazeCoordinateSource} of the frames to be predicted from.
+	 * @param downstreamListener listener to which every frame is passed on as measured, or null. If it is also a
+	 * {@link basePack.GazeFrameListener}, the frames of a {@link basePack.NioTrackerClient} are passed on as
+	 * {@link basePack.GazeFrame}s.
+	 * @param predictionListener {@link predictPack.GazePredictionListener} to which every prediction is handed, or
+	 * null.
+	 */
+	public PredictingGazeListener(GazePredictor gazePredictor, GazeCoordinateSource coordinateSource,
+			IGazeListener downstreamListener, GazePredictionListener predictionListener) {
+		this(gazePredictor, coordinateSource, downstreamListener, predictionListener, null, 0) ;
+	}
+
+	/**
+	 * Constructor to put the predictor in front of a listener.
+	 * @param gazePredictor {@link predictPack.GazePredictor} run on every frame.
+	 * @param coordinateSource {@link filterPack.GazeCoordinateSource} of the frames to be predicted from.
+	 * @param downstreamListener listener to which every frame is passed on as measured, or null. If it is also a
+	 * {@link basePack.GazeFrameListener}, the frames of a {@link basePack.NioTrackerClient} are passed on as
+	 * {@link basePack.GazeFrame}s.
+	 * @param predictionListener {@link predictPack.GazePredictionListener} to which every prediction is handed, or
+	 * null.
+	 * @param logStream stream the errors are reported to, or null for no report.
+	 * @param reportPeriodMillis period of the report in milliseconds of gaze time.
+	 */
+	public PredictingGazeListener(GazePredictor gazePredictor, GazeCoordinateSource coordinateSource,
+			IGazeListener downstreamListener, GazePredictionListener predictionListener, PrintStream logStream,
+			long reportPeriodMillis) {
+		super();
+		if (logStream != null && reportPeriodMillis <= 0)
+		{
+			throw new IllegalArgumentException("Invalid period: " + reportPeriodMillis) ;
+		}
+		this.gazePredictor = gazePredictor ;
+		this.coordinateSource = coordinateSource ;
+		this.downstreamListener = downstreamListener ;
+		this.downstreamFrameListener = downstreamListener instanceof GazeFrameListener
+				? (GazeFrameListener) downstreamListener : null ;
+		this.predictionListener = predictionListener ;
+		this.logStream = logStream ;
+		this.reportPeriodMillis = reportPeriodMillis ;
+	}
+
+	@Override
+	public void onGazeUpdate(GazeData gazeData) {
+		Point2D coordinates = coordinateSource == GazeCoordinateSource.RAW ? gazeData.rawCoordinates
+				: gazeData.smoothedCoordinates ;
+		if (coordinates != null && gazeData.timeStamp != null && gazeData.state != null
+				&& (gazeData.state & GazeData.STATE_TRACKING_GAZE) != 0)
+		{
+			predict(coordinates.x, coordinates.y, gazeData.timeStamp) ;
+		}
+		else
+		{
+			gazePredictor.reset() ;
+		}
+		if (downstreamListener != null)
+		{
+			downstreamListener.onGazeUpdate(gazeData) ;
+		}
+	}
+
+	@Override
+	public void onGazeFrame(GazeFrame gazeFrame) {
+		if ((gazeFrame.getState() & GazeData.STATE_TRACKING_GAZE) != 0
+				&& (coordinateSource == GazeCoordinateSource.RAW ? gazeFrame.hasRawCoordinates()
+						: gazeFrame.hasSmoothedCoordinates()))
+		{
+			predict(coordinateSource == GazeCoordinateSource.RAW ? gazeFrame.getRawX() : gazeFrame.getSmoothedX(),
+					coordinateSource == GazeCoordinateSource.RAW ? gazeFrame.getRawY() : gazeFrame.getSmoothedY(),
+					gazeFrame.getTimeStamp()) ;
+		}
+		else
+		{
+			gazePredictor.reset() ;
+		}
+		if (downstreamFrameListener != null)
+		{
+			downstreamFrameListener.onGazeFrame(gazeFrame) ;
+		}
+		else if (downstreamListener != null)
+		{
+			gazeFrame.copyTo(copiedGazeData) ;
+			downstreamListener.onGazeUpdate(copiedGazeData) ;
+		}
+	}
+
+	/**
+	 * Method to run the predictor on a tracked frame, hand the prediction on and report the errors when due.
+	 * @param x x coordinate of the frame.
+	 * @param y y coordinate of the frame.
+	 * @param timeStamp time stamp of the frame in milliseconds.
+	 */
+	private void predict(double x, double y, long timeStamp) {
+		gazePredictor.update(x, y, timeStamp) ;
+		GazePredictionListener listener = predictionListener ;
+		if (listener != null)
+		{
+			listener.onPrediction(gazePredictor.getPredictedX(), gazePredictor.getPredictedY(), timeStamp,
+					gazePredictor.getPredictedTimeStamp(), gazePredictor.getConfidence(), gazePredictor.isFallback()) ;
+		}
+		if (logStream != null)
+		{
+			if (lastReportTimeStamp == Long.MIN_VALUE)
+			{
+				lastReportTimeStamp = timeStamp ;
+			}
+			else if (timeStamp - lastReportTimeStamp >= reportPeriodMillis)
+			{
+				lastReportTimeStamp = timeStamp ;
+				gazePredictor.report(logStream) ;
+			}
+		}
+	}
+
+	/**
+	 * Method to set the {@link predictPack.PredictingGazeListener#predictionListener}, for a listener made once the
+	 * frames have started.
+	 * @param predictionListener {@link predictPack.GazePredictionListener} to which every prediction is handed, or
+	 * null.
+	 */
+	public void setPredictionListener(GazePredictionListener predictionListener) {
+		this.predictionListener = predictionListener ;
+	}
+
+	/**
+	 * Method to get the {@link predictPack.PredictingGazeListener#gazePredictor}.
+	 * @return {@link predictPack.PredictingGazeListener#gazePredictor}
+	 */
+	public GazePredictor getGazePredictor() {
+		return gazePredictor ;
+	}
+}
@@ -0,0 +1,197 @@
+package recordPack;
+
+import java.nio.MappedByteBuffer;
+
+import com.theeyetribe.client.data.GazeData;
+
+import dataPack.SmoothedEye;
+
+/**
+ * Cursor over a range of frames of a {@link recordPack.GazeRecording}, reading every value straight from the mapped
+ * segments.<br><p>
+ * The cursor keeps the buffer and position of the current frame and only moves the position by one record on
+ * {@link recordPack.GazeCursor#next()}, looking up a segment again only when crossing into the next one. The getters
+ * read the value from the mapped buffer, so iterating over a range copies and allocates nothing. A frame can still be
+ * read into a {@link com.theeyetribe.client.data.GazeData}, or turned into a {@link dataPack.SmoothedEye}, when
+ * needed.<br>
+ * A cursor belongs to one thread, and must not be used once its recording is closed.
+ */
+public class GazeCursor {
+
+	private final GazeRecording recording ;
+	/**
+	 * Index of the first frame of the range.
+	 */
+	private final long beginIndex ;
+	/**
+	 * Index after the last frame of the range.
+	 */
+	private final long endIndex ;
+	/**
+	 * Index of the current frame, beginIndex - 1 before the first call to next.
+	 */
+	private long index ;
+	/**
+	 * Mapped buffer of the segment of the current frame.
+	 */
+	private MappedByteBuffer buffer ;
+	/**
+	 * Position of the current frame within its buffer.
+	 */
+	private int position ;
+	/**
+	 * Index of the first frame after the segment of the current frame.
+	 */
+	private long segmentStop ;
+
+	/**
+	 * Constructor to place a cursor before the first frame of a range.
+	 * @param recording {@link recordPack.GazeRecording} to be read.
+	 * @param beginIndex index of the first frame.
+	 * @param endIndex index after the last frame.
+	 */
+	GazeCursor(GazeRecording recording, long beginIndex, long endIndex) {
+		super();
+		this.recording = recording ;
+		this.beginIndex = beginIndex ;
+		this.endIndex = endIndex ;
+		this.index = beginIndex - 1 ;
+	}
+
+	/**
+	 * Method to move to the next frame.
+	 * @return true if there is a next frame within the range.
+	 */
+	public boolean next() {
+		if (index + 1 >= endIndex)
+		{
+			index = endIndex ;
+			return false ;
+		}
+		index++ ;
+		if (buffer == null || index >= segmentStop)
+		{
+			int segment = recording.segmentOf(index) ;
+			buffer = recording.segmentBuffer(segment) ;
+			position = recording.position(segment, index) ;
+			segmentStop = recording.segmentStop(segment) ;
+		}
+		else
+		{
+			position += GazeRecordFormat.RECORD_SIZE ;
+		}
+		return true ;
+	}
+
+	/**
+	 * Method to get the {@link recordPack.GazeCursor#index} of the current frame.
+	 * @return {@link recordPack.GazeCursor#index}
+	 */
+	public long getIndex() {
+		return index ;
+	}
+
+	/**
+	 * Method to get the {@link recordPack.GazeCursor#beginIndex}.
+	 * @return {@link recordPack.GazeCursor#beginIndex}
+	 */
+	public long getBeginIndex() {
+		return beginIndex ;
+	}
+
+	/**
+	 * Method to get the {@link recordPack.GazeCursor#endIndex}.
+	 * @return {@link recordPack.GazeCursor#endIndex}
+	 */
+	public long getEndIndex() {
+		return endIndex ;
+	}
+
+	/**
+	 * Method to get the number of frames of the range.
+	 * @return number of frames.
+	 */
+	public long getFrameCount() {
+		return endIndex - beginIndex ;
+	}
+
+	/**
+	 * Method to get the time stamp of the current frame.
+	 * @return time stamp in milliseconds.
+	 */
+	public long getTimeStamp() {
+		return buffer.getLong(position) ;
+	}
+
+	/**
+	 * Method to get the tracker state of the current frame.
+	 * @return tracker state.
+	 */
+	public int getState() {
+		return buffer.getInt(position + 8) ;
+	}
+
+	/**
+	 * Method to know whether the tracker flagged the current frame as fixated.
+	 * @return the tracker's fixated flag.
+	 */
+	public boolean isFixated() {
+		return (buffer.getInt(position + 12) & GazeRecordFormat.FLAG_FIXATED) != 0 ;
+	}
+
+	/**
+	 * Method to know whether the current frame has smoothed coordinates.
+	 * @return true if the smoothed coordinates were recorded.
+	 */
+	public boolean hasSmoothedCoordinates() {
+		return (buffer.getInt(position + 12) & GazeRecordFormat.FLAG_SMOOTHED) != 0 ;
+	}
+
+	/**
+	 * Method to get the smoothed x coordinate of the current frame.
+	 * @return x coordinate, 0 if not recorded.
+	 */
+	public double getSmoothedX() {
+		return buffer.getDouble(position + 16) ;
+	}
+
+	/**
+	 * Method to get the smoothed y coordinate of the current frame.
+	 * @return y coordinate, 0 if not recorded.
+	 */
+	public double getSmoothedY() {
+		return buffer.getDouble(position + 24) ;
+	}
+
+	/**
+	 * Method to get the raw x coordinate of the current frame.
+	 * @return x coordinate, 0 if not recorded.
+	 */
+	public double getRawX() {
+		return buffer.getDouble(position + 32) ;
+	}
+
+	/**
+	 * Method to get the raw y coordinate of the current frame.
+	 * @return y coordinate, 0 if not recorded.
+	 */
+	public double getRawY() {
+		return buffer.getDouble(position + 40) ;
+	}
+
+	/**
+	 * Method to read the current frame.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be filled with the frame.
+	 */
+	public void read(GazeData gazeData) {
+		GazeRecordFormat.readRecord(buffer, position, gazeData) ;
+	}
+
+	/**
+	 * Method to make a new {@link dataPack.SmoothedEye} of the current frame.
+	 * @return {@link dataPack.SmoothedEye} with the smoothed coordinates, fixated flag, state and time stamp.
+	 */
+	public SmoothedEye toSmoothedEye() {
+		return new SmoothedEye(getSmoothedX(), getSmoothedY(), isFixated(), getState(), getTimeStamp()) ;
+	}
+}
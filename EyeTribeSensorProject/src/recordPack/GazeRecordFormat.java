@@ -0,0 +1,183 @@
+package recordPack;
+
+import java.nio.ByteBuffer;
+
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+/**
+ * Layout of the binary gaze recording files.<br><p>
+ * A recording is a series of segment files named prefix-00000.gaze, prefix-00001.gaze and so on. Each segment has:<br>
+ * 1. A header of {@link recordPack.GazeRecordFormat#HEADER_SIZE} bytes: magic number, version, record size, and 
+ * the number of records written, which is updated after every record.<br>
+ * 2. Fixed width records of {@link recordPack.GazeRecordFormat#RECORD_SIZE} bytes: time stamp, state, flags, 
+ * smoothed x and y, raw x and y.<br>
+ * A recording may have a time index beside it, named prefix.gidx and kept by {@link recordPack.GazeTimeIndex}: a 
+ * header of {@link recordPack.GazeRecordFormat#INDEX_HEADER_SIZE} bytes, magic number, version, block size, number of 
+ * frames indexed, first and last time stamps, followed by one long per block of frames, the highest time stamp up to 
+ * the end of that block.<br>
+ * All values are stored in the native byte order of {@link java.nio.ByteBuffer}, which is big endian.
+ */
+public final class GazeRecordFormat {
+
+	/**
+	 * Magic number at the start of every segment, "GAZE" in ASCII.
+	 */
+	public static final int MAGIC = 0x47415A45 ;
+	/**
+	 * Version of the layout.
+	 */
+	public static final int VERSION = 1 ;
+	/**
+	 * Size of the segment header in bytes.
+	 */
+	public static final int HEADER_SIZE = 32 ;
+	/**
+	 * Size of one record in bytes.
+	 */
+	public static final int RECORD_SIZE = 48 ;
+	/**
+	 * Position of the record count within the header.
+	 */
+	static final int RECORD_COUNT_OFFSET = 16 ;
+	/**
+	 * Magic number at the start of a time index, "GIDX" in ASCII.
+	 */
+	public static final int INDEX_MAGIC = 0x47494458 ;
+	/**
+	 * Version of the time index layout.
+	 */
+	public static final int INDEX_VERSION = 1 ;
+	/**
+	 * Size of the time index header in bytes.
+	 */
+	public static final int INDEX_HEADER_SIZE = 48 ;
+
+	/**
+	 * Flag set when the sample is part of a fixation.
+	 */
+	static final int FLAG_FIXATED = 1 ;
+	/**
+	 * Flag set when the sample has smoothed coordinates.
+	 */
+	static final int FLAG_SMOOTHED = 2 ;
+	/**
+	 * Flag set when the sample has raw coordinates.
+	 */
+	static final int FLAG_RAW = 4 ;
+
+	private GazeRecordFormat() {
+	}
+
+	/**
+	 * Method to get the file name of a segment.
+	 * @param prefix path and name prefix of the recording.
+	 * @param segmentNumber number of the segment, starting at 0.
+	 * @return file name of the segment.
+	 */
+	public static String segmentFileName(String prefix, int segmentNumber) {
+		return String.format("%s-%05d.gaze", prefix, segmentNumber) ;
+	}
+
+	/**
+	 * Method to get the file name of the time index of a recording.
+	 * @param prefix path and name prefix of the recording.
+	 * @return file name of the time index.
+	 */
+	public static String indexFileName(String prefix) {
+		return prefix + ".gidx" ;
+	}
+
+	/**
+	 * Method to write an empty segment header at the start of a buffer.
+	 * @param buffer buffer of the segment.
+	 */
+	static void writeHeader(ByteBuffer buffer) {
+		buffer.putInt(0, MAGIC) ;
+		buffer.putInt(4, VERSION) ;
+		buffer.putInt(8, RECORD_SIZE) ;
+		buffer.putInt(12, 0) ;
+		buffer.putLong(RECORD_COUNT_OFFSET, 0) ;
+	}
+
+	/**
+	 * Method to check a segment header and read its record count.
+	 * @param buffer buffer of the segment.
+	 * @return number of records in the segment.
+	 * @throws IllegalStateException if the header does not describe a gaze recording of this version.
+	 */
+	static long readRecordCount(ByteBuffer buffer) {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION 
+				|| buffer.getInt(8) != RECORD_SIZE)
+		{
+			throw new IllegalStateException("Not a gaze recording segment of version " + VERSION) ;
+		}
+		return buffer.getLong(RECORD_COUNT_OFFSET) ;
+	}
+
+	/**
+	 * Method to write one record.
+	 * @param buffer buffer of the segment.
+	 * @param position position of the record within the buffer.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be written.
+	 */
+	static void writeRecord(ByteBuffer buffer, int position, GazeData gazeData) {
+		int flags = 0 ;
+		if (gazeData.isFixated != null && gazeData.isFixated)
+		{
+			flags |= FLAG_FIXATED ;
+		}
+		Point2D smoothed = gazeData.smoothedCoordinates ;
+		Point2D raw = gazeData.rawCoordinates ;
+		if (smoothed != null)
+		{
+			flags |= FLAG_SMOOTHED ;
+		}
+		if (raw != null)
+		{
+			flags |= FLAG_RAW ;
+		}
+		buffer.putLong(position, gazeData.timeStamp == null ? 0 : gazeData.timeStamp) ;
+		buffer.putInt(position + 8, gazeData.state == null ? 0 : gazeData.state) ;
+		buffer.putInt(position + 12, flags) ;
+		buffer.putDouble(position + 16, smoothed == null ? 0 : smoothed.x) ;
+		buffer.putDouble(position + 24, smoothed == null ? 0 : smoothed.y) ;
+		buffer.putDouble(position + 32, raw == null ? 0 : raw.x) ;
+		buffer.putDouble(position + 40, raw == null ? 0 : raw.y) ;
+	}
+
+	/**
+	 * Method to read one record into a {@link com.theeyetribe.client.data.GazeData}, reusing its coordinate objects.
+	 * The eye specific fields are not recorded and are left as they are.
+	 * @param buffer buffer of the segment.
+	 * @param position position of the record within the buffer.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be filled.
+	 */
+	static void readRecord(ByteBuffer buffer, int position, GazeData gazeData) {
+		int flags = buffer.getInt(position + 12) ;
+		gazeData.timeStamp = buffer.getLong(position) ;
+		gazeData.state = buffer.getInt(position + 8) ;
+		gazeData.isFixated = (flags & FLAG_FIXATED) != 0 ;
+		gazeData.smoothedCoordinates = readPoint(buffer, position + 16, (flags & FLAG_SMOOTHED) != 0, 
+				gazeData.smoothedCoordinates) ;
+		gazeData.rawCoordinates = readPoint(buffer, position + 32, (flags & FLAG_RAW) != 0, 
+				gazeData.rawCoordinates) ;
+	}
+
+	/**
+	 * Method to read a point, reusing the given {@link com.theeyetribe.client.data.Point2D} when there is one.
+	 */
+	private static Point2D readPoint(ByteBuffer buffer, int position, boolean present, Point2D point) {
+		if (!present)
+		{
+			return null ;
+		}
+		if (point == null || point == Point2D.ZERO)
+		{
+			point = new Point2D() ;
+		}
+		point.x = buffer.getDouble(position) ;
+		point.y = buffer.getDouble(position + 8) ;
+		return point ;
+	}
+}
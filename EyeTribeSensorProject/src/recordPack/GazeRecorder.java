@@ -0,0 +1,181 @@
+package recordPack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+
+/**
+ * Class to record every {@link com.theeyetribe.client.data.GazeData} into binary segment files.<br><p>
+ * The recorder is an {@link com.theeyetribe.client.IGazeListener} which writes each frame as a fixed width record 
+ * through a {@link java.nio.MappedByteBuffer}, and then passes the frame on to a downstream listener such as 
+ * {@link basePack.SensorDataProducer}. When a segment is full, it is forced to disk and the next one is mapped. 
+ * The layout is described in {@link recordPack.GazeRecordFormat}.<br>
+ * Like the producer, the recorder is called from the thread of the {@link com.theeyetribe.client.GazeManager} only,
+ * but it may be closed from another thread, such as a shutdown hook. Recording a frame and closing are guarded by the
+ * recorder, so a frame is either recorded before the segment is forced to disk or not at all.
+ */
+public class GazeRecorder implements IGazeListener, Closeable {
+
+	/**
+	 * Default number of records per segment, which makes segments of about 48 MB.
+	 */
+	public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20 ;
+
+	/**
+	 * Path and name prefix of the segment files.
+	 */
+	private final String prefix ;
+	/**
+	 * Number of records each segment can hold.
+	 */
+	private final int recordsPerSegment ;
+	/**
+	 * Listener to which every frame is passed on after being recorded, or null.
+	 */
+	private final IGazeListener downstreamListener ;
+	/**
+	 * Mapped buffer of the current segment.
+	 */
+	private MappedByteBuffer segmentBuffer ;
+	/**
+	 * Number of the current segment.
+	 */
+	private int segmentNumber ;
+	/**
+	 * Number of records in the current segment.
+	 */
+	private int recordCount ;
+	/**
+	 * Total number of records written.
+	 */
+	private long totalRecordCount ;
+	/**
+	 * Set once the recorder is closed. Guarded by this object.
+	 */
+	private boolean closed ;
+
+	/**
+	 * Constructor to start a recording with the default segment size.
+	 * @param prefix path and name prefix of the segment files.
+	 * @param downstreamListener listener to which every frame is passed on, or null.
+	 * @throws IOException if the first segment cannot be created.
+	 */
+	public GazeRecorder(String prefix, IGazeListener downstreamListener) throws IOException {
+		this(prefix, DEFAULT_RECORDS_PER_SEGMENT, downstreamListener) ;
+	}
+
+	/**
+	 * Constructor to start a recording.
+	 * @param prefix path and name prefix of the segment files.
+	 * @param recordsPerSegment number of records each segment can hold.
+	 * @param downstreamListener listener to which every frame is passed on, or null.
+	 * @throws IOException if the first segment cannot be created.
+	 */
+	public GazeRecorder(String prefix, int recordsPerSegment, IGazeListener downstreamListener) throws IOException {
+		super();
+		if (recordsPerSegment < 1 
+				|| (long) recordsPerSegment * GazeRecordFormat.RECORD_SIZE + GazeRecordFormat.HEADER_SIZE > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid records per segment: " + recordsPerSegment) ;
+		}
+		this.prefix = prefix ;
+		this.recordsPerSegment = recordsPerSegment ;
+		this.downstreamListener = downstreamListener ;
+		this.segmentNumber = -1 ;
+		openNextSegment() ;
+	}
+
+	/**
+	 * Overridden Method from IGazeListener to record the frame and pass it on.<br>
+	 * If the next segment cannot be created, recording stops with a message, and frames are still passed on.
+	 * @see com.theeyetribe.client.IGazeListener#onGazeUpdate(com.theeyetribe.client.data.GazeData)
+	 */
+	@Override
+	public void onGazeUpdate(GazeData gazeData) {
+		recordUnlessClosed(gazeData) ;
+		if (downstreamListener != null)
+		{
+			downstreamListener.onGazeUpdate(gazeData) ;
+		}
+	}
+
+	/**
+	 * Method to record a frame unless the recorder is closed, closing it if the next segment cannot be created.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be recorded.
+	 */
+	private synchronized void recordUnlessClosed(GazeData gazeData) {
+		if (!closed)
+		{
+			try {
+				record(gazeData) ;
+			} catch (IOException e) {
+				System.out.println("Could Not record gaze data, recording stopped!");
+				closed = true ;
+			}
+		}
+	}
+
+	/**
+	 * Method to write one frame into the current segment, moving to the next segment when it is full.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be recorded.
+	 * @throws IOException if the next segment cannot be created.
+	 */
+	public synchronized void record(GazeData gazeData) throws IOException {
+		if (recordCount == recordsPerSegment)
+		{
+			openNextSegment() ;
+		}
+		GazeRecordFormat.writeRecord(segmentBuffer, 
+				GazeRecordFormat.HEADER_SIZE + recordCount * GazeRecordFormat.RECORD_SIZE, gazeData) ;
+		recordCount++ ;
+		totalRecordCount++ ;
+		segmentBuffer.putLong(GazeRecordFormat.RECORD_COUNT_OFFSET, recordCount) ;
+	}
+
+	/**
+	 * Method to get the total number of records written.
+	 * @return {@link recordPack.GazeRecorder#totalRecordCount}
+	 */
+	public synchronized long getTotalRecordCount() {
+		return totalRecordCount;
+	}
+
+	/**
+	 * Method to force the current segment to disk and stop recording. Frames are still passed on afterwards.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!closed)
+		{
+			closed = true ;
+			segmentBuffer.force() ;
+		}
+	}
+
+	/**
+	 * Method to force the current segment to disk, if any, and map a new one.
+	 * @throws IOException if the segment file cannot be created or mapped.
+	 */
+	private void openNextSegment() throws IOException {
+		if (segmentBuffer != null)
+		{
+			segmentBuffer.force() ;
+		}
+		segmentNumber++ ;
+		long segmentSize = GazeRecordFormat.HEADER_SIZE + (long) recordsPerSegment * GazeRecordFormat.RECORD_SIZE ;
+		RandomAccessFile file = new RandomAccessFile(GazeRecordFormat.segmentFileName(prefix, segmentNumber), "rw") ;
+		try {
+			file.setLength(0) ;
+			segmentBuffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize) ;
+		} finally {
+			file.close() ;
+		}
+		GazeRecordFormat.writeHeader(segmentBuffer) ;
+		recordCount = 0 ;
+	}
+}
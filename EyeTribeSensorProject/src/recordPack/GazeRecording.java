@@ -0,0 +1,215 @@
+package recordPack;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.theeyetribe.client.data.GazeData;
+
+/**
+ * Class to read any frame of a recording made by {@link recordPack.GazeRecorder}, by its index.<br><p>
+ * Unlike {@link recordPack.GazeRecordingReader}, which streams the frames in order, all segments are mapped read only
+ * when the recording is opened, and a frame is found from its index with a binary search over the first index of
+ * every segment. Reads only use absolute positions of the mapped buffers, so any number of threads may read the same
+ * recording at once, each into its own {@link com.theeyetribe.client.data.GazeData}. The time stamp, state and
+ * fixated flag of a frame can also be read on their own, without filling a frame.
+ */
+public class GazeRecording implements Closeable {
+
+	/**
+	 * Path and name prefix of the segment files.
+	 */
+	private final String prefix ;
+	/**
+	 * Mapped buffers of the segments.
+	 */
+	private MappedByteBuffer[] segmentBuffers ;
+	/**
+	 * Index of the first frame of every segment, followed by the total number of frames.
+	 */
+	private final long[] segmentStarts ;
+
+	/**
+	 * Constructor to open a recording and map all its segments.
+	 * @param prefix path and name prefix of the segment files.
+	 * @throws IOException if the first segment is missing, or a segment cannot be mapped or is not a gaze recording.
+	 */
+	public GazeRecording(String prefix) throws IOException {
+		super();
+		this.prefix = prefix ;
+		List<MappedByteBuffer> buffers = new ArrayList<MappedByteBuffer>() ;
+		List<Long> counts = new ArrayList<Long>() ;
+		for (int segmentNumber = 0 ; ; segmentNumber++)
+		{
+			File segmentFile = new File(GazeRecordFormat.segmentFileName(prefix, segmentNumber)) ;
+			if (!segmentFile.isFile())
+			{
+				break ;
+			}
+			RandomAccessFile file = new RandomAccessFile(segmentFile, "r") ;
+			try {
+				MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()) ;
+				long count = GazeRecordFormat.readRecordCount(buffer) ;
+				long maximumCount = (buffer.limit() - GazeRecordFormat.HEADER_SIZE) / GazeRecordFormat.RECORD_SIZE ;
+				if (count < 0 || count > maximumCount)
+				{
+					throw new IOException("Corrupt record count " + count + " in " + segmentFile) ;
+				}
+				buffers.add(buffer) ;
+				counts.add(count) ;
+			} catch (IllegalStateException e) {
+				throw new IOException(e.getMessage() + ": " + segmentFile) ;
+			} finally {
+				file.close() ;
+			}
+		}
+		if (buffers.isEmpty())
+		{
+			throw new IOException("No recording found at " + GazeRecordFormat.segmentFileName(prefix, 0)) ;
+		}
+		this.segmentBuffers = buffers.toArray(new MappedByteBuffer[buffers.size()]) ;
+		this.segmentStarts = new long[buffers.size() + 1] ;
+		for (int i = 0 ; i < buffers.size() ; i++)
+		{
+			segmentStarts[i + 1] = segmentStarts[i] + counts.get(i) ;
+		}
+	}
+
+	/**
+	 * Method to get the number of frames of the recording.
+	 * @return number of frames.
+	 */
+	public long getFrameCount() {
+		return segmentStarts[segmentStarts.length - 1] ;
+	}
+
+	/**
+	 * Method to read a frame.
+	 * @param index index of the frame, from 0.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be filled with the frame.
+	 */
+	public void read(long index, GazeData gazeData) {
+		int segment = segmentOf(index) ;
+		GazeRecordFormat.readRecord(segmentBuffers[segment], position(segment, index), gazeData) ;
+	}
+
+	/**
+	 * Method to read the time stamp of a frame.
+	 * @param index index of the frame, from 0.
+	 * @return time stamp in milliseconds.
+	 */
+	public long getTimeStamp(long index) {
+		int segment = segmentOf(index) ;
+		return segmentBuffers[segment].getLong(position(segment, index)) ;
+	}
+
+	/**
+	 * Method to read the tracker state of a frame.
+	 * @param index index of the frame, from 0.
+	 * @return tracker state.
+	 */
+	public int getState(long index) {
+		int segment = segmentOf(index) ;
+		return segmentBuffers[segment].getInt(position(segment, index) + 8) ;
+	}
+
+	/**
+	 * Method to read whether the tracker flagged a frame as fixated.
+	 * @param index index of the frame, from 0.
+	 * @return the tracker's fixated flag.
+	 */
+	public boolean isFixated(long index) {
+		int segment = segmentOf(index) ;
+		return (segmentBuffers[segment].getInt(position(segment, index) + 12) & GazeRecordFormat.FLAG_FIXATED) != 0 ;
+	}
+
+	/**
+	 * Method to get the {@link recordPack.GazeRecording#prefix}.
+	 * @return {@link recordPack.GazeRecording#prefix}
+	 */
+	public String getPrefix() {
+		return prefix ;
+	}
+
+	/**
+	 * Method to release the mapped segments. Frames must not be read afterwards.
+	 */
+	@Override
+	public void close() {
+		segmentBuffers = new MappedByteBuffer[0] ;
+	}
+
+	/**
+	 * Method to open a cursor over a range of frames.
+	 * @param beginIndex index of the first frame.
+	 * @param endIndex index after the last frame.
+	 * @return {@link recordPack.GazeCursor} placed before the first frame.
+	 */
+	public GazeCursor cursor(long beginIndex, long endIndex) {
+		if (beginIndex < 0 || endIndex < beginIndex || endIndex > getFrameCount())
+		{
+			throw new IndexOutOfBoundsException("Frames " + beginIndex + " to " + endIndex + " of " + getFrameCount()) ;
+		}
+		return new GazeCursor(this, beginIndex, endIndex) ;
+	}
+
+	/**
+	 * Method to find the segment holding a frame.
+	 * @param index index of the frame.
+	 * @return number of the segment.
+	 */
+	int segmentOf(long index) {
+		if (index < 0 || index >= getFrameCount())
+		{
+			throw new IndexOutOfBoundsException("Frame " + index + " of " + getFrameCount()) ;
+		}
+		int low = 0 ;
+		int high = segmentStarts.length - 2 ;
+		while (low < high)
+		{
+			int middle = (low + high + 1) >>> 1 ;
+			if (segmentStarts[middle] <= index)
+			{
+				low = middle ;
+			}
+			else
+			{
+				high = middle - 1 ;
+			}
+		}
+		return low ;
+	}
+
+	/**
+	 * Method to get the mapped buffer of a segment.
+	 * @param segment number of the segment.
+	 * @return mapped buffer, read with absolute positions only.
+	 */
+	MappedByteBuffer segmentBuffer(int segment) {
+		return segmentBuffers[segment] ;
+	}
+
+	/**
+	 * Method to get the index of the first frame after a segment.
+	 * @param segment number of the segment.
+	 * @return index of the first frame of the next segment, or the number of frames.
+	 */
+	long segmentStop(int segment) {
+		return segmentStarts[segment + 1] ;
+	}
+
+	/**
+	 * Method to get the position of a frame within its segment buffer.
+	 * @param segment number of the segment.
+	 * @param index index of the frame.
+	 * @return position of the record.
+	 */
+	int position(int segment, long index) {
+		return (int) (GazeRecordFormat.HEADER_SIZE + (index - segmentStarts[segment]) * GazeRecordFormat.RECORD_SIZE) ;
+	}
+}
@@ -0,0 +1,117 @@
+package recordPack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.theeyetribe.client.data.GazeData;
+
+import sessionPack.GazeSource;
+
+/**
+ * Class to read the frames of a recording made by {@link recordPack.GazeRecorder} in order.<br><p>
+ * Segments are mapped read only one after the other, starting at prefix-00000.gaze, until a segment file is missing. 
+ * Each call to {@link recordPack.GazeRecordingReader#next(GazeData)} fills a caller owned 
+ * {@link com.theeyetribe.client.data.GazeData}, so reading does not allocate per frame. As a
+ * {@link sessionPack.GazeSource}, a recording can be run as a {@link sessionPack.GazeSession}.
+ */
+public class GazeRecordingReader implements GazeSource {
+
+	/**
+	 * Path and name prefix of the segment files.
+	 */
+	private final String prefix ;
+	/**
+	 * Mapped buffer of the current segment, or null once all segments are read.
+	 */
+	private MappedByteBuffer segmentBuffer ;
+	/**
+	 * Number of the current segment.
+	 */
+	private int segmentNumber ;
+	/**
+	 * Number of records in the current segment.
+	 */
+	private long recordCount ;
+	/**
+	 * Index of the next record to read in the current segment.
+	 */
+	private long recordIndex ;
+
+	/**
+	 * Constructor to open a recording at its first segment.
+	 * @param prefix path and name prefix of the segment files.
+	 * @throws IOException if the first segment cannot be read.
+	 */
+	public GazeRecordingReader(String prefix) throws IOException {
+		super();
+		this.prefix = prefix ;
+		this.segmentNumber = -1 ;
+		if (!openNextSegment())
+		{
+			throw new IOException("No recording found at " + GazeRecordFormat.segmentFileName(prefix, 0)) ;
+		}
+	}
+
+	/**
+	 * Method to read the next frame.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be filled with the frame.
+	 * @return false if there are no more frames, in which case gazeData is left unchanged.
+	 * @throws IOException if a segment cannot be read.
+	 */
+	@Override
+	public boolean next(GazeData gazeData) throws IOException {
+		while (segmentBuffer != null && recordIndex == recordCount)
+		{
+			openNextSegment() ;
+		}
+		if (segmentBuffer == null)
+		{
+			return false ;
+		}
+		GazeRecordFormat.readRecord(segmentBuffer, 
+				(int) (GazeRecordFormat.HEADER_SIZE + recordIndex * GazeRecordFormat.RECORD_SIZE), gazeData) ;
+		recordIndex++ ;
+		return true ;
+	}
+
+	@Override
+	public void close() {
+		segmentBuffer = null ;
+	}
+
+	/**
+	 * Method to map the next segment, if its file exists.
+	 * @return false if there is no next segment.
+	 * @throws IOException if the segment file cannot be mapped or is not a gaze recording.
+	 */
+	private boolean openNextSegment() throws IOException {
+		segmentNumber++ ;
+		segmentBuffer = null ;
+		File segmentFile = new File(GazeRecordFormat.segmentFileName(prefix, segmentNumber)) ;
+		if (!segmentFile.isFile())
+		{
+			return false ;
+		}
+		RandomAccessFile file = new RandomAccessFile(segmentFile, "r") ;
+		try {
+			MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()) ;
+			long count = GazeRecordFormat.readRecordCount(buffer) ;
+			long maximumCount = (buffer.limit() - GazeRecordFormat.HEADER_SIZE) / GazeRecordFormat.RECORD_SIZE ;
+			if (count < 0 || count > maximumCount)
+			{
+				throw new IOException("Corrupt record count " + count + " in " + segmentFile) ;
+			}
+			segmentBuffer = buffer ;
+			recordCount = count ;
+			recordIndex = 0 ;
+		} catch (IllegalStateException e) {
+			throw new IOException(e.getMessage() + ": " + segmentFile) ;
+		} finally {
+			file.close() ;
+		}
+		return true ;
+	}
+}
@@ -0,0 +1,107 @@
+package recordPack;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+
+/**
+ * Class to feed a recording made by {@link recordPack.GazeRecorder} back into an 
+ * {@link com.theeyetribe.client.IGazeListener}, such as {@link basePack.SensorDataProducer}.<br><p>
+ * The frames are replayed on the calling thread with one of the following paces:<br>
+ * 1. {@link recordPack.GazeReplayer#REAL_TIME}, keeping the gaps between the recorded time stamps.<br>
+ * 2. Any other positive speed, dividing the gaps by it, for example 10 for ten times faster.<br>
+ * 3. {@link recordPack.GazeReplayer#AS_FAST_AS_POSSIBLE}, without waiting at all.<br>
+ * The same {@link com.theeyetribe.client.data.GazeData} is filled for every frame, so the listener must copy 
+ * what it needs before returning, as the producer does.
+ */
+public class GazeReplayer {
+
+	/**
+	 * Speed keeping the recorded pace.
+	 */
+	public static final double REAL_TIME = 1.0 ;
+	/**
+	 * Speed delivering the frames without waiting.
+	 */
+	public static final double AS_FAST_AS_POSSIBLE = 0.0 ;
+
+	/**
+	 * Path and name prefix of the segment files.
+	 */
+	private final String prefix ;
+
+	/**
+	 * Constructor to initialize the replayer for a recording.
+	 * @param prefix path and name prefix of the segment files.
+	 */
+	public GazeReplayer(String prefix) {
+		super();
+		this.prefix = prefix ;
+	}
+
+	/**
+	 * Method to replay the whole recording into a listener.<br>
+	 * A frame which is already late is delivered at once; the replay does not try to catch up by skipping frames.
+	 * @param gazeListener {@link com.theeyetribe.client.IGazeListener} receiving the frames.
+	 * @param speed {@link recordPack.GazeReplayer#REAL_TIME}, a positive speed up factor, or 
+	 * {@link recordPack.GazeReplayer#AS_FAST_AS_POSSIBLE}.
+	 * @return number of frames replayed.
+	 * @throws IOException if the recording cannot be read.
+	 * @throws InterruptedException if the calling thread is interrupted during the replay.
+	 */
+	public long replay(IGazeListener gazeListener, double speed) throws IOException, InterruptedException {
+		if (speed < 0 || Double.isNaN(speed))
+		{
+			throw new IllegalArgumentException("Invalid speed: " + speed) ;
+		}
+		GazeRecordingReader reader = new GazeRecordingReader(prefix) ;
+		try {
+			GazeData gazeData = new GazeData() ;
+			long frameCount = 0 ;
+			long firstTimeStamp = 0 ;
+			long startNanos = 0 ;
+			while (reader.next(gazeData))
+			{
+				if (speed > 0)
+				{
+					long timeStamp = gazeData.timeStamp ;
+					if (frameCount == 0)
+					{
+						firstTimeStamp = timeStamp ;
+						startNanos = System.nanoTime() ;
+					}
+					long dueNanos = startNanos + (long) ((timeStamp - firstTimeStamp) * 1000000.0 / speed) ;
+					waitUntil(dueNanos) ;
+				}
+				else if (Thread.interrupted())
+				{
+					throw new InterruptedException() ;
+				}
+				gazeListener.onGazeUpdate(gazeData) ;
+				frameCount++ ;
+			}
+			return frameCount ;
+		} finally {
+			reader.close() ;
+		}
+	}
+
+	/**
+	 * Method to wait until {@link java.lang.System#nanoTime()} reaches a given value.
+	 * @param dueNanos time to wait for.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 */
+	private static void waitUntil(long dueNanos) throws InterruptedException {
+		long remaining ;
+		while ((remaining = dueNanos - System.nanoTime()) > 0)
+		{
+			LockSupport.parkNanos(remaining) ;
+			if (Thread.interrupted())
+			{
+				throw new InterruptedException() ;
+			}
+		}
+	}
+}
@@ -0,0 +1,298 @@
+package recordPack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import dataPack.FixationSet;
+import dataPack.SmoothedEye;
+
+/**
+ * Sparse time index of a {@link recordPack.GazeRecording}, to find the frames of a time range without reading the
+ * frames before it.<br><p>
+ * The index works as follows:<br>
+ * 1. The frames are grouped in blocks of {@link recordPack.GazeTimeIndex#blockSize} frames, and for every block the
+ * index keeps the highest time stamp up to the end of that block. These values never decrease, even if the tracker
+ * sent a time stamp out of order.<br>
+ * 2. A seek does a binary search over these values for the first block reaching the time stamp, and then reads the
+ * time stamps of that one block from the mapped segments, so it touches a few pages of the recording however long it
+ * is.<br>
+ * 3. The frames of a range are iterated with a {@link recordPack.GazeCursor}, straight from the mapped segments.<br>
+ * The index is stored beside the recording, as described in {@link recordPack.GazeRecordFormat}, and made on the first
+ * {@link recordPack.GazeTimeIndex#open(GazeRecording)}. If the recording has grown since, only the blocks from the last
+ * complete one are read again. If the stored index does not fit the recording, it is made again.
+ */
+public class GazeTimeIndex {
+
+	/**
+	 * Default number of frames of a block, about 4 seconds at 60 frames per second and 12 KB of recording.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256 ;
+
+	/**
+	 * {@link recordPack.GazeRecording} which is indexed.
+	 */
+	private final GazeRecording recording ;
+	/**
+	 * Number of frames of a block.
+	 */
+	private final int blockSize ;
+	/**
+	 * Highest time stamp up to the end of every block.
+	 */
+	private long[] blockTimeStamps ;
+	/**
+	 * Number of blocks.
+	 */
+	private int blockCount ;
+
+	/**
+	 * Constructor to initialize an empty index.
+	 * @param recording {@link recordPack.GazeRecording} to be indexed.
+	 * @param blockSize number of frames of a block.
+	 */
+	private GazeTimeIndex(GazeRecording recording, int blockSize) {
+		super();
+		if (blockSize < 1)
+		{
+			throw new IllegalArgumentException("Invalid block size: " + blockSize) ;
+		}
+		long blocks = (recording.getFrameCount() + blockSize - 1) / blockSize ;
+		if (blocks > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("Block size too small for " + recording.getFrameCount() + " frames") ;
+		}
+		this.recording = recording ;
+		this.blockSize = blockSize ;
+		this.blockTimeStamps = new long[(int) blocks] ;
+	}
+
+	/**
+	 * Method to open the index of a recording with the default block size, making or updating it as needed.
+	 * @param recording {@link recordPack.GazeRecording} to be indexed.
+	 * @return {@link recordPack.GazeTimeIndex} of all frames of the recording.
+	 */
+	public static GazeTimeIndex open(GazeRecording recording) {
+		return open(recording, DEFAULT_BLOCK_SIZE) ;
+	}
+
+	/**
+	 * Method to open the index of a recording, making or updating it as needed.<br>
+	 * If the index cannot be written beside the recording, it is kept in memory only.
+	 * @param recording {@link recordPack.GazeRecording} to be indexed.
+	 * @param blockSize number of frames of a block.
+	 * @return {@link recordPack.GazeTimeIndex} of all frames of the recording.
+	 */
+	public static GazeTimeIndex open(GazeRecording recording, int blockSize) {
+		GazeTimeIndex timeIndex = new GazeTimeIndex(recording, blockSize) ;
+		File indexFile = new File(GazeRecordFormat.indexFileName(recording.getPrefix())) ;
+		int storedBlocks = 0 ;
+		if (indexFile.isFile())
+		{
+			try {
+				storedBlocks = timeIndex.load(indexFile) ;
+			} catch (IOException e) {
+				storedBlocks = 0 ;
+			}
+		}
+		if (storedBlocks < timeIndex.blockTimeStamps.length)
+		{
+			timeIndex.build(storedBlocks) ;
+			try {
+				timeIndex.save(indexFile) ;
+			} catch (IOException e) {
+				System.out.println("Could Not write the time index " + indexFile + ", keeping it in memory!") ;
+			}
+		}
+		return timeIndex ;
+	}
+
+	/**
+	 * Method to find the first frame at or after a time stamp.
+	 * @param timeStamp time stamp in milliseconds.
+	 * @return index of the first frame whose time stamp is at least the given one, or the number of frames if none.
+	 */
+	public long seek(long timeStamp) {
+		int low = 0 ;
+		int high = blockCount ;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1 ;
+			if (blockTimeStamps[middle] < timeStamp)
+			{
+				low = middle + 1 ;
+			}
+			else
+			{
+				high = middle ;
+			}
+		}
+		if (low == blockCount)
+		{
+			return recording.getFrameCount() ;
+		}
+		long blockStart = (long) low * blockSize ;
+		GazeCursor cursor = recording.cursor(blockStart, Math.min(blockStart + blockSize, recording.getFrameCount())) ;
+		while (cursor.next())
+		{
+			if (cursor.getTimeStamp() >= timeStamp)
+			{
+				return cursor.getIndex() ;
+			}
+		}
+		return cursor.getEndIndex() ;
+	}
+
+	/**
+	 * Method to find the first frame at or after the time of a sample.
+	 * @param smoothedEye {@link dataPack.SmoothedEye} whose {@link dataPack.SmoothedEye#getTimeStamp()} is sought.
+	 * @return index of the first frame whose time stamp is at least the one of the sample.
+	 */
+	public long seek(SmoothedEye smoothedEye) {
+		return seek(smoothedEye.getTimeStamp()) ;
+	}
+
+	/**
+	 * Method to open a cursor over the frames of a time range.
+	 * @param fromTimeStamp time stamp of the start of the range in milliseconds, included.
+	 * @param toTimeStamp time stamp of the end of the range in milliseconds, excluded.
+	 * @return {@link recordPack.GazeCursor} over the frames from the first at or after fromTimeStamp to the last before
+	 * toTimeStamp.
+	 */
+	public GazeCursor range(long fromTimeStamp, long toTimeStamp) {
+		long beginIndex = seek(fromTimeStamp) ;
+		long endIndex = toTimeStamp > fromTimeStamp ? Math.max(beginIndex, seek(toTimeStamp)) : beginIndex ;
+		return recording.cursor(beginIndex, endIndex) ;
+	}
+
+	/**
+	 * Method to open a cursor over the frames recorded during a fixation.
+	 * @param fixationSet {@link dataPack.FixationSet} whose start and stop time stamps bound the range, both included.
+	 * @return {@link recordPack.GazeCursor} over the frames of the fixation.
+	 */
+	public GazeCursor range(FixationSet fixationSet) {
+		return range(fixationSet.getStartTimeStamp(), fixationSet.getStopTimeStamp() + 1) ;
+	}
+
+	/**
+	 * Method to get the {@link recordPack.GazeTimeIndex#recording}.
+	 * @return {@link recordPack.GazeTimeIndex#recording}
+	 */
+	public GazeRecording getRecording() {
+		return recording ;
+	}
+
+	/**
+	 * Method to get the {@link recordPack.GazeTimeIndex#blockSize}.
+	 * @return {@link recordPack.GazeTimeIndex#blockSize}
+	 */
+	public int getBlockSize() {
+		return blockSize ;
+	}
+
+	/**
+	 * Method to get the highest time stamp of the recording.
+	 * @return time stamp in milliseconds, Long.MIN_VALUE if the recording is empty.
+	 */
+	public long getLastTimeStamp() {
+		return blockCount == 0 ? Long.MIN_VALUE : blockTimeStamps[blockCount - 1] ;
+	}
+
+	/**
+	 * Method to read the blocks of the recording from a given one on.
+	 * @param fromBlock number of the first block to be read, the ones before being already known.
+	 */
+	private void build(int fromBlock) {
+		long frameCount = recording.getFrameCount() ;
+		long highest = fromBlock > 0 ? blockTimeStamps[fromBlock - 1] : Long.MIN_VALUE ;
+		GazeCursor cursor = recording.cursor((long) fromBlock * blockSize, frameCount) ;
+		int block = fromBlock ;
+		int inBlock = 0 ;
+		while (cursor.next())
+		{
+			highest = Math.max(highest, cursor.getTimeStamp()) ;
+			if (++inBlock == blockSize || cursor.getIndex() == frameCount - 1)
+			{
+				blockTimeStamps[block++] = highest ;
+				inBlock = 0 ;
+			}
+		}
+		blockCount = block ;
+	}
+
+	/**
+	 * Method to load the blocks of a stored index which still fit the recording.
+	 * @param indexFile file of the stored index.
+	 * @return number of blocks loaded, 0 if the stored index does not fit the recording.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private int load(File indexFile) throws IOException {
+		ByteBuffer buffer ;
+		RandomAccessFile file = new RandomAccessFile(indexFile, "r") ;
+		try {
+			long length = file.length() ;
+			if (length < GazeRecordFormat.INDEX_HEADER_SIZE || length > Integer.MAX_VALUE)
+			{
+				return 0 ;
+			}
+			buffer = ByteBuffer.allocate((int) length) ;
+			FileChannel channel = file.getChannel() ;
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+			{
+			}
+		} finally {
+			file.close() ;
+		}
+		long storedFrames = buffer.getLong(16) ;
+		long storedBlocks = (storedFrames + blockSize - 1) / blockSize ;
+		if (buffer.getInt(0) != GazeRecordFormat.INDEX_MAGIC || buffer.getInt(4) != GazeRecordFormat.INDEX_VERSION
+				|| buffer.getInt(8) != blockSize || storedFrames <= 0 || storedFrames > recording.getFrameCount()
+				|| buffer.limit() != GazeRecordFormat.INDEX_HEADER_SIZE + storedBlocks * 8
+				|| buffer.getLong(24) != recording.getTimeStamp(0)
+				|| buffer.getLong(32) != recording.getTimeStamp(storedFrames - 1))
+		{
+			return 0 ;
+		}
+		int usableBlocks = storedFrames == recording.getFrameCount() ? (int) storedBlocks : (int) (storedFrames / blockSize) ;
+		buffer.position(GazeRecordFormat.INDEX_HEADER_SIZE) ;
+		buffer.asLongBuffer().get(blockTimeStamps, 0, usableBlocks) ;
+		blockCount = usableBlocks ;
+		return usableBlocks ;
+	}
+
+	/**
+	 * Method to store the index beside the recording.
+	 * @param indexFile file of the index.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private void save(File indexFile) throws IOException {
+		long frameCount = recording.getFrameCount() ;
+		if (frameCount == 0)
+		{
+			return ;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(GazeRecordFormat.INDEX_HEADER_SIZE + blockCount * 8) ;
+		buffer.putInt(0, GazeRecordFormat.INDEX_MAGIC) ;
+		buffer.putInt(4, GazeRecordFormat.INDEX_VERSION) ;
+		buffer.putInt(8, blockSize) ;
+		buffer.putLong(16, frameCount) ;
+		buffer.putLong(24, recording.getTimeStamp(0)) ;
+		buffer.putLong(32, recording.getTimeStamp(frameCount - 1)) ;
+		buffer.position(GazeRecordFormat.INDEX_HEADER_SIZE) ;
+		buffer.asLongBuffer().put(blockTimeStamps, 0, blockCount) ;
+		buffer.position(0) ;
+		RandomAccessFile file = new RandomAccessFile(indexFile, "rw") ;
+		try {
+			file.setLength(0) ;
+			FileChannel channel = file.getChannel() ;
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer) ;
+			}
+		} finally {
+			file.close() ;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package reprocessPack;
+
+import java.util.Arrays;
+
+import dataPack.FixationSet;
+import dataPack.FixationStatistics;
+
+/**
+ * Table of fixations found by reprocessing, one row per fixation, stored column wise in growable primitive
+ * arrays.<br><p>
+ * A row keeps the start and stop time stamps, the mean position, the dispersion and the number of samples of a
+ * {@link dataPack.FixationSet}, taken from its {@link dataPack.FixationStatistics}, so months of fixations fit in
+ * memory without keeping their samples. Tables of consecutive chunks are joined with
+ * {@link reprocessPack.FixationTable#append(FixationTable)}.
+ */
+public class FixationTable {
+
+	/**
+	 * Initial number of rows the columns can hold before growing.
+	 */
+	private static final int INITIAL_CAPACITY = 64 ;
+
+	private long[] startTimeStamps = new long[INITIAL_CAPACITY] ;
+	private long[] stopTimeStamps = new long[INITIAL_CAPACITY] ;
+	private double[] meanXs = new double[INITIAL_CAPACITY] ;
+	private double[] meanYs = new double[INITIAL_CAPACITY] ;
+	private double[] dispersions = new double[INITIAL_CAPACITY] ;
+	private int[] sampleCounts = new int[INITIAL_CAPACITY] ;
+	/**
+	 * Number of rows.
+	 */
+	private int size ;
+
+	/**
+	 * Method to add a row for a fixation set.
+	 * @param fixationSet {@link dataPack.FixationSet} whose fixation is added.
+	 */
+	public void add(FixationSet fixationSet) {
+		ensureCapacity(size + 1) ;
+		FixationStatistics statistics = fixationSet.getStatistics() ;
+		startTimeStamps[size] = fixationSet.getStartTimeStamp() ;
+		stopTimeStamps[size] = fixationSet.getStopTimeStamp() ;
+		meanXs[size] = statistics.getMeanX() ;
+		meanYs[size] = statistics.getMeanY() ;
+		dispersions[size] = statistics.getDispersion() ;
+		sampleCounts[size] = fixationSet.getSampleCount() ;
+		size++ ;
+	}
+
+	/**
+	 * Method to add all rows of another table after the rows of this one.
+	 * @param other {@link reprocessPack.FixationTable} whose rows are added, left unchanged.
+	 */
+	public void append(FixationTable other) {
+		ensureCapacity(size + other.size) ;
+		System.arraycopy(other.startTimeStamps, 0, startTimeStamps, size, other.size) ;
+		System.arraycopy(other.stopTimeStamps, 0, stopTimeStamps, size, other.size) ;
+		System.arraycopy(other.meanXs, 0, meanXs, size, other.size) ;
+		System.arraycopy(other.meanYs, 0, meanYs, size, other.size) ;
+		System.arraycopy(other.dispersions, 0, dispersions, size, other.size) ;
+		System.arraycopy(other.sampleCounts, 0, sampleCounts, size, other.size) ;
+		size += other.size ;
+	}
+
+	/**
+	 * Method to get the number of rows.
+	 * @return number of fixations in the table.
+	 */
+	public int size() {
+		return size ;
+	}
+
+	/**
+	 * Method to get the start time stamp of a fixation.
+	 * @param index index of the row.
+	 * @return time stamp in milliseconds.
+	 */
+	public long getStartTimeStamp(int index) {
+		return startTimeStamps[index] ;
+	}
+
+	/**
+	 * Method to get the stop time stamp of a fixation.
+	 * @param index index of the row.
+	 * @return time stamp in milliseconds.
+	 */
+	public long getStopTimeStamp(int index) {
+		return stopTimeStamps[index] ;
+	}
+
+	/**
+	 * Method to get the x coordinate of the mean position of a fixation.
+	 * @param index index of the row.
+	 * @return x coordinate.
+	 */
+	public double getMeanX(int index) {
+		return meanXs[index] ;
+	}
+
+	/**
+	 * Method to get the y coordinate of the mean position of a fixation.
+	 * @param index index of the row.
+	 * @return y coordinate.
+	 */
+	public double getMeanY(int index) {
+		return meanYs[index] ;
+	}
+
+	/**
+	 * Method to get the dispersion of a fixation.
+	 * @param index index of the row.
+	 * @return width plus height of its bounding box in pixels.
+	 */
+	public double getDispersion(int index) {
+		return dispersions[index] ;
+	}
+
+	/**
+	 * Method to get the number of samples of a fixation.
+	 * @param index index of the row.
+	 * @return number of samples.
+	 */
+	public int getSampleCount(int index) {
+		return sampleCounts[index] ;
+	}
+
+	/**
+	 * Method to find the first fixation stopping after a time stamp, the rows being in time order.
+	 * @param timeStamp time stamp in milliseconds.
+	 * @return index of the first row whose stop time stamp is after the given one, or the number of rows.
+	 */
+	public int firstStoppingAfter(long timeStamp) {
+		return search(stopTimeStamps, timeStamp + 1) ;
+	}
+
+	/**
+	 * Method to find the first fixation starting at or after a time stamp, the rows being in time order.<br>
+	 * The fixations overlapping a time range are the rows from firstStoppingAfter its start to
+	 * firstStartingFrom its end.
+	 * @param timeStamp time stamp in milliseconds.
+	 * @return index of the first row whose start time stamp is at least the given one, or the number of rows.
+	 */
+	public int firstStartingFrom(long timeStamp) {
+		return search(startTimeStamps, timeStamp) ;
+	}
+
+	/**
+	 * Method to know whether two tables hold the same rows, value for value.
+	 * @param other {@link reprocessPack.FixationTable} to be compared.
+	 * @return true if both have the same rows in the same order.
+	 */
+	public boolean sameRowsAs(FixationTable other) {
+		if (size != other.size)
+		{
+			return false ;
+		}
+		for (int i = 0 ; i < size ; i++)
+		{
+			if (startTimeStamps[i] != other.startTimeStamps[i] || stopTimeStamps[i] != other.stopTimeStamps[i]
+					|| Double.compare(meanXs[i], other.meanXs[i]) != 0 || Double.compare(meanYs[i], other.meanYs[i]) != 0
+					|| Double.compare(dispersions[i], other.dispersions[i]) != 0 || sampleCounts[i] != other.sampleCounts[i])
+			{
+				return false ;
+			}
+		}
+		return true ;
+	}
+
+	/**
+	 * Method to find the first row whose value in a sorted column is at least a given one.
+	 * @param column column of time stamps.
+	 * @param timeStamp value sought.
+	 * @return index of the row, or the number of rows.
+	 */
+	private int search(long[] column, long timeStamp) {
+		int low = 0 ;
+		int high = size ;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1 ;
+			if (column[middle] < timeStamp)
+			{
+				low = middle + 1 ;
+			}
+			else
+			{
+				high = middle ;
+			}
+		}
+		return low ;
+	}
+
+	/**
+	 * Method to grow the columns to hold at least a number of rows.
+	 * @param capacity number of rows needed.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity <= startTimeStamps.length)
+		{
+			return ;
+		}
+		int newCapacity = Math.max(capacity, startTimeStamps.length << 1) ;
+		startTimeStamps = Arrays.copyOf(startTimeStamps, newCapacity) ;
+		stopTimeStamps = Arrays.copyOf(stopTimeStamps, newCapacity) ;
+		meanXs = Arrays.copyOf(meanXs, newCapacity) ;
+		meanYs = Arrays.copyOf(meanYs, newCapacity) ;
+		dispersions = Arrays.copyOf(dispersions, newCapacity) ;
+		sampleCounts = Arrays.copyOf(sampleCounts, newCapacity) ;
+	}
+}
@@ -0,0 +1,106 @@
+package reprocessPack;
+
+/**
+ * Result of reprocessing one recorded session with a {@link reprocessPack.ReprocessingEngine}: its fixations in time
+ * order and a few totals.
+ */
+public class ReprocessedSession {
+
+	/**
+	 * Path and name prefix of the recording.
+	 */
+	private final String prefix ;
+	/**
+	 * Fixations found, in time order.
+	 */
+	private final FixationTable fixationTable ;
+	/**
+	 * Number of frames of the recording.
+	 */
+	private final long frameCount ;
+	/**
+	 * Number of chunks the recording was split into.
+	 */
+	private final int chunkCount ;
+
+	/**
+	 * Constructor to initialize the result.
+	 * @param prefix path and name prefix of the recording.
+	 * @param fixationTable fixations found, in time order.
+	 * @param frameCount number of frames of the recording.
+	 * @param chunkCount number of chunks the recording was split into.
+	 */
+	ReprocessedSession(String prefix, FixationTable fixationTable, long frameCount, int chunkCount) {
+		this.prefix = prefix ;
+		this.fixationTable = fixationTable ;
+		this.frameCount = frameCount ;
+		this.chunkCount = chunkCount ;
+	}
+
+	/**
+	 * Method to get the {@link reprocessPack.ReprocessedSession#prefix}.
+	 * @return {@link reprocessPack.ReprocessedSession#prefix}
+	 */
+	public String getPrefix() {
+		return prefix ;
+	}
+
+	/**
+	 * Method to get the {@link reprocessPack.ReprocessedSession#fixationTable}.
+	 * @return {@link reprocessPack.ReprocessedSession#fixationTable}
+	 */
+	public FixationTable getFixationTable() {
+		return fixationTable ;
+	}
+
+	/**
+	 * Method to get the {@link reprocessPack.ReprocessedSession#frameCount}.
+	 * @return {@link reprocessPack.ReprocessedSession#frameCount}
+	 */
+	public long getFrameCount() {
+		return frameCount ;
+	}
+
+	/**
+	 * Method to get the {@link reprocessPack.ReprocessedSession#chunkCount}.
+	 * @return {@link reprocessPack.ReprocessedSession#chunkCount}
+	 */
+	public int getChunkCount() {
+		return chunkCount ;
+	}
+
+	/**
+	 * Method to get the number of samples within fixations.
+	 * @return sum of the sample counts of the fixations.
+	 */
+	public long getFixatedSampleCount() {
+		long total = 0 ;
+		for (int i = 0 ; i < fixationTable.size() ; i++)
+		{
+			total += fixationTable.getSampleCount(i) ;
+		}
+		return total ;
+	}
+
+	/**
+	 * Method to get the total time spent in fixations.
+	 * @return sum of the durations of the fixations in milliseconds.
+	 */
+	public long getFixationMillis() {
+		long total = 0 ;
+		for (int i = 0 ; i < fixationTable.size() ; i++)
+		{
+			total += fixationTable.getStopTimeStamp(i) - fixationTable.getStartTimeStamp(i) ;
+		}
+		return total ;
+	}
+
+	/**
+	 * Method to describe the result on one line.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s frames=%d chunks=%d fixations=%d fixated_samples=%d fixation_ms=%d", prefix,
+				frameCount, chunkCount, fixationTable.size(), getFixatedSampleCount(), getFixationMillis()) ;
+	}
+}
@@ -0,0 +1,318 @@
+package reprocessPack;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import com.theeyetribe.client.data.GazeData;
+
+import basePack.SensorDataProducer;
+import dataPack.FixationDetector;
+import dataPack.FixationSet;
+import dataPack.QueueOfFixationSets;
+import dataPack.RingOfFixationSets;
+import recordPack.GazeRecording;
+
+/**
+ * Engine running the fixation segmentation again over recorded sessions, on all cores of a
+ * {@link java.util.concurrent.ForkJoinPool}.<br><p>
+ * The engine works as follows:<br>
+ * 1. Every recording is opened as a {@link recordPack.GazeRecording} and split into chunks of about the chunk length.
+ * A chunk boundary is moved on to the next frame the tracker did not flag as fixated, so no fixation of the tracker is
+ * cut in two.<br>
+ * 2. The chunks of all recordings are handed to the pool as one task, split in halves until single chunks are left.
+ * Each chunk is replayed through its own {@link basePack.SensorDataProducer}, with its own
+ * {@link dataPack.FixationDetector} from the factory, into a small {@link dataPack.RingOfFixationSets} drained after
+ * every frame, so the fixation sets are those the live pipeline makes.<br>
+ * 3. A chunk owns the fixations starting within it. It goes on past its end until the fixation under way has ended,
+ * and with a detector, it starts some frames before its start, so that the detector has found its way into the same
+ * fixations as a single replay would before the owned frames begin. The fixations starting in those warm up frames
+ * are dropped, as they belong to the chunk before.<br>
+ * 4. The rows of every chunk go into a {@link reprocessPack.FixationTable} of its own, and the tables of a recording
+ * are joined in chunk order once all are done, so the result does not depend on the order the chunks ran in.<br>
+ * Without a detector, the tracker's flag decides, and a chunk gives exactly the fixations of a single replay. With a
+ * detector, it does as soon as the detector agrees again within the warm up, which the dispersion and velocity
+ * detectors do at the end of their first fixation.
+ */
+public class ReprocessingEngine implements Closeable {
+
+	/**
+	 * Default number of frames of a chunk, about 18 minutes at 60 frames per second.
+	 */
+	public static final int DEFAULT_CHUNK_FRAMES = 1 << 16 ;
+	/**
+	 * Default number of frames replayed before a chunk to settle its detector, about 8 seconds at 60 frames per second.
+	 */
+	public static final int DEFAULT_WARM_UP_FRAMES = 512 ;
+	/**
+	 * Number of fixation sets of the ring of a chunk, drained after every frame.
+	 */
+	private static final int CHUNK_QUEUE_SIZE = 4 ;
+
+	/**
+	 * Pool running the chunks.
+	 */
+	private final ForkJoinPool forkJoinPool ;
+	/**
+	 * Factory of a new {@link dataPack.FixationDetector} for every chunk, or null to trust the tracker's flag.
+	 */
+	private final Supplier<? extends FixationDetector> detectorFactory ;
+	private final int chunkFrames ;
+	private final int warmUpFrames ;
+
+	/**
+	 * Constructor to initialize the engine with the default chunk and warm up lengths.
+	 * @param parallelism number of threads of the pool.
+	 * @param detectorFactory factory of a new {@link dataPack.FixationDetector} for every chunk, or null to trust the
+	 * tracker's flag.
+	 */
+	public ReprocessingEngine(int parallelism, Supplier<? extends FixationDetector> detectorFactory) {
+		this(parallelism, detectorFactory, DEFAULT_CHUNK_FRAMES, DEFAULT_WARM_UP_FRAMES) ;
+	}
+
+	/**
+	 * Constructor to initialize the engine.
+	 * @param parallelism number of threads of the pool.
+	 * @param detectorFactory factory of a new {@link dataPack.FixationDetector} for every chunk, or null to trust the
+	 * tracker's flag.
+	 * @param chunkFrames number of frames of a chunk, before its end is moved to a frame not flagged as fixated.
+	 * @param warmUpFrames number of frames replayed before a chunk to settle its detector.
+	 */
+	public ReprocessingEngine(int parallelism, Supplier<? extends FixationDetector> detectorFactory, int chunkFrames,
+			int warmUpFrames) {
+		super();
+		if (parallelism <= 0 || chunkFrames <= 0 || warmUpFrames < 0)
+		{
+			throw new IllegalArgumentException("Invalid reprocessing parameters") ;
+		}
+		this.forkJoinPool = new ForkJoinPool(parallelism) ;
+		this.detectorFactory = detectorFactory ;
+		this.chunkFrames = chunkFrames ;
+		this.warmUpFrames = warmUpFrames ;
+	}
+
+	/**
+	 * Method to reprocess one recording.
+	 * @param prefix path and name prefix of the recording.
+	 * @return {@link reprocessPack.ReprocessedSession} of the recording.
+	 * @throws IOException if the recording cannot be opened.
+	 */
+	public ReprocessedSession process(String prefix) throws IOException {
+		return process(Collections.singletonList(prefix)).get(0) ;
+	}
+
+	/**
+	 * Method to reprocess recordings, all chunks of all of them sharing the pool.
+	 * @param prefixes path and name prefixes of the recordings.
+	 * @return {@link reprocessPack.ReprocessedSession}s in the order of the prefixes.
+	 * @throws IOException if a recording cannot be opened.
+	 */
+	public List<ReprocessedSession> process(List<String> prefixes) throws IOException {
+		List<GazeRecording> recordings = new ArrayList<GazeRecording>() ;
+		try {
+			for (String prefix : prefixes)
+			{
+				recordings.add(new GazeRecording(prefix)) ;
+			}
+			List<Chunk> chunks = new ArrayList<Chunk>() ;
+			int[] firstChunks = new int[recordings.size() + 1] ;
+			for (int i = 0 ; i < recordings.size() ; i++)
+			{
+				firstChunks[i] = chunks.size() ;
+				GazeRecording recording = recordings.get(i) ;
+				long[] boundaries = split(recording) ;
+				for (int c = 0 ; c + 1 < boundaries.length ; c++)
+				{
+					chunks.add(new Chunk(recording, boundaries[c], boundaries[c + 1])) ;
+				}
+			}
+			firstChunks[recordings.size()] = chunks.size() ;
+			forkJoinPool.invoke(new ChunkTask(chunks, 0, chunks.size())) ;
+			List<ReprocessedSession> sessions = new ArrayList<ReprocessedSession>() ;
+			for (int i = 0 ; i < recordings.size() ; i++)
+			{
+				FixationTable fixationTable = new FixationTable() ;
+				for (int c = firstChunks[i] ; c < firstChunks[i + 1] ; c++)
+				{
+					fixationTable.append(chunks.get(c).fixationTable) ;
+				}
+				sessions.add(new ReprocessedSession(prefixes.get(i), fixationTable, recordings.get(i).getFrameCount(),
+						firstChunks[i + 1] - firstChunks[i])) ;
+			}
+			return sessions ;
+		} finally {
+			for (GazeRecording recording : recordings)
+			{
+				recording.close() ;
+			}
+		}
+	}
+
+	/**
+	 * Method to reprocess one recording as a single replay on the calling thread, as a reference for the chunked
+	 * result.
+	 * @param prefix path and name prefix of the recording.
+	 * @return {@link reprocessPack.ReprocessedSession} of the recording, in one chunk.
+	 * @throws IOException if the recording cannot be opened.
+	 */
+	public ReprocessedSession processSerially(String prefix) throws IOException {
+		GazeRecording recording = new GazeRecording(prefix) ;
+		try {
+			Chunk chunk = new Chunk(recording, 0, recording.getFrameCount()) ;
+			processChunk(chunk) ;
+			return new ReprocessedSession(prefix, chunk.fixationTable, recording.getFrameCount(), 1) ;
+		} finally {
+			recording.close() ;
+		}
+	}
+
+	/**
+	 * Method to shut the pool down.
+	 */
+	@Override
+	public void close() {
+		forkJoinPool.shutdown() ;
+	}
+
+	/**
+	 * Method to find the chunk boundaries of a recording.
+	 * @param recording {@link recordPack.GazeRecording} to be split.
+	 * @return index of the first frame of every chunk, followed by the number of frames.
+	 */
+	private long[] split(GazeRecording recording) {
+		long frameCount = recording.getFrameCount() ;
+		long[] boundaries = new long[(int) (frameCount / chunkFrames) + 2] ;
+		int count = 1 ;
+		long next = chunkFrames ;
+		while (next < frameCount)
+		{
+			while (next < frameCount && recording.isFixated(next))
+			{
+				next++ ;
+			}
+			if (next >= frameCount)
+			{
+				break ;
+			}
+			boundaries[count++] = next ;
+			next = Math.max(next + 1, (long) count * chunkFrames) ;
+		}
+		boundaries[count++] = frameCount ;
+		long[] result = new long[count] ;
+		System.arraycopy(boundaries, 0, result, 0, count) ;
+		return result ;
+	}
+
+	/**
+	 * Method to replay a chunk and collect the fixations it owns.
+	 * @param chunk {@link reprocessPack.ReprocessingEngine.Chunk} to be processed.
+	 */
+	private void processChunk(Chunk chunk) {
+		GazeRecording recording = chunk.recording ;
+		long frameCount = recording.getFrameCount() ;
+		FixationDetector detector = detectorFactory != null ? detectorFactory.get() : null ;
+		QueueOfFixationSets queue = new RingOfFixationSets(CHUNK_QUEUE_SIZE) ;
+		SensorDataProducer producer = new SensorDataProducer(queue, detector) ;
+		long ownedStart = chunk.begin == 0 ? Long.MIN_VALUE : recording.getTimeStamp(chunk.begin) ;
+		long ownedStop = chunk.end == frameCount ? Long.MAX_VALUE : recording.getTimeStamp(chunk.end) ;
+		long index = detector != null ? Math.max(0, chunk.begin - warmUpFrames) : chunk.begin ;
+		GazeData gazeData = new GazeData() ;
+		while (index < frameCount && (index < chunk.end || fixationUnderWay(detector, gazeData, ownedStop)))
+		{
+			recording.read(index, gazeData) ;
+			producer.onGazeUpdate(gazeData) ;
+			while (queue.size() > 0)
+			{
+				FixationSet fixationSet ;
+				try {
+					fixationSet = queue.getFIFOFixationSet() ;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt() ;
+					return ;
+				}
+				long start = fixationSet.getStartTimeStamp() ;
+				if (start >= ownedStart && start < ownedStop)
+				{
+					chunk.fixationTable.add(fixationSet) ;
+				}
+				queue.releaseFixationSet(fixationSet) ;
+			}
+			index++ ;
+		}
+	}
+
+	/**
+	 * Method to know whether a fixation which may belong to the chunk is still under way after its end.
+	 * @param detector {@link dataPack.FixationDetector} of the chunk, or null.
+	 * @param lastFrame last frame replayed.
+	 * @param ownedStop time stamp at which the fixations stop belonging to the chunk.
+	 * @return true if more frames must be replayed.
+	 */
+	private static boolean fixationUnderWay(FixationDetector detector, GazeData lastFrame, long ownedStop) {
+		if (detector == null)
+		{
+			return lastFrame.isFixated != null && lastFrame.isFixated ;
+		}
+		return detector.isInFixation()
+				|| (detector.getPendingSampleCount() > 0 && detector.getPendingStartTimeStamp() < ownedStop) ;
+	}
+
+	/**
+	 * Range of frames of a recording processed as one task, with the fixations it owns once done.
+	 */
+	private static class Chunk {
+
+		private final GazeRecording recording ;
+		/**
+		 * Index of the first frame owned by the chunk.
+		 */
+		private final long begin ;
+		/**
+		 * Index of the first frame owned by the next chunk, or the number of frames.
+		 */
+		private final long end ;
+		private final FixationTable fixationTable = new FixationTable() ;
+
+		private Chunk(GazeRecording recording, long begin, long end) {
+			this.recording = recording ;
+			this.begin = begin ;
+			this.end = end ;
+		}
+	}
+
+	/**
+	 * Task processing a range of chunks, split in halves down to single chunks.
+	 */
+	private class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L ;
+
+		private final List<Chunk> chunks ;
+		private final int from ;
+		private final int to ;
+
+		private ChunkTask(List<Chunk> chunks, int from, int to) {
+			this.chunks = chunks ;
+			this.from = from ;
+			this.to = to ;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1)
+			{
+				processChunk(chunks.get(from)) ;
+			}
+			else if (to - from > 1)
+			{
+				int middle = (from + to) >>> 1 ;
+				invokeAll(new ChunkTask(chunks, from, middle), new ChunkTask(chunks, middle, to)) ;
+			}
+		}
+	}
+}
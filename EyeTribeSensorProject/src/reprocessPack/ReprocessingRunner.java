@@ -0,0 +1,76 @@
+package reprocessPack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import dataPack.DispersionThresholdDetector;
+import dataPack.FixationDetector;
+
+/**
+ * Starting point reprocessing recordings made by {@link recordPack.GazeRecorder} on a
+ * {@link reprocessPack.ReprocessingEngine} and reporting the fixations found.<br><p>
+ * The arguments are "[threads] [-tracker] [-check] prefix...". By default the fixations are found again with a
+ * {@link dataPack.DispersionThresholdDetector} on as many threads as there are processors. With -tracker, the
+ * tracker's fixated flag is trusted instead. With -check, every recording is also replayed in one piece on the main
+ * thread, and the two results are compared row for row.
+ */
+public class ReprocessingRunner {
+
+	public static void main(String[] args) throws IOException {
+
+		int threads = Runtime.getRuntime().availableProcessors() ;
+		Supplier<FixationDetector> detectorFactory = DispersionThresholdDetector::new ;
+		boolean check = false ;
+		List<String> prefixes = new ArrayList<String>() ;
+		for (String arg : args)
+		{
+			if (arg.matches("\\d+"))
+			{
+				threads = Integer.parseInt(arg) ;
+			}
+			else if (arg.equals("-tracker"))
+			{
+				detectorFactory = null ;
+			}
+			else if (arg.equals("-check"))
+			{
+				check = true ;
+			}
+			else
+			{
+				prefixes.add(arg) ;
+			}
+		}
+		if (prefixes.isEmpty())
+		{
+			System.out.println("Usage: ReprocessingRunner [threads] [-tracker] [-check] prefix...") ;
+			return ;
+		}
+
+		ReprocessingEngine reprocessingEngine = new ReprocessingEngine(threads, detectorFactory) ;
+		long startNanos = System.nanoTime() ;
+		List<ReprocessedSession> sessions = reprocessingEngine.process(prefixes) ;
+		long elapsedNanos = System.nanoTime() - startNanos ;
+		long frames = 0 ;
+		for (ReprocessedSession session : sessions)
+		{
+			System.out.println(session) ;
+			frames += session.getFrameCount() ;
+		}
+		System.out.println(String.format("%d frames on %d threads in %.1f ms, %.1f million frames per second", frames,
+				threads, elapsedNanos / 1e6, frames * 1e3 / Math.max(1, elapsedNanos))) ;
+
+		if (check)
+		{
+			for (ReprocessedSession session : sessions)
+			{
+				ReprocessedSession serialSession = reprocessingEngine.processSerially(session.getPrefix()) ;
+				System.out.println(session.getPrefix() + (session.getFixationTable().sameRowsAs(
+						serialSession.getFixationTable()) ? " matches" : " DIFFERS FROM") + " the single replay") ;
+			}
+		}
+		reprocessingEngine.close() ;
+	}
+}
@@ -0,0 +1,174 @@
+package saccadePack;
+
+/**
+ * Saccade between two consecutive fixations, as measured by {@link saccadePack.SaccadeAnalyzer}.<br><p>
+ * The saccade runs from the last sample of one fixation to the first sample of the next. Its measures are:<br>
+ * 1. Amplitude, the straight distance between the two end points in pixels.<br>
+ * 2. Duration, the time between the two end points in milliseconds.<br>
+ * 3. Peak velocity, the highest speed from sample to sample in pixels per second, and mean velocity, the distance
+ * travelled over the duration.<br>
+ * 4. Direction in degrees, 0 to the right and 90 downwards, as the screen coordinates run.<br>
+ * The analyzer reuses one instance for all saccades, so a {@link saccadePack.SaccadeListener} must copy what it wants
+ * to keep before returning.
+ */
+public class Saccade {
+
+	/**
+	 * Time stamps in milliseconds of the last sample of the earlier fixation and the first of the later one.
+	 */
+	private long startTimeStamp , stopTimeStamp ;
+	/**
+	 * Position of the last sample of the earlier fixation.
+	 */
+	private double startX , startY ;
+	/**
+	 * Position of the first sample of the later fixation.
+	 */
+	private double stopX , stopY ;
+	/**
+	 * Straight distance between the two end points in pixels.
+	 */
+	private double amplitude ;
+	/**
+	 * Highest speed from sample to sample in pixels per second.
+	 */
+	private double peakVelocity ;
+	/**
+	 * Distance travelled over the duration in pixels per second.
+	 */
+	private double meanVelocity ;
+	/**
+	 * Number of samples between the two fixations.
+	 */
+	private int sampleCount ;
+
+	/**
+	 * Method to fill the saccade with new measures.
+	 * @param startTimeStamp time stamp of the last sample of the earlier fixation in milliseconds.
+	 * @param startX x coordinate of the last sample of the earlier fixation.
+	 * @param startY y coordinate of the last sample of the earlier fixation.
+	 * @param stopTimeStamp time stamp of the first sample of the later fixation in milliseconds.
+	 * @param stopX x coordinate of the first sample of the later fixation.
+	 * @param stopY y coordinate of the first sample of the later fixation.
+	 * @param amplitude straight distance between the end points in pixels.
+	 * @param peakVelocity highest speed from sample to sample in pixels per second.
+	 * @param meanVelocity distance travelled over the duration in pixels per second.
+	 * @param sampleCount number of samples between the two fixations.
+	 */
+	void set(long startTimeStamp, double startX, double startY, long stopTimeStamp, double stopX, double stopY,
+			double amplitude, double peakVelocity, double meanVelocity, int sampleCount) {
+		this.startTimeStamp = startTimeStamp ;
+		this.startX = startX ;
+		this.startY = startY ;
+		this.stopTimeStamp = stopTimeStamp ;
+		this.stopX = stopX ;
+		this.stopY = stopY ;
+		this.amplitude = amplitude ;
+		this.peakVelocity = peakVelocity ;
+		this.meanVelocity = meanVelocity ;
+		this.sampleCount = sampleCount ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#startTimeStamp}.
+	 * @return {@link saccadePack.Saccade#startTimeStamp}
+	 */
+	public long getStartTimeStamp() {
+		return startTimeStamp ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#stopTimeStamp}.
+	 * @return {@link saccadePack.Saccade#stopTimeStamp}
+	 */
+	public long getStopTimeStamp() {
+		return stopTimeStamp ;
+	}
+
+	/**
+	 * Method to get the duration of the saccade.
+	 * @return duration in milliseconds.
+	 */
+	public long getDurationMillis() {
+		return stopTimeStamp - startTimeStamp ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#startX}.
+	 * @return {@link saccadePack.Saccade#startX}
+	 */
+	public double getStartX() {
+		return startX ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#startY}.
+	 * @return {@link saccadePack.Saccade#startY}
+	 */
+	public double getStartY() {
+		return startY ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#stopX}.
+	 * @return {@link saccadePack.Saccade#stopX}
+	 */
+	public double getStopX() {
+		return stopX ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#stopY}.
+	 * @return {@link saccadePack.Saccade#stopY}
+	 */
+	public double getStopY() {
+		return stopY ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#amplitude}.
+	 * @return {@link saccadePack.Saccade#amplitude}
+	 */
+	public double getAmplitude() {
+		return amplitude ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#peakVelocity}.
+	 * @return {@link saccadePack.Saccade#peakVelocity}
+	 */
+	public double getPeakVelocity() {
+		return peakVelocity ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#meanVelocity}.
+	 * @return {@link saccadePack.Saccade#meanVelocity}
+	 */
+	public double getMeanVelocity() {
+		return meanVelocity ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.Saccade#sampleCount}.
+	 * @return {@link saccadePack.Saccade#sampleCount}
+	 */
+	public int getSampleCount() {
+		return sampleCount ;
+	}
+
+	/**
+	 * Method to get the direction of the saccade.
+	 * @return direction in degrees from -180 to 180, 0 to the right and 90 downwards.
+	 */
+	public double getDirection() {
+		return Math.toDegrees(Math.atan2(stopY - startY, stopX - startX)) ;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Saccade [start=%d, durationMillis=%d, amplitude=%.1f, direction=%.0f, peakVelocity=%.0f,"
+				+ " meanVelocity=%.0f]", startTimeStamp, getDurationMillis(), amplitude, getDirection(), peakVelocity,
+				meanVelocity) ;
+	}
+}
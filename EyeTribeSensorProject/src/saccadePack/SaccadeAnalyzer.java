@@ -0,0 +1,308 @@
+package saccadePack;
+
+import dataPack.EyeCoordinate;
+import dataPack.FixationSet;
+
+/**
+ * Stage measuring the saccades between consecutive fixations, fed by {@link basePack.SensorDataProducer} with what it
+ * sees of the gaze.<br><p>
+ * The producer tells the analyzer the following:<br>
+ * 1. {@link saccadePack.SaccadeAnalyzer#fixationEnded(FixationSet)} before handing a fixation set on.<br>
+ * 2. {@link saccadePack.SaccadeAnalyzer#addSample(double, double, long)} for every sample not added to a fixation
+ * set.<br>
+ * 3. {@link saccadePack.SaccadeAnalyzer#fixationStarted(FixationSet)} once a new fixation set has its first samples.
+ * A {@link dataPack.FixationDetector} recognises a fixation some samples after it started, so the samples from its
+ * start on, which had been seen as samples between fixations, are dropped again.<br>
+ * The saccade then runs from the last sample of the earlier fixation, through the samples in between, to the first
+ * sample of the later one. Distances are measured with
+ * {@link dataPack.EyeCoordinate#getDistanceBetweenEyeCoordinated(EyeCoordinate)} on two reused coordinates. A gap
+ * longer than the maximum duration, such as a blink or lost tracking, or a shift shorter than the minimum amplitude,
+ * is counted but not reported.<br>
+ * Every saccade is added to the {@link saccadePack.SaccadeWindow}s of the analyzer, which close as the sample time
+ * passes their boundaries, and is passed to the {@link saccadePack.SaccadeListener}. The samples in between are kept
+ * in a fixed ring of primitives, so the analyzer allocates nothing per sample.
+ */
+public class SaccadeAnalyzer {
+
+	/**
+	 * Default largest duration of a saccade in milliseconds. Longer gaps between fixations are not saccades.
+	 */
+	public static final long DEFAULT_MAXIMUM_DURATION_MILLIS = 250 ;
+	/**
+	 * Default smallest amplitude of a saccade in pixels.
+	 */
+	public static final double DEFAULT_MINIMUM_AMPLITUDE = 10 ;
+	/**
+	 * Number of samples between two fixations the analyzer can hold. A gap with more samples is not a saccade.
+	 */
+	private static final int SAMPLE_CAPACITY = 256 ;
+
+	private final long maximumDurationMillis ;
+	private final double minimumAmplitude ;
+	/**
+	 * {@link saccadePack.SaccadeListener} told of the saccades and windows, or null.
+	 */
+	private final SaccadeListener saccadeListener ;
+	private SaccadeWindow[] windows = new SaccadeWindow[0] ;
+
+	/**
+	 * Samples between the last fixation and now, oldest first.
+	 */
+	private final double[] x = new double[SAMPLE_CAPACITY] ;
+	private final double[] y = new double[SAMPLE_CAPACITY] ;
+	private final long[] ts = new long[SAMPLE_CAPACITY] ;
+	private int sampleCount ;
+	/**
+	 * Whether more samples came than the ring can hold since the last fixation.
+	 */
+	private boolean overflowed ;
+	/**
+	 * Whether a fixation has ended and the next has not started yet.
+	 */
+	private boolean betweenFixations ;
+	/**
+	 * Time stamp and position of the last sample of the last fixation.
+	 */
+	private long lastFixationStopTimeStamp ;
+	private double lastFixationX , lastFixationY ;
+	/**
+	 * Time stamp in milliseconds of the latest sample seen.
+	 */
+	private long latestTimeStamp ;
+	/**
+	 * Coordinates reused to measure distances.
+	 */
+	private final EyeCoordinate from = new EyeCoordinate(0, 0) ;
+	private final EyeCoordinate to = new EyeCoordinate(0, 0) ;
+	/**
+	 * Saccade reused for every measure.
+	 */
+	private final Saccade saccade = new Saccade() ;
+
+	private volatile long saccadeCount ;
+	private volatile long gapCount ;
+	private volatile long shiftCount ;
+
+	/**
+	 * Constructor to initialize the analyzer with the default thresholds.
+	 * @param saccadeListener {@link saccadePack.SaccadeListener} told of the saccades and windows, or null.
+	 */
+	public SaccadeAnalyzer(SaccadeListener saccadeListener) {
+		this(DEFAULT_MAXIMUM_DURATION_MILLIS, DEFAULT_MINIMUM_AMPLITUDE, saccadeListener) ;
+	}
+
+	/**
+	 * Constructor to initialize the analyzer.
+	 * @param maximumDurationMillis largest duration of a saccade in milliseconds.
+	 * @param minimumAmplitude smallest amplitude of a saccade in pixels.
+	 * @param saccadeListener {@link saccadePack.SaccadeListener} told of the saccades and windows, or null.
+	 */
+	public SaccadeAnalyzer(long maximumDurationMillis, double minimumAmplitude, SaccadeListener saccadeListener) {
+		super();
+		if (maximumDurationMillis <= 0 || !(minimumAmplitude >= 0))
+		{
+			throw new IllegalArgumentException("Invalid saccade thresholds") ;
+		}
+		this.maximumDurationMillis = maximumDurationMillis ;
+		this.minimumAmplitude = minimumAmplitude ;
+		this.saccadeListener = saccadeListener ;
+	}
+
+	/**
+	 * Method to add a window aggregating the saccades. Windows must be added before the analyzer is fed.
+	 * @param window {@link saccadePack.SaccadeWindow} to be added.
+	 */
+	public void addWindow(SaccadeWindow window) {
+		SaccadeWindow[] newWindows = new SaccadeWindow[windows.length + 1] ;
+		System.arraycopy(windows, 0, newWindows, 0, windows.length) ;
+		newWindows[windows.length] = window ;
+		windows = newWindows ;
+	}
+
+	/**
+	 * Method to add a sample which is not part of a fixation set.
+	 * @param xValue x coordinate of the sample.
+	 * @param yValue y coordinate of the sample.
+	 * @param timeStamp time stamp of the sample in milliseconds.
+	 */
+	public void addSample(double xValue, double yValue, long timeStamp) {
+		if (betweenFixations)
+		{
+			if (sampleCount == SAMPLE_CAPACITY)
+			{
+				overflowed = true ;
+			}
+			else
+			{
+				x[sampleCount] = xValue ;
+				y[sampleCount] = yValue ;
+				ts[sampleCount] = timeStamp ;
+				sampleCount++ ;
+			}
+		}
+		advanceTime(timeStamp) ;
+	}
+
+	/**
+	 * Method to mark the end of a fixation, before its fixation set is handed on.
+	 * @param fixationSet {@link dataPack.FixationSet} of the fixation which has ended.
+	 */
+	public void fixationEnded(FixationSet fixationSet) {
+		int last = fixationSet.getSampleCount() - 1 ;
+		if (last < 0)
+		{
+			return ;
+		}
+		fixationEnded(fixationSet.getX(last), fixationSet.getY(last), fixationSet.getTimeStamp(last)) ;
+	}
+
+	/**
+	 * Method to mark the end of a fixation.
+	 * @param xValue x coordinate of its last sample.
+	 * @param yValue y coordinate of its last sample.
+	 * @param timeStamp time stamp of its last sample in milliseconds.
+	 */
+	public void fixationEnded(double xValue, double yValue, long timeStamp) {
+		lastFixationX = xValue ;
+		lastFixationY = yValue ;
+		lastFixationStopTimeStamp = timeStamp ;
+		betweenFixations = true ;
+		sampleCount = 0 ;
+		overflowed = false ;
+		advanceTime(timeStamp) ;
+	}
+
+	/**
+	 * Method to mark the start of a fixation, once its fixation set has its first samples, and measure the saccade
+	 * leading to it.
+	 * @param fixationSet {@link dataPack.FixationSet} of the fixation which has started.
+	 */
+	public void fixationStarted(FixationSet fixationSet) {
+		int count = fixationSet.getSampleCount() ;
+		if (count == 0)
+		{
+			return ;
+		}
+		fixationStarted(fixationSet.getX(0), fixationSet.getY(0), fixationSet.getTimeStamp(0),
+				fixationSet.getTimeStamp(count - 1)) ;
+	}
+
+	/**
+	 * Method to mark the start of a fixation and measure the saccade leading to it.
+	 * @param xValue x coordinate of its first sample.
+	 * @param yValue y coordinate of its first sample.
+	 * @param startTimeStamp time stamp of its first sample in milliseconds.
+	 * @param timeStamp time stamp of the latest sample in milliseconds, at which the fixation was recognised.
+	 */
+	public void fixationStarted(double xValue, double yValue, long startTimeStamp, long timeStamp) {
+		advanceTime(timeStamp) ;
+		if (betweenFixations)
+		{
+			betweenFixations = false ;
+			while (sampleCount > 0 && ts[sampleCount - 1] >= startTimeStamp)
+			{
+				sampleCount-- ;
+			}
+			measureSaccade(xValue, yValue, startTimeStamp, timeStamp) ;
+		}
+	}
+
+	/**
+	 * Method to measure the saccade from the last fixation to the start of the new one, and report it.
+	 * @param xValue x coordinate of the first sample of the new fixation.
+	 * @param yValue y coordinate of the first sample of the new fixation.
+	 * @param startTimeStamp time stamp of the first sample of the new fixation in milliseconds.
+	 * @param timeStamp time stamp of the latest sample in milliseconds.
+	 */
+	private void measureSaccade(double xValue, double yValue, long startTimeStamp, long timeStamp) {
+		long duration = startTimeStamp - lastFixationStopTimeStamp ;
+		if (overflowed || duration <= 0 || duration > maximumDurationMillis)
+		{
+			gapCount++ ;
+			return ;
+		}
+		from.setX(lastFixationX) ;
+		from.setY(lastFixationY) ;
+		to.setX(xValue) ;
+		to.setY(yValue) ;
+		double amplitude = from.getDistanceBetweenEyeCoordinated(to) ;
+		if (amplitude < minimumAmplitude)
+		{
+			shiftCount++ ;
+			return ;
+		}
+		double pathLength = 0 ;
+		double peakVelocity = 0 ;
+		long previousTimeStamp = lastFixationStopTimeStamp ;
+		for (int i = 0 ; i <= sampleCount ; i++)
+		{
+			long sampleTimeStamp = i < sampleCount ? ts[i] : startTimeStamp ;
+			to.setX(i < sampleCount ? x[i] : xValue) ;
+			to.setY(i < sampleCount ? y[i] : yValue) ;
+			double step = from.getDistanceBetweenEyeCoordinated(to) ;
+			pathLength += step ;
+			if (sampleTimeStamp > previousTimeStamp)
+			{
+				peakVelocity = Math.max(peakVelocity, step * 1000.0 / (sampleTimeStamp - previousTimeStamp)) ;
+				previousTimeStamp = sampleTimeStamp ;
+			}
+			from.setX(to.getX()) ;
+			from.setY(to.getY()) ;
+		}
+		saccade.set(lastFixationStopTimeStamp, lastFixationX, lastFixationY, startTimeStamp, xValue, yValue,
+				amplitude, peakVelocity, pathLength * 1000.0 / duration, sampleCount) ;
+		saccadeCount++ ;
+		for (SaccadeWindow window : windows)
+		{
+			window.add(saccade, timeStamp) ;
+		}
+		if (saccadeListener != null)
+		{
+			saccadeListener.onSaccade(saccade) ;
+		}
+	}
+
+	/**
+	 * Method to move the sample time on, closing the windows whose boundary it has passed.
+	 * @param timeStamp time stamp of the latest sample in milliseconds.
+	 */
+	private void advanceTime(long timeStamp) {
+		if (timeStamp < latestTimeStamp)
+		{
+			return ;
+		}
+		latestTimeStamp = timeStamp ;
+		for (SaccadeWindow window : windows)
+		{
+			SaccadeWindowSnapshot snapshot = window.closeIfDue(timeStamp) ;
+			if (snapshot != null && saccadeListener != null)
+			{
+				saccadeListener.onWindowClosed(window, snapshot) ;
+			}
+		}
+	}
+
+	/**
+	 * Method to get the number of saccades measured.
+	 * @return number of saccades reported.
+	 */
+	public long getSaccadeCount() {
+		return saccadeCount ;
+	}
+
+	/**
+	 * Method to get the number of gaps between fixations too long to be saccades.
+	 * @return number of gaps.
+	 */
+	public long getGapCount() {
+		return gapCount ;
+	}
+
+	/**
+	 * Method to get the number of shifts between fixations too short to be saccades.
+	 * @return number of shifts.
+	 */
+	public long getShiftCount() {
+		return shiftCount ;
+	}
+}
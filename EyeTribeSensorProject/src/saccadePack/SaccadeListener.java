@@ -0,0 +1,22 @@
+package saccadePack;
+
+/**
+ * Interface to be told of the saccades measured by a {@link saccadePack.SaccadeAnalyzer}, and of its windows as they
+ * close. Both are called on the thread feeding the analyzer, normally the gaze input, so they must return quickly.
+ */
+public interface SaccadeListener {
+
+	/**
+	 * Method called for every saccade measured.
+	 * @param saccade {@link saccadePack.Saccade} measured, only valid until the method returns.
+	 */
+	void onSaccade(Saccade saccade) ;
+
+	/**
+	 * Method called every time a {@link saccadePack.SaccadeWindow} of the analyzer closes. Does nothing by default.
+	 * @param window {@link saccadePack.SaccadeWindow} which has closed.
+	 * @param snapshot {@link saccadePack.SaccadeWindowSnapshot} of its aggregates.
+	 */
+	default void onWindowClosed(SaccadeWindow window, SaccadeWindowSnapshot snapshot) {
+	}
+}
@@ -0,0 +1,199 @@
+package saccadePack;
+
+import java.util.Arrays;
+
+/**
+ * Streaming aggregate of saccades over a window of time, tumbling or sliding, in constant memory.<br><p>
+ * The window works as follows:<br>
+ * 1. Time is cut into panes of the slide length, aligned to multiples of it. The window spans a whole number of
+ * panes, and each pane keeps a count and the sums of the saccade measures, in a ring with one slot per pane and one
+ * for the pane under way.<br>
+ * 2. A saccade is added to the pane of the time it was measured at, so saccades never arrive after their pane has
+ * closed.<br>
+ * 3. The window closes every slide length, and then covers the panes which have just ended. With a slide equal to the
+ * window length, the windows tumble; with a shorter slide, they overlap.<br>
+ * Memory is fixed by the number of panes, whatever the rate of saccades. The window is fed by the thread of its
+ * {@link saccadePack.SaccadeAnalyzer} and may be read from any other.
+ */
+public class SaccadeWindow {
+
+	/**
+	 * Largest number of panes a window may span.
+	 */
+	public static final int MAXIMUM_PANES = 1024 ;
+
+	/**
+	 * Name of the window, as shown in the log.
+	 */
+	private final String name ;
+	private final long windowMillis ;
+	private final long slideMillis ;
+	/**
+	 * Number of panes the window spans.
+	 */
+	private final int paneCount ;
+	/**
+	 * Number of slots of the ring, one more than the number of panes.
+	 */
+	private final int slotCount ;
+	/**
+	 * Number of the pane held by every slot, the time at its start divided by the slide length.
+	 */
+	private final long[] paneNumbers ;
+	private final int[] counts ;
+	private final double[] amplitudeSums ;
+	private final double[] durationSums ;
+	private final double[] peakVelocitySums ;
+	private final double[] meanVelocitySums ;
+	/**
+	 * Time stamp in milliseconds at which the window next closes, or Long.MIN_VALUE before the first sample.
+	 */
+	private long nextCloseTimeStamp = Long.MIN_VALUE ;
+	/**
+	 * Aggregates of the window when it last closed, null before.
+	 */
+	private volatile SaccadeWindowSnapshot lastSnapshot ;
+
+	/**
+	 * Constructor to initialize a tumbling window.
+	 * @param name name of the window.
+	 * @param windowMillis length of the window in milliseconds.
+	 */
+	public SaccadeWindow(String name, long windowMillis) {
+		this(name, windowMillis, windowMillis) ;
+	}
+
+	/**
+	 * Constructor to initialize a sliding window.
+	 * @param name name of the window.
+	 * @param windowMillis length of the window in milliseconds, a multiple of the slide length.
+	 * @param slideMillis time between two closings of the window in milliseconds.
+	 */
+	public SaccadeWindow(String name, long windowMillis, long slideMillis) {
+		super();
+		if (slideMillis <= 0 || windowMillis < slideMillis || windowMillis % slideMillis != 0
+				|| windowMillis / slideMillis > MAXIMUM_PANES)
+		{
+			throw new IllegalArgumentException("Invalid window: " + windowMillis + " ms sliding by " + slideMillis + " ms") ;
+		}
+		this.name = name ;
+		this.windowMillis = windowMillis ;
+		this.slideMillis = slideMillis ;
+		this.paneCount = (int) (windowMillis / slideMillis) ;
+		this.slotCount = paneCount + 1 ;
+		this.paneNumbers = new long[slotCount] ;
+		this.counts = new int[slotCount] ;
+		this.amplitudeSums = new double[slotCount] ;
+		this.durationSums = new double[slotCount] ;
+		this.peakVelocitySums = new double[slotCount] ;
+		this.meanVelocitySums = new double[slotCount] ;
+		Arrays.fill(paneNumbers, Long.MIN_VALUE) ;
+	}
+
+	/**
+	 * Method to add a saccade to the pane of the time it was measured at.
+	 * @param saccade {@link saccadePack.Saccade} measured.
+	 * @param timeStamp time stamp in milliseconds of the sample at which it was measured.
+	 */
+	synchronized void add(Saccade saccade, long timeStamp) {
+		long pane = Math.floorDiv(timeStamp, slideMillis) ;
+		int slot = (int) Math.floorMod(pane, (long) slotCount) ;
+		if (paneNumbers[slot] != pane)
+		{
+			paneNumbers[slot] = pane ;
+			counts[slot] = 0 ;
+			amplitudeSums[slot] = 0 ;
+			durationSums[slot] = 0 ;
+			peakVelocitySums[slot] = 0 ;
+			meanVelocitySums[slot] = 0 ;
+		}
+		counts[slot]++ ;
+		amplitudeSums[slot] += saccade.getAmplitude() ;
+		durationSums[slot] += saccade.getDurationMillis() ;
+		peakVelocitySums[slot] += saccade.getPeakVelocity() ;
+		meanVelocitySums[slot] += saccade.getMeanVelocity() ;
+	}
+
+	/**
+	 * Method to close the window if a sample has passed its closing time.
+	 * @param timeStamp time stamp in milliseconds of the latest sample.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot} of the window just closed, or null if it is not yet due.
+	 */
+	SaccadeWindowSnapshot closeIfDue(long timeStamp) {
+		if (nextCloseTimeStamp == Long.MIN_VALUE)
+		{
+			nextCloseTimeStamp = (Math.floorDiv(timeStamp, slideMillis) + 1) * slideMillis ;
+			return null ;
+		}
+		if (timeStamp < nextCloseTimeStamp)
+		{
+			return null ;
+		}
+		SaccadeWindowSnapshot snapshot = snapshot(timeStamp) ;
+		nextCloseTimeStamp = (Math.floorDiv(timeStamp, slideMillis) + 1) * slideMillis ;
+		lastSnapshot = snapshot ;
+		return snapshot ;
+	}
+
+	/**
+	 * Method to aggregate the panes which ended at or before a time, over the length of the window.
+	 * @param timeStamp time stamp in milliseconds.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot} of the window ending at the start of the pane of timeStamp.
+	 */
+	public synchronized SaccadeWindowSnapshot snapshot(long timeStamp) {
+		long lastPane = Math.floorDiv(timeStamp, slideMillis) - 1 ;
+		int count = 0 ;
+		double amplitude = 0 , duration = 0 , peakVelocity = 0 , meanVelocity = 0 ;
+		for (int slot = 0 ; slot < slotCount ; slot++)
+		{
+			long pane = paneNumbers[slot] ;
+			if (pane <= lastPane && pane > lastPane - paneCount)
+			{
+				count += counts[slot] ;
+				amplitude += amplitudeSums[slot] ;
+				duration += durationSums[slot] ;
+				peakVelocity += peakVelocitySums[slot] ;
+				meanVelocity += meanVelocitySums[slot] ;
+			}
+		}
+		long stop = (lastPane + 1) * slideMillis ;
+		if (count == 0)
+		{
+			return new SaccadeWindowSnapshot(stop - windowMillis, stop, 0, 0, 0, 0, 0) ;
+		}
+		return new SaccadeWindowSnapshot(stop - windowMillis, stop, count, amplitude / count, duration / count,
+				peakVelocity / count, meanVelocity / count) ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindow#lastSnapshot}.
+	 * @return {@link saccadePack.SaccadeWindow#lastSnapshot}, null if the window has not closed yet.
+	 */
+	public SaccadeWindowSnapshot getLastSnapshot() {
+		return lastSnapshot ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindow#name}.
+	 * @return {@link saccadePack.SaccadeWindow#name}
+	 */
+	public String getName() {
+		return name ;
+	}
+
+	/**
+	 * Method to get the length of the window.
+	 * @return length in milliseconds.
+	 */
+	public long getWindowMillis() {
+		return windowMillis ;
+	}
+
+	/**
+	 * Method to get the time between two closings of the window.
+	 * @return slide length in milliseconds, equal to the window length for a tumbling window.
+	 */
+	public long getSlideMillis() {
+		return slideMillis ;
+	}
+}
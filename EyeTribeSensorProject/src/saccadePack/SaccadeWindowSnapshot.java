@@ -0,0 +1,115 @@
+package saccadePack;
+
+/**
+ * Aggregates of the saccades of one window, taken by {@link saccadePack.SaccadeWindow#snapshot(long)}.
+ */
+public class SaccadeWindowSnapshot {
+
+	/**
+	 * Start and end of the window in milliseconds, the end excluded.
+	 */
+	private final long windowStartTimeStamp , windowStopTimeStamp ;
+	/**
+	 * Number of saccades in the window.
+	 */
+	private final int count ;
+	private final double meanAmplitude ;
+	private final double meanDurationMillis ;
+	private final double meanPeakVelocity ;
+	private final double meanVelocity ;
+
+	/**
+	 * Constructor to initialize the snapshot.
+	 * @param windowStartTimeStamp start of the window in milliseconds.
+	 * @param windowStopTimeStamp end of the window in milliseconds, excluded.
+	 * @param count number of saccades in the window.
+	 * @param meanAmplitude mean amplitude in pixels.
+	 * @param meanDurationMillis mean duration in milliseconds.
+	 * @param meanPeakVelocity mean peak velocity in pixels per second.
+	 * @param meanVelocity mean of the mean velocities in pixels per second.
+	 */
+	SaccadeWindowSnapshot(long windowStartTimeStamp, long windowStopTimeStamp, int count, double meanAmplitude,
+			double meanDurationMillis, double meanPeakVelocity, double meanVelocity) {
+		this.windowStartTimeStamp = windowStartTimeStamp ;
+		this.windowStopTimeStamp = windowStopTimeStamp ;
+		this.count = count ;
+		this.meanAmplitude = meanAmplitude ;
+		this.meanDurationMillis = meanDurationMillis ;
+		this.meanPeakVelocity = meanPeakVelocity ;
+		this.meanVelocity = meanVelocity ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#windowStartTimeStamp}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#windowStartTimeStamp}
+	 */
+	public long getWindowStartTimeStamp() {
+		return windowStartTimeStamp ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#windowStopTimeStamp}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#windowStopTimeStamp}
+	 */
+	public long getWindowStopTimeStamp() {
+		return windowStopTimeStamp ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#count}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#count}
+	 */
+	public int getCount() {
+		return count ;
+	}
+
+	/**
+	 * Method to get the number of saccades per second over the window.
+	 * @return saccades per second.
+	 */
+	public double getSaccadesPerSecond() {
+		return count * 1000.0 / (windowStopTimeStamp - windowStartTimeStamp) ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#meanAmplitude}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#meanAmplitude}, 0 without saccades.
+	 */
+	public double getMeanAmplitude() {
+		return meanAmplitude ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#meanDurationMillis}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#meanDurationMillis}, 0 without saccades.
+	 */
+	public double getMeanDurationMillis() {
+		return meanDurationMillis ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#meanPeakVelocity}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#meanPeakVelocity}, 0 without saccades.
+	 */
+	public double getMeanPeakVelocity() {
+		return meanPeakVelocity ;
+	}
+
+	/**
+	 * Method to get the {@link saccadePack.SaccadeWindowSnapshot#meanVelocity}.
+	 * @return {@link saccadePack.SaccadeWindowSnapshot#meanVelocity}, 0 without saccades.
+	 */
+	public double getMeanVelocity() {
+		return meanVelocity ;
+	}
+
+	/**
+	 * Method to describe the snapshot on one line.
+	 */
+	@Override
+	public String toString() {
+		return String.format("window=%d..%d saccades=%d saccades/s=%.2f mean_amplitude=%.1f mean_duration_ms=%.1f"
+				+ " mean_peak_velocity=%.0f mean_velocity=%.0f", windowStartTimeStamp, windowStopTimeStamp, count,
+				getSaccadesPerSecond(), meanAmplitude, meanDurationMillis, meanPeakVelocity, meanVelocity) ;
+	}
+}
@@ -0,0 +1,358 @@
+package sessionPack;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.theeyetribe.client.data.GazeData;
+
+import basePack.SensorDataProducer;
+import dataPack.DispersionThresholdDetector;
+import dataPack.FixationDetector;
+import dataPack.FixationSet;
+import dataPack.FixationSetPublisher;
+import dataPack.FixationSetReader;
+import dataPack.MergingQueueOfFixationSets;
+import dataPack.RingOfFixationSets;
+import outputPack.FixationSetSink;
+import recordPack.GazeReplayer;
+
+/**
+ * One participant's gaze stream with its own producer, queue and sink, run in slices by a
+ * {@link sessionPack.SessionRuntime}.<br><p>
+ * A slice does the following:<br>
+ * 1. Pulls frames from the {@link sessionPack.GazeSource} into the session's {@link basePack.SensorDataProducer}.<br>
+ * 2. After every frame, takes whatever the producer handed to the queue and writes it to the
+ * {@link outputPack.FixationSetSink}, so producer and consumer share the thread and the queue never fills.<br>
+ * 3. Stops after a number of frames, or when the next frame is not due yet at the session's speed, so that many
+ * sessions can share a few threads.<br>
+ * Nothing is shared between sessions, so a session which fails only stops itself. Each session counts its frames,
+ * fixation sets and the CPU time of its slices, which gives its throughput on its own. A session is run by one thread
+ * at a time; its counters may be read from any thread.
+ */
+public class GazeSession {
+
+	/**
+	 * Reads the CPU time of the thread running a slice.
+	 */
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean() ;
+
+	/**
+	 * Name of the session.
+	 */
+	private final String name ;
+	private final GazeSource gazeSource ;
+	private final FixationSetPublisher fixationSetPublisher ;
+	private final FixationSetReader fixationSetReader ;
+	private final SensorDataProducer sensorDataProducer ;
+	private final FixationSetSink fixationSetSink ;
+	/**
+	 * Speed of the replay as for {@link recordPack.GazeReplayer}, {@link recordPack.GazeReplayer#AS_FAST_AS_POSSIBLE}
+	 * for no waiting.
+	 */
+	private final double speed ;
+	/**
+	 * Frame filled by the source.
+	 */
+	private final GazeData gazeData = new GazeData() ;
+	/**
+	 * true if {@link sessionPack.GazeSession#gazeData} holds a frame read but not yet handled, because it was not due.
+	 */
+	private boolean frameHeld ;
+	/**
+	 * Time stamp of the first frame and {@link java.lang.System#nanoTime()} when it was handled, for pacing.
+	 */
+	private long firstFrameTimeStamp ;
+	private long firstFrameNanos ;
+
+	private volatile SessionState state = SessionState.PENDING ;
+	private volatile long frameCount ;
+	private volatile long fixationSetCount ;
+	private volatile long sliceCount ;
+	private volatile long cpuNanos ;
+	private volatile long startNanos ;
+	private volatile long finishNanos ;
+	/**
+	 * Reason the session failed, null if it has not.
+	 */
+	private volatile Throwable failure ;
+
+	/**
+	 * Constructor to initialize the session with a {@link dataPack.DispersionThresholdDetector}, merging nearby
+	 * fixations into a {@link dataPack.RingOfFixationSets}, as fast as possible.
+	 * @param name name of the session.
+	 * @param gazeSource {@link sessionPack.GazeSource} of the frames, closed when the session ends.
+	 * @param fixationSetSink {@link outputPack.FixationSetSink} to which the fixation sets are written, closed when
+	 * the session ends.
+	 */
+	public GazeSession(String name, GazeSource gazeSource, FixationSetSink fixationSetSink) {
+		this(name, gazeSource, new RingOfFixationSets(25), fixationSetSink) ;
+	}
+
+	/**
+	 * Constructor to initialize the session with a {@link dataPack.DispersionThresholdDetector}, merging nearby
+	 * fixations into the given ring, as fast as possible.
+	 */
+	private GazeSession(String name, GazeSource gazeSource, RingOfFixationSets ringOfFixationSets,
+			FixationSetSink fixationSetSink) {
+		this(name, gazeSource, new MergingQueueOfFixationSets(ringOfFixationSets), ringOfFixationSets,
+				new DispersionThresholdDetector(), fixationSetSink, GazeReplayer.AS_FAST_AS_POSSIBLE) ;
+	}
+
+	/**
+	 * Constructor to initialize the session.
+	 * @param name name of the session.
+	 * @param gazeSource {@link sessionPack.GazeSource} of the frames, closed when the session ends.
+	 * @param fixationSetPublisher {@link dataPack.FixationSetPublisher} of the session only, to which the producer
+	 * hands the fixation sets.
+	 * @param fixationSetReader {@link dataPack.FixationSetReader} from which the session reads what was published.
+	 * @param fixationDetector {@link dataPack.FixationDetector} of the session only, null to trust the frames' flag.
+	 * @param fixationSetSink {@link outputPack.FixationSetSink} to which the fixation sets are written, closed when
+	 * the session ends.
+	 * @param speed speed of the replay as for {@link recordPack.GazeReplayer}.
+	 */
+	public GazeSession(String name, GazeSource gazeSource, FixationSetPublisher fixationSetPublisher,
+			FixationSetReader fixationSetReader, FixationDetector fixationDetector, FixationSetSink fixationSetSink, double speed) {
+		super();
+		if (speed < 0)
+		{
+			throw new IllegalArgumentException("Speed must not be negative: " + speed) ;
+		}
+		this.name = name ;
+		this.gazeSource = gazeSource ;
+		this.fixationSetPublisher = fixationSetPublisher ;
+		this.fixationSetReader = fixationSetReader ;
+		this.sensorDataProducer = new SensorDataProducer(fixationSetPublisher, fixationDetector) ;
+		this.fixationSetSink = fixationSetSink ;
+		this.speed = speed ;
+	}
+
+	/**
+	 * Method to run one slice of the session.
+	 * @param maximumFrames largest number of frames to handle.
+	 * @return nanoseconds until the next slice is due, 0 for at once, -1 once the session has ended.
+	 */
+	long runSlice(int maximumFrames) {
+		if (state == SessionState.FINISHED || state == SessionState.FAILED)
+		{
+			return -1 ;
+		}
+		long sliceStartCpuNanos = currentThreadCpuNanos() ;
+		if (state == SessionState.PENDING)
+		{
+			startNanos = System.nanoTime() ;
+			state = SessionState.RUNNING ;
+		}
+		long frames = frameCount ;
+		long fixationSets = fixationSetCount ;
+		long delayNanos = 0 ;
+		try {
+			for (int handled = 0 ; handled < maximumFrames ; handled++)
+			{
+				if (!frameHeld && !gazeSource.next(gazeData))
+				{
+					fixationSets += finish() ;
+					delayNanos = -1 ;
+					break ;
+				}
+				frameHeld = false ;
+				if (speed > 0)
+				{
+					delayNanos = nanosUntilDue(gazeData.timeStamp, frames) ;
+					if (delayNanos > 0)
+					{
+						frameHeld = true ;
+						break ;
+					}
+				}
+				sensorDataProducer.onGazeUpdate(gazeData) ;
+				frames++ ;
+				fixationSets += drain() ;
+			}
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			fail(e) ;
+			delayNanos = -1 ;
+		}
+		frameCount = frames ;
+		fixationSetCount = fixationSets ;
+		sliceCount++ ;
+		cpuNanos += currentThreadCpuNanos() - sliceStartCpuNanos ;
+		return delayNanos ;
+	}
+
+	/**
+	 * Method to work out how long until a frame is due at the session's speed.
+	 * @param timeStamp time stamp of the frame in milliseconds.
+	 * @param framesHandled number of frames handled before it.
+	 * @return nanoseconds until the frame is due, 0 or less if it is due.
+	 */
+	private long nanosUntilDue(long timeStamp, long framesHandled) {
+		long now = System.nanoTime() ;
+		if (framesHandled == 0)
+		{
+			firstFrameTimeStamp = timeStamp ;
+			firstFrameNanos = now ;
+			return 0 ;
+		}
+		long dueNanos = firstFrameNanos + (long) ((timeStamp - firstFrameTimeStamp) * 1e6 / speed) ;
+		return dueNanos - now ;
+	}
+
+	/**
+	 * Method to write the fixation sets waiting in the queue to the sink.
+	 * @return number of fixation sets written.
+	 * @throws IOException if the sink fails.
+	 * @throws InterruptedException if the thread is interrupted while the sink waits.
+	 */
+	private int drain() throws IOException, InterruptedException {
+		int written = 0 ;
+		while (fixationSetReader.size() > 0)
+		{
+			FixationSet fixationSet = fixationSetReader.getFIFOFixationSet() ;
+			fixationSetSink.write(fixationSet, (int) (fixationSetCount + written + 1)) ;
+			fixationSetReader.releaseFixationSet(fixationSet) ;
+			written++ ;
+		}
+		return written ;
+	}
+
+	/**
+	 * Method to end the session once the source has no more frames, handing on a fixation set still held back.
+	 * @return number of fixation sets written.
+	 * @throws IOException if the sink fails.
+	 * @throws InterruptedException if the thread is interrupted while the sink waits.
+	 */
+	private int finish() throws IOException, InterruptedException {
+		fixationSetPublisher.handOnHeldBackFixationSets(Long.MAX_VALUE) ;
+		int written = drain() ;
+		fixationSetSink.flush() ;
+		close() ;
+		finishNanos = System.nanoTime() ;
+		state = SessionState.FINISHED ;
+		return written ;
+	}
+
+	/**
+	 * Method to end the session on a failure.
+	 * @param cause reason of the failure.
+	 */
+	void fail(Throwable cause) {
+		failure = cause ;
+		close() ;
+		finishNanos = System.nanoTime() ;
+		state = SessionState.FAILED ;
+		System.out.println("Could Not run session " + name + ": " + cause) ;
+	}
+
+	/**
+	 * Method to close the source and the sink.
+	 */
+	private void close() {
+		try {
+			gazeSource.close() ;
+		} catch (IOException e) {
+			System.out.println("Could Not close the source of session " + name + "!") ;
+		}
+		try {
+			fixationSetSink.close() ;
+		} catch (IOException e) {
+			System.out.println("Could Not close the sink of session " + name + "!") ;
+		}
+	}
+
+	/**
+	 * Method to get the CPU time of the current thread, 0 where it is not measured.
+	 */
+	private static long currentThreadCpuNanos() {
+		return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0 ;
+	}
+
+	/**
+	 * Method to get the {@link sessionPack.GazeSession#name}.
+	 * @return {@link sessionPack.GazeSession#name}
+	 */
+	public String getName() {
+		return name ;
+	}
+
+	/**
+	 * Method to get the {@link sessionPack.SessionState} of the session.
+	 * @return state of the session.
+	 */
+	public SessionState getState() {
+		return state ;
+	}
+
+	/**
+	 * Method to get the number of frames handled.
+	 * @return number of frames handled.
+	 */
+	public long getFrameCount() {
+		return frameCount ;
+	}
+
+	/**
+	 * Method to get the number of fixation sets written to the sink.
+	 * @return number of fixation sets written.
+	 */
+	public long getFixationSetCount() {
+		return fixationSetCount ;
+	}
+
+	/**
+	 * Method to get the number of slices run.
+	 * @return number of slices.
+	 */
+	public long getSliceCount() {
+		return sliceCount ;
+	}
+
+	/**
+	 * Method to get the CPU time spent in the session's slices.
+	 * @return CPU time in nanoseconds.
+	 */
+	public long getCpuNanos() {
+		return cpuNanos ;
+	}
+
+	/**
+	 * Method to get the time from the first slice to the end of the session, or to now if it is still running.
+	 * @return elapsed time in nanoseconds, 0 before the first slice.
+	 */
+	public long getElapsedNanos() {
+		long start = startNanos ;
+		if (start == 0)
+		{
+			return 0 ;
+		}
+		long finish = finishNanos ;
+		return (finish != 0 ? finish : System.nanoTime()) - start ;
+	}
+
+	/**
+	 * Method to get the frames handled per second of the session's own CPU time.
+	 * @return frames per CPU second, 0 if none was measured.
+	 */
+	public double getFramesPerCpuSecond() {
+		long cpu = cpuNanos ;
+		return cpu > 0 ? frameCount * 1e9 / cpu : 0 ;
+	}
+
+	/**
+	 * Method to get the reason the session failed.
+	 * @return reason of the failure, null if it has not failed.
+	 */
+	public Throwable getFailure() {
+		return failure ;
+	}
+
+	/**
+	 * Method to describe the session on one line.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s state=%s frames=%d fixations=%d slices=%d cpu_ms=%.1f elapsed_ms=%.1f frames/cpu_s=%.0f",
+				name, state, frameCount, fixationSetCount, sliceCount, cpuNanos / 1e6, getElapsedNanos() / 1e6,
+				getFramesPerCpuSecond()) ;
+	}
+}
@@ -0,0 +1,23 @@
+package sessionPack;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.theeyetribe.client.data.GazeData;
+
+/**
+ * Source of the frames of one {@link sessionPack.GazeSession}, pulled one at a time.<br><p>
+ * Frames are pulled rather than pushed, so that a session can be run in slices on a shared thread and put aside
+ * between them. {@link recordPack.GazeRecordingReader} reads recordings, and {@link simPack.ScriptedGazeSource}
+ * simulates a viewer.
+ */
+public interface GazeSource extends Closeable {
+
+	/**
+	 * Method to read the next frame.
+	 * @param gazeData {@link com.theeyetribe.client.data.GazeData} to be filled with the frame.
+	 * @return false if there are no more frames.
+	 * @throws IOException if the frame cannot be read.
+	 */
+	boolean next(GazeData gazeData) throws IOException ;
+}
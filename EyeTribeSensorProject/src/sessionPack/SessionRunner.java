@@ -0,0 +1,85 @@
+package sessionPack;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import dataPack.DispersionThresholdDetector;
+import dataPack.FixationSet;
+import dataPack.MergingQueueOfFixationSets;
+import dataPack.RingOfFixationSets;
+import outputPack.FixationSetSink;
+import recordPack.GazeRecordingReader;
+import simPack.GazeScript;
+import simPack.ScriptedGazeSource;
+import simPack.StandInTrackerServer;
+
+/**
+ * Starting point running many sessions at once on a {@link sessionPack.SessionRuntime} and reporting their
+ * throughput.<br><p>
+ * With numbers as arguments, "sessions threads seconds fps speed", simulated viewers are run, by default 200 sessions
+ * of 60 seconds at 60 frames per second on as many threads as there are processors, as fast as possible. Otherwise
+ * every argument is taken as the path prefix of a recording made by {@link recordPack.GazeRecorder}. The fixation sets
+ * are counted and dropped, so the report shows the cost of the pipeline itself.
+ */
+public class SessionRunner {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		int threads = Runtime.getRuntime().availableProcessors() ;
+		SessionRuntime sessionRuntime ;
+
+		if (args.length > 0 && !args[0].matches("\\d+"))
+		{
+			sessionRuntime = new SessionRuntime(threads) ;
+			for (String prefix : args)
+			{
+				sessionRuntime.submit(new GazeSession(prefix, new GazeRecordingReader(prefix), new DiscardingSink())) ;
+			}
+		}
+		else
+		{
+			int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 200 ;
+			threads = args.length > 1 ? Integer.parseInt(args[1]) : threads ;
+			int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60 ;
+			int fps = args.length > 3 ? Integer.parseInt(args[3]) : 60 ;
+			double speed = args.length > 4 ? Double.parseDouble(args[4]) : 0 ;
+			sessionRuntime = new SessionRuntime(threads) ;
+			long startTimeStamp = System.currentTimeMillis() ;
+			for (int i = 0 ; i < sessions ; i++)
+			{
+				GazeScript gazeScript = new GazeScript(StandInTrackerServer.SCREEN_WIDTH,
+						StandInTrackerServer.SCREEN_HEIGHT, i) ;
+				GazeSource gazeSource = new ScriptedGazeSource(gazeScript, fps, (long) seconds * fps, startTimeStamp) ;
+				RingOfFixationSets ringOfFixationSets = new RingOfFixationSets(25) ;
+				sessionRuntime.submit(new GazeSession("session-" + i, gazeSource,
+						new MergingQueueOfFixationSets(ringOfFixationSets), ringOfFixationSets,
+						new DispersionThresholdDetector(), new DiscardingSink(), speed)) ;
+			}
+		}
+
+		while (!sessionRuntime.awaitCompletion(10, TimeUnit.SECONDS))
+		{
+			System.out.println(sessionRuntime.getActiveCount() + " sessions still running") ;
+		}
+		sessionRuntime.report(System.out) ;
+		sessionRuntime.close() ;
+	}
+
+	/**
+	 * Sink which drops every fixation set.
+	 */
+	private static class DiscardingSink implements FixationSetSink {
+
+		@Override
+		public void write(FixationSet fixationSet, int fixationSetNumber) {
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
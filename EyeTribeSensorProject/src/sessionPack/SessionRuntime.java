@@ -0,0 +1,224 @@
+package sessionPack;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runtime running many {@link sessionPack.GazeSession}s on a small shared pool of threads.<br><p>
+ * Each session is run as a task which handles one slice of frames and then puts itself back on the pool, at once or
+ * when its next frame is due. So the sessions take turns on the threads, hundreds of them on a few cores, and a
+ * session waiting for its next frame holds no thread at all. A session which fails is counted and reported, and
+ * the others carry on.
+ */
+public class SessionRuntime implements Closeable {
+
+	/**
+	 * Default largest number of frames in one slice.
+	 */
+	public static final int DEFAULT_SLICE_FRAMES = 512 ;
+
+	/**
+	 * Pool of threads shared by the sessions.
+	 */
+	private final ScheduledThreadPoolExecutor executor ;
+	/**
+	 * Largest number of frames in one slice.
+	 */
+	private final int sliceFrames ;
+	/**
+	 * Sessions submitted, in order.
+	 */
+	private final List<GazeSession> sessions = new CopyOnWriteArrayList<GazeSession>() ;
+	/**
+	 * Number of sessions submitted which have not ended. Guarded by this object.
+	 */
+	private int activeCount ;
+	/**
+	 * {@link java.lang.System#nanoTime()} when the first session was submitted.
+	 */
+	private volatile long startNanos ;
+
+	/**
+	 * Constructor to initialize the runtime with the default slice.
+	 * @param threadCount number of threads shared by the sessions.
+	 */
+	public SessionRuntime(int threadCount) {
+		this(threadCount, DEFAULT_SLICE_FRAMES) ;
+	}
+
+	/**
+	 * Constructor to initialize the runtime.
+	 * @param threadCount number of threads shared by the sessions.
+	 * @param sliceFrames largest number of frames in one slice.
+	 */
+	public SessionRuntime(int threadCount, int sliceFrames) {
+		super();
+		if (threadCount <= 0 || sliceFrames <= 0)
+		{
+			throw new IllegalArgumentException("Thread count and slice must be positive") ;
+		}
+		final AtomicInteger threadNumber = new AtomicInteger() ;
+		this.executor = new ScheduledThreadPoolExecutor(threadCount, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "gaze-session-" + threadNumber.incrementAndGet()) ;
+				thread.setDaemon(true) ;
+				return thread ;
+			}
+		}) ;
+		this.sliceFrames = sliceFrames ;
+	}
+
+	/**
+	 * Method to start running a session.
+	 * @param session {@link sessionPack.GazeSession} not yet run.
+	 */
+	public void submit(GazeSession session) {
+		if (session.getState() != SessionState.PENDING)
+		{
+			throw new IllegalArgumentException("Session " + session.getName() + " has already been run") ;
+		}
+		synchronized (this)
+		{
+			if (sessions.isEmpty())
+			{
+				startNanos = System.nanoTime() ;
+			}
+			activeCount++ ;
+		}
+		sessions.add(session) ;
+		executor.execute(new SliceTask(session)) ;
+	}
+
+	/**
+	 * Method to wait until every session submitted has ended.
+	 * @param timeout longest time to wait.
+	 * @param unit {@link java.util.concurrent.TimeUnit} of the timeout.
+	 * @return true if every session has ended, false on timeout.
+	 * @throws InterruptedException if the calling thread is interrupted while waiting.
+	 */
+	public synchronized boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout) ;
+		while (activeCount > 0)
+		{
+			long remaining = deadline - System.nanoTime() ;
+			if (remaining <= 0)
+			{
+				return false ;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining) ;
+		}
+		return true ;
+	}
+
+	/**
+	 * Method to get the sessions submitted.
+	 * @return sessions in the order submitted.
+	 */
+	public List<GazeSession> getSessions() {
+		return new ArrayList<GazeSession>(sessions) ;
+	}
+
+	/**
+	 * Method to get the number of sessions submitted which have not ended.
+	 * @return number of sessions still running.
+	 */
+	public synchronized int getActiveCount() {
+		return activeCount ;
+	}
+
+	/**
+	 * Method to write one line per session and a total.<br>
+	 * The total gives the frames handled per second of wall time over all sessions, and the spread of the sessions'
+	 * own frames per CPU second, which shows whether one session was slowed by the others.
+	 * @param printStream {@link java.io.PrintStream} written to.
+	 */
+	public void report(PrintStream printStream) {
+		long frames = 0 ;
+		long fixationSets = 0 ;
+		int failed = 0 ;
+		double slowest = Double.MAX_VALUE ;
+		double fastest = 0 ;
+		for (GazeSession session : sessions)
+		{
+			printStream.println(session) ;
+			frames += session.getFrameCount() ;
+			fixationSets += session.getFixationSetCount() ;
+			if (session.getState() == SessionState.FAILED)
+			{
+				failed++ ;
+			}
+			double framesPerCpuSecond = session.getFramesPerCpuSecond() ;
+			if (framesPerCpuSecond > 0)
+			{
+				slowest = Math.min(slowest, framesPerCpuSecond) ;
+				fastest = Math.max(fastest, framesPerCpuSecond) ;
+			}
+		}
+		double seconds = startNanos == 0 ? 0 : (System.nanoTime() - startNanos) / 1e9 ;
+		printStream.println(String.format("sessions=%d active=%d failed=%d threads=%d frames=%d fixations=%d"
+				+ " elapsed_s=%.2f frames/s=%.0f session_frames/cpu_s[min=%.0f max=%.0f]",
+				sessions.size(), getActiveCount(), failed, executor.getCorePoolSize(), frames, fixationSets, seconds,
+				seconds > 0 ? frames / seconds : 0, fastest > 0 ? slowest : 0, fastest)) ;
+	}
+
+	/**
+	 * Method to stop the threads. Sessions still running are left where they are.
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow() ;
+	}
+
+	/**
+	 * Method to count a session as ended.
+	 */
+	private synchronized void sessionEnded() {
+		activeCount-- ;
+		notifyAll() ;
+	}
+
+	/**
+	 * Task running the slices of one session, putting itself back on the pool until the session ends.
+	 */
+	private class SliceTask implements Runnable {
+
+		private final GazeSession session ;
+
+		SliceTask(GazeSession session) {
+			this.session = session ;
+		}
+
+		@Override
+		public void run() {
+			long delayNanos ;
+			try {
+				delayNanos = session.runSlice(sliceFrames) ;
+			} catch (Throwable e) {
+				session.fail(e) ;
+				delayNanos = -1 ;
+			}
+			if (delayNanos < 0)
+			{
+				sessionEnded() ;
+			}
+			else if (delayNanos == 0)
+			{
+				executor.execute(this) ;
+			}
+			else
+			{
+				executor.schedule(this, delayNanos, TimeUnit.NANOSECONDS) ;
+			}
+		}
+	}
+}
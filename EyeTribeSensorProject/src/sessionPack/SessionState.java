@@ -0,0 +1,15 @@
+package sessionPack;
+
+/**
+ * States of a {@link sessionPack.GazeSession} in a {@link sessionPack.SessionRuntime}.
+ */
+public enum SessionState {
+
+	PENDING,
+
+	RUNNING,
+
+	FINISHED,
+
+	FAILED
+}
@@ -0,0 +1,37 @@
+package simPack;
+
+/**
+ * Enum of the clocks a {@link simPack.StandInTrackerServer} can stamp its frames with.<br><p>
+ * The clocks are the following:<br>
+ * 1. {@link simPack.FrameClock#WALL_CLOCK}, milliseconds since the epoch, as the tracker server does.<br>
+ * 2. {@link simPack.FrameClock#NANO_TIME}, {@link java.lang.System#nanoTime()} at the moment the frame is sent.
+ * It only makes sense when the server runs in the same JVM as the client, where it lets the time from socket to
+ * consumer be measured to the nanosecond. The date string of such frames is left empty, which makes the client keep 
+ * the time stamp as sent instead of parsing the date.<br>
+ */
+public enum FrameClock {
+
+	WALL_CLOCK
+	{
+		@Override
+		long now()
+		{
+			return System.currentTimeMillis() ;
+		}
+	},
+
+	NANO_TIME
+	{
+		@Override
+		long now()
+		{
+			return System.nanoTime() ;
+		}
+	} ;
+
+	/**
+	 * Method to read the clock.
+	 * @return current time stamp.
+	 */
+	abstract long now() ;
+}
@@ -0,0 +1,193 @@
+package simPack;
+
+import java.util.Random;
+
+/**
+ * Class to script the gaze of a synthetic viewer as alternating fixations and saccades.<br><p>
+ * The script works as follows:<br>
+ * 1. A fixation holds the gaze on a target for the fixation duration, with a small jitter around it.<br>
+ * 2. A saccade then moves the gaze in a straight line to the next target for the saccade duration.<br>
+ * 3. Targets are drawn at random over the screen from a seeded {@link java.util.Random}, so the same seed always
+ * gives the same script.<br>
+ * The script is driven by elapsed time rather than by frames, so it looks the same at any frame rate.
+ */
+public class GazeScript {
+
+	/**
+	 * Default duration of a fixation in milliseconds.
+	 */
+	public static final double DEFAULT_FIXATION_MILLIS = 300 ;
+	/**
+	 * Default duration of a saccade in milliseconds.
+	 */
+	public static final double DEFAULT_SACCADE_MILLIS = 40 ;
+	/**
+	 * Default jitter in pixels around a fixation target.
+	 */
+	public static final double DEFAULT_JITTER = 3 ;
+
+	/**
+	 * Width of the screen in pixels.
+	 */
+	private final int screenWidth ;
+	/**
+	 * Height of the screen in pixels.
+	 */
+	private final int screenHeight ;
+	/**
+	 * Duration of a fixation in milliseconds.
+	 */
+	private final double fixationMillis ;
+	/**
+	 * Duration of a saccade in milliseconds.
+	 */
+	private final double saccadeMillis ;
+	/**
+	 * Jitter in pixels around a fixation target.
+	 */
+	private final double jitter ;
+	/**
+	 * Source of the targets and of the jitter.
+	 */
+	private final Random random ;
+
+	/**
+	 * Target of the current or last fixation.
+	 */
+	private double fromX, fromY ;
+	/**
+	 * Target of the next fixation.
+	 */
+	private double toX, toY ;
+	/**
+	 * Milliseconds spent in the current fixation and saccade pair.
+	 */
+	private double phaseMillis ;
+	/**
+	 * Current gaze point.
+	 */
+	private double x, y ;
+	/**
+	 * Whether the current gaze point is part of a fixation.
+	 */
+	private boolean fixated ;
+
+	/**
+	 * Constructor to initialize the script with the default durations and jitter.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param seed seed of the targets and of the jitter.
+	 */
+	public GazeScript(int screenWidth, int screenHeight, long seed) {
+		this(screenWidth, screenHeight, DEFAULT_FIXATION_MILLIS, DEFAULT_SACCADE_MILLIS, DEFAULT_JITTER, seed) ;
+	}
+
+	/**
+	 * Constructor to initialize the script.
+	 * @param screenWidth width of the screen in pixels.
+	 * @param screenHeight height of the screen in pixels.
+	 * @param fixationMillis duration of a fixation in milliseconds.
+	 * @param saccadeMillis duration of a saccade in milliseconds.
+	 * @param jitter jitter in pixels around a fixation target.
+	 * @param seed seed of the targets and of the jitter.
+	 */
+	public GazeScript(int screenWidth, int screenHeight, double fixationMillis, double saccadeMillis, double jitter,
+			long seed) {
+		super();
+		if (screenWidth <= 0 || screenHeight <= 0 || fixationMillis <= 0 || saccadeMillis < 0 || jitter < 0)
+		{
+			throw new IllegalArgumentException("Invalid gaze script") ;
+		}
+		this.screenWidth = screenWidth ;
+		this.screenHeight = screenHeight ;
+		this.fixationMillis = fixationMillis ;
+		this.saccadeMillis = saccadeMillis ;
+		this.jitter = jitter ;
+		this.random = new Random(seed) ;
+		this.fromX = nextTargetX() ;
+		this.fromY = nextTargetY() ;
+		this.toX = nextTargetX() ;
+		this.toY = nextTargetY() ;
+		advance(0) ;
+	}
+
+	/**
+	 * Method to move the script forward in time and work out the new gaze point.
+	 * @param elapsedMillis milliseconds since the last call.
+	 */
+	public void advance(double elapsedMillis) {
+		phaseMillis += elapsedMillis ;
+		double cycleMillis = fixationMillis + saccadeMillis ;
+		while (phaseMillis >= cycleMillis)
+		{
+			phaseMillis -= cycleMillis ;
+			fromX = toX ;
+			fromY = toY ;
+			toX = nextTargetX() ;
+			toY = nextTargetY() ;
+		}
+		if (phaseMillis < fixationMillis)
+		{
+			fixated = true ;
+			x = clamp(fromX + (random.nextDouble() * 2 - 1) * jitter, screenWidth) ;
+			y = clamp(fromY + (random.nextDouble() * 2 - 1) * jitter, screenHeight) ;
+		}
+		else
+		{
+			fixated = false ;
+			double progress = (phaseMillis - fixationMillis) / saccadeMillis ;
+			x = fromX + (toX - fromX) * progress ;
+			y = fromY + (toY - fromY) * progress ;
+		}
+	}
+
+	/**
+	 * Method to get the x coordinate of the current gaze point.
+	 * @return x coordinate in pixels.
+	 */
+	public double getX() {
+		return x ;
+	}
+
+	/**
+	 * Method to get the y coordinate of the current gaze point.
+	 * @return y coordinate in pixels.
+	 */
+	public double getY() {
+		return y ;
+	}
+
+	/**
+	 * Method to know whether the current gaze point is part of a fixation.
+	 * @return true during a fixation, false during a saccade.
+	 */
+	public boolean isFixated() {
+		return fixated ;
+	}
+
+	/**
+	 * Method to draw the x coordinate of a target, keeping a margin from the edges of the screen.
+	 * @return x coordinate in pixels.
+	 */
+	private double nextTargetX() {
+		return screenWidth * (0.05 + 0.9 * random.nextDouble()) ;
+	}
+
+	/**
+	 * Method to draw the y coordinate of a target, keeping a margin from the edges of the screen.
+	 * @return y coordinate in pixels.
+	 */
+	private double nextTargetY() {
+		return screenHeight * (0.05 + 0.9 * random.nextDouble()) ;
+	}
+
+	/**
+	 * Method to keep a coordinate on the screen.
+	 * @param value coordinate in pixels.
+	 * @param limit size of the screen along the coordinate.
+	 * @return the coordinate, moved onto the screen if needed.
+	 */
+	private static double clamp(double value, int limit) {
+		return value < 0 ? 0 : (value > limit - 1 ? limit - 1 : value) ;
+	}
+}
@@ -0,0 +1,188 @@
+package simPack;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.theeyetribe.client.GazeManager;
+import com.theeyetribe.client.GazeManager.ApiVersion;
+import com.theeyetribe.client.GazeManager.ClientMode;
+import com.theeyetribe.client.IGazeListener;
+import com.theeyetribe.client.data.GazeData;
+
+import basePack.SensorDataConsumer;
+import basePack.SensorDataProducer;
+import dataPack.FixationSet;
+import dataPack.QueueOfFixationSets;
+import dataPack.RingOfFixationSets;
+import outputPack.FixationSetSink;
+
+/**
+ * Starting point to measure the whole pipeline against a {@link simPack.StandInTrackerServer} under load.<br><p>
+ * The measurement works as follows:<br>
+ * 1. A stand-in server is started on a free loopback port, stamping its frames with {@link simPack.FrameClock#NANO_TIME}.<br>
+ * 2. {@link com.theeyetribe.client.GazeManager} is activated against it, and a probe in front of
+ * {@link basePack.SensorDataProducer} records the time from socket to listener of every frame.<br>
+ * 3. {@link basePack.SensorDataConsumer} writes to a sink which records the time from the socket to the consumer,
+ * taken from the last sample of each fixation set. It includes the wait for the frame ending the fixation.<br>
+ * 4. After the run, the frames sent, delivered and consumed, and the latency percentiles, are printed.<br>
+ * The client keeps only the newest frame for its listeners, so frames it had to drop show up as the difference
+ * between frames sent and frames delivered.<br>
+ * Arguments: frames per second (default 60) and seconds to run (default 10).
+ */
+public class LoadGenerator {
+
+	/**
+	 * Most latencies kept by each {@link simPack.LoadGenerator.LatencyLog}.
+	 */
+	private static final int LATENCY_CAPACITY = 1 << 22 ;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		int framesPerSecond = args.length > 0 ? Integer.parseInt(args[0]) : 60 ;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10 ;
+
+		StandInTrackerServer server = new StandInTrackerServer(0, framesPerSecond,
+				new GazeScript(StandInTrackerServer.SCREEN_WIDTH, StandInTrackerServer.SCREEN_HEIGHT, 42), FrameClock.NANO_TIME) ;
+		server.start() ;
+
+		GazeManager gm = GazeManager.getInstance() ;
+		boolean success = gm.activate(ApiVersion.VERSION_1_0, ClientMode.PUSH, "localhost", server.getPort()) ;
+		System.out.println("Activation against stand-in tracker on port " + server.getPort() + ": " + success) ;
+		if (!success)
+		{
+			server.close() ;
+			return ;
+		}
+
+		QueueOfFixationSets queueOfFixationSets = new RingOfFixationSets(25) ;
+		LatencyLog frameLatencies = new LatencyLog() ;
+		LatencyLog fixationSetLatencies = new LatencyLog() ;
+		FrameProbe frameProbe = new FrameProbe(new SensorDataProducer(queueOfFixationSets), frameLatencies) ;
+		gm.addGazeListener(frameProbe) ;
+
+		Thread consumerThread = new Thread(new SensorDataConsumer(queueOfFixationSets, new LatencySink(fixationSetLatencies))) ;
+		consumerThread.setDaemon(true) ;
+		consumerThread.start() ;
+
+		long startNanos = System.nanoTime() ;
+		long framesSentBefore = server.getFramesSent() ;
+		long framesDeliveredBefore = frameLatencies.count ;
+		Thread.sleep(seconds * 1000L) ;
+		gm.removeGazeListener(frameProbe) ;
+		double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9 ;
+		long framesSent = server.getFramesSent() - framesSentBefore ;
+		long framesDelivered = frameLatencies.count - framesDeliveredBefore ;
+		gm.deactivate() ;
+		server.close() ;
+
+		long fixationSetsConsumed = fixationSetLatencies.count ;
+		System.out.println(String.format("Frames sent: %d (%.0f/s)", framesSent, framesSent / elapsedSeconds)) ;
+		System.out.println(String.format("Frames delivered: %d (%.0f/s), dropped by the client: %d",
+				framesDelivered, framesDelivered / elapsedSeconds, Math.max(0, framesSent - framesDelivered))) ;
+		System.out.println(String.format("Fixation sets consumed: %d (%.1f/s)", fixationSetsConsumed, fixationSetsConsumed / elapsedSeconds)) ;
+		System.out.println("Socket to listener latency: " + frameLatencies.summary()) ;
+		System.out.println("Socket to consumer latency: " + fixationSetLatencies.summary()) ;
+	}
+
+	/**
+	 * {@link com.theeyetribe.client.IGazeListener} recording the latency of each frame before passing it on.
+	 */
+	private static class FrameProbe implements IGazeListener {
+
+		/**
+		 * Listener the frames are passed on to.
+		 */
+		private final IGazeListener downstream ;
+		/**
+		 * Log of the frame latencies.
+		 */
+		private final LatencyLog latencyLog ;
+
+		FrameProbe(IGazeListener downstream, LatencyLog latencyLog) {
+			this.downstream = downstream ;
+			this.latencyLog = latencyLog ;
+		}
+
+		@Override
+		public void onGazeUpdate(GazeData gazeData) {
+			latencyLog.record(System.nanoTime() - gazeData.timeStamp) ;
+			downstream.onGazeUpdate(gazeData) ;
+		}
+	}
+
+	/**
+	 * {@link outputPack.FixationSetSink} recording the latency of the last sample of each fixation set.
+	 */
+	private static class LatencySink implements FixationSetSink {
+
+		/**
+		 * Log of the fixation set latencies.
+		 */
+		private final LatencyLog latencyLog ;
+
+		LatencySink(LatencyLog latencyLog) {
+			this.latencyLog = latencyLog ;
+		}
+
+		@Override
+		public void write(FixationSet fixationSet, int fixationSetNumber) {
+			int sampleCount = fixationSet.getSampleCount() ;
+			if (sampleCount > 0)
+			{
+				latencyLog.record(System.nanoTime() - fixationSet.getTimeStamp(sampleCount - 1)) ;
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * Log of latencies in nanoseconds, filled by one thread and summarised once the run is over.
+	 */
+	private static class LatencyLog {
+
+		/**
+		 * Latencies recorded, up to {@link simPack.LoadGenerator#LATENCY_CAPACITY}.
+		 */
+		private final long[] latencies = new long[LATENCY_CAPACITY] ;
+		/**
+		 * Number of latencies recorded, including those beyond the capacity.
+		 */
+		private volatile long count ;
+
+		void record(long latencyNanos) {
+			long n = count ;
+			if (n < latencies.length)
+			{
+				latencies[(int) n] = latencyNanos ;
+			}
+			count = n + 1 ;
+		}
+
+		/**
+		 * Method to summarise the latencies.
+		 * @return percentiles and maximum in microseconds.
+		 */
+		String summary() {
+			int n = (int) Math.min(count, latencies.length) ;
+			if (n == 0)
+			{
+				return "no samples" ;
+			}
+			long[] sorted = Arrays.copyOf(latencies, n) ;
+			Arrays.sort(sorted) ;
+			return String.format("p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+					percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[n - 1] / 1e3) ;
+		}
+
+		private static double percentile(long[] sorted, double fraction) {
+			return sorted[(int) Math.min(sorted.length - 1, (long) (fraction * sorted.length))] / 1e3 ;
+		}
+	}
+}
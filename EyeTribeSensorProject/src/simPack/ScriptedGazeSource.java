@@ -0,0 +1,88 @@
+package simPack;
+
+import com.theeyetribe.client.data.GazeData;
+import com.theeyetribe.client.data.Point2D;
+
+import sessionPack.GazeSource;
+
+/**
+ * {@link sessionPack.GazeSource} simulating a viewer from a {@link simPack.GazeScript}.<br><p>
+ * Frames follow each other at a fixed rate for a fixed number of frames, time stamped in milliseconds from a given
+ * start, as if sent by the tracker. The source does not wait between frames; pacing is left to the session.
+ */
+public class ScriptedGazeSource implements GazeSource {
+
+	/**
+	 * State of every frame, the tracker seeing the gaze, the eyes and the viewer.
+	 */
+	private static final int FRAME_STATE = GazeData.STATE_TRACKING_GAZE | GazeData.STATE_TRACKING_EYES
+			| GazeData.STATE_TRACKING_PRESENCE ;
+
+	/**
+	 * {@link simPack.GazeScript} giving the gaze.
+	 */
+	private final GazeScript gazeScript ;
+	/**
+	 * Milliseconds between frames.
+	 */
+	private final double frameMillis ;
+	/**
+	 * Number of frames to send.
+	 */
+	private final long frameCount ;
+	/**
+	 * Time stamp of the first frame in milliseconds.
+	 */
+	private final long startTimeStamp ;
+	/**
+	 * Number of frames sent so far.
+	 */
+	private long framesSent ;
+
+	/**
+	 * Constructor to initialize the source.
+	 * @param gazeScript {@link simPack.GazeScript} giving the gaze.
+	 * @param fps frames per second.
+	 * @param frameCount number of frames to send.
+	 * @param startTimeStamp time stamp of the first frame in milliseconds.
+	 */
+	public ScriptedGazeSource(GazeScript gazeScript, int fps, long frameCount, long startTimeStamp) {
+		super();
+		if (fps <= 0)
+		{
+			throw new IllegalArgumentException("Frame rate must be positive: " + fps) ;
+		}
+		this.gazeScript = gazeScript ;
+		this.frameMillis = 1000.0 / fps ;
+		this.frameCount = frameCount ;
+		this.startTimeStamp = startTimeStamp ;
+	}
+
+	@Override
+	public boolean next(GazeData gazeData) {
+		if (framesSent == frameCount)
+		{
+			return false ;
+		}
+		if (framesSent > 0)
+		{
+			gazeScript.advance(frameMillis) ;
+		}
+		if (gazeData.smoothedCoordinates == null)
+		{
+			gazeData.smoothedCoordinates = new Point2D() ;
+		}
+		gazeData.smoothedCoordinates.x = gazeScript.getX() ;
+		gazeData.smoothedCoordinates.y = gazeScript.getY() ;
+		gazeData.rawCoordinates = gazeData.smoothedCoordinates ;
+		gazeData.state = FRAME_STATE ;
+		gazeData.isFixated = gazeScript.isFixated() ;
+		gazeData.timeStamp = startTimeStamp + Math.round(framesSent * frameMillis) ;
+		framesSent++ ;
+		return true ;
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,232 @@
+package simPack;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import commandPack.CommandEncoding;
+
+/**
+ * Class to stand in for the helper of the controlled web page on the loopback interface, so that a
+ * {@link commandPack.CommandTransport} can be run without a browser.<br><p>
+ * The stand-in reads the messages of {@link commandPack.CommandEncoding}, acknowledges each of them at once, and keeps
+ * what a page would show: the scroll position, the last point and the number of button presses. One client is served
+ * at a time, on a daemon thread.
+ */
+public class StandInCommandPage implements Closeable {
+
+	/**
+	 * Port to listen on, 0 for any free port.
+	 */
+	private final int requestedPort ;
+	private volatile ServerSocket serverSocket ;
+	private volatile Socket clientSocket ;
+	private volatile boolean closed ;
+
+	/**
+	 * Scroll position in pixels, growing downwards.
+	 */
+	private volatile long scrollPosition ;
+	private volatile long messageCount ;
+	private volatile long commandCount ;
+	private volatile float lastX , lastY ;
+	private volatile long pressCount ;
+	private volatile String lastInstruction ;
+
+	/**
+	 * Constructor to initialize the stand-in.
+	 * @param port port to listen on, 0 for any free port.
+	 */
+	public StandInCommandPage(int port) {
+		super();
+		this.requestedPort = port ;
+	}
+
+	/**
+	 * Method to start listening on the loopback interface.
+	 * @throws IOException if the port cannot be bound.
+	 */
+	public synchronized void start() throws IOException {
+		if (serverSocket != null)
+		{
+			throw new IllegalStateException("Stand-in command page already started") ;
+		}
+		serverSocket = new ServerSocket(requestedPort, 1, InetAddress.getLoopbackAddress()) ;
+		Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptClients() ;
+			}
+		}, "stand-in-page") ;
+		acceptThread.setDaemon(true) ;
+		acceptThread.start() ;
+	}
+
+	/**
+	 * Method to get the port the stand-in listens on.
+	 * @return the port, which is the bound one when 0 was requested.
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket ;
+		return socket != null ? socket.getLocalPort() : requestedPort ;
+	}
+
+	/**
+	 * Method to get the {@link simPack.StandInCommandPage#scrollPosition}.
+	 * @return {@link simPack.StandInCommandPage#scrollPosition}
+	 */
+	public long getScrollPosition() {
+		return scrollPosition ;
+	}
+
+	/**
+	 * Method to get the number of messages received.
+	 * @return {@link simPack.StandInCommandPage#messageCount}
+	 */
+	public long getMessageCount() {
+		return messageCount ;
+	}
+
+	/**
+	 * Method to get the number of commands received, counting those merged into one message.
+	 * @return {@link simPack.StandInCommandPage#commandCount}
+	 */
+	public long getCommandCount() {
+		return commandCount ;
+	}
+
+	/**
+	 * Method to get the x coordinate of the last point.
+	 * @return {@link simPack.StandInCommandPage#lastX}
+	 */
+	public float getLastX() {
+		return lastX ;
+	}
+
+	/**
+	 * Method to get the y coordinate of the last point.
+	 * @return {@link simPack.StandInCommandPage#lastY}
+	 */
+	public float getLastY() {
+		return lastY ;
+	}
+
+	/**
+	 * Method to get the number of points with the button pressed.
+	 * @return {@link simPack.StandInCommandPage#pressCount}
+	 */
+	public long getPressCount() {
+		return pressCount ;
+	}
+
+	/**
+	 * Method to get the last instruction and its attribute.
+	 * @return {@link simPack.StandInCommandPage#lastInstruction}, null if none.
+	 */
+	public String getLastInstruction() {
+		return lastInstruction ;
+	}
+
+	/**
+	 * Method to drop the client and stop listening.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true ;
+		Socket client = clientSocket ;
+		if (client != null)
+		{
+			client.close() ;
+		}
+		ServerSocket socket = serverSocket ;
+		if (socket != null)
+		{
+			socket.close() ;
+		}
+	}
+
+	/**
+	 * Method to accept and serve clients one after the other until closed.
+	 */
+	private void acceptClients() {
+		while (!closed)
+		{
+			try {
+				Socket client = serverSocket.accept() ;
+				client.setTcpNoDelay(true) ;
+				clientSocket = client ;
+				try {
+					serve(client) ;
+				} catch (EOFException e) {
+				} finally {
+					clientSocket = null ;
+					client.close() ;
+				}
+			} catch (IOException e) {
+				if (!closed)
+				{
+					System.out.println("Could Not serve the command transport!") ;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to read, apply and acknowledge the messages of a client until it disconnects.
+	 * @param client socket of the client.
+	 * @throws IOException if the socket fails.
+	 */
+	private void serve(Socket client) throws IOException {
+		DataInputStream input = new DataInputStream(client.getInputStream()) ;
+		OutputStream output = client.getOutputStream() ;
+		ByteBuffer message = ByteBuffer.allocate(CommandEncoding.MAXIMUM_MESSAGE_SIZE) ;
+		ByteBuffer acknowledgement = ByteBuffer.allocate(CommandEncoding.LENGTH_SIZE + CommandEncoding.HEADER_SIZE) ;
+		while (true)
+		{
+			int length = input.readUnsignedShort() ;
+			input.readFully(message.array(), 0, length) ;
+			apply(message) ;
+			acknowledgement.clear() ;
+			CommandEncoding.putAcknowledgement(acknowledgement, CommandEncoding.getSequence(message)) ;
+			output.write(acknowledgement.array(), 0, acknowledgement.position()) ;
+			output.flush() ;
+		}
+	}
+
+	/**
+	 * Method to apply a message to the state of the page.
+	 * @param message buffer holding the message after its length.
+	 */
+	private void apply(ByteBuffer message) {
+		switch (CommandEncoding.getType(message))
+		{
+		case CommandEncoding.TYPE_SCROLL_UP:
+			scrollPosition -= CommandEncoding.getPixelCount(message) ;
+			break ;
+		case CommandEncoding.TYPE_SCROLL_DOWN:
+			scrollPosition += CommandEncoding.getPixelCount(message) ;
+			break ;
+		case CommandEncoding.TYPE_POINT:
+			lastX = CommandEncoding.getX(message) ;
+			lastY = CommandEncoding.getY(message) ;
+			if (CommandEncoding.isPressButton(message))
+			{
+				pressCount++ ;
+			}
+			break ;
+		case CommandEncoding.TYPE_INSTRUCTION:
+			lastInstruction = CommandEncoding.getInstruction(message) + " " + CommandEncoding.getAttribute(message) ;
+			break ;
+		default:
+			break ;
+		}
+		commandCount += CommandEncoding.getCommandCount(message) ;
+		messageCount++ ;
+	}
+}
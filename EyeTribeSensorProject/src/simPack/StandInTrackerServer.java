@@ -0,0 +1,415 @@
+package simPack;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.theeyetribe.client.data.GazeData;
+
+/**
+ * Class to stand in for the EyeTribe tracker server on the loopback interface, so that
+ * {@link com.theeyetribe.client.GazeManager} can be activated without a tracker.<br><p>
+ * The server implements as much of the protocol as the client needs:<br>
+ * 1. Each request is one line of JSON, and is answered with one line carrying status code 200 and the same category
+ * and request.<br>
+ * 2. A tracker "get" is answered with fixed values for the screen, frame rate and calibration, which completes the
+ * activation of the client.<br>
+ * 3. A tracker "set" turning push on starts a thread streaming frames from a {@link simPack.GazeScript} at the
+ * configured rate.<br>
+ * 4. Heartbeats and calibration requests are simply acknowledged.<br>
+ * One client is served at a time, which matches the single {@link com.theeyetribe.client.GazeManager} of a JVM.
+ * Late frames are sent at once rather than skipped, so the number of frames sent stays exact under load.
+ */
+public class StandInTrackerServer implements Closeable {
+
+	/**
+	 * Port of the tracker server.
+	 */
+	public static final int DEFAULT_PORT = 6555 ;
+	/**
+	 * Screen width in pixels reported to the client.
+	 */
+	public static final int SCREEN_WIDTH = 1920 ;
+	/**
+	 * Screen height in pixels reported to the client.
+	 */
+	public static final int SCREEN_HEIGHT = 1080 ;
+	/**
+	 * Heartbeat interval in milliseconds reported to the client.
+	 */
+	public static final int HEARTBEAT_INTERVAL_MILLIS = 3000 ;
+	/**
+	 * Tracker state sent with every frame.
+	 */
+	private static final int FRAME_STATE = GazeData.STATE_TRACKING_GAZE | GazeData.STATE_TRACKING_EYES
+			| GazeData.STATE_TRACKING_PRESENCE ;
+
+	/**
+	 * Port to listen on, 0 for any free port.
+	 */
+	private final int requestedPort ;
+	/**
+	 * Number of frames streamed per second.
+	 */
+	private final int framesPerSecond ;
+	/**
+	 * {@link simPack.GazeScript} the frames are drawn from.
+	 */
+	private final GazeScript gazeScript ;
+	/**
+	 * {@link simPack.FrameClock} the frames are stamped with.
+	 */
+	private final FrameClock frameClock ;
+	/**
+	 * Number of frames sent so far, to all the clients served.
+	 */
+	private final AtomicLong framesSent = new AtomicLong() ;
+	/**
+	 * Socket accepting clients, null until started.
+	 */
+	private volatile ServerSocket serverSocket ;
+	/**
+	 * Socket of the client being served, null if none.
+	 */
+	private volatile Socket clientSocket ;
+	/**
+	 * Thread streaming frames to the client being served, null if none.
+	 */
+	private volatile Thread frameThread ;
+	/**
+	 * Whether {@link simPack.StandInTrackerServer#close()} was called.
+	 */
+	private volatile boolean closed ;
+
+	/**
+	 * Constructor to initialize the server with a default script and wall clock time stamps.
+	 * @param port port to listen on, 0 for any free port.
+	 * @param framesPerSecond number of frames streamed per second.
+	 */
+	public StandInTrackerServer(int port, int framesPerSecond) {
+		this(port, framesPerSecond, new GazeScript(SCREEN_WIDTH, SCREEN_HEIGHT, 0), FrameClock.WALL_CLOCK) ;
+	}
+
+	/**
+	 * Constructor to initialize the server.
+	 * @param port port to listen on, 0 for any free port.
+	 * @param framesPerSecond number of frames streamed per second.
+	 * @param gazeScript {@link simPack.GazeScript} the frames are drawn from.
+	 * @param frameClock {@link simPack.FrameClock} the frames are stamped with.
+	 */
+	public StandInTrackerServer(int port, int framesPerSecond, GazeScript gazeScript, FrameClock frameClock) {
+		super();
+		if (port < 0 || framesPerSecond <= 0)
+		{
+			throw new IllegalArgumentException("Invalid stand-in tracker server") ;
+		}
+		this.requestedPort = port ;
+		this.framesPerSecond = framesPerSecond ;
+		this.gazeScript = gazeScript ;
+		this.frameClock = frameClock ;
+	}
+
+	/**
+	 * Method to start listening on the loopback interface.<br>
+	 * Clients are accepted on a daemon thread of their own.
+	 * @throws IOException if the port cannot be bound.
+	 */
+	public synchronized void start() throws IOException {
+		if (serverSocket != null)
+		{
+			throw new IllegalStateException("Stand-in tracker server already started") ;
+		}
+		serverSocket = new ServerSocket(requestedPort, 1, InetAddress.getLoopbackAddress()) ;
+		Thread acceptThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptClients() ;
+			}
+		}, "stand-in-tracker") ;
+		acceptThread.setDaemon(true) ;
+		acceptThread.start() ;
+	}
+
+	/**
+	 * Method to get the port the server listens on.
+	 * @return the port, which is the bound one when 0 was requested.
+	 */
+	public int getPort() {
+		ServerSocket socket = serverSocket ;
+		return socket != null ? socket.getLocalPort() : requestedPort ;
+	}
+
+	/**
+	 * Method to get the number of frames sent so far, to all the clients served.
+	 * @return the number of frames.
+	 */
+	public long getFramesSent() {
+		return framesSent.get() ;
+	}
+
+	/**
+	 * Method to drop the client, stop the frames and stop listening.<br>
+	 * The client socket is closed before waiting for the frame thread, so that a frame blocked on a client which has
+	 * stopped reading fails at once rather than holding up the close.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true ;
+		Socket client = clientSocket ;
+		if (client != null)
+		{
+			client.close() ;
+		}
+		stopFrames() ;
+		ServerSocket socket = serverSocket ;
+		if (socket != null)
+		{
+			socket.close() ;
+		}
+	}
+
+	/**
+	 * Method to accept and serve clients one after the other until the server is closed.
+	 */
+	private void acceptClients() {
+		while (!closed)
+		{
+			try {
+				Socket client = serverSocket.accept() ;
+				client.setTcpNoDelay(true) ;
+				clientSocket = client ;
+				try {
+					serve(client) ;
+				} finally {
+					client.close() ;
+					stopFrames() ;
+					clientSocket = null ;
+				}
+			} catch (IOException e) {
+				if (!closed)
+				{
+					System.out.println("Could Not serve the tracker client!") ;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to answer the requests of a client until it disconnects.
+	 * @param client socket of the client.
+	 * @throws IOException if the socket fails.
+	 */
+	private void serve(Socket client) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8)) ;
+		Writer writer = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) ;
+		JsonParser parser = new JsonParser() ;
+		String line ;
+		while ((line = reader.readLine()) != null)
+		{
+			if (line.isEmpty())
+			{
+				continue ;
+			}
+			JsonObject request = parser.parse(line).getAsJsonObject() ;
+			String category = getString(request, "category") ;
+			String requestType = getString(request, "request") ;
+			if ("tracker".equals(category) && "get".equals(requestType))
+			{
+				send(writer, trackerValues()) ;
+			}
+			else
+			{
+				send(writer, "{\"category\":\"" + category + "\""
+						+ (requestType != null ? ",\"request\":\"" + requestType + "\"" : "")
+						+ ",\"statuscode\":200}") ;
+				if ("tracker".equals(category) && "set".equals(requestType))
+				{
+					JsonElement values = request.get("values") ;
+					JsonElement push = values != null && values.isJsonObject() ? values.getAsJsonObject().get("push") : null ;
+					if (push != null && push.getAsBoolean())
+					{
+						startFrames(writer) ;
+					}
+					else if (push != null)
+					{
+						stopFrames() ;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to build the reply to a tracker "get" request.<br>
+	 * All values are sent whatever was asked, which the client accepts.
+	 * @return the reply as one line of JSON.
+	 */
+	private String trackerValues() {
+		return "{\"category\":\"tracker\",\"request\":\"get\",\"statuscode\":200,\"values\":{"
+				+ "\"push\":" + (frameThread != null)
+				+ ",\"heartbeatinterval\":" + HEARTBEAT_INTERVAL_MILLIS
+				+ ",\"version\":1,\"trackerstate\":0,\"framerate\":" + Math.min(framesPerSecond, 60)
+				+ ",\"iscalibrated\":true,\"iscalibrating\":false,\"screenindex\":0"
+				+ ",\"screenresw\":" + SCREEN_WIDTH + ",\"screenresh\":" + SCREEN_HEIGHT
+				+ ",\"screenpsyw\":0.52,\"screenpsyh\":0.29}}" ;
+	}
+
+	/**
+	 * Method to start streaming frames to a client, if not already doing so.
+	 * @param writer writer of the client.
+	 */
+	private synchronized void startFrames(final Writer writer) {
+		if (frameThread != null)
+		{
+			return ;
+		}
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				streamFrames(writer) ;
+			}
+		}, "stand-in-tracker-frames") ;
+		thread.setDaemon(true) ;
+		frameThread = thread ;
+		thread.start() ;
+	}
+
+	/**
+	 * Method to stop streaming frames and wait for the frame thread to end.
+	 */
+	private synchronized void stopFrames() {
+		Thread thread = frameThread ;
+		if (thread == null)
+		{
+			return ;
+		}
+		frameThread = null ;
+		thread.interrupt() ;
+		try {
+			thread.join() ;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt() ;
+		}
+	}
+
+	/**
+	 * Method to send frames at the configured rate until interrupted or the client is gone.
+	 * @param writer writer of the client.
+	 */
+	private void streamFrames(Writer writer) {
+		SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS") ;
+		Date date = new Date() ;
+		StringBuilder frame = new StringBuilder(512) ;
+		double frameMillis = 1000.0 / framesPerSecond ;
+		long frameNanos = 1000000000L / framesPerSecond ;
+		long startNanos = System.nanoTime() ;
+		long frameIndex = 0 ;
+		try {
+			while (!Thread.currentThread().isInterrupted())
+			{
+				long remaining = startNanos + frameIndex * frameNanos - System.nanoTime() ;
+				if (remaining > 0)
+				{
+					LockSupport.parkNanos(remaining) ;
+					continue ;
+				}
+				gazeScript.advance(frameIndex == 0 ? 0 : frameMillis) ;
+				frame.setLength(0) ;
+				long timeStamp = frameClock.now() ;
+				frame.append("{\"category\":\"tracker\",\"request\":\"get\",\"statuscode\":200,\"values\":{\"frame\":{") ;
+				frame.append("\"time\":").append(timeStamp) ;
+				frame.append(",\"timestamp\":\"") ;
+				if (frameClock == FrameClock.WALL_CLOCK)
+				{
+					date.setTime(timeStamp) ;
+					frame.append(dateFormat.format(date)) ;
+				}
+				frame.append('"') ;
+				frame.append(",\"fix\":").append(gazeScript.isFixated()) ;
+				frame.append(",\"state\":").append(FRAME_STATE) ;
+				appendPoint(frame, "raw", gazeScript.getX(), gazeScript.getY()) ;
+				appendPoint(frame, "avg", gazeScript.getX(), gazeScript.getY()) ;
+				appendEye(frame, "lefteye", gazeScript.getX(), gazeScript.getY(), 0.4) ;
+				appendEye(frame, "righteye", gazeScript.getX(), gazeScript.getY(), 0.6) ;
+				frame.append("}}}") ;
+				send(writer, frame) ;
+				frameIndex++ ;
+				framesSent.incrementAndGet() ;
+			}
+		} catch (IOException e) {
+			if (!closed)
+			{
+				System.out.println("Could Not send frame to the tracker client!") ;
+			}
+		}
+	}
+
+	/**
+	 * Method to append a named point to a frame.
+	 * @param frame frame being built.
+	 * @param name name of the point.
+	 * @param x x coordinate.
+	 * @param y y coordinate.
+	 */
+	private static void appendPoint(StringBuilder frame, String name, double x, double y) {
+		frame.append(",\"").append(name).append("\":{\"x\":").append(x).append(",\"y\":").append(y).append('}') ;
+	}
+
+	/**
+	 * Method to append a named eye to a frame.
+	 * @param frame frame being built.
+	 * @param name name of the eye.
+	 * @param x x coordinate of the eye's gaze.
+	 * @param y y coordinate of the eye's gaze.
+	 * @param pupilX x coordinate of the pupil centre in the camera image, from 0 to 1.
+	 */
+	private static void appendEye(StringBuilder frame, String name, double x, double y, double pupilX) {
+		frame.append(",\"").append(name).append("\":{\"psize\":20.0") ;
+		appendPoint(frame, "raw", x, y) ;
+		appendPoint(frame, "avg", x, y) ;
+		appendPoint(frame, "pcenter", pupilX, 0.5) ;
+		frame.append('}') ;
+	}
+
+	/**
+	 * Method to send one line to the client.<br>
+	 * Replies and frames come from different threads, so the writer is locked for each line.
+	 * @param writer writer of the client.
+	 * @param line line without its line break.
+	 * @throws IOException if the socket fails.
+	 */
+	private static void send(Writer writer, CharSequence line) throws IOException {
+		synchronized (writer)
+		{
+			writer.append(line) ;
+			writer.write('\n') ;
+			writer.flush() ;
+		}
+	}
+
+	/**
+	 * Method to get a string member of a request.
+	 * @param request request.
+	 * @param name name of the member.
+	 * @return the value, null if missing.
+	 */
+	private static String getString(JsonObject request, String name) {
+		JsonElement element = request.get(name) ;
+		return element != null && !element.isJsonNull() ? element.getAsString() : null ;
+	}
+}